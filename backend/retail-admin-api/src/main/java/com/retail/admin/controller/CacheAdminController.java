@@ -0,0 +1,41 @@
+package com.retail.admin.controller;
+
+import com.retail.application.dto.CatalogWarmUpDTO;
+import com.retail.application.service.cache.CatalogWarmUpService;
+import com.retail.common.response.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Nạp lại cache danh mục sản phẩm (vd. sau khi flush Redis) và xem tiến độ
+ */
+@RestController
+@RequestMapping("/api/v1/admin/cache")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class CacheAdminController {
+
+    private final CatalogWarmUpService catalogWarmUpService;
+
+    /**
+     * Bắt đầu warm-up ở background - đang chạy thì trả về tiến độ của lần đang chạy
+     */
+    @PostMapping("/warm-up")
+    public ResponseEntity<ApiResponse<CatalogWarmUpDTO>> startWarmUp() {
+        log.info("Catalog warm-up requested");
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(catalogWarmUpService.start()));
+    }
+
+    @GetMapping("/warm-up")
+    public ResponseEntity<ApiResponse<CatalogWarmUpDTO>> getWarmUpStatus() {
+        return ResponseEntity.ok(ApiResponse.success(catalogWarmUpService.getStatus()));
+    }
+}
@@ -6,9 +6,15 @@ import com.retail.application.dto.NguyenLieuDTO;
 import com.retail.application.dto.NhapXuatNguyenLieuRequest;
 import com.retail.application.dto.PhieuNhapXuatNguyenLieuDTO;
 import com.retail.application.service.nguyenlieu.NguyenLieuService;
-import com.retail.application.service.report.NguyenLieuReportService;
+import com.retail.application.dto.ReportJobDTO;
+import com.retail.application.service.report.ExcelExportSupport;
+import com.retail.application.service.report.ReportJobRequest;
+import com.retail.application.service.report.ReportJobService;
+import com.retail.application.service.report.ReportJobService.ReportFile;
+import com.retail.application.service.report.ReportJobType;
 import com.retail.common.constant.Status;
 import com.retail.common.response.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,13 +23,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/v1/admin/nguyen-lieu")
@@ -34,7 +38,7 @@ import java.time.format.DateTimeFormatter;
 public class NguyenLieuAdminController {
 
     private final NguyenLieuService nguyenLieuService;
-    private final NguyenLieuReportService nguyenLieuReportService;
+    private final ReportJobService reportJobService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<NguyenLieuDTO>> createNguyenLieu(@Valid @RequestBody NguyenLieuDTO dto) {
@@ -231,87 +235,41 @@ public class NguyenLieuAdminController {
      * Xuất Excel danh sách nguyên liệu tồn kho
      */
     @GetMapping("/ton-kho/excel")
-    public ResponseEntity<byte[]> exportTonKhoExcel() {
+    public void exportTonKhoExcel(HttpServletResponse response) throws IOException {
         log.info("Request to export ton kho Excel");
-
-        try {
-            byte[] excelData = nguyenLieuReportService.exportTonKhoExcel();
-
-            String filename = String.format("DanhSachNguyenLieuTonKho_%s.xlsx",
-                    LocalDate.now().format(DateTimeFormatter.ofPattern("ddMMyyyy")));
-
-            log.info("Ton kho Excel generated successfully, size: {} bytes, filename: {}",
-                    excelData.length, filename);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.parseMediaType(
-                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(excelData);
-
-        } catch (Exception e) {
-            log.error("Error generating ton kho Excel", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        sendExcel(response, ReportJobType.NGUYEN_LIEU_TON_KHO);
     }
 
     /**
      * Xuất Excel bảng nhập kho
      */
     @GetMapping("/nhap-kho/excel")
-    public ResponseEntity<byte[]> exportNhapKhoExcel() {
+    public void exportNhapKhoExcel(HttpServletResponse response) throws IOException {
         log.info("Request to export nhap kho Excel");
-
-        try {
-            byte[] excelData = nguyenLieuReportService.exportNhapKhoExcel();
-
-            String filename = String.format("BangNhapKho_%s.xlsx",
-                    LocalDate.now().format(DateTimeFormatter.ofPattern("ddMMyyyy")));
-
-            log.info("Nhap kho Excel generated successfully, size: {} bytes, filename: {}",
-                    excelData.length, filename);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.parseMediaType(
-                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(excelData);
-
-        } catch (Exception e) {
-            log.error("Error generating nhap kho Excel", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        sendExcel(response, ReportJobType.NHAP_KHO);
     }
 
     /**
      * Xuất Excel bảng xuất kho
      */
     @GetMapping("/xuat-kho/excel")
-    public ResponseEntity<byte[]> exportXuatKhoExcel() {
+    public void exportXuatKhoExcel(HttpServletResponse response) throws IOException {
         log.info("Request to export xuat kho Excel");
+        sendExcel(response, ReportJobType.XUAT_KHO);
+    }
 
-        try {
-            byte[] excelData = nguyenLieuReportService.exportXuatKhoExcel();
-
-            String filename = String.format("BangXuatKho_%s.xlsx",
-                    LocalDate.now().format(DateTimeFormatter.ofPattern("ddMMyyyy")));
-
-            log.info("Xuat kho Excel generated successfully, size: {} bytes, filename: {}",
-                    excelData.length, filename);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.parseMediaType(
-                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(excelData);
-
-        } catch (Exception e) {
-            log.error("Error generating xuat kho Excel", e);
-            return ResponseEntity.internalServerError().build();
-        }
+    /**
+     * File tạo trên pool worker báo cáo (gộp với yêu cầu giống hệt đang chạy) - thread request chỉ chờ rồi gửi file.
+     * Lỗi khi tạo trả về lỗi JSON trước khi gửi byte nào
+     */
+    private void sendExcel(HttpServletResponse response, ReportJobType type) throws IOException {
+        ReportJobDTO job = reportJobService.submit(ReportJobRequest.of(type));
+        ReportFile file = reportJobService.awaitFile(job.getJobId());
+
+        response.setContentType(ExcelExportSupport.CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.fileName() + "\"");
+        response.setContentLengthLong(file.size());
+        file.writeTo(response.getOutputStream());
+        log.info("Excel {} sent successfully", file.fileName());
     }
 }
-
@@ -1,7 +1,11 @@
 package com.retail.admin.controller;
 
+import com.retail.application.dto.CouponBatchDTO;
 import com.retail.application.dto.PromotionDTO;
+import com.retail.application.dto.PromotionSimulationDTO;
+import com.retail.application.service.promotion.CouponService;
 import com.retail.application.service.promotion.PromotionService;
+import com.retail.application.service.promotion.PromotionSimulationService;
 import com.retail.common.response.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +28,8 @@ import java.util.List;
 public class PromotionController {
 
     private final PromotionService promotionService;
+    private final PromotionSimulationService promotionSimulationService;
+    private final CouponService couponService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<PromotionDTO>> createPromotion(@Valid @RequestBody PromotionDTO dto) {
@@ -70,6 +76,37 @@ public class PromotionController {
         return ResponseEntity.ok(ApiResponse.success(promotions));
     }
 
+    /**
+     * Ước tính chi phí khuyến mãi nháp nếu đã chạy trong {@code weeks} tuần gần nhất (không lưu khuyến mãi)
+     */
+    @PostMapping("/simulate")
+    public ResponseEntity<ApiResponse<PromotionSimulationDTO>> simulatePromotion(
+            @RequestBody PromotionDTO draft,
+            @RequestParam(defaultValue = "4") int weeks) {
+        log.info("Simulating draft promotion {} over {} weeks", draft.getMaKhuyenMai(), weeks);
+        PromotionSimulationDTO simulation = promotionSimulationService.simulate(draft, weeks);
+        return ResponseEntity.ok(ApiResponse.success(simulation));
+    }
+
+    /**
+     * Tạo lô mã giảm giá dùng 1 lần cho khuyến mãi (tối đa 500.000 mã mỗi lần)
+     */
+    @PostMapping("/{id}/coupons")
+    public ResponseEntity<ApiResponse<CouponBatchDTO>> generateCoupons(
+            @PathVariable Long id,
+            @RequestParam int quantity) {
+        log.info("Generating {} coupon codes for promotion ID: {}", quantity, id);
+        CouponBatchDTO batch = couponService.generate(id, quantity);
+        return ResponseEntity.ok(ApiResponse.success(batch));
+    }
+
+    @GetMapping("/{id}/coupons")
+    public ResponseEntity<ApiResponse<CouponBatchDTO>> getCouponSummary(@PathVariable Long id) {
+        log.info("Getting coupon summary for promotion ID: {}", id);
+        CouponBatchDTO summary = couponService.getSummary(id);
+        return ResponseEntity.ok(ApiResponse.success(summary));
+    }
+
     @PostMapping("/{id}/activate")
     public ResponseEntity<ApiResponse<String>> activatePromotion(@PathVariable Long id) {
         log.info("Activating promotion ID: {}", id);
@@ -4,6 +4,7 @@ import com.retail.application.dto.ProductDTO;
 import com.retail.application.dto.RevenueReportDTO;
 import com.retail.application.dto.TopProductDTO;
 import com.retail.application.service.report.ReportService;
+import com.retail.application.service.report.SalesRollupService;
 import com.retail.common.response.ApiResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +25,7 @@ import java.util.List;
 public class ReportAdminController {
 
     private final ReportService reportService;
+    private final SalesRollupService salesRollupService;
 
     @GetMapping("/revenue")
     public ResponseEntity<ApiResponse<RevenueReportDTO>> getRevenueReport(
@@ -60,4 +62,17 @@ public class ReportAdminController {
         List<ProductDTO> products = reportService.getLowStockProducts();
         return ResponseEntity.ok(ApiResponse.success(products));
     }
-}
\ No newline at end of file
+
+    /**
+     * Dựng lại rollup doanh số từ hóa đơn cho khoảng ngày (backfill / sửa lệch) - trả về số ngày đã dựng
+     */
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Integer>> rebuildSalesRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.info("Rebuilding sales rollup from {} to {}", startDate, endDate);
+        int days = salesRollupService.rebuild(startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success(days));
+    }
+}
@@ -0,0 +1,80 @@
+package com.retail.admin.controller;
+
+import com.retail.application.dto.ReportJobDTO;
+import com.retail.application.service.report.ExcelExportSupport;
+import com.retail.application.service.report.ReportJobRequest;
+import com.retail.application.service.report.ReportJobService;
+import com.retail.application.service.report.ReportJobService.ReportFile;
+import com.retail.application.service.report.ReportJobType;
+import com.retail.common.response.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Job xuất báo cáo Excel: gửi yêu cầu -> hỏi trạng thái theo jobId -> tải file khi DONE
+ */
+@RestController
+@RequestMapping("/api/v1/admin/reports/jobs")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+public class ReportJobAdminController {
+
+    private static final String JOBS_PATH = "/api/v1/admin/reports/jobs/";
+
+    private final ReportJobService reportJobService;
+
+    /**
+     * Gửi yêu cầu tạo báo cáo - yêu cầu giống hệt 1 job đang chạy nhận lại jobId của job đó
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<ReportJobDTO>> submitJob(
+            @RequestParam ReportJobType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Integer limit) {
+        log.info("Submitting {} report job from {} to {}", type, startDate, endDate);
+        ReportJobDTO job = reportJobService.submit(ReportJobRequest.of(type, startDate, endDate, limit));
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(withDownloadUrl(job)));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<ReportJobDTO>> getJob(@PathVariable String jobId) {
+        ReportJobDTO job = reportJobService.getJob(jobId);
+        return ResponseEntity.ok(ApiResponse.success(withDownloadUrl(job)));
+    }
+
+    /**
+     * Tải file của job đã xong - chỉ đọc file tạm, không truy cập DB
+     */
+    @GetMapping("/{jobId}/download")
+    public void download(@PathVariable String jobId, HttpServletResponse response) throws IOException {
+        ReportFile file = reportJobService.getFile(jobId);
+
+        response.setContentType(ExcelExportSupport.CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.fileName() + "\"");
+        response.setContentLengthLong(file.size());
+        file.writeTo(response.getOutputStream());
+        log.info("Report job {} downloaded: {}", jobId, file.fileName());
+    }
+
+    private static ReportJobDTO withDownloadUrl(ReportJobDTO job) {
+        if ("DONE".equals(job.getStatus())) {
+            job.setDownloadUrl(JOBS_PATH + job.getJobId() + "/download");
+        }
+        return job;
+    }
+}
@@ -1,16 +1,21 @@
 package com.retail.api.controller;
 
-import com.retail.application.service.report.RevenueReportService;
+import com.retail.application.dto.ReportJobDTO;
+import com.retail.application.service.report.ExcelExportSupport;
+import com.retail.application.service.report.ReportJobRequest;
+import com.retail.application.service.report.ReportJobService;
+import com.retail.application.service.report.ReportJobService.ReportFile;
+import com.retail.application.service.report.ReportJobType;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Controller REST API cho xuất báo cáo Excel - Doanh thu
@@ -21,7 +26,7 @@ import java.time.format.DateTimeFormatter;
 @Slf4j
 public class ReportController {
 
-    private final RevenueReportService revenueReportService;
+    private final ReportJobService reportJobService;
 
     /**
      * Tải xuống báo cáo doanh thu dạng Excel
@@ -31,7 +36,7 @@ public class ReportController {
      * - startDate/endDate (backward compatible)
      */
     @GetMapping("/revenue/excel")
-    public ResponseEntity<byte[]> downloadRevenueReportExcel(
+    public void downloadRevenueReportExcel(
             @RequestParam(name = "fromDate", required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             LocalDate fromDate,
@@ -46,8 +51,10 @@ public class ReportController {
 
             @RequestParam(name = "endDate", required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
-            LocalDate endDate
-    ) {
+            LocalDate endDate,
+
+            HttpServletResponse response
+    ) throws IOException {
         // Use new parameter names if provided, otherwise fallback to old names
         LocalDate actualStartDate = fromDate != null ? fromDate : startDate;
         LocalDate actualEndDate = toDate != null ? toDate : endDate;
@@ -68,32 +75,17 @@ public class ReportController {
             actualEndDate = temp;
         }
 
-        try {
-            // Generate Excel file
-            byte[] excelData = revenueReportService.generateRevenueReportExcel(actualStartDate, actualEndDate);
-
-            // Create filename with date range
-            String filename = String.format("BaoCaoDoanhThu_%s_den_%s.xlsx",
-                    actualStartDate.format(DateTimeFormatter.ofPattern("ddMMyyyy")),
-                    actualEndDate.format(DateTimeFormatter.ofPattern("ddMMyyyy"))
-            );
-
-            log.info("Revenue report generated successfully, size: {} bytes, filename: {}",
-                    excelData.length, filename);
+        // Tạo trên pool worker báo cáo (gộp với yêu cầu giống hệt đang chạy) - thread request chỉ chờ rồi gửi file,
+        // không giữ kết nối DB trong lúc tạo
+        ReportJobDTO job = reportJobService.submit(
+                ReportJobRequest.of(ReportJobType.REVENUE, actualStartDate, actualEndDate, null));
+        ReportFile file = reportJobService.awaitFile(job.getJobId());
 
-            // Return file with headers
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.parseMediaType(
-                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(excelData);
-
-        } catch (Exception e) {
-            log.error("Error generating revenue report from {} to {}", actualStartDate, actualEndDate, e);
-            // Return detailed error for debugging
-            throw new RuntimeException("Lỗi khi tạo báo cáo doanh thu: " + e.getMessage(), e);
-        }
+        response.setContentType(ExcelExportSupport.CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.fileName() + "\"");
+        response.setContentLengthLong(file.size());
+        file.writeTo(response.getOutputStream());
+        log.info("Revenue report sent successfully, filename: {}", file.fileName());
     }
 
     /**
@@ -2,8 +2,8 @@ package com.retail.application.aspect;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retail.application.dto.AuditLogDTO;
-import com.retail.application.service.audit.AuditLogService;
-import com.retail.application.service.employee.EmployeeService;
+import com.retail.application.service.outbox.OutboxService;
+import com.retail.domain.entity.OutboxEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
@@ -20,9 +20,11 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
+import java.time.LocalDateTime;
 
 /**
  * Aspect tự động ghi log audit cho các method được đánh dấu @Audited
+ * Audit log được ghi qua outbox (AuditLogOutboxHandler ghi theo lô) - không insert audit_log trên request thread
  */
 @Aspect
 @Component
@@ -30,8 +32,7 @@ import java.lang.reflect.Method;
 @Slf4j
 public class AuditAspect {
 
-    private final AuditLogService auditLogService;
-    private final EmployeeService employeeService;
+    private final OutboxService outboxService;
     private final ObjectMapper objectMapper;
 
     /**
@@ -105,19 +106,12 @@ public class AuditAspect {
             // Get entity ID
             Long entityId = extractEntityId(result, args);
 
-            // Get user information
-            Long userId = null;
+            // Get user information - userId được tra cứu theo username khi xử lý outbox
             String username = null;
             try {
                 Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
                 if (authentication != null && authentication.isAuthenticated()) {
                     username = authentication.getName();
-                    try {
-                        var employee = employeeService.findByUsername(username);
-                        userId = employee.getId();
-                    } catch (Exception e) {
-                        log.warn("Could not find employee for username: {}", username, e);
-                    }
                 }
             } catch (Exception e) {
                 log.debug("Could not get user information from SecurityContext", e);
@@ -165,14 +159,14 @@ public class AuditAspect {
                     .entityName(entityName)
                     .entityId(entityId)
                     .action(action)
-                    .userId(userId)
                     .username(username)
                     .oldValue(oldValue)
                     .newValue(newValue)
                     .ipAddress(ipAddress)
+                    .actionTime(LocalDateTime.now())
                     .build();
 
-            auditLogService.create(auditLogDTO);
+            outboxService.enqueue(OutboxEvent.EventType.AUDIT_LOG, entityId, auditLogDTO);
 
         } catch (Exception e) {
             log.error("Error creating audit log", e);
@@ -0,0 +1,85 @@
+package com.retail.application.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Xử lý song song các khối đọc từ 1 nguồn tuần tự (con trỏ JDBC) trên ForkJoinPool riêng.
+ *
+ * - Thread đọc giao từng khối cho pool ngay khi đọc xong, không giữ tham chiếu tới task -
+ *   khối được giải phóng ngay khi xử lý xong
+ * - Số khối đang chờ / đang xử lý bị giới hạn (2 x số thread): đủ việc cho mọi thread trong khi
+ *   thread đọc chuẩn bị khối tiếp theo, heap chỉ giữ vài khối cùng lúc dù nguồn có hàng triệu dòng
+ * - Khối đầu tiên bị lỗi làm dừng việc đọc; mọi khối đã giao được chờ xong rồi mới trả về / ném lỗi
+ *
+ * Dùng chung cho RevenueReportService và PromotionSimulationServiceImpl
+ */
+public final class BoundedChunkExecutor {
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final int maxChunksInFlight;
+
+    /**
+     * @param name        tên tác vụ - dùng trong thông báo lỗi
+     * @param parallelism số thread của pool (<= 0 = số CPU)
+     */
+    public BoundedChunkExecutor(String name, int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.name = name;
+        this.pool = new ForkJoinPool(threads);
+        this.maxChunksInFlight = threads * 2;
+    }
+
+    /**
+     * Chạy nguồn đọc trên thread gọi và xử lý từng khối trên pool
+     *
+     * @param source nhận hàm giao khối và gọi hàm đó cho mỗi khối đọc được (trên thread gọi)
+     * @param worker xử lý 1 khối trên pool - có thể chạy đồng thời với các khối khác
+     * @throws IllegalStateException khi 1 khối bị lỗi hoặc thread gọi bị interrupt
+     */
+    public <C> void run(Consumer<Consumer<C>> source, Consumer<C> worker) {
+        Semaphore inFlight = new Semaphore(maxChunksInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        try {
+            source.accept(chunk -> {
+                acquire(inFlight, 1);
+                if (failure.get() != null) {
+                    inFlight.release();
+                    throw new IllegalStateException(name + " aborted", failure.get());
+                }
+                pool.execute(() -> {
+                    try {
+                        worker.accept(chunk);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+        } finally {
+            // Chờ mọi khối đã giao xử lý xong (kể cả khi nguồn đọc lỗi)
+            acquire(inFlight, maxChunksInFlight);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException(name + " failed", failure.get());
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.retail.application.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Số lần xóa (evict / clear) của từng cache trên node này - dùng chung giữa NearCacheManager (tăng khi xóa,
+ * kể cả lần xóa do node khác báo qua pub/sub) và RedisCachePreloader (giá trị warm-up đọc từ DB trước 1 lần xóa
+ * không được để lại trong cache).
+ *
+ * Chỉ cache có L1 (app.cache.near) mới được đếm
+ */
+public class CacheGenerations {
+
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public long current(String cacheName) {
+        return counter(cacheName).get();
+    }
+
+    AtomicLong counter(String cacheName) {
+        return counters.computeIfAbsent(cacheName, name -> new AtomicLong());
+    }
+}
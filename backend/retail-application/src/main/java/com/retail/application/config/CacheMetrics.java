@@ -0,0 +1,199 @@
+package com.retail.application.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metric của tầng cache (Micrometer, tag cache = tên cache) và mẫu tần suất đọc theo key.
+ *
+ * - retail.cache.gets{result=hit|miss}, retail.cache.puts, retail.cache.evictions{scope=key|all}:
+ *   như service thấy (hit gồm cả L1 của near cache) - xem InstrumentedCacheManager
+ * - retail.cache.redis.latency{operation=get|put|evict|clear}: 1 lần gọi Redis, gồm cả serialize -
+ *   số lần get ở đây so với retail.cache.gets cho biết tỉ lệ đọc được L1 trả
+ * - retail.cache.serialization{operation=serialize|deserialize}, retail.cache.payload.bytes{operation}
+ * - retail.cache.near.size: số entry đang giữ ở L1 (RedisConfig đăng ký)
+ *
+ * Hot keys: cứ khoảng sampleEvery lần đọc thì đếm 1 lần; số key theo dõi vượt maxTrackedKeys thì mọi
+ * bộ đếm chia đôi và bỏ key về 0 - key đọc nhiều gần đây giữ lại, key lâu không đọc tự rơi ra
+ */
+public class CacheMetrics {
+
+    static final String GETS = "retail.cache.gets";
+    static final String PUTS = "retail.cache.puts";
+    static final String EVICTIONS = "retail.cache.evictions";
+    static final String REDIS_LATENCY = "retail.cache.redis.latency";
+    static final String SERIALIZATION = "retail.cache.serialization";
+    static final String PAYLOAD_BYTES = "retail.cache.payload.bytes";
+    static final String NEAR_SIZE = "retail.cache.near.size";
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    private final MeterRegistry registry;
+    private final int sampleEvery;
+    private final int maxTrackedKeys;
+    private final ConcurrentMap<String, CacheMeters> meters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<KeyRef, LongAdder> keyCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Key đọc nhiều: samples = số lần được lấy mẫu, estimatedReads ≈ samples x tần suất lấy mẫu
+     * (ước lượng thấp hơn thực tế sau mỗi lần chia đôi)
+     */
+    public record HotKey(String cache, String key, long samples, long estimatedReads) {
+    }
+
+    private record KeyRef(String cache, String key) {
+    }
+
+    public CacheMetrics(MeterRegistry registry, int sampleEvery, int maxTrackedKeys) {
+        this.registry = registry;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.maxTrackedKeys = Math.max(1, maxTrackedKeys);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    void recordGet(String cache, Object key, boolean hit) {
+        CacheMeters m = meters(cache);
+        (hit ? m.hits : m.misses).increment();
+        sample(cache, key);
+    }
+
+    void recordPut(String cache) {
+        meters(cache).puts.increment();
+    }
+
+    void recordEviction(String cache, boolean allEntries) {
+        CacheMeters m = meters(cache);
+        (allEntries ? m.clears : m.evictions).increment();
+    }
+
+    void recordRedis(String cache, String operation, long nanos) {
+        CacheMeters m = meters(cache);
+        Timer timer = switch (operation) {
+            case "get" -> m.redisGet;
+            case "put" -> m.redisPut;
+            case "evict" -> m.redisEvict;
+            default -> m.redisClear;
+        };
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordSerialize(String cache, long nanos, int bytes) {
+        CacheMeters m = meters(cache);
+        m.serialize.record(nanos, TimeUnit.NANOSECONDS);
+        m.writtenBytes.record(bytes);
+    }
+
+    void recordDeserialize(String cache, long nanos, int bytes) {
+        CacheMeters m = meters(cache);
+        m.deserialize.record(nanos, TimeUnit.NANOSECONDS);
+        m.readBytes.record(bytes);
+    }
+
+    /**
+     * @param cache null = mọi cache
+     */
+    public List<HotKey> hotKeys(String cache, int limit) {
+        return keyCounts.entrySet().stream()
+                .filter(e -> cache == null || cache.equals(e.getKey().cache()))
+                .map(e -> {
+                    long samples = e.getValue().sum();
+                    return new HotKey(e.getKey().cache(), e.getKey().key(), samples, samples * sampleEvery);
+                })
+                .filter(k -> k.samples() > 0)
+                .sorted(Comparator.comparingLong(HotKey::samples).reversed())
+                .limit(Math.max(0, limit))
+                .toList();
+    }
+
+    private void sample(String cache, Object key) {
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return;
+        }
+        String keyText = String.valueOf(key);
+        if (keyText.length() > MAX_KEY_LENGTH) {
+            keyText = keyText.substring(0, MAX_KEY_LENGTH);
+        }
+        keyCounts.computeIfAbsent(new KeyRef(cache, keyText), k -> new LongAdder()).increment();
+        if (keyCounts.size() > maxTrackedKeys) {
+            decay();
+        }
+    }
+
+    private synchronized void decay() {
+        if (keyCounts.size() <= maxTrackedKeys) {
+            return;
+        }
+        // Lần đếm chen vào giữa sum() và reset() có thể mất - chấp nhận được với số liệu lấy mẫu
+        for (Map.Entry<KeyRef, LongAdder> entry : keyCounts.entrySet()) {
+            LongAdder count = entry.getValue();
+            long halved = count.sum() / 2;
+            if (halved == 0) {
+                keyCounts.remove(entry.getKey(), count);
+            } else {
+                count.reset();
+                count.add(halved);
+            }
+        }
+    }
+
+    private CacheMeters meters(String cache) {
+        CacheMeters m = meters.get(cache);
+        return m != null ? m : meters.computeIfAbsent(cache, CacheMeters::new);
+    }
+
+    private final class CacheMeters {
+        final Counter hits;
+        final Counter misses;
+        final Counter puts;
+        final Counter evictions;
+        final Counter clears;
+        final Timer redisGet;
+        final Timer redisPut;
+        final Timer redisEvict;
+        final Timer redisClear;
+        final Timer serialize;
+        final Timer deserialize;
+        final DistributionSummary writtenBytes;
+        final DistributionSummary readBytes;
+
+        CacheMeters(String cache) {
+            hits = Counter.builder(GETS).tag("cache", cache).tag("result", "hit").register(registry);
+            misses = Counter.builder(GETS).tag("cache", cache).tag("result", "miss").register(registry);
+            puts = Counter.builder(PUTS).tag("cache", cache).register(registry);
+            evictions = Counter.builder(EVICTIONS).tag("cache", cache).tag("scope", "key").register(registry);
+            clears = Counter.builder(EVICTIONS).tag("cache", cache).tag("scope", "all").register(registry);
+            redisGet = redisTimer(cache, "get");
+            redisPut = redisTimer(cache, "put");
+            redisEvict = redisTimer(cache, "evict");
+            redisClear = redisTimer(cache, "clear");
+            serialize = Timer.builder(SERIALIZATION).tag("cache", cache).tag("operation", "serialize")
+                    .register(registry);
+            deserialize = Timer.builder(SERIALIZATION).tag("cache", cache).tag("operation", "deserialize")
+                    .register(registry);
+            writtenBytes = DistributionSummary.builder(PAYLOAD_BYTES).baseUnit("bytes")
+                    .tag("cache", cache).tag("operation", "write").register(registry);
+            readBytes = DistributionSummary.builder(PAYLOAD_BYTES).baseUnit("bytes")
+                    .tag("cache", cache).tag("operation", "read").register(registry);
+        }
+
+        private Timer redisTimer(String cache, String operation) {
+            return Timer.builder(REDIS_LATENCY).tag("cache", cache).tag("operation", operation)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.retail.application.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Đếm hit/miss, put, evict và lấy mẫu key đọc của từng cache như service thấy (gồm cả L1) - xem CacheMetrics.
+ * Nằm trong TransactionAwareCacheManagerProxy nên put/evict chỉ được đếm khi thực sự chạy (sau commit)
+ */
+public class InstrumentedCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final CacheMetrics metrics;
+    private final ConcurrentMap<String, InstrumentedCache> caches = new ConcurrentHashMap<>();
+
+    public InstrumentedCacheManager(CacheManager delegate, CacheMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        InstrumentedCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = delegate.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new InstrumentedCache(target));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    private final class InstrumentedCache implements Cache {
+
+        private final Cache target;
+
+        InstrumentedCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper wrapper = target.get(key);
+            metrics.recordGet(getName(), key, wrapper != null);
+            return wrapper;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            T value = target.get(key, type);
+            metrics.recordGet(getName(), key, value != null);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            boolean[] loaded = new boolean[1];
+            T value = target.get(key, () -> {
+                loaded[0] = true;
+                return valueLoader.call();
+            });
+            metrics.recordGet(getName(), key, !loaded[0]);
+            if (loaded[0]) {
+                metrics.recordPut(getName());
+            }
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+            metrics.recordPut(getName());
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existing = target.putIfAbsent(key, value);
+            if (existing == null) {
+                metrics.recordPut(getName());
+            }
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            target.evict(key);
+            metrics.recordEviction(getName(), false);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = target.evictIfPresent(key);
+            metrics.recordEviction(getName(), false);
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+            metrics.recordEviction(getName(), true);
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = target.invalidate();
+            metrics.recordEviction(getName(), true);
+            return invalidated;
+        }
+    }
+}
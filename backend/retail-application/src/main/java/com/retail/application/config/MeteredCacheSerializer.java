@@ -0,0 +1,36 @@
+package com.retail.application.config;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Đo thời gian serialize / deserialize và kích thước payload giá trị của 1 cache - xem CacheMetrics
+ */
+public class MeteredCacheSerializer implements RedisSerializer<Object> {
+
+    private final RedisSerializer<Object> delegate;
+    private final String cacheName;
+    private final CacheMetrics metrics;
+
+    public MeteredCacheSerializer(RedisSerializer<Object> delegate, String cacheName, CacheMetrics metrics) {
+        this.delegate = delegate;
+        this.cacheName = cacheName;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        long start = System.nanoTime();
+        byte[] bytes = delegate.serialize(value);
+        metrics.recordSerialize(cacheName, System.nanoTime() - start, bytes != null ? bytes.length : 0);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        long start = System.nanoTime();
+        Object value = delegate.deserialize(bytes);
+        metrics.recordDeserialize(cacheName, System.nanoTime() - start, bytes != null ? bytes.length : 0);
+        return value;
+    }
+}
@@ -0,0 +1,271 @@
+package com.retail.application.config;
+
+import com.retail.common.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache 2 tầng: L1 trong bộ nhớ node (LruCache, giới hạn số entry + TTL theo từng cache) trước L2 Redis.
+ *
+ * - Chỉ các cache có cấu hình L1 (app.cache.near) được bọc, cache khác trả thẳng cache của Redis
+ * - Đọc: L1 -> L2 -> (loader); giá trị lấy từ L2 được giữ lại ở L1. Giá trị L1 dùng chung giữa các request,
+ *   nơi gọi không được sửa object trả về
+ * - Ghi / xóa: ghi L2, cập nhật L1 của node này rồi publish lên channel để mọi node khác xóa key đó khỏi L1.
+ *   Bỏ lỡ message (mất kết nối Redis) thì L1 của node đó cũ tối đa TTL của L1
+ *
+ * Message: {nodeId}|{cache}|E|{key} (xóa 1 key) hoặc {nodeId}|{cache}|C (xóa cả cache)
+ */
+@Slf4j
+public class NearCacheManager implements CacheManager, MessageListener {
+
+    private static final char SEPARATOR = '|';
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+
+    private final CacheManager delegate;
+    private final Map<String, Spec> specs;
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final CacheGenerations generations;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, NearCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Cấu hình L1 của 1 cache
+     */
+    public record Spec(int maxSize, long ttlMillis) {
+    }
+
+    public NearCacheManager(CacheManager delegate, Map<String, Spec> specs,
+                            StringRedisTemplate redisTemplate, String channel, CacheGenerations generations) {
+        this.delegate = delegate;
+        this.specs = Map.copyOf(specs);
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.generations = generations;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Spec spec = specs.get(name);
+        if (spec == null) {
+            return delegate.getCache(name);
+        }
+        NearCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = delegate.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new NearCache(remote, spec));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    /**
+     * Số entry đang giữ ở L1 của cache (0 khi cache chưa được dùng tới)
+     */
+    public int localSize(String name) {
+        NearCache cache = caches.get(name);
+        return cache != null ? cache.local.size() : 0;
+    }
+
+    /**
+     * Message xóa L1 từ node khác (message của chính node này bỏ qua - L1 đã được cập nhật lúc ghi)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        NearCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (CLEAR.equals(parts[2])) {
+            cache.clearLocal();
+        } else if (EVICT.equals(parts[2]) && parts.length == 4) {
+            cache.evictLocal(parts[3]);
+        }
+    }
+
+    private void publish(String cacheName, String operation, String key) {
+        String message = nodeId + SEPARATOR + cacheName + SEPARATOR + operation
+                + (key != null ? SEPARATOR + key : "");
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            // Node khác giữ giá trị cũ tối đa TTL của L1
+            log.warn("Could not publish near cache invalidation for cache '{}': {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Khóa L1 là chuỗi như khóa Redis - message từ node khác khớp được khóa Long lẫn String
+     */
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    final class NearCache implements Cache {
+
+        private final Cache remote;
+        private final LruCache<String, Object> local;
+        // Tăng mỗi lần xóa - giá trị đọc từ L2 trước lần xóa không được đưa vào L1 sau lần xóa
+        // (dùng chung với RedisCachePreloader qua CacheGenerations)
+        private final AtomicLong generation;
+
+        NearCache(Cache remote, Spec spec) {
+            this.remote = remote;
+            this.local = new LruCache<>(spec.maxSize(), spec.ttlMillis());
+            this.generation = generations.counter(remote.getName());
+        }
+
+        @Override
+        public String getName() {
+            return remote.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return remote.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            String localKey = localKey(key);
+            Object value = local.get(localKey);
+            if (value != null) {
+                return new SimpleValueWrapper(value);
+            }
+            long seen = generation.get();
+            ValueWrapper wrapper = remote.get(key);
+            if (wrapper != null) {
+                fill(localKey, wrapper.get(), seen);
+            }
+            return wrapper;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Class<T> type) {
+            String localKey = localKey(key);
+            Object value = local.get(localKey);
+            if (value != null && (type == null || type.isInstance(value))) {
+                return (T) value;
+            }
+            long seen = generation.get();
+            T loaded = remote.get(key, type);
+            fill(localKey, loaded, seen);
+            return loaded;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            String localKey = localKey(key);
+            Object value = local.get(localKey);
+            if (value != null) {
+                return (T) value;
+            }
+            long seen = generation.get();
+            T loaded = remote.get(key, valueLoader);
+            fill(localKey, loaded, seen);
+            return loaded;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            remote.put(key, value);
+            generation.incrementAndGet();
+            String localKey = localKey(key);
+            if (value != null) {
+                local.put(localKey, value);
+            } else {
+                local.remove(localKey);
+            }
+            publish(getName(), EVICT, localKey);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            // Chỉ ghi khi L2 chưa có - node khác không thể đang giữ giá trị khác ở L1
+            ValueWrapper existing = remote.putIfAbsent(key, value);
+            generation.incrementAndGet();
+            local.remove(localKey(key));
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            remote.evict(key);
+            evictLocal(localKey(key));
+            publish(getName(), EVICT, localKey(key));
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = remote.evictIfPresent(key);
+            evictLocal(localKey(key));
+            publish(getName(), EVICT, localKey(key));
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            remote.clear();
+            clearLocal();
+            publish(getName(), CLEAR, null);
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = remote.invalidate();
+            clearLocal();
+            publish(getName(), CLEAR, null);
+            return invalidated;
+        }
+
+        void evictLocal(String localKey) {
+            generation.incrementAndGet();
+            local.remove(localKey);
+        }
+
+        void clearLocal() {
+            generation.incrementAndGet();
+            local.clear();
+        }
+
+        private void fill(String localKey, Object value, long seen) {
+            if (value == null) {
+                return;
+            }
+            local.put(localKey, value);
+            // Có lần xóa chen vào giữa lúc đọc L2 và lúc ghi L1 - bỏ giá trị vừa ghi (có thể đã cũ)
+            if (generation.get() != seen) {
+                local.remove(localKey);
+            }
+        }
+    }
+}
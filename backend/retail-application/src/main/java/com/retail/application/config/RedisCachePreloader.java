@@ -0,0 +1,92 @@
+package com.retail.application.config;
+
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ghi nhiều entry vào 1 cache Redis trong 1 pipeline (1 round trip) thay vì từng lệnh SET qua Cache.put -
+ * dùng khi warm-up. Key, serializer và TTL lấy từ cùng cấu hình với RedisCacheManager nên entry đọc lại được
+ * qua @Cacheable như entry do cache ghi.
+ *
+ * Không đi qua L1 của near cache: node khác giữ giá trị L1 cũ tối đa TTL của L1
+ *
+ * Snapshot của warm-up có thể đã cũ khi ghi:
+ * - Chỉ ghi key chưa có (SET NX): entry do request ghi trong lúc warm-up đang đọc DB không bị ghi đè
+ * - Key bị evict (sau commit) giữa lúc đọc DB và lúc ghi thì key trống, SET NX vẫn ghi giá trị cũ -> nơi gọi lấy
+ *   generation(cacheName) trước khi đọc DB; có lần xóa chen vào (CacheGenerations, gồm cả lần xóa node khác báo
+ *   qua pub/sub) thì không ghi, hoặc xóa lại các key vừa ghi. Message pub/sub tới trễ hơn lần ghi thì không phát
+ *   hiện được - giá trị cũ sống tối đa TTL của cache
+ */
+public class RedisCachePreloader {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCacheConfiguration defaultConfig;
+    private final Map<String, RedisCacheConfiguration> configurations;
+    private final CacheGenerations generations;
+
+    public RedisCachePreloader(StringRedisTemplate redisTemplate, RedisCacheConfiguration defaultConfig,
+                               Map<String, RedisCacheConfiguration> configurations, CacheGenerations generations) {
+        this.redisTemplate = redisTemplate;
+        this.defaultConfig = defaultConfig;
+        this.configurations = Map.copyOf(configurations);
+        this.generations = generations;
+    }
+
+    /**
+     * Lấy trước khi đọc dữ liệu sẽ ghi bằng putAll
+     */
+    public long generation(String cacheName) {
+        return generations.current(cacheName);
+    }
+
+    /**
+     * @param entries        khóa cache (như key của @Cacheable) -> giá trị, giá trị null và key đã có trong cache
+     *                       bị bỏ qua
+     * @param readGeneration generation(cacheName) lấy trước khi đọc entries
+     * @return false nếu cache bị xóa sau khi đọc entries - không entry nào được giữ lại
+     */
+    public boolean putAll(String cacheName, Map<?, ?> entries, long readGeneration) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+        if (generations.current(cacheName) != readGeneration) {
+            return false;
+        }
+        RedisCacheConfiguration config = configurations.getOrDefault(cacheName, defaultConfig);
+        String prefix = config.getKeyPrefixFor(cacheName);
+        List<byte[]> keys = new ArrayList<>(entries.size());
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<?, ?> entry : entries.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                byte[] key = ByteUtils.getBytes(config.getKeySerializationPair().write(prefix + entry.getKey()));
+                byte[] value = ByteUtils.getBytes(config.getValueSerializationPair().write(entry.getValue()));
+                Duration ttl = config.getTtlFunction().getTimeToLive(entry.getKey(), entry.getValue());
+                Expiration expiration = ttl == null || ttl.isZero() || ttl.isNegative()
+                        ? Expiration.persistent()
+                        : Expiration.from(ttl);
+                connection.stringCommands().set(key, value, expiration, SetOption.ifAbsent());
+                keys.add(key);
+            }
+            return null;
+        });
+
+        // Lần xóa chen vào trong lúc ghi - key vừa ghi có thể mang giá trị cũ, xóa đi (lần đọc sau nạp lại từ DB)
+        if (generations.current(cacheName) != readGeneration && !keys.isEmpty()) {
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.keyCommands().del(keys.toArray(byte[][]::new)));
+            return false;
+        }
+        return true;
+    }
+}
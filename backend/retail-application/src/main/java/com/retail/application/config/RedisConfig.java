@@ -4,22 +4,36 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.retail.application.config.codec.CacheValueSerializer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Cấu hình Redis cho caching - Quản lý kết nối, cache manager và serialization
@@ -29,6 +43,11 @@ import java.time.Duration;
 @Slf4j
 public class RedisConfig {
 
+    /**
+     * TTL của cache "invoices" - index key khoảng ngày (CacheInvalidationServiceImpl) dùng cùng giá trị
+     */
+    public static final Duration INVOICES_TTL = Duration.ofMinutes(10);
+
     /**
      * Cấu hình RedisTemplate cho các thao tác Redis thủ công
      */
@@ -53,44 +72,56 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Nhận message xóa L1 từ node khác (NearCacheManager đăng ký listener khi Redis sẵn sàng)
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * Metric cache (retail.cache.*) và mẫu key đọc nhiều - không có actuator (loadtest, test) thì ghi vào registry riêng
+     */
+    @Bean
+    public CacheMetrics cacheMetrics(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        return new CacheMetrics(meterRegistry.getIfAvailable(SimpleMeterRegistry::new),
+                environment.getProperty("app.cache.metrics.key-sample-every", Integer.class, 10),
+                environment.getProperty("app.cache.metrics.max-tracked-keys", Integer.class, 5000));
+    }
+
     /**
      * Configure RedisCacheManager with default TTL and error handling
      * Falls back to NoOpCacheManager if Redis is not available
+     *
+     * Cache có cấu hình app.cache.near được đặt thêm L1 trong bộ nhớ node (NearCacheManager);
+     * transaction-aware bọc ngoài cùng nên put/evict của cả 2 tầng chỉ chạy sau khi commit.
+     * Cache có tên trong app.cache.codec.binary-caches ghi DTO dạng nhị phân (CacheValueSerializer),
+     * mọi cache vẫn đọc được cả JSON lẫn nhị phân.
+     *
+     * Thứ tự bọc: ErrorHandling -> TransactionAware -> Instrumented (hit/miss như service thấy)
+     * -> NearCache (L1) -> SingleFlight (gộp các lần nạp cùng key) -> RedisLatency (thời gian gọi Redis)
+     * -> RedisCacheManager
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     RedisMessageListenerContainer cacheInvalidationListenerContainer,
+                                     Environment environment,
+                                     CacheMetrics cacheMetrics,
+                                     CacheGenerations cacheGenerations) {
         try {
             // Test Redis connection first
             connectionFactory.getConnection().ping();
             log.info("Redis connection available - Using RedisCacheManager");
 
-            // Default cache configuration
-            RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
-                    .entryTtl(Duration.ofMinutes(30)) // Default TTL: 30 minutes
-                    .serializeKeysWith(
-                            RedisSerializationContext.SerializationPair.fromSerializer(
-                                    new StringRedisSerializer()
-                            )
-                    )
-                    .serializeValuesWith(
-                            RedisSerializationContext.SerializationPair.fromSerializer(
-                                    createJsonSerializer()
-                            )
-                    )
-                    .disableCachingNullValues();
+            Set<String> binaryCaches = binaryCodecCaches(environment);
+            RedisCacheConfiguration defaultConfig = defaultCacheConfiguration(cacheMetrics);
 
             RedisCacheManager cacheManager = RedisCacheManager.builder(connectionFactory)
                     .cacheDefaults(defaultConfig)
-                    // Specific cache configurations
-                    .withCacheConfiguration("products",
-                            defaultConfig.entryTtl(Duration.ofHours(1))) // Products: 1 hour
-                    .withCacheConfiguration("customers",
-                            defaultConfig.entryTtl(Duration.ofMinutes(15))) // Customers: 15 minutes
-                    .withCacheConfiguration("invoices",
-                            defaultConfig.entryTtl(Duration.ofMinutes(10))) // Invoices: 10 minutes
-                    .withCacheConfiguration("promotions",
-                            defaultConfig.entryTtl(Duration.ofMinutes(15))) // Promotions: 15 minutes
-                    .transactionAware()
+                    .withInitialCacheConfigurations(cacheConfigurations(defaultConfig, binaryCaches, cacheMetrics))
                     .build();
 
             log.info("RedisCacheManager configured with custom TTL settings");
@@ -98,9 +129,36 @@ public class RedisConfig {
             log.info("  - customers cache: 15 minutes TTL");
             log.info("  - invoices cache: 10 minutes TTL");
             log.info("  - promotions cache: 15 minutes TTL");
+            log.info("  - dashboard cache: no TTL (evicted per day)");
+            log.info("  - reports cache: 24 hours TTL (versioned keys)");
             log.info("  - default cache: 30 minutes TTL");
+            log.info("  - binary value codec for {}", binaryCaches);
+            log.info("  - per-cache metrics enabled (/actuator/metrics/retail.cache.gets?tag=cache:invoices&tag=result:hit)");
+
+            StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+            CacheManager twoLevel = new RedisLatencyCacheManager(cacheManager, cacheMetrics);
+            Map<String, SingleFlightCacheManager.Settings> singleFlightCaches = singleFlightSettings(environment);
+            if (!singleFlightCaches.isEmpty()) {
+                twoLevel = new SingleFlightCacheManager(twoLevel, singleFlightCaches, stringRedisTemplate);
+                log.info("  - single-flight loading for {}", singleFlightCaches.keySet());
+            }
+            Map<String, NearCacheManager.Spec> nearCaches = nearCacheSpecs(environment);
+            if (!nearCaches.isEmpty()) {
+                String channel = environment.getProperty("app.cache.near.channel", "retail:cache:invalidation");
+                NearCacheManager nearCacheManager = new NearCacheManager(twoLevel, nearCaches,
+                        stringRedisTemplate, channel, cacheGenerations);
+                cacheInvalidationListenerContainer.addMessageListener(nearCacheManager, new ChannelTopic(channel));
+                for (String name : nearCaches.keySet()) {
+                    Gauge.builder(CacheMetrics.NEAR_SIZE, nearCacheManager, m -> m.localSize(name))
+                            .tag("cache", name)
+                            .register(cacheMetrics.registry());
+                }
+                twoLevel = nearCacheManager;
+                log.info("  - near cache (L1) for {} - invalidation channel '{}'", nearCaches, channel);
+            }
 
-            return new ErrorHandlingCacheManager(cacheManager);
+            return new ErrorHandlingCacheManager(new TransactionAwareCacheManagerProxy(
+                    new InstrumentedCacheManager(twoLevel, cacheMetrics)));
         } catch (Exception e) {
             log.warn("Redis connection failed - Cache will be disabled (fallback to NoOpCacheManager)");
             log.warn("Error: {}", e.getMessage());
@@ -109,6 +167,141 @@ public class RedisConfig {
         }
     }
 
+    /**
+     * Số lần xóa của từng cache có L1 - NearCacheManager tăng, RedisCachePreloader đọc
+     */
+    @Bean
+    public CacheGenerations cacheGenerations() {
+        return new CacheGenerations();
+    }
+
+    /**
+     * Ghi thẳng nhiều entry vào cache Redis bằng pipeline (warm-up) - cùng key, serializer và TTL với cacheManager
+     */
+    @Bean
+    public RedisCachePreloader redisCachePreloader(RedisConnectionFactory connectionFactory,
+                                                   Environment environment,
+                                                   CacheMetrics cacheMetrics,
+                                                   CacheGenerations cacheGenerations) {
+        RedisCacheConfiguration defaultConfig = defaultCacheConfiguration(cacheMetrics);
+        return new RedisCachePreloader(new StringRedisTemplate(connectionFactory), defaultConfig,
+                cacheConfigurations(defaultConfig, binaryCodecCaches(environment), cacheMetrics), cacheGenerations);
+    }
+
+    private static RedisCacheConfiguration defaultCacheConfiguration(CacheMetrics cacheMetrics) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(30)) // Default TTL: 30 minutes
+                .serializeKeysWith(
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                new StringRedisSerializer()
+                        )
+                )
+                .serializeValuesWith(
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                new MeteredCacheSerializer(createCacheSerializer(false), "default", cacheMetrics)
+                        )
+                )
+                .disableCachingNullValues();
+    }
+
+    /**
+     * Cấu hình riêng (TTL, serializer) của từng cache
+     */
+    private static Map<String, RedisCacheConfiguration> cacheConfigurations(RedisCacheConfiguration defaultConfig,
+                                                                            Set<String> binaryCaches,
+                                                                            CacheMetrics cacheMetrics) {
+        Map<String, RedisCacheConfiguration> configurations = new LinkedHashMap<>();
+        configurations.put("products",
+                valueCodec(defaultConfig, "products", binaryCaches, cacheMetrics).entryTtl(Duration.ofHours(1))); // Products: 1 hour
+        configurations.put("customers",
+                valueCodec(defaultConfig, "customers", binaryCaches, cacheMetrics).entryTtl(Duration.ofMinutes(15))); // Customers: 15 minutes
+        configurations.put("invoices",
+                valueCodec(defaultConfig, "invoices", binaryCaches, cacheMetrics).entryTtl(INVOICES_TTL)); // Invoices: 10 minutes
+        configurations.put("promotions",
+                valueCodec(defaultConfig, "promotions", binaryCaches, cacheMetrics).entryTtl(Duration.ofMinutes(15))); // Promotions: 15 minutes
+        configurations.put("dashboard",
+                valueCodec(defaultConfig, "dashboard", binaryCaches, cacheMetrics).entryTtl(Duration.ZERO)); // Dashboard: ngày đã qua, không hết hạn (xóa khi rollup đổi)
+        configurations.put("reports",
+                valueCodec(defaultConfig, "reports", binaryCaches, cacheMetrics).entryTtl(Duration.ofHours(24))); // Reports: khoảng đã kết thúc, key theo phiên bản dữ liệu - TTL chỉ dọn phiên bản cũ
+        return configurations;
+    }
+
+    /**
+     * app.cache.near.caches: tên các cache có L1; mỗi cache đọc app.cache.near.{tên}.max-size / ttl-seconds
+     */
+    private static Map<String, NearCacheManager.Spec> nearCacheSpecs(Environment environment) {
+        Map<String, NearCacheManager.Spec> specs = new LinkedHashMap<>();
+        if (!environment.getProperty("app.cache.near.enabled", Boolean.class, true)) {
+            return specs;
+        }
+        String[] names = environment.getProperty("app.cache.near.caches", String[].class, new String[0]);
+        for (String name : names) {
+            String cacheName = name.trim();
+            if (cacheName.isEmpty()) {
+                continue;
+            }
+            String prefix = "app.cache.near." + cacheName;
+            int maxSize = environment.getProperty(prefix + ".max-size", Integer.class, 10_000);
+            long ttlSeconds = environment.getProperty(prefix + ".ttl-seconds", Long.class, 60L);
+            specs.put(cacheName, new NearCacheManager.Spec(Math.max(1, maxSize),
+                    Duration.ofSeconds(Math.max(1, ttlSeconds)).toMillis()));
+        }
+        return specs;
+    }
+
+    /**
+     * app.cache.single-flight.caches: tên các cache gộp lần nạp (chỉ có tác dụng với @Cacheable(sync = true));
+     * distributed-caches giữ lease trong Redis, early-refresh.caches làm mới sớm trước khi hết TTL
+     */
+    private static Map<String, SingleFlightCacheManager.Settings> singleFlightSettings(Environment environment) {
+        Map<String, SingleFlightCacheManager.Settings> settings = new LinkedHashMap<>();
+        if (!environment.getProperty("app.cache.single-flight.enabled", Boolean.class, true)) {
+            return settings;
+        }
+        String prefix = "app.cache.single-flight.";
+        Set<String> distributed = names(environment, prefix + "distributed-caches");
+        Set<String> earlyRefresh = names(environment, prefix + "early-refresh.caches");
+        long waitMillis = environment.getProperty(prefix + "wait-ms", Long.class, 5000L);
+        long leaseMillis = environment.getProperty(prefix + "lease-ms", Long.class, 3000L);
+        long pollMillis = environment.getProperty(prefix + "poll-ms", Long.class, 50L);
+        long windowSeconds = environment.getProperty(prefix + "early-refresh.window-seconds", Long.class, 60L);
+        int checkEvery = environment.getProperty(prefix + "early-refresh.check-every", Integer.class, 20);
+        for (String cacheName : names(environment, prefix + "caches")) {
+            settings.put(cacheName, new SingleFlightCacheManager.Settings(
+                    Math.max(1, waitMillis),
+                    distributed.contains(cacheName),
+                    Math.max(1, leaseMillis),
+                    Math.max(1, pollMillis),
+                    earlyRefresh.contains(cacheName) ? Duration.ofSeconds(Math.max(0, windowSeconds)).toMillis() : 0,
+                    Math.max(1, checkEvery)));
+        }
+        return settings;
+    }
+
+    /**
+     * app.cache.codec.binary-caches: tên các cache ghi DTO dạng nhị phân
+     */
+    private static Set<String> binaryCodecCaches(Environment environment) {
+        return names(environment, "app.cache.codec.binary-caches");
+    }
+
+    private static Set<String> names(Environment environment, String property) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : environment.getProperty(property, String[].class, new String[0])) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    private static RedisCacheConfiguration valueCodec(RedisCacheConfiguration config, String cacheName,
+                                                      Set<String> binaryCaches, CacheMetrics cacheMetrics) {
+        CacheValueSerializer serializer = createCacheSerializer(binaryCaches.contains(cacheName));
+        return config.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                new MeteredCacheSerializer(serializer, cacheName, cacheMetrics)));
+    }
+
     /**
      * Error handling wrapper for RedisCacheManager
      * Catches Redis exceptions and logs them without failing the application
@@ -143,8 +336,9 @@ public class RedisConfig {
 
     /**
      * Create JSON serializer with Java 8 date/time support
+     * (public static để retail-benchmarks đo đúng serializer mà cache đang dùng)
      */
-    private GenericJackson2JsonRedisSerializer createJsonSerializer() {
+    public static GenericJackson2JsonRedisSerializer createJsonSerializer() {
         ObjectMapper objectMapper = new ObjectMapper();
 
         // Register Java 8 date/time module
@@ -161,4 +355,12 @@ public class RedisConfig {
 
         return new GenericJackson2JsonRedisSerializer(objectMapper);
     }
+
+    /**
+     * Serializer giá trị của cache: binary = true ghi DTO có codec dạng nhị phân, còn lại JSON
+     * (public static để retail-benchmarks so sánh 2 dạng)
+     */
+    public static CacheValueSerializer createCacheSerializer(boolean binary) {
+        return new CacheValueSerializer(createJsonSerializer(), binary);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.retail.application.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Đo thời gian từng lần gọi Redis của cache (bọc trực tiếp RedisCacheManager, dưới L1 của near cache) -
+ * metric retail.cache.redis.latency, xem CacheMetrics
+ */
+public class RedisLatencyCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final CacheMetrics metrics;
+    private final ConcurrentMap<String, TimedCache> caches = new ConcurrentHashMap<>();
+
+    public RedisLatencyCacheManager(CacheManager delegate, CacheMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TimedCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = delegate.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new TimedCache(target));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    private final class TimedCache implements Cache {
+
+        private final Cache target;
+
+        TimedCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            long start = System.nanoTime();
+            try {
+                return target.get(key);
+            } finally {
+                record("get", start);
+            }
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            long start = System.nanoTime();
+            try {
+                return target.get(key, type);
+            } finally {
+                record("get", start);
+            }
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            // Tách phần đọc Redis khỏi thời gian chạy loader
+            ValueWrapper cached = get(key);
+            if (cached != null) {
+                @SuppressWarnings("unchecked")
+                T value = (T) cached.get();
+                return value;
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            // Cache không giữ null (disableCachingNullValues)
+            if (value != null) {
+                put(key, value);
+            }
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            long start = System.nanoTime();
+            try {
+                target.put(key, value);
+            } finally {
+                record("put", start);
+            }
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            long start = System.nanoTime();
+            try {
+                return target.putIfAbsent(key, value);
+            } finally {
+                record("put", start);
+            }
+        }
+
+        @Override
+        public void evict(Object key) {
+            long start = System.nanoTime();
+            try {
+                target.evict(key);
+            } finally {
+                record("evict", start);
+            }
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            long start = System.nanoTime();
+            try {
+                return target.evictIfPresent(key);
+            } finally {
+                record("evict", start);
+            }
+        }
+
+        @Override
+        public void clear() {
+            long start = System.nanoTime();
+            try {
+                target.clear();
+            } finally {
+                record("clear", start);
+            }
+        }
+
+        @Override
+        public boolean invalidate() {
+            long start = System.nanoTime();
+            try {
+                return target.invalidate();
+            } finally {
+                record("clear", start);
+            }
+        }
+
+        private void record(String operation, long start) {
+            metrics.recordRedis(getName(), operation, System.nanoTime() - start);
+        }
+    }
+}
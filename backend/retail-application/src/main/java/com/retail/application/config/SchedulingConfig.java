@@ -0,0 +1,12 @@
+package com.retail.application.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật xử lý tác vụ định kỳ (@Scheduled) - outbox dispatcher, ...
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,335 @@
+package com.retail.application.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gộp các lần nạp cùng 1 key khi cache miss (@Cacheable(sync = true) -> Cache.get(key, loader)):
+ *
+ * - Trong 1 node: lần miss đầu tiên nạp, các request cùng key chờ và dùng chung kết quả (hoặc exception);
+ *   chờ quá waitMillis thì tự nạp
+ * - Giữa các node (distributed): node nạp giữ lease trong Redis (SET NX PX leaseMillis); node khác đọc lại
+ *   Redis mỗi pollMillis tới khi có giá trị, hết lease mà chưa có thì tự nạp
+ * - Làm mới sớm: cứ khoảng refreshCheckEvery lần hit thì đọc TTL còn lại của key; còn dưới refreshWindowMillis
+ *   thì request đó nạp lại với xác suất tăng dần khi gần hết hạn, các request khác vẫn dùng giá trị cũ
+ *
+ * Giá trị null không được cache. Key bị evict / clear trong lúc đang nạp thì giá trị vừa nạp không được ghi
+ * (có thể đã cũ) nhưng vẫn trả cho các request đang chờ
+ */
+@Slf4j
+public class SingleFlightCacheManager implements CacheManager {
+
+    private static final DefaultRedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final CacheManager delegate;
+    private final Map<String, Settings> settings;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, SingleFlightCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Cấu hình của 1 cache; refreshWindowMillis = 0 tắt làm mới sớm
+     */
+    public record Settings(long waitMillis, boolean distributed, long leaseMillis, long pollMillis,
+                           long refreshWindowMillis, int refreshCheckEvery) {
+    }
+
+    public SingleFlightCacheManager(CacheManager delegate, Map<String, Settings> settings,
+                                    StringRedisTemplate redisTemplate) {
+        this.delegate = delegate;
+        this.settings = Map.copyOf(settings);
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Settings cacheSettings = settings.get(name);
+        if (cacheSettings == null) {
+            return delegate.getCache(name);
+        }
+        SingleFlightCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = delegate.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new SingleFlightCache(target, cacheSettings));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    final class SingleFlightCache implements Cache {
+
+        private final Cache target;
+        private final Settings settings;
+        private final ConcurrentMap<String, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+        // Tăng mỗi lần evict / clear - giá trị nạp trước lần xóa không được ghi đè lên sau lần xóa
+        private final AtomicLong generation = new AtomicLong();
+
+        SingleFlightCache(Cache target, Settings settings) {
+            this.target = target;
+            this.settings = settings;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return target.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return target.get(key, type);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            ValueWrapper cached = target.get(key);
+            if (cached != null) {
+                if (refreshDue(key)) {
+                    return (T) refresh(key, valueLoader, cached.get());
+                }
+                return (T) cached.get();
+            }
+            return (T) load(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return target.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            generation.incrementAndGet();
+            target.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            generation.incrementAndGet();
+            return target.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            generation.incrementAndGet();
+            target.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            generation.incrementAndGet();
+            return target.invalidate();
+        }
+
+        private Object load(Object key, Callable<?> valueLoader) {
+            String flightKey = String.valueOf(key);
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> inFlight = loads.putIfAbsent(flightKey, flight);
+            if (inFlight != null) {
+                return await(inFlight, key, valueLoader);
+            }
+            try {
+                Object value = settings.distributed() ? loadWithLease(key, valueLoader) : loadAndPut(key, valueLoader);
+                flight.complete(value);
+                return value;
+            } catch (ValueRetrievalException e) {
+                flight.completeExceptionally(e.getCause());
+                throw e;
+            } catch (RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                loads.remove(flightKey, flight);
+            }
+        }
+
+        private Object await(CompletableFuture<Object> inFlight, Object key, Callable<?> valueLoader) {
+            try {
+                return inFlight.get(settings.waitMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            } catch (TimeoutException e) {
+                log.warn("Cache '{}' key '{}' still loading after {} ms - loading again", getName(), key,
+                        settings.waitMillis());
+                return loadAndPut(key, valueLoader);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+
+        /**
+         * Giữ lease rồi nạp; node khác đang giữ lease thì chờ giá trị của node đó xuất hiện trong Redis
+         */
+        private Object loadWithLease(Object key, Callable<?> valueLoader) {
+            String token = nodeId + ":" + Thread.currentThread().threadId();
+            String leaseKey = leaseKey(key);
+            if (acquireLease(leaseKey, token)) {
+                try {
+                    return loadAndPut(key, valueLoader);
+                } finally {
+                    releaseLease(leaseKey, token);
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.leaseMillis());
+            while (System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(settings.pollMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                ValueWrapper loaded = target.get(key);
+                if (loaded != null) {
+                    return loaded.get();
+                }
+            }
+            // Node giữ lease lỗi / chậm (hoặc giá trị null không được cache) - tự nạp
+            return loadAndPut(key, valueLoader);
+        }
+
+        private Object loadAndPut(Object key, Callable<?> valueLoader) {
+            long seen = generation.get();
+            Object value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            if (value != null && generation.get() == seen) {
+                target.put(key, value);
+            }
+            return value;
+        }
+
+        private Object refresh(Object key, Callable<?> valueLoader, Object cached) {
+            String flightKey = String.valueOf(key);
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            if (loads.putIfAbsent(flightKey, flight) != null) {
+                return cached;
+            }
+            String token = nodeId + ":" + Thread.currentThread().threadId();
+            String leaseKey = leaseKey(key);
+            boolean leased = false;
+            try {
+                if (settings.distributed()) {
+                    leased = acquireLease(leaseKey, token);
+                    if (!leased) {
+                        flight.complete(cached);
+                        return cached;
+                    }
+                }
+                Object value = loadAndPut(key, valueLoader);
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                // Giữ giá trị cũ tới khi hết hạn
+                log.warn("Early refresh of cache '{}' key '{}' failed: {}", getName(), key, e.getMessage());
+                flight.complete(cached);
+                return cached;
+            } finally {
+                loads.remove(flightKey, flight);
+                if (leased) {
+                    releaseLease(leaseKey, token);
+                }
+            }
+        }
+
+        private boolean refreshDue(Object key) {
+            long window = settings.refreshWindowMillis();
+            if (window <= 0 || redisTemplate == null) {
+                return false;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (settings.refreshCheckEvery() > 1 && random.nextInt(settings.refreshCheckEvery()) != 0) {
+                return false;
+            }
+            Long remaining;
+            try {
+                remaining = redisTemplate.getExpire(getName() + "::" + key, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                return false;
+            }
+            // -1: không hết hạn, -2: không còn key
+            if (remaining == null || remaining < 0 || remaining > window) {
+                return false;
+            }
+            return random.nextDouble() * window >= remaining;
+        }
+
+        private String leaseKey(Object key) {
+            return "cache-lease:" + getName() + "::" + key;
+        }
+
+        /**
+         * Lỗi Redis: coi như giữ được lease - nạp trong node này như khi không bật distributed
+         */
+        private boolean acquireLease(String leaseKey, String token) {
+            if (redisTemplate == null) {
+                return true;
+            }
+            try {
+                Boolean acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey, token,
+                        Duration.ofMillis(settings.leaseMillis()));
+                return !Boolean.FALSE.equals(acquired);
+            } catch (Exception e) {
+                log.warn("Could not acquire cache lease '{}': {}", leaseKey, e.getMessage());
+                return true;
+            }
+        }
+
+        private void releaseLease(String leaseKey, String token) {
+            if (redisTemplate == null) {
+                return;
+            }
+            try {
+                redisTemplate.execute(RELEASE_LEASE, List.of(leaseKey), token);
+            } catch (Exception e) {
+                // Lease tự hết hạn
+                log.debug("Could not release cache lease '{}': {}", leaseKey, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.retail.application.config.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Đọc dữ liệu do {@link BinaryOutput} ghi - dữ liệu thiếu / sai định dạng ném IllegalStateException
+ */
+public final class BinaryInput {
+
+    private final byte[] buffer;
+    private int position;
+
+    public BinaryInput(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.position = offset;
+    }
+
+    public int readByte() {
+        if (position >= buffer.length) {
+            throw new IllegalStateException("Unexpected end of cache payload");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in cache payload");
+    }
+
+    public int readVarInt() {
+        long value = readVarLong();
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Varint out of int range in cache payload");
+        }
+        return (int) value;
+    }
+
+    public Long readLong() {
+        return readByte() == 0 ? null : unZigZag(readVarLong());
+    }
+
+    public Integer readInteger() {
+        Long value = readLong();
+        return value != null ? Math.toIntExact(value) : null;
+    }
+
+    public Boolean readBoolean() {
+        int value = readByte();
+        return value == 0 ? null : value == 2;
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        checkRemaining(length - 1);
+        String value = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+        position += length - 1;
+        return value;
+    }
+
+    public BigDecimal readBigDecimal() {
+        int tag = readByte();
+        if (tag == 0) {
+            return null;
+        }
+        int scale = Math.toIntExact(unZigZag(readVarLong()));
+        if (tag == 1) {
+            return BigDecimal.valueOf(unZigZag(readVarLong()), scale);
+        }
+        return new BigDecimal(new BigInteger(readBytes(readVarInt())), scale);
+    }
+
+    public LocalDateTime readDateTime() {
+        if (readByte() == 0) {
+            return null;
+        }
+        long epochSecond = unZigZag(readVarLong());
+        return LocalDateTime.ofEpochSecond(epochSecond, readVarInt(), ZoneOffset.UTC);
+    }
+
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        String name = readString();
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+
+    public List<Long> readLongList() {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        // Mỗi phần tử ít nhất 1 byte - số phần tử lớn hơn số byte còn lại là dữ liệu hỏng
+        checkRemaining(size - 1);
+        List<Long> values = new ArrayList<>(size - 1);
+        for (int i = 1; i < size; i++) {
+            values.add(readLong());
+        }
+        return values;
+    }
+
+    /**
+     * Số phần tử của danh sách (số phần tử + 1, 0 = null) - danh sách DTO do codec tự đọc từng phần tử
+     */
+    public int readListSize() {
+        int size = readVarInt();
+        if (size > 0) {
+            checkRemaining(size - 1);
+        }
+        return size;
+    }
+
+    private void checkRemaining(int length) {
+        if (length < 0 || length > buffer.length - position) {
+            throw new IllegalStateException("Unexpected end of cache payload");
+        }
+    }
+
+    private byte[] readBytes(int length) {
+        checkRemaining(length);
+        byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,151 @@
+package com.retail.application.config.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ghi giá trị cache dạng nhị phân gọn: số nguyên varint (zigzag cho số có dấu), chuỗi UTF-8 kèm độ dài.
+ * Mọi kiểu nullable: null tốn 1 byte 0
+ */
+public final class BinaryOutput {
+
+    private byte[] buffer;
+    private int position;
+
+    public BinaryOutput(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Số không âm, 7 bit mỗi byte
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    public void writeLong(Long value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        writeByte(1);
+        writeVarLong(zigZag(value));
+    }
+
+    public void writeInteger(Integer value) {
+        writeLong(value != null ? value.longValue() : null);
+    }
+
+    public void writeBoolean(Boolean value) {
+        writeByte(value == null ? 0 : value ? 2 : 1);
+    }
+
+    /**
+     * Độ dài + 1 (0 = null) rồi các byte UTF-8
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * 0 = null, 1 = phần nguyên vừa long, 2 = phần nguyên lớn (mảng byte); sau đó scale
+     */
+    public void writeBigDecimal(BigDecimal value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+            writeByte(1);
+            writeVarLong(zigZag(value.scale()));
+            writeVarLong(zigZag(unscaled.longValue()));
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            writeByte(2);
+            writeVarLong(zigZag(value.scale()));
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+    }
+
+    /**
+     * Giây epoch (UTC, không đổi múi giờ - LocalDateTime không có múi giờ) + nano
+     */
+    public void writeDateTime(LocalDateTime value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        writeByte(1);
+        writeVarLong(zigZag(value.toEpochSecond(ZoneOffset.UTC)));
+        writeVarInt(value.getNano());
+    }
+
+    public void writeEnum(Enum<?> value) {
+        writeString(value != null ? value.name() : null);
+    }
+
+    /**
+     * Số phần tử + 1 (0 = null) rồi từng phần tử nullable
+     */
+    public void writeLongList(List<Long> values) {
+        writeListSize(values);
+        if (values == null) {
+            return;
+        }
+        for (Long value : values) {
+            writeLong(value);
+        }
+    }
+
+    /**
+     * Số phần tử + 1 (0 = null) - danh sách DTO do codec tự ghi từng phần tử
+     */
+    public void writeListSize(List<?> values) {
+        writeVarInt(values != null ? values.size() + 1 : 0);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
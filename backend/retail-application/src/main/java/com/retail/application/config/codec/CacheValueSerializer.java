@@ -0,0 +1,163 @@
+package com.retail.application.config.codec;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializer giá trị cache: DTO có codec nhị phân (DtoCodecs) và List của chúng ghi dạng nhị phân gọn,
+ * mọi giá trị khác ghi JSON như trước.
+ *
+ * Payload nhị phân: MAGIC | format version | shape (0 = 1 DTO, 1 = List) | typeId | schema version | dữ liệu
+ *
+ * - Đọc luôn nhận cả 2 dạng (byte đầu không phải MAGIC thì là JSON), kể cả khi binary = false - nên có thể
+ *   bật đọc trên mọi node trước rồi mới bật ghi nhị phân
+ * - Payload của bản mới hơn (format / schema version lớn hơn, typeId lạ) hoặc hỏng: trả null = cache miss,
+ *   service đọc lại DB và ghi đè bằng dạng của node này
+ */
+@Slf4j
+public class CacheValueSerializer implements RedisSerializer<Object> {
+
+    static final int MAGIC = 0xB1;
+    static final int FORMAT_VERSION = 1;
+
+    private static final int SHAPE_SINGLE = 0;
+    private static final int SHAPE_LIST = 1;
+    private static final int EMPTY_LIST_TYPE_ID = 0;
+
+    private final RedisSerializer<Object> json;
+    private final boolean binary;
+
+    /**
+     * @param json   serializer cho giá trị không có codec (và để đọc entry JSON cũ)
+     * @param binary ghi DTO có codec dạng nhị phân; false = chỉ ghi JSON nhưng vẫn đọc được nhị phân
+     */
+    public CacheValueSerializer(RedisSerializer<Object> json, boolean binary) {
+        this.json = json;
+        this.binary = binary;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (binary) {
+            byte[] encoded = encode(value);
+            if (encoded != null) {
+                return encoded;
+            }
+        }
+        return json.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if ((bytes[0] & 0xFF) != MAGIC) {
+            return json.deserialize(bytes);
+        }
+        try {
+            return decode(bytes);
+        } catch (RuntimeException e) {
+            log.warn("Could not decode binary cache value ({} bytes): {}", bytes.length, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return null khi giá trị không có codec (ghi JSON)
+     */
+    @SuppressWarnings("unchecked")
+    private static byte[] encode(Object value) {
+        if (value instanceof List<?> list) {
+            DtoCodec<Object> codec = null;
+            for (Object element : list) {
+                if (element == null) {
+                    continue;
+                }
+                if (codec == null) {
+                    codec = (DtoCodec<Object>) DtoCodecs.forType(element.getClass());
+                    if (codec == null) {
+                        return null;
+                    }
+                } else if (codec.type() != element.getClass()) {
+                    // List lẫn nhiều kiểu - để JSON giữ kiểu từng phần tử
+                    return null;
+                }
+            }
+            if (codec == null && !list.isEmpty()) {
+                return null;
+            }
+            BinaryOutput out = new BinaryOutput(64 + list.size() * 64);
+            writeHeader(out, SHAPE_LIST, codec);
+            out.writeVarInt(list.size());
+            for (Object element : list) {
+                if (element == null) {
+                    out.writeByte(0);
+                } else {
+                    out.writeByte(1);
+                    codec.write(element, out);
+                }
+            }
+            return out.toByteArray();
+        }
+
+        DtoCodec<Object> codec = (DtoCodec<Object>) DtoCodecs.forType(value.getClass());
+        if (codec == null) {
+            return null;
+        }
+        BinaryOutput out = new BinaryOutput(128);
+        writeHeader(out, SHAPE_SINGLE, codec);
+        codec.write(value, out);
+        return out.toByteArray();
+    }
+
+    private static void writeHeader(BinaryOutput out, int shape, DtoCodec<?> codec) {
+        out.writeByte(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(shape);
+        out.writeVarInt(codec != null ? codec.typeId() : EMPTY_LIST_TYPE_ID);
+        out.writeVarInt(codec != null ? codec.version() : 0);
+    }
+
+    private static Object decode(byte[] bytes) {
+        BinaryInput in = new BinaryInput(bytes, 1);
+        int format = in.readByte();
+        if (format > FORMAT_VERSION) {
+            return null;
+        }
+        int shape = in.readByte();
+        int typeId = in.readVarInt();
+        int version = in.readVarInt();
+
+        if (shape == SHAPE_LIST && typeId == EMPTY_LIST_TYPE_ID) {
+            return new ArrayList<>();
+        }
+        DtoCodec<?> codec = DtoCodecs.forTypeId(typeId);
+        if (codec == null || version < 1 || version > codec.version()) {
+            return null;
+        }
+
+        if (shape == SHAPE_SINGLE) {
+            return codec.read(in, version);
+        }
+        if (shape != SHAPE_LIST) {
+            return null;
+        }
+        int size = in.readVarInt();
+        if (size < 0) {
+            throw new IllegalStateException("Negative list size");
+        }
+        List<Object> values = new ArrayList<>(Math.min(size, bytes.length));
+        for (int i = 0; i < size; i++) {
+            values.add(in.readByte() == 0 ? null : codec.read(in, version));
+        }
+        return values;
+    }
+}
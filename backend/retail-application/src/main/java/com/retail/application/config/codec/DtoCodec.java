@@ -0,0 +1,26 @@
+package com.retail.application.config.codec;
+
+/**
+ * Codec nhị phân của 1 DTO - ghi các field theo thứ tự cố định, không ghi tên field / tên class.
+ *
+ * Thêm / bỏ field: tăng version() và đọc được cả payload version cũ trong read(); node chạy bản cũ
+ * gặp version mới hơn thì coi như cache miss (xem CacheValueSerializer)
+ */
+public interface DtoCodec<T> {
+
+    Class<T> type();
+
+    /**
+     * Mã kiểu ghi trong payload - không bao giờ đổi hay dùng lại cho DTO khác
+     */
+    int typeId();
+
+    int version();
+
+    void write(T value, BinaryOutput out);
+
+    /**
+     * @param version version của payload, từ 1 tới version()
+     */
+    T read(BinaryInput in, int version);
+}
@@ -0,0 +1,341 @@
+package com.retail.application.config.codec;
+
+import com.retail.application.dto.CustomerDTO;
+import com.retail.application.dto.InvoiceDTO;
+import com.retail.application.dto.InvoiceDetailDTO;
+import com.retail.application.dto.ProductDTO;
+import com.retail.application.dto.PromotionDTO;
+import com.retail.common.constant.PromotionType;
+import com.retail.common.constant.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Codec nhị phân của các DTO được cache nhiều nhất (products, customers, promotions, invoices)
+ *
+ * Thứ tự field trong write() và read() phải khớp nhau; CacheValueSerializerTest điền mọi field của DTO
+ * nên field mới thêm vào DTO mà quên thêm vào codec sẽ làm test lỗi
+ */
+public final class DtoCodecs {
+
+    private static final List<DtoCodec<?>> CODECS = List.of(
+            new ProductCodec(), new InvoiceCodec(), new CustomerCodec(), new PromotionCodec());
+
+    private static final Map<Class<?>, DtoCodec<?>> BY_TYPE = CODECS.stream()
+            .collect(Collectors.toUnmodifiableMap(DtoCodec::type, Function.identity()));
+
+    private static final Map<Integer, DtoCodec<?>> BY_ID = CODECS.stream()
+            .collect(Collectors.toUnmodifiableMap(DtoCodec::typeId, Function.identity()));
+
+    private DtoCodecs() {
+    }
+
+    /**
+     * Codec của đúng class (không tính lớp con), null nếu không có
+     */
+    public static DtoCodec<?> forType(Class<?> type) {
+        return BY_TYPE.get(type);
+    }
+
+    public static DtoCodec<?> forTypeId(int typeId) {
+        return BY_ID.get(typeId);
+    }
+
+    static final class ProductCodec implements DtoCodec<ProductDTO> {
+
+        @Override
+        public Class<ProductDTO> type() {
+            return ProductDTO.class;
+        }
+
+        @Override
+        public int typeId() {
+            return 1;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(ProductDTO value, BinaryOutput out) {
+            out.writeLong(value.getId());
+            out.writeString(value.getMaSanPham());
+            out.writeString(value.getBarcode());
+            out.writeString(value.getTenSanPham());
+            out.writeString(value.getMoTa());
+            out.writeString(value.getDonViTinh());
+            out.writeBigDecimal(value.getGiaBan());
+            out.writeBigDecimal(value.getGiaNhap());
+            out.writeInteger(value.getTonKho());
+            out.writeInteger(value.getTonKhoToiThieu());
+            out.writeString(value.getHinhAnh());
+            out.writeLong(value.getChiNhanhId());
+            out.writeString(value.getTenChiNhanh());
+            out.writeLong(value.getNhaCungCapId());
+            out.writeString(value.getTenNhaCungCap());
+            out.writeLong(value.getDanhMucId());
+            out.writeString(value.getTenDanhMuc());
+            out.writeEnum(value.getTrangThai());
+        }
+
+        @Override
+        public ProductDTO read(BinaryInput in, int version) {
+            return ProductDTO.builder()
+                    .id(in.readLong())
+                    .maSanPham(in.readString())
+                    .barcode(in.readString())
+                    .tenSanPham(in.readString())
+                    .moTa(in.readString())
+                    .donViTinh(in.readString())
+                    .giaBan(in.readBigDecimal())
+                    .giaNhap(in.readBigDecimal())
+                    .tonKho(in.readInteger())
+                    .tonKhoToiThieu(in.readInteger())
+                    .hinhAnh(in.readString())
+                    .chiNhanhId(in.readLong())
+                    .tenChiNhanh(in.readString())
+                    .nhaCungCapId(in.readLong())
+                    .tenNhaCungCap(in.readString())
+                    .danhMucId(in.readLong())
+                    .tenDanhMuc(in.readString())
+                    .trangThai(in.readEnum(Status.class))
+                    .build();
+        }
+    }
+
+    static final class InvoiceCodec implements DtoCodec<InvoiceDTO> {
+
+        @Override
+        public Class<InvoiceDTO> type() {
+            return InvoiceDTO.class;
+        }
+
+        @Override
+        public int typeId() {
+            return 2;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(InvoiceDTO value, BinaryOutput out) {
+            out.writeLong(value.getId());
+            out.writeString(value.getMaHoaDon());
+            out.writeLong(value.getKhachHangId());
+            out.writeString(value.getTenKhachHang());
+            out.writeString(value.getSoDienThoaiKhachHang());
+            out.writeLong(value.getNhanVienId());
+            out.writeString(value.getTenNhanVien());
+            out.writeLong(value.getChiNhanhId());
+            out.writeString(value.getTenChiNhanh());
+            out.writeDateTime(value.getNgayTao());
+            out.writeBigDecimal(value.getTongTien());
+            out.writeBigDecimal(value.getGiamGia());
+            out.writeBigDecimal(value.getThanhTien());
+            out.writeString(value.getPhuongThucThanhToan());
+            out.writeBigDecimal(value.getDiemTichLuy());
+            out.writeString(value.getGhiChu());
+            out.writeEnum(value.getTrangThai());
+
+            List<InvoiceDetailDTO> lines = value.getChiTietHoaDons();
+            out.writeListSize(lines);
+            if (lines != null) {
+                for (InvoiceDetailDTO line : lines) {
+                    writeLine(line, out);
+                }
+            }
+        }
+
+        @Override
+        public InvoiceDTO read(BinaryInput in, int version) {
+            InvoiceDTO invoice = InvoiceDTO.builder()
+                    .id(in.readLong())
+                    .maHoaDon(in.readString())
+                    .khachHangId(in.readLong())
+                    .tenKhachHang(in.readString())
+                    .soDienThoaiKhachHang(in.readString())
+                    .nhanVienId(in.readLong())
+                    .tenNhanVien(in.readString())
+                    .chiNhanhId(in.readLong())
+                    .tenChiNhanh(in.readString())
+                    .ngayTao(in.readDateTime())
+                    .tongTien(in.readBigDecimal())
+                    .giamGia(in.readBigDecimal())
+                    .thanhTien(in.readBigDecimal())
+                    .phuongThucThanhToan(in.readString())
+                    .diemTichLuy(in.readBigDecimal())
+                    .ghiChu(in.readString())
+                    .trangThai(in.readEnum(Status.class))
+                    .build();
+
+            int size = in.readListSize();
+            if (size > 0) {
+                List<InvoiceDetailDTO> lines = new ArrayList<>(size - 1);
+                for (int i = 1; i < size; i++) {
+                    lines.add(readLine(in));
+                }
+                invoice.setChiTietHoaDons(lines);
+            }
+            return invoice;
+        }
+
+        private static void writeLine(InvoiceDetailDTO line, BinaryOutput out) {
+            if (line == null) {
+                out.writeByte(0);
+                return;
+            }
+            out.writeByte(1);
+            out.writeLong(line.getId());
+            out.writeLong(line.getSanPhamId());
+            out.writeString(line.getTenSanPham());
+            out.writeString(line.getMaSanPham());
+            out.writeInteger(line.getSoLuong());
+            out.writeBigDecimal(line.getDonGia());
+            out.writeBigDecimal(line.getThanhTien());
+            out.writeString(line.getGhiChu());
+        }
+
+        private static InvoiceDetailDTO readLine(BinaryInput in) {
+            if (in.readByte() == 0) {
+                return null;
+            }
+            return InvoiceDetailDTO.builder()
+                    .id(in.readLong())
+                    .sanPhamId(in.readLong())
+                    .tenSanPham(in.readString())
+                    .maSanPham(in.readString())
+                    .soLuong(in.readInteger())
+                    .donGia(in.readBigDecimal())
+                    .thanhTien(in.readBigDecimal())
+                    .ghiChu(in.readString())
+                    .build();
+        }
+    }
+
+    static final class CustomerCodec implements DtoCodec<CustomerDTO> {
+
+        @Override
+        public Class<CustomerDTO> type() {
+            return CustomerDTO.class;
+        }
+
+        @Override
+        public int typeId() {
+            return 3;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(CustomerDTO value, BinaryOutput out) {
+            out.writeLong(value.getId());
+            out.writeString(value.getMaKhachHang());
+            out.writeString(value.getTenKhachHang());
+            out.writeString(value.getSoDienThoai());
+            out.writeString(value.getEmail());
+            out.writeString(value.getDiaChi());
+            out.writeBigDecimal(value.getDiemTichLuy());
+            out.writeEnum(value.getTrangThai());
+        }
+
+        @Override
+        public CustomerDTO read(BinaryInput in, int version) {
+            return CustomerDTO.builder()
+                    .id(in.readLong())
+                    .maKhachHang(in.readString())
+                    .tenKhachHang(in.readString())
+                    .soDienThoai(in.readString())
+                    .email(in.readString())
+                    .diaChi(in.readString())
+                    .diemTichLuy(in.readBigDecimal())
+                    .trangThai(in.readEnum(Status.class))
+                    .build();
+        }
+    }
+
+    static final class PromotionCodec implements DtoCodec<PromotionDTO> {
+
+        @Override
+        public Class<PromotionDTO> type() {
+            return PromotionDTO.class;
+        }
+
+        @Override
+        public int typeId() {
+            return 4;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(PromotionDTO value, BinaryOutput out) {
+            out.writeLong(value.getId());
+            out.writeString(value.getMaKhuyenMai());
+            out.writeString(value.getTenKhuyenMai());
+            out.writeString(value.getMoTa());
+            out.writeEnum(value.getLoaiKhuyenMai());
+            out.writeLong(value.getChiNhanhId());
+            out.writeString(value.getTenChiNhanh());
+            out.writeDateTime(value.getNgayBatDau());
+            out.writeDateTime(value.getNgayKetThuc());
+            out.writeBigDecimal(value.getGiaTriKhuyenMai());
+            out.writeBigDecimal(value.getGiaTriToiThieu());
+            out.writeBigDecimal(value.getGiamToiDa());
+            out.writeInteger(value.getSoLuongMua());
+            out.writeInteger(value.getSoLuongTang());
+            out.writeInteger(value.getSoLanSuDungToiDa());
+            out.writeInteger(value.getTongSoLanSuDungToiDa());
+            out.writeInteger(value.getSoLanDaSuDung());
+            out.writeBoolean(value.getChoPhepKetHop());
+            out.writeEnum(value.getTrangThai());
+            out.writeString(value.getAnhKhuyenMai());
+            out.writeString(value.getDieuKien());
+            out.writeBoolean(value.getIsActive());
+            out.writeLongList(value.getSanPhamIds());
+        }
+
+        @Override
+        public PromotionDTO read(BinaryInput in, int version) {
+            return PromotionDTO.builder()
+                    .id(in.readLong())
+                    .maKhuyenMai(in.readString())
+                    .tenKhuyenMai(in.readString())
+                    .moTa(in.readString())
+                    .loaiKhuyenMai(in.readEnum(PromotionType.class))
+                    .chiNhanhId(in.readLong())
+                    .tenChiNhanh(in.readString())
+                    .ngayBatDau(in.readDateTime())
+                    .ngayKetThuc(in.readDateTime())
+                    .giaTriKhuyenMai(in.readBigDecimal())
+                    .giaTriToiThieu(in.readBigDecimal())
+                    .giamToiDa(in.readBigDecimal())
+                    .soLuongMua(in.readInteger())
+                    .soLuongTang(in.readInteger())
+                    .soLanSuDungToiDa(in.readInteger())
+                    .tongSoLanSuDungToiDa(in.readInteger())
+                    .soLanDaSuDung(in.readInteger())
+                    .choPhepKetHop(in.readBoolean())
+                    .trangThai(in.readEnum(Status.class))
+                    .anhKhuyenMai(in.readString())
+                    .dieuKien(in.readString())
+                    .isActive(in.readBoolean())
+                    .sanPhamIds(in.readLongList())
+                    .build();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.retail.common.constant.PromotionType;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * DTO khuyến mãi đã được áp dụng - Thông tin khuyến mãi áp dụng vào hóa đơn
@@ -21,5 +22,7 @@ public class AppliedPromotionDTO {
     private BigDecimal originalAmount; // Số tiền gốc
     private BigDecimal finalAmount; // Số tiền sau khi giảm
     private String description; // Mô tả khuyến mãi đã áp dụng
+    private String maGiamGia; // Mã giảm giá dùng 1 lần (null nếu áp dụng theo mã khuyến mãi)
+    private List<Long> sanPhamIds; // Sản phẩm tạo ra mức giảm (null = giảm trên cả hóa đơn)
 }
 
@@ -0,0 +1,21 @@
+package com.retail.application.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO tổ hợp khuyến mãi giảm nhiều nhất cho giỏ hàng - Kết quả của PromotionOptimizer
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BestDiscountDTO {
+    private List<AppliedPromotionDTO> appliedPromotions; // Theo thứ tự áp dụng
+    private BigDecimal totalDiscount; // Tổng số tiền giảm
+    private BigDecimal originalAmount; // Số tiền gốc
+    private BigDecimal finalAmount; // Số tiền sau khi giảm
+    private Boolean exhaustive; // false = hết giới hạn tìm kiếm, kết quả là tổ hợp tốt nhất đã tìm được
+}
@@ -0,0 +1,25 @@
+package com.retail.application.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tiến độ nạp sẵn danh mục sản phẩm các chi nhánh vào cache
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogWarmUpDTO {
+    private String status;                // IDLE, RUNNING, DONE, FAILED, SKIPPED
+    private String trigger;               // STARTUP, MANUAL
+    private Integer branchesTotal;
+    private Integer branchesDone;
+    private String currentBranch;         // Khi RUNNING
+    private Long productsLoaded;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long durationMs;
+    private String error;                 // Khi FAILED / SKIPPED
+}
@@ -33,5 +33,7 @@ public class CheckoutRequest {
 
     private String maKhuyenMai;  // Mã khuyến mãi (optional - nếu có thì chỉ áp dụng promotion này)
 
+    private Boolean apDungKhuyenMaiTotNhat;  // true + không nhập mã: tự áp dụng tổ hợp khuyến mãi giảm nhiều nhất
+
     private String ghiChu;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.retail.application.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO kết quả tạo mã giảm giá hàng loạt cho 1 khuyến mãi
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponBatchDTO {
+    private Long khuyenMaiId;
+    private String maKhuyenMai;
+    private Integer soLuong; // Số mã vừa tạo
+    private Long tongSoMa; // Tổng số mã của khuyến mãi
+    private Long soMaDaDung; // Số mã đã dùng
+    private List<String> codes; // Mã vừa tạo (dạng XXXX-XXXX-XXXX)
+}
@@ -0,0 +1,20 @@
+package com.retail.application.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Số liệu 1 ngày dùng chung cho mọi widget dashboard - ngày đã qua được giữ trong cache "dashboard"
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardDayDTO {
+    private LocalDate ngay;
+    private Long soDon;             // Số đơn hoàn tất
+    private BigDecimal doanhThu;    // Doanh thu thực (thanhTien)
+    private Long soKhach;           // Số khách hàng khác nhau trong ngày
+}
@@ -33,6 +33,7 @@ public class PromotionDTO {
     private Integer soLanSuDungToiDa;
     private Integer tongSoLanSuDungToiDa;
     private Integer soLanDaSuDung;
+    private Boolean choPhepKetHop; // Cho phép kết hợp với khuyến mãi khác (mặc định: không)
     private Status trangThai;
     private String anhKhuyenMai;
     private String dieuKien;
@@ -0,0 +1,30 @@
+package com.retail.application.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO kết quả mô phỏng khuyến mãi nháp trên hóa đơn đã hoàn tất trong quá khứ
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromotionSimulationDTO {
+    private LocalDateTime fromDate;
+    private LocalDateTime toDate;
+    private Long totalInvoices; // Số hóa đơn đã xét
+    private Long affectedInvoices; // Số hóa đơn được giảm giá
+    private Long totalLines; // Số dòng chi tiết đã xét
+    private BigDecimal totalRevenue; // Tổng tiền hàng (trước khuyến mãi)
+    private BigDecimal totalDiscount; // Tổng tiền khuyến mãi sẽ giảm
+    private BigDecimal totalCost; // Tổng giá vốn (theo giá nhập hiện tại)
+    private BigDecimal grossMarginBefore; // Lãi gộp khi không có khuyến mãi
+    private BigDecimal grossMarginAfter; // Lãi gộp khi có khuyến mãi
+    private BigDecimal marginRateBefore; // % lãi gộp trên doanh thu khi không có khuyến mãi
+    private BigDecimal marginRateAfter; // % lãi gộp trên doanh thu sau giảm giá khi có khuyến mãi
+    private BigDecimal marginImpact; // Chênh lệch % lãi gộp (điểm phần trăm, âm = giảm)
+    private Long durationMs; // Thời gian chạy mô phỏng
+}
@@ -0,0 +1,29 @@
+package com.retail.application.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái 1 job xuất báo cáo - client hỏi lại theo jobId tới khi DONE rồi tải file
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobDTO {
+    private String jobId;
+    private String type;                  // ReportJobType
+    private String status;                // PENDING, RUNNING, DONE, FAILED
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Integer limit;
+    private String fileName;
+    private Long fileSize;                // Byte, khi DONE
+    private String error;                 // Khi FAILED
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String downloadUrl;           // Khi DONE
+}
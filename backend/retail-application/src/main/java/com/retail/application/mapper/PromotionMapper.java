@@ -22,6 +22,7 @@ public interface PromotionMapper {
 
     @Mapping(target = "chiNhanh", ignore = true)
     @Mapping(target = "chiTietKhuyenMais", ignore = true)
+    @Mapping(target = "choPhepKetHop", defaultValue = "false")
     KhuyenMai toEntity(PromotionDTO dto);
 
     List<PromotionDTO> toDtoList(List<KhuyenMai> entities);
@@ -17,6 +17,11 @@ public interface AuditLogService {
      */
     AuditLogDTO create(AuditLogDTO dto);
 
+    /**
+     * Tạo nhiều entry audit log trong 1 lần ghi (giữ nguyên actionTime nếu đã có)
+     */
+    void createAll(List<AuditLogDTO> dtos);
+
     /**
      * Lấy audit log theo ID
      */
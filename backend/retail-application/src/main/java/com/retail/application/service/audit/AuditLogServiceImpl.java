@@ -40,6 +40,29 @@ public class AuditLogServiceImpl implements AuditLogService {
         return auditLogMapper.toDto(saved);
     }
 
+    @Override
+    @Transactional
+    public void createAll(List<AuditLogDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<AuditLog> entities = dtos.stream()
+                .map(dto -> {
+                    AuditLog entity = auditLogMapper.toEntity(dto);
+                    // Thời điểm thao tác được ghi lúc phát sinh, không phải lúc ghi xuống DB
+                    if (entity.getActionTime() == null) {
+                        entity.setActionTime(now);
+                    }
+                    return entity;
+                })
+                .toList();
+
+        auditLogRepository.saveAll(entities);
+        log.debug("Created {} audit logs", entities.size());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public AuditLogDTO findById(Long id) {
@@ -0,0 +1,60 @@
+package com.retail.application.service.cache;
+
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.KhachHang;
+
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
+
+/**
+ * Service xóa cache theo key bị ảnh hưởng (thay cho allEntries = true)
+ *
+ * Các lệnh evict đi qua cache transaction-aware nên chỉ chạy sau khi transaction commit
+ */
+public interface CacheInvalidationService {
+
+    /**
+     * Xóa các key "invoices" liên quan tới 1 hóa đơn:
+     * id hóa đơn, ngày tạo (mọi trạng thái), các khoảng ngày chứa ngày tạo,
+     * hóa đơn của khách hàng và danh sách đơn treo của chi nhánh
+     */
+    void evictInvoice(HoaDon hoaDon);
+
+    /**
+     * Như evictInvoice(HoaDon) nhưng nhận sẵn các giá trị tạo key
+     * (dùng khi xử lý sự kiện outbox, không cần load lại hóa đơn)
+     */
+    void evictInvoice(Long invoiceId, LocalDate ngayTao, Long khachHangId, Long chiNhanhId);
+
+    /**
+     * Xóa cache danh sách hóa đơn của 1 khách hàng
+     */
+    void evictCustomerInvoices(Long khachHangId);
+
+    /**
+     * Đọc danh sách hóa đơn theo khoảng ngày qua cache "invoices" (key daterange:{from}:{to}[:status:{status}])
+     *
+     * Key được ghi vào index trước khi nạp để có thể xóa đúng key khi có hóa đơn trong khoảng đó;
+     * sau khi cache kiểm tra lại index - key đã bị xóa khỏi index trong lúc nạp thì bỏ giá trị vừa cache.
+     * Không ghi được index (Redis lỗi) thì nạp thẳng, không cache
+     *
+     * @param status null nếu không lọc theo trạng thái
+     */
+    <T> T getInvoiceDateRange(String fromDate, String toDate, Status status, Callable<T> loader);
+
+    /**
+     * Xóa cache khách hàng theo id và số điện thoại
+     */
+    void evictCustomer(KhachHang khachHang);
+
+    /**
+     * Xóa cache sản phẩm theo id và barcode
+     */
+    void evictProduct(Long id, String barcode);
+
+    /**
+     * Xóa số liệu dashboard đã cache của 1 ngày (rollup của ngày đó vừa thay đổi)
+     */
+    void evictDashboardDay(LocalDate ngay);
+}
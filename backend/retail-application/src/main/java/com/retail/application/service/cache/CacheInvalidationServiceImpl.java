@@ -0,0 +1,240 @@
+package com.retail.application.service.cache;
+
+import com.retail.application.config.RedisConfig;
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.KhachHang;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Xóa cache theo key - chỉ những key bị ảnh hưởng bởi thao tác ghi mới bị xóa.
+ *
+ * Key trong cache "invoices" (xem PosServiceImpl):
+ * - {id}
+ * - date:{yyyy-MM-dd} và date:{yyyy-MM-dd}:status:{status}
+ * - daterange:{from}:{to} và daterange:{from}:{to}:status:{status}
+ * - customer:{khachHangId}
+ * - pending:{chiNhanhId}
+ *
+ * Key trong cache "dashboard" (xem DashboardServiceImpl): day:{yyyy-MM-dd}
+ *
+ * Key khoảng ngày không suy ra được từ hóa đơn nên được ghi vào 1 Redis set (index) trước khi nạp,
+ * lúc xóa chỉ duyệt index và xóa các khoảng chứa ngày tạo hóa đơn (xem getInvoiceDateRange).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationServiceImpl implements CacheInvalidationService {
+
+    private static final String INVOICES = "invoices";
+    private static final String CUSTOMERS = "customers";
+    private static final String PRODUCTS = "products";
+    private static final String DASHBOARD = "dashboard";
+
+    private static final String DATE_RANGE_PREFIX = "daterange:";
+    private static final String DATE_RANGE_INDEX = "invoices::index:daterange";
+    // Bằng TTL của cache "invoices" - index tự hết hạn khi không còn key khoảng ngày nào
+    private static final Duration DATE_RANGE_INDEX_TTL = RedisConfig.INVOICES_TTL;
+
+    private final CacheManager cacheManager;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Override
+    public void evictInvoice(HoaDon hoaDon) {
+        if (hoaDon == null) {
+            return;
+        }
+        evictInvoice(hoaDon.getId(),
+                hoaDon.getNgayTao() != null ? hoaDon.getNgayTao().toLocalDate() : null,
+                hoaDon.getKhachHang() != null ? hoaDon.getKhachHang().getId() : null,
+                hoaDon.getChiNhanh() != null ? hoaDon.getChiNhanh().getId() : null);
+    }
+
+    @Override
+    public void evictInvoice(Long invoiceId, LocalDate ngayTao, Long khachHangId, Long chiNhanhId) {
+        Cache cache = cacheManager.getCache(INVOICES);
+        if (cache == null) {
+            return;
+        }
+
+        if (invoiceId != null) {
+            cache.evict(invoiceId);
+        }
+
+        if (ngayTao != null) {
+            cache.evict("date:" + ngayTao);
+            for (Status status : Status.values()) {
+                cache.evict("date:" + ngayTao + ":status:" + status);
+            }
+            evictDateRangesContaining(cache, ngayTao);
+        }
+
+        if (khachHangId != null) {
+            cache.evict("customer:" + khachHangId);
+        }
+
+        if (chiNhanhId != null) {
+            cache.evict("pending:" + chiNhanhId);
+        }
+
+        log.debug("Evicted invoice cache keys for invoice {}", invoiceId);
+    }
+
+    @Override
+    public void evictCustomerInvoices(Long khachHangId) {
+        Cache cache = cacheManager.getCache(INVOICES);
+        if (cache != null && khachHangId != null) {
+            cache.evict("customer:" + khachHangId);
+        }
+    }
+
+    @Override
+    public <T> T getInvoiceDateRange(String fromDate, String toDate, Status status, Callable<T> loader) {
+        String key = DATE_RANGE_PREFIX + fromDate + ":" + toDate + (status != null ? ":status:" + status : "");
+        Cache cache = cacheManager.getCache(INVOICES);
+        if (cache == null || !indexDateRange(key)) {
+            return load(loader);
+        }
+
+        T value;
+        try {
+            value = cache.get(key, loader);
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+
+        // Hóa đơn mới trong khoảng được ghi trong lúc nạp: lần xóa đó đã bỏ key khỏi index (và có thể chạy
+        // trước khi giá trị được cache) - bỏ giá trị vừa cache để lần đọc sau nạp lại
+        if (!isDateRangeIndexed(key)) {
+            cache.evict(key);
+        }
+        return value;
+    }
+
+    private boolean indexDateRange(String key) {
+        try {
+            redisTemplate.opsForSet().add(DATE_RANGE_INDEX, key);
+            redisTemplate.expire(DATE_RANGE_INDEX, DATE_RANGE_INDEX_TTL);
+            return true;
+        } catch (Exception e) {
+            log.warn("Could not index invoice cache key '{}' - reading without cache: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isDateRangeIndexed(String key) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(DATE_RANGE_INDEX, key));
+        } catch (Exception e) {
+            log.warn("Could not check invoice date-range index: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static <T> T load(Callable<T> loader) {
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void evictCustomer(KhachHang khachHang) {
+        Cache cache = cacheManager.getCache(CUSTOMERS);
+        if (cache == null || khachHang == null) {
+            return;
+        }
+        cache.evict(khachHang.getId());
+        if (khachHang.getSoDienThoai() != null) {
+            cache.evict("phone:" + khachHang.getSoDienThoai());
+        }
+    }
+
+    @Override
+    public void evictProduct(Long id, String barcode) {
+        Cache cache = cacheManager.getCache(PRODUCTS);
+        if (cache == null) {
+            return;
+        }
+        if (id != null) {
+            cache.evict(id);
+        }
+        if (barcode != null) {
+            cache.evict("barcode:" + barcode);
+        }
+    }
+
+    @Override
+    public void evictDashboardDay(LocalDate ngay) {
+        Cache cache = cacheManager.getCache(DASHBOARD);
+        if (cache != null && ngay != null) {
+            cache.evict("day:" + ngay);
+        }
+    }
+
+    private void evictDateRangesContaining(Cache cache, LocalDate date) {
+        Set<Object> rangeKeys;
+        try {
+            rangeKeys = redisTemplate.opsForSet().members(DATE_RANGE_INDEX);
+        } catch (Exception e) {
+            log.warn("Could not read invoice date-range index: {}", e.getMessage());
+            return;
+        }
+        if (rangeKeys == null || rangeKeys.isEmpty()) {
+            return;
+        }
+
+        List<Object> evicted = new ArrayList<>();
+        for (Object rangeKey : rangeKeys) {
+            String key = String.valueOf(rangeKey);
+            if (rangeContains(key, date)) {
+                cache.evict(key);
+                evicted.add(key);
+            }
+        }
+
+        if (!evicted.isEmpty()) {
+            try {
+                redisTemplate.opsForSet().remove(DATE_RANGE_INDEX, evicted.toArray());
+            } catch (Exception e) {
+                log.warn("Could not prune invoice date-range index: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * daterange:{from}:{to}[:status:{status}] - key không đọc được thì coi như chứa (xóa cho an toàn)
+     */
+    static boolean rangeContains(String key, LocalDate date) {
+        String[] parts = key.substring(DATE_RANGE_PREFIX.length()).split(":");
+        if (parts.length < 2) {
+            return true;
+        }
+        try {
+            LocalDate from = LocalDate.parse(parts[0]);
+            LocalDate to = LocalDate.parse(parts[1]);
+            return !date.isBefore(from) && !date.isAfter(to);
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.retail.application.service.cache;
+
+import com.retail.application.dto.CatalogWarmUpDTO;
+
+/**
+ * Nạp sẵn sản phẩm đang bán của mọi chi nhánh vào cache "products" (theo id và barcode) - chạy khi khởi động
+ * và khi admin yêu cầu (sau khi flush Redis)
+ */
+public interface CatalogWarmUpService {
+
+    /**
+     * Bắt đầu warm-up ở background; đang chạy thì trả về tiến độ của lần đang chạy
+     */
+    CatalogWarmUpDTO start();
+
+    CatalogWarmUpDTO getStatus();
+
+    /**
+     * Lần warm-up lúc khởi động đã kết thúc (kể cả lỗi - cache chỉ giúp nhanh hơn) hoặc không bật
+     */
+    boolean isStartupComplete();
+}
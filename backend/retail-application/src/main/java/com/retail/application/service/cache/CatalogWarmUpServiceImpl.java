@@ -0,0 +1,258 @@
+package com.retail.application.service.cache;
+
+import com.retail.application.config.RedisCachePreloader;
+import com.retail.application.dto.CatalogWarmUpDTO;
+import com.retail.application.dto.ProductDTO;
+import com.retail.application.mapper.ProductMapper;
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.SanPham;
+import com.retail.persistence.repository.ChiNhanhRepository;
+import com.retail.persistence.repository.SanPhamRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Warm-up danh mục: với mỗi chi nhánh đang hoạt động, đọc sản phẩm ACTIVE theo trang (page-size, mỗi trang
+ * 1 transaction chỉ đọc) và ghi cả trang vào cache "products" bằng 1 pipeline - key {id} và barcode:{barcode}
+ * như ProductServiceImpl.findById / findByBarcode.
+ *
+ * Chạy trên 1 thread riêng; lần chạy lúc khởi động giữ readiness DOWN tới khi xong (xem isStartupComplete).
+ * Không có Redis (loadtest) thì bỏ qua
+ */
+@Service
+@Slf4j
+public class CatalogWarmUpServiceImpl implements CatalogWarmUpService {
+
+    enum State { IDLE, RUNNING, DONE, FAILED, SKIPPED }
+
+    private static final String PRODUCTS_CACHE = "products";
+    private static final String BARCODE_PREFIX = "barcode:";
+
+    private final ChiNhanhRepository chiNhanhRepository;
+    private final SanPhamRepository sanPhamRepository;
+    private final ProductMapper productMapper;
+    private final ObjectProvider<RedisCachePreloader> preloader;
+    private final TransactionTemplate readTransaction;
+    private final int pageSize;
+    private final boolean onStartup;
+    private final ExecutorService executor;
+
+    private volatile Run current;
+    private volatile boolean startupComplete;
+
+    public CatalogWarmUpServiceImpl(ChiNhanhRepository chiNhanhRepository,
+                                    SanPhamRepository sanPhamRepository,
+                                    ProductMapper productMapper,
+                                    ObjectProvider<RedisCachePreloader> preloader,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.cache.warm-up.page-size:500}") int pageSize,
+                                    @Value("${app.cache.warm-up.on-startup:true}") boolean onStartup) {
+        this.chiNhanhRepository = chiNhanhRepository;
+        this.sanPhamRepository = sanPhamRepository;
+        this.productMapper = productMapper;
+        this.preloader = preloader;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.pageSize = Math.max(1, pageSize);
+        this.onStartup = onStartup;
+        this.startupComplete = !onStartup;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (onStartup) {
+            start("STARTUP");
+        }
+    }
+
+    @Override
+    public CatalogWarmUpDTO start() {
+        return start("MANUAL");
+    }
+
+    @Override
+    public CatalogWarmUpDTO getStatus() {
+        Run run = current;
+        return run != null ? run.toDto() : CatalogWarmUpDTO.builder().status(State.IDLE.name()).build();
+    }
+
+    @Override
+    public boolean isStartupComplete() {
+        return startupComplete;
+    }
+
+    private synchronized CatalogWarmUpDTO start(String trigger) {
+        Run running = current;
+        if (running != null && running.state == State.RUNNING) {
+            return running.toDto();
+        }
+        Run run = new Run(trigger);
+        current = run;
+        try {
+            executor.execute(() -> warmUp(run));
+        } catch (RejectedExecutionException e) {
+            // Đang tắt ứng dụng
+            run.finish(State.FAILED, "Warm-up executor is shut down");
+            markStartupComplete(run);
+        }
+        return run.toDto();
+    }
+
+    /**
+     * Chạy 1 lần warm-up trên thread hiện tại
+     */
+    void warmUp(Run run) {
+        try {
+            RedisCachePreloader cachePreloader = preloader.getIfAvailable();
+            if (cachePreloader == null) {
+                run.finish(State.SKIPPED, "Redis cache is not configured");
+                log.info("Catalog warm-up skipped - Redis cache is not configured");
+                return;
+            }
+
+            List<ChiNhanh> branches = Objects.requireNonNull(
+                    readTransaction.execute(status -> chiNhanhRepository.findByTrangThai(Status.ACTIVE)));
+            run.branchesTotal = branches.size();
+            log.info("Catalog warm-up ({}) started for {} branches", run.trigger, branches.size());
+
+            for (ChiNhanh branch : branches) {
+                run.currentBranch = branch.getTenChiNhanh();
+                long branchStart = System.nanoTime();
+                long branchProducts = 0;
+                int page = 0;
+                boolean hasNext = true;
+                while (hasNext) {
+                    PageRequest pageable = PageRequest.of(page++, pageSize, Sort.by("id"));
+                    long generation = cachePreloader.generation(PRODUCTS_CACHE);
+                    CatalogPage catalogPage = Objects.requireNonNull(readTransaction.execute(status -> {
+                        Slice<SanPham> slice = sanPhamRepository.findByChiNhanhIdAndTrangThai(
+                                branch.getId(), Status.ACTIVE, pageable);
+                        return new CatalogPage(productMapper.toDtoList(slice.getContent()), slice.hasNext());
+                    }));
+                    if (!cachePreloader.putAll(PRODUCTS_CACHE, cacheEntries(catalogPage.products()), generation)) {
+                        // Sản phẩm bị sửa trong lúc đọc trang - bỏ trang này, request nạp lại khi cần
+                        log.debug("Catalog warm-up: skipped page {} of branch '{}' - products cache was evicted",
+                                pageable.getPageNumber(), branch.getTenChiNhanh());
+                    }
+                    branchProducts += catalogPage.products().size();
+                    run.productsLoaded += catalogPage.products().size();
+                    hasNext = catalogPage.hasNext();
+                }
+                run.branchesDone++;
+                log.info("Catalog warm-up: branch '{}' - {} products in {} ms ({}/{})", branch.getTenChiNhanh(),
+                        branchProducts, Duration.ofNanos(System.nanoTime() - branchStart).toMillis(),
+                        run.branchesDone, run.branchesTotal);
+            }
+
+            run.finish(State.DONE, null);
+            log.info("Catalog warm-up ({}) finished: {} products from {} branches in {} ms", run.trigger,
+                    run.productsLoaded, run.branchesDone, run.durationMs());
+        } catch (Exception e) {
+            run.finish(State.FAILED, e.getMessage());
+            log.warn("Catalog warm-up ({}) failed after {} products: {}", run.trigger, run.productsLoaded,
+                    e.getMessage());
+        } finally {
+            markStartupComplete(run);
+        }
+    }
+
+    private void markStartupComplete(Run run) {
+        if ("STARTUP".equals(run.trigger)) {
+            startupComplete = true;
+        }
+    }
+
+    private static Map<Object, ProductDTO> cacheEntries(List<ProductDTO> products) {
+        Map<Object, ProductDTO> entries = new LinkedHashMap<>();
+        for (ProductDTO product : products) {
+            entries.put(product.getId(), product);
+            if (product.getBarcode() != null && !product.getBarcode().isBlank()) {
+                entries.put(BARCODE_PREFIX + product.getBarcode(), product);
+            }
+        }
+        return entries;
+    }
+
+    private record CatalogPage(List<ProductDTO> products, boolean hasNext) {
+    }
+
+    /**
+     * Trạng thái 1 lần warm-up - chỉ thread warm-up ghi, request đọc
+     */
+    static final class Run {
+        final String trigger;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+        volatile State state = State.RUNNING;
+        volatile int branchesTotal;
+        volatile int branchesDone;
+        volatile String currentBranch;
+        volatile long productsLoaded;
+        volatile LocalDateTime finishedAt;
+        volatile Long finishedNanos;
+        volatile String error;
+
+        Run(String trigger) {
+            this.trigger = trigger;
+        }
+
+        void finish(State finalState, String message) {
+            error = message;
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            currentBranch = null;
+            state = finalState;
+        }
+
+        long durationMs() {
+            Long end = finishedNanos;
+            return Duration.ofNanos((end != null ? end : System.nanoTime()) - startNanos).toMillis();
+        }
+
+        CatalogWarmUpDTO toDto() {
+            return CatalogWarmUpDTO.builder()
+                    .status(state.name())
+                    .trigger(trigger)
+                    .branchesTotal(branchesTotal)
+                    .branchesDone(branchesDone)
+                    .currentBranch(currentBranch)
+                    .productsLoaded(productsLoaded)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .durationMs(durationMs())
+                    .error(error)
+                    .build();
+        }
+    }
+}
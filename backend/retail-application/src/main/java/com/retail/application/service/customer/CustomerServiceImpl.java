@@ -2,6 +2,9 @@ package com.retail.application.service.customer;
 
 import com.retail.application.dto.CustomerDTO;
 import com.retail.application.mapper.CustomerMapper;
+import com.retail.application.service.cache.CacheInvalidationService;
+import com.retail.application.service.document.DocumentNumberService;
+import com.retail.common.constant.DocumentType;
 import com.retail.common.constant.ErrorCode;
 import com.retail.common.constant.Status;
 import com.retail.common.exception.BusinessException;
@@ -12,10 +15,8 @@ import com.retail.persistence.repository.HoaDonRepository;
 import com.retail.persistence.repository.KhachHangRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -32,20 +33,23 @@ import java.util.List;
 @Slf4j
 public class CustomerServiceImpl implements CustomerService {
 
+    private static final int MAX_CUSTOMER_CODE_ATTEMPTS = 20;
+
     private final KhachHangRepository khachHangRepository;
     private final CustomerMapper customerMapper;
     private final HoaDonRepository hoaDonRepository;
+    private final DocumentNumberService documentNumberService;
+    private final CacheInvalidationService cacheInvalidationService;
 
     /**
-     * Tạo khách hàng mới - Xóa cache sau khi tạo
+     * Tạo khách hàng mới - Xóa key cache theo số điện thoại của khách hàng mới
      */
     @Override
     @Transactional
-    @CacheEvict(value = "customers", allEntries = true)
     public CustomerDTO create(CustomerDTO dto) {
         // Tự động generate mã khách hàng nếu FE không gửi
         if (dto.getMaKhachHang() == null || dto.getMaKhachHang().trim().isEmpty()) {
-            dto.setMaKhachHang(generateCustomerCode());
+            dto.setMaKhachHang(nextCustomerCode());
             log.info("Auto-generated customer code: {}", dto.getMaKhachHang());
         } else {
             // Kiểm tra mã khách hàng trùng lặp nếu FE tự nhập (chỉ check ACTIVE, không check DELETED)
@@ -69,28 +73,30 @@ public class CustomerServiceImpl implements CustomerService {
         entity.setDiemTichLuy(BigDecimal.ZERO);
 
         KhachHang saved = khachHangRepository.save(entity);
-        log.info("Customer created successfully with ID: {} - Cache cleared", saved.getId());
+        cacheInvalidationService.evictCustomer(saved);
+        log.info("Customer created successfully with ID: {}", saved.getId());
 
         return customerMapper.toDto(saved);
     }
 
     /**
-     * Cập nhật khách hàng - Cập nhật cache và xóa list cache
+     * Cập nhật khách hàng - Cập nhật cache theo id, xóa key số điện thoại cũ và mới
      */
     @Override
     @Transactional
-    @Caching(
-            put = @CachePut(value = "customers", key = "#id"),
-            evict = @CacheEvict(value = "customers", allEntries = true)
-    )
+    @CachePut(value = "customers", key = "#id")
     public CustomerDTO update(Long id, CustomerDTO dto) {
         log.info("Updating customer ID: {}", id);
 
         KhachHang existing = khachHangRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Khách hàng", id));
 
+        // Xóa key theo số điện thoại cũ trước khi map (SĐT có thể thay đổi)
+        cacheInvalidationService.evictCustomer(existing);
+
         customerMapper.updateEntityFromDto(dto, existing);
         KhachHang updated = khachHangRepository.save(existing);
+        cacheInvalidationService.evictCustomer(updated);
 
         log.info("Customer updated successfully: {} - Cache updated", id);
         return customerMapper.toDto(updated);
@@ -105,7 +111,7 @@ public class CustomerServiceImpl implements CustomerService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "customers", key = "#id", unless = "#result == null")
+    @Cacheable(value = "customers", key = "#id", sync = true)
     public CustomerDTO findById(Long id) {
         log.info("Finding customer by ID: {} - Checking cache first", id);
 
@@ -124,7 +130,7 @@ public class CustomerServiceImpl implements CustomerService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "customers", key = "'phone:' + #phone", unless = "#result == null")
+    @Cacheable(value = "customers", key = "'phone:' + #phone", sync = true)
     public CustomerDTO findByPhone(String phone) {
         log.info("Finding customer by phone: {} - Checking cache first", phone);
         KhachHang entity = khachHangRepository.findBySoDienThoai(phone)
@@ -181,7 +187,6 @@ public class CustomerServiceImpl implements CustomerService {
      */
     @Override
     @Transactional
-    @CacheEvict(value = "customers", allEntries = true)
     public void delete(Long id) {
         log.info("Deleting customer ID: {} - Hard delete (xóa hoàn toàn)", id);
 
@@ -197,6 +202,7 @@ public class CustomerServiceImpl implements CustomerService {
             relatedInvoices.forEach(hoaDon -> {
                     hoaDon.setKhachHang(null);
                     hoaDonRepository.save(hoaDon);
+                    cacheInvalidationService.evictInvoice(hoaDon);
                 log.debug("Set khach_hang_id = NULL for invoice: {} (status: {})", 
                         hoaDon.getMaHoaDon(), hoaDon.getTrangThai());
                 });
@@ -204,22 +210,18 @@ public class CustomerServiceImpl implements CustomerService {
 
         // Bước 2: Xóa hoàn toàn khỏi database (hard delete)
         khachHangRepository.delete(entity);
+        cacheInvalidationService.evictCustomer(entity);
+        cacheInvalidationService.evictCustomerInvoices(id);
 
-        log.info("Customer deleted completely: {} - All related invoices updated - All cache cleared", id);
+        log.info("Customer deleted completely: {} - All related invoices updated", id);
     }
 
     /**
-     * Update customer points - Evict cache for this customer and list cache
+     * Update customer points - Evict cache keys of this customer only (id, phone)
      * Points change frequently, so we clear cache to show real-time data
      */
     @Override
     @Transactional
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "customers", key = "#id"),
-                    @CacheEvict(value = "customers", allEntries = true)
-            }
-    )
     public void updatePoints(Long id, BigDecimal points) {
         log.info("Updating customer points ID: {} with {}", id, points);
 
@@ -228,35 +230,23 @@ public class CustomerServiceImpl implements CustomerService {
 
         entity.setDiemTichLuy(entity.getDiemTichLuy().add(points));
         khachHangRepository.save(entity);
+        cacheInvalidationService.evictCustomer(entity);
 
         log.info("Customer points updated: {} - Cache cleared", id);
     }
 
     /**
-     * Tự động generate mã khách hàng ngắn gọn: 6-7 ký tự
-     * Format: KH + 4-5 số ngẫu nhiên
-     * Ví dụ: KH1234, KH56789
+     * Mã khách hàng tiếp theo - bỏ qua mã đã có người dùng (mã nhập tay trùng định dạng KH000123).
+     * Tạo khách hàng không phải thao tác nóng nên thêm 1 truy vấn kiểm tra là chấp nhận được
      */
-    private String generateCustomerCode() {
-        String prefix = "KH";
-        // Tạo 4-5 số ngẫu nhiên (tổng 6-7 ký tự)
-        int randomDigits = 1000 + (int) (Math.random() * 90000); // 1000-99999
-        String code = prefix + randomDigits;
-
-        // Đảm bảo mã không trùng (retry nếu trùng)
-        int retryCount = 0;
-        while (khachHangRepository.existsByMaKhachHang(code) && retryCount < 10) {
-            randomDigits = 1000 + (int) (Math.random() * 90000);
-            code = prefix + randomDigits;
-            retryCount++;
-        }
-
-        // Nếu vẫn trùng sau 10 lần, thêm timestamp ngắn
-        if (retryCount >= 10) {
-            String timestamp = String.valueOf(System.currentTimeMillis()).substring(7); // 6 số cuối
-            code = prefix + timestamp;
+    private String nextCustomerCode() {
+        for (int attempt = 0; attempt < MAX_CUSTOMER_CODE_ATTEMPTS; attempt++) {
+            String code = documentNumberService.nextNumber(DocumentType.KHACH_HANG);
+            if (!khachHangRepository.existsByMaKhachHang(code)) {
+                return code;
+            }
+            log.warn("Customer code {} is already taken - skipping", code);
         }
-
-        return code;
+        throw new BusinessException(ErrorCode.BAD_REQUEST, "Không thể tạo mã khách hàng mới, vui lòng thử lại");
     }
-}
\ No newline at end of file
+}
@@ -1,31 +1,45 @@
 package com.retail.application.service.dashboard;
 
+import com.retail.application.dto.DashboardDayDTO;
 import com.retail.application.dto.DashboardStatsDTO;
-import com.retail.common.constant.Status;
-import com.retail.domain.entity.HoaDon;
-import com.retail.persistence.repository.ChiTietHoaDonRepository;
-import com.retail.persistence.repository.HoaDonRepository;
+import com.retail.persistence.repository.DoanhSoNgayRepository;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.DailyTotals;
+import com.retail.persistence.repository.DoanhSoSanPhamNgayRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Dashboard đọc từ rollup doanh số theo ngày (doanh_so_ngay, doanh_so_san_pham_ngay, khach_hang_ngay) -
+ * chi phí theo số ngày hiển thị, không theo số hóa đơn.
+ *
+ * Số đơn / doanh thu / số khách của cả 7 ngày lấy bằng 1 query gộp rồi dùng chung cho mọi widget;
+ * ngày đã qua được cache vĩnh viễn (CacheInvalidationService.evictDashboardDay khi rollup ngày đó đổi)
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DashboardServiceImpl implements DashboardService {
 
-    private final HoaDonRepository hoaDonRepository;
-    private final ChiTietHoaDonRepository chiTietHoaDonRepository;
+    static final String DASHBOARD_CACHE = "dashboard";
+    private static final int WINDOW_DAYS = 7;
+
+    private final DoanhSoNgayRepository doanhSoNgayRepository;
+    private final DoanhSoSanPhamNgayRepository doanhSoSanPhamNgayRepository;
+    private final CacheManager cacheManager;
 
     @Override
     @Transactional(readOnly = true)
@@ -36,14 +50,17 @@ public class DashboardServiceImpl implements DashboardService {
 
         log.info("Getting dashboard stats for date: {}", date);
 
+        // Số liệu 7 ngày (gồm hôm qua) đọc 1 lần, dùng chung cho mọi widget
+        Map<LocalDate, DashboardDayDTO> days = loadDays(date.minusDays(WINDOW_DAYS - 1L), date);
+
         // Thống kê hôm nay
-        DashboardStatsDTO.TodayStatsDTO todayStats = calculateTodayStats(date);
+        DashboardStatsDTO.TodayStatsDTO todayStats = calculateTodayStats(days, date);
 
         // Thống kê đơn hàng theo ngày (7 ngày gần nhất)
-        List<DashboardStatsDTO.OrderStatsByDateDTO> orderStatsByDate = calculateOrderStatsByDate(date);
+        List<DashboardStatsDTO.OrderStatsByDateDTO> orderStatsByDate = calculateOrderStatsByDate(days, date);
 
         // Tổng quan doanh số (7 ngày gần nhất)
-        List<DashboardStatsDTO.SalesOverviewDTO> salesOverview = calculateSalesOverview(date);
+        List<DashboardStatsDTO.SalesOverviewDTO> salesOverview = calculateSalesOverview(days, date);
 
         // Sản phẩm bán được trong ngày (chỉ tên và số lượng)
         List<DashboardStatsDTO.ProductSoldDTO> topProducts = getProductsSoldByDate(date);
@@ -56,54 +73,26 @@ public class DashboardServiceImpl implements DashboardService {
                 .build();
     }
 
-    private DashboardStatsDTO.TodayStatsDTO calculateTodayStats(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(23, 59, 59);
-
-        // Hôm nay
-        List<HoaDon> todayInvoices = hoaDonRepository.getInvoicesForRevenueReport(
-                startOfDay, endOfDay, Status.COMPLETED);
-
-        BigDecimal todayRevenue = todayInvoices.stream()
-                .map(HoaDon::getThanhTien)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        Long todayOrders = (long) todayInvoices.size();
+    private DashboardStatsDTO.TodayStatsDTO calculateTodayStats(Map<LocalDate, DashboardDayDTO> days, LocalDate date) {
+        DashboardDayDTO today = days.get(date);
+        BigDecimal todayRevenue = today.getDoanhThu();
+        Long todayOrders = today.getSoDon();
 
         // Tính lợi nhuận (giả sử lợi nhuận = 10% doanh thu, hoặc tính từ giá nhập/giá bán)
         BigDecimal todayProfit = todayRevenue.multiply(BigDecimal.valueOf(0.1))
                 .setScale(0, RoundingMode.HALF_UP);
 
-        Long todayCustomers = todayInvoices.stream()
-                .map(HoaDon::getKhachHang)
-                .filter(kh -> kh != null)
-                .map(kh -> kh.getId())
-                .distinct()
-                .count();
+        Long todayCustomers = today.getSoKhach();
 
         // Hôm qua (để tính % thay đổi)
-        LocalDate yesterday = date.minusDays(1);
-        LocalDateTime startOfYesterday = yesterday.atStartOfDay();
-        LocalDateTime endOfYesterday = yesterday.atTime(23, 59, 59);
-
-        List<HoaDon> yesterdayInvoices = hoaDonRepository.getInvoicesForRevenueReport(
-                startOfYesterday, endOfYesterday, Status.COMPLETED);
-
-        BigDecimal yesterdayRevenue = yesterdayInvoices.stream()
-                .map(HoaDon::getThanhTien)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        Long yesterdayOrders = (long) yesterdayInvoices.size();
+        DashboardDayDTO yesterday = days.get(date.minusDays(1));
+        BigDecimal yesterdayRevenue = yesterday.getDoanhThu();
+        Long yesterdayOrders = yesterday.getSoDon();
 
         BigDecimal yesterdayProfit = yesterdayRevenue.multiply(BigDecimal.valueOf(0.1))
                 .setScale(0, RoundingMode.HALF_UP);
 
-        Long yesterdayCustomers = yesterdayInvoices.stream()
-                .map(HoaDon::getKhachHang)
-                .filter(kh -> kh != null)
-                .map(kh -> kh.getId())
-                .distinct()
-                .count();
+        Long yesterdayCustomers = yesterday.getSoKhach();
 
         // Tính % thay đổi
         BigDecimal revenueChange = calculatePercentageChange(todayRevenue, yesterdayRevenue);
@@ -125,46 +114,31 @@ public class DashboardServiceImpl implements DashboardService {
                 .build();
     }
 
-    private List<DashboardStatsDTO.OrderStatsByDateDTO> calculateOrderStatsByDate(LocalDate endDate) {
+    private List<DashboardStatsDTO.OrderStatsByDateDTO> calculateOrderStatsByDate(Map<LocalDate, DashboardDayDTO> days,
+                                                                                 LocalDate endDate) {
         List<DashboardStatsDTO.OrderStatsByDateDTO> result = new ArrayList<>();
-        LocalDate startDate = endDate.minusDays(6); // 7 ngày
+        LocalDate startDate = endDate.minusDays(WINDOW_DAYS - 1L);
 
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(23, 59, 59);
-
-            List<HoaDon> invoices = hoaDonRepository.getInvoicesForRevenueReport(
-                    startOfDay, endOfDay, Status.COMPLETED);
-
-            Long donHang = (long) invoices.size();
-            BigDecimal doanhSo = invoices.stream()
-                    .map(HoaDon::getThanhTien)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            DashboardDayDTO day = days.get(date);
 
             result.add(DashboardStatsDTO.OrderStatsByDateDTO.builder()
                     .date(date.format(DateTimeFormatter.ofPattern("d MMM")))
-                    .donHang(donHang)
-                    .doanhSo(doanhSo)
+                    .donHang(day.getSoDon())
+                    .doanhSo(day.getDoanhThu())
                     .build());
         }
 
         return result;
     }
 
-    private List<DashboardStatsDTO.SalesOverviewDTO> calculateSalesOverview(LocalDate endDate) {
+    private List<DashboardStatsDTO.SalesOverviewDTO> calculateSalesOverview(Map<LocalDate, DashboardDayDTO> days,
+                                                                           LocalDate endDate) {
         List<DashboardStatsDTO.SalesOverviewDTO> result = new ArrayList<>();
-        LocalDate startDate = endDate.minusDays(6); // 7 ngày
+        LocalDate startDate = endDate.minusDays(WINDOW_DAYS - 1L);
 
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(23, 59, 59);
-
-            List<HoaDon> invoices = hoaDonRepository.getInvoicesForRevenueReport(
-                    startOfDay, endOfDay, Status.COMPLETED);
-
-            BigDecimal doanhSo = invoices.stream()
-                    .map(HoaDon::getThanhTien)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal doanhSo = days.get(date).getDoanhThu();
 
             BigDecimal loiNhuan = doanhSo.multiply(BigDecimal.valueOf(0.1))
                     .setScale(0, RoundingMode.HALF_UP);
@@ -181,6 +155,78 @@ public class DashboardServiceImpl implements DashboardService {
         return result;
     }
 
+    /**
+     * Số liệu từng ngày trong [startDate, endDate] (đủ mọi ngày, ngày không bán = 0).
+     * Ngày đã qua lấy từ cache "dashboard" (không hết hạn, bị xóa khi rollup của ngày đó thay đổi);
+     * các ngày còn thiếu cùng hôm nay đọc bằng 1 query gộp trên rollup
+     */
+    Map<LocalDate, DashboardDayDTO> loadDays(LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        Cache cache = cacheManager.getCache(DASHBOARD_CACHE);
+        Map<LocalDate, DashboardDayDTO> days = new HashMap<>();
+
+        LocalDate firstMissing = null;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            DashboardDayDTO cached = date.isBefore(today) && cache != null
+                    ? cache.get(dayKey(date), DashboardDayDTO.class)
+                    : null;
+            if (cached != null) {
+                days.put(date, cached);
+            } else if (firstMissing == null) {
+                firstMissing = date;
+            }
+        }
+        if (firstMissing == null) {
+            return days;
+        }
+
+        // Phiên bản dữ liệu của các ngày đã qua sắp đọc - lấy trước khi đọc rollup
+        LocalDate lastPast = endDate.isBefore(today) ? endDate : today.minusDays(1);
+        boolean cachePast = cache != null && !firstMissing.isAfter(lastPast);
+        long version = cachePast ? doanhSoNgayRepository.dataVersion(firstMissing, lastPast) : 0L;
+
+        Map<LocalDate, DailyTotals> loaded = new HashMap<>();
+        for (DailyTotals totals : doanhSoNgayRepository.sumDailyTotals(firstMissing, endDate)) {
+            loaded.put(totals.ngay(), totals);
+        }
+        List<String> cachedKeys = new ArrayList<>();
+        for (LocalDate date = firstMissing; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (days.containsKey(date)) {
+                continue;
+            }
+            DashboardDayDTO day = toDay(date, loaded.get(date));
+            days.put(date, day);
+            // Ngày đã qua không còn hóa đơn mới - chỉ đổi khi hủy hóa đơn cũ / dựng lại rollup (xóa cache).
+            // putIfAbsent ghi ngay (không chờ commit transaction chỉ đọc này) để kiểm tra phiên bản bên dưới
+            // chạy sau lần ghi
+            if (cachePast && date.isBefore(today)) {
+                cache.putIfAbsent(dayKey(date), day);
+                cachedKeys.add(dayKey(date));
+            }
+        }
+
+        // Delta lùi ngày commit giữa lúc đọc rollup và lúc ghi cache: lần xóa sau commit của nó có thể chạy trước
+        // lần ghi -> ngày cũ nằm trong cache không hết hạn. Phiên bản đổi thì xóa lại các ngày vừa ghi
+        if (!cachedKeys.isEmpty() && doanhSoNgayRepository.dataVersion(firstMissing, lastPast) != version) {
+            log.debug("Sales rollup changed while loading dashboard days {} - {}, evicting", firstMissing, lastPast);
+            cachedKeys.forEach(cache::evictIfPresent);
+        }
+        return days;
+    }
+
+    private static DashboardDayDTO toDay(LocalDate date, DailyTotals totals) {
+        return DashboardDayDTO.builder()
+                .ngay(date)
+                .soDon(totals != null ? totals.soDon() : 0L)
+                .doanhThu(totals != null ? totals.thanhTien() : BigDecimal.ZERO)
+                .soKhach(totals != null ? totals.soKhach() : 0L)
+                .build();
+    }
+
+    static String dayKey(LocalDate date) {
+        return "day:" + date;
+    }
+
     private BigDecimal calculatePercentageChange(BigDecimal current, BigDecimal previous) {
         if (previous.compareTo(BigDecimal.ZERO) == 0) {
             return current.compareTo(BigDecimal.ZERO) > 0 ? BigDecimal.valueOf(100) : BigDecimal.ZERO;
@@ -197,11 +243,7 @@ public class DashboardServiceImpl implements DashboardService {
     private List<DashboardStatsDTO.ProductSoldDTO> getProductsSoldByDate(LocalDate date) {
         log.info("Getting products sold on date: {}", date);
         
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(23, 59, 59);
-        
-        List<Object[]> results = chiTietHoaDonRepository.getProductsSoldByDate(
-                startOfDay, endOfDay, Status.COMPLETED);
+        List<Object[]> results = doanhSoSanPhamNgayRepository.sumQuantityByProductName(date);
         
         List<DashboardStatsDTO.ProductSoldDTO> products = results.stream()
                 .map(result -> DashboardStatsDTO.ProductSoldDTO.builder()
@@ -214,4 +256,3 @@ public class DashboardServiceImpl implements DashboardService {
         return products;
     }
 }
-
@@ -0,0 +1,21 @@
+package com.retail.application.service.document;
+
+import com.retail.common.constant.DocumentType;
+
+/**
+ * Service cấp số chứng từ (mã hóa đơn, mã thanh toán, mã khách hàng, mã phiếu...)
+ */
+public interface DocumentNumberService {
+
+    /**
+     * Lấy mã chứng từ tiếp theo dùng chung toàn hệ thống.
+     * Ví dụ: KH000123
+     */
+    String nextNumber(DocumentType type);
+
+    /**
+     * Lấy mã chứng từ tiếp theo của 1 chi nhánh.
+     * Ví dụ: HD01-000123 (chiNhanhId = null thì dùng bộ đếm chung)
+     */
+    String nextNumber(DocumentType type, Long chiNhanhId);
+}
@@ -0,0 +1,194 @@
+package com.retail.application.service.document;
+
+import com.retail.common.constant.DocumentType;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import com.retail.common.exception.ResourceNotFoundException;
+import com.retail.persistence.repository.DocumentSequenceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cấp số chứng từ theo block.
+ *
+ * Mỗi node giữ chỗ 1 block số liên tiếp trên bảng document_sequence (UPDATE rồi SELECT trong transaction riêng),
+ * sau đó phát số từ bộ nhớ bằng AtomicLong - không tốn query nào cho từng chứng từ.
+ *
+ * Block được giữ chỗ trên thread nền, không bao giờ lồng trong transaction của nghiệp vụ gọi tới: thread gọi
+ * (checkout đang giữ 1 connection) không mượn thêm connection thứ 2, nên pool nhỏ hơn 2 x số quầy không bị
+ * kẹt cứng khi mọi quầy cùng chờ connection. Block kế tiếp được giữ chỗ trước khi block hiện tại dùng hết 1 nửa -
+ * chỉ số đầu tiên của mỗi loại chứng từ sau khi khởi động phải chờ thread nền.
+ * Các node khác nhau luôn nhận block khác nhau nên mã là duy nhất trên toàn cụm.
+ * Số còn lại trong block khi restart sẽ bị bỏ qua (mã có thể nhảy cóc, nhưng không bao giờ trùng).
+ *
+ * Định dạng mới:
+ * - Theo chi nhánh: HD01-000123
+ * - Dùng chung:     KH000123
+ *
+ * Mã khách hàng cũ (KH + số ngẫu nhiên / 6 số cuối timestamp) có thể cùng độ dài với KH%06d: bộ đếm KH
+ * được khởi tạo sau số lớn nhất đã dùng (V26) và CustomerServiceImpl bỏ qua mã đã tồn tại
+ */
+@Service
+@Slf4j
+public class DocumentNumberServiceImpl implements DocumentNumberService {
+
+    private static final long SHARED_BRANCH = 0L;
+    private static final long RESERVE_TIMEOUT_SECONDS = 10;
+
+    private final DocumentSequenceRepository documentSequenceRepository;
+    private final TransactionTemplate requiresNewTransaction;
+    private final int blockSize;
+    private final ExecutorService reserveExecutor;
+
+    private final ConcurrentMap<SequenceKey, Counter> counters = new ConcurrentHashMap<>();
+
+    public DocumentNumberServiceImpl(DocumentSequenceRepository documentSequenceRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.document-number.block-size:50}") int blockSize) {
+        this.documentSequenceRepository = documentSequenceRepository;
+        // Giữ chỗ block trong transaction riêng: commit ngay, không giữ row lock suốt quá trình checkout
+        // và không bị rollback theo transaction của nghiệp vụ gọi tới
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+        this.reserveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "document-number-reserve");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reserveExecutor.shutdownNow();
+    }
+
+    @Override
+    public String nextNumber(DocumentType type) {
+        return nextNumber(type, null);
+    }
+
+    @Override
+    public String nextNumber(DocumentType type, Long chiNhanhId) {
+        long branch = chiNhanhId != null ? chiNhanhId : SHARED_BRANCH;
+        long value = nextValue(new SequenceKey(type, branch));
+
+        if (branch == SHARED_BRANCH) {
+            return String.format("%s%06d", type.getPrefix(), value);
+        }
+        return String.format("%s%02d-%06d", type.getPrefix(), branch, value);
+    }
+
+    private long nextValue(SequenceKey key) {
+        Counter counter = counters.computeIfAbsent(key, k -> new Counter());
+        while (true) {
+            Block block = counter.block;
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                // Đúng 1 thread nhận số ở giữa block - thread đó bắt đầu giữ chỗ block kế tiếp trên thread nền
+                if (value == block.prefetchAt) {
+                    reserveNext(key, counter);
+                }
+                return value;
+            }
+
+            // Block đã hết: chờ block kế tiếp (thường đã giữ chỗ xong) ngoài monitor rồi thay vào
+            CompletableFuture<Block> next;
+            synchronized (counter) {
+                if (counter.block != block) {
+                    continue;
+                }
+                next = reserveNext(key, counter);
+            }
+            Block reserved = await(key, counter, next);
+            synchronized (counter) {
+                if (counter.block == block) {
+                    counter.block = reserved;
+                    counter.next = null;
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Block> reserveNext(SequenceKey key, Counter counter) {
+        synchronized (counter) {
+            if (counter.next == null) {
+                counter.next = CompletableFuture.supplyAsync(() -> reserveBlock(key), reserveExecutor);
+            }
+            return counter.next;
+        }
+    }
+
+    private Block await(SequenceKey key, Counter counter, CompletableFuture<Block> next) {
+        try {
+            return next.get(RESERVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "Bị gián đoạn khi cấp số chứng từ " + key.type());
+        } catch (TimeoutException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "Hết thời gian chờ cấp số chứng từ " + key.type());
+        } catch (ExecutionException e) {
+            // Giữ chỗ lỗi: bỏ kết quả lỗi để lần gọi sau thử lại
+            synchronized (counter) {
+                if (counter.next == next) {
+                    counter.next = null;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "Không thể cấp số chứng từ " + key.type());
+        }
+    }
+
+    private Block reserveBlock(SequenceKey key) {
+        Long first;
+        try {
+            first = requiresNewTransaction.execute(status ->
+                    documentSequenceRepository.reserveBlock(key.type().name(), key.chiNhanhId(), blockSize));
+        } catch (EmptyResultDataAccessException e) {
+            // Lần đầu cấp số cho chi nhánh không tồn tại - không tạo bộ đếm
+            throw new ResourceNotFoundException("Chi nhánh", key.chiNhanhId());
+        }
+        log.debug("Reserved document numbers {} [{}, {}) for branch {}",
+                key.type(), first, first + blockSize, key.chiNhanhId());
+        return new Block(first, first + blockSize);
+    }
+
+    private record SequenceKey(DocumentType type, long chiNhanhId) {
+    }
+
+    private static final class Counter {
+        private volatile Block block = new Block(0, 0);
+        // Block kế tiếp đang / đã giữ chỗ trên thread nền (chỉ đọc/ghi trong synchronized)
+        private CompletableFuture<Block> next;
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+        private final long prefetchAt;
+
+        private Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+            this.prefetchAt = first + (end - first) / 2;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.retail.application.service.inventory;
 import com.retail.application.dto.ImportGoodsRequest;
 import com.retail.application.dto.ReturnRequest;
 
+import java.util.Map;
+
 public interface InventoryService {
 
     /**
@@ -19,4 +21,12 @@ public interface InventoryService {
      * Kiểm tra tồn kho sản phẩm
      */
     Integer checkStock(Long productId);
+
+    /**
+     * Trừ tồn kho có điều kiện cho nhiều sản phẩm trong 1 batch (chống bán vượt tồn kho)
+     * - Chỉ trừ khi tồn kho còn đủ (UPDATE ... WHERE ton_kho >= so_luong)
+     * - Nếu có sản phẩm không đủ tồn kho thì ném BusinessException (INSUFFICIENT_STOCK),
+     *   args của exception là danh sách ID sản phẩm bị lỗi, giao dịch sẽ rollback toàn bộ
+     */
+    void deductStock(Map<Long, Integer> quantities);
 }
\ No newline at end of file
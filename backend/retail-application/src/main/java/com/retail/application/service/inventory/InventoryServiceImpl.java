@@ -2,6 +2,8 @@ package com.retail.application.service.inventory;
 
 import com.retail.application.dto.ImportGoodsRequest;
 import com.retail.application.dto.ReturnRequest;
+import com.retail.application.service.document.DocumentNumberService;
+import com.retail.common.constant.DocumentType;
 import com.retail.common.constant.ErrorCode;
 import com.retail.common.constant.Status;
 import com.retail.common.exception.BusinessException;
@@ -15,7 +17,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,6 +34,7 @@ public class InventoryServiceImpl implements InventoryService {
     private final NhapHangRepository nhapHangRepository;
     private final HoaDonRepository hoaDonRepository;
     private final PhieuTraHangRepository phieuTraHangRepository;
+    private final DocumentNumberService documentNumberService;
 
     @Override
     @Transactional
@@ -47,7 +53,7 @@ public class InventoryServiceImpl implements InventoryService {
 
         // Tạo phiếu nhập hàng
         NhapHang nhapHang = NhapHang.builder()
-                .maNhapHang(generateImportCode())
+                .maNhapHang(documentNumberService.nextNumber(DocumentType.NHAP_HANG, request.getChiNhanhId()))
                 .nhaCungCap(nhaCungCap)
                 .chiNhanh(chiNhanh)
                 .nhanVien(nhanVien)
@@ -57,6 +63,8 @@ public class InventoryServiceImpl implements InventoryService {
                 .build();
 
         BigDecimal tongTien = BigDecimal.ZERO;
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, BigDecimal> giaNhaps = new LinkedHashMap<>();
 
         // Xử lý các item
         for (ImportGoodsRequest.ImportItemDTO item : request.getItems()) {
@@ -75,15 +83,16 @@ public class InventoryServiceImpl implements InventoryService {
 
             tongTien = tongTien.add(chiTiet.getThanhTien());
 
-            // Cập nhật tồn kho và giá nhập
-            sanPham.setTonKho(sanPham.getTonKho() + item.getSoLuong());
-            sanPham.setGiaNhap(item.getDonGia());
-            sanPhamRepository.save(sanPham);
-
-            log.info("Updated stock for product {}: new stock = {}",
-                    sanPham.getMaSanPham(), sanPham.getTonKho());
+            quantities.merge(sanPham.getId(), item.getSoLuong(), Integer::sum);
+            giaNhaps.put(sanPham.getId(), item.getDonGia());
         }
 
+        // Cộng tồn kho và cập nhật giá nhập trực tiếp trên DB - không ghi lại entity đã load
+        // (tồn kho trong entity có thể đã cũ nếu có checkout chạy cùng lúc)
+        addStock(quantities);
+        giaNhaps.forEach(sanPhamRepository::updateGiaNhap);
+        log.info("Updated stock and import price for {} products", quantities.size());
+
         nhapHang.setTongTien(tongTien);
         nhapHangRepository.save(nhapHang);
 
@@ -119,7 +128,8 @@ public class InventoryServiceImpl implements InventoryService {
 
         // Tạo phiếu trả hàng
         PhieuTraHang phieuTra = PhieuTraHang.builder()
-                .maPhieuTra(generateReturnCode())
+                .maPhieuTra(documentNumberService.nextNumber(DocumentType.TRA_HANG,
+                        hoaDonGoc.getChiNhanh() != null ? hoaDonGoc.getChiNhanh().getId() : null))
                 .hoaDonGoc(hoaDonGoc)
                 .sanPham(sanPham)
                 .soLuongTra(request.getSoLuongTra())
@@ -132,9 +142,8 @@ public class InventoryServiceImpl implements InventoryService {
 
         phieuTra.calculateTongTienTra();
 
-        // Cập nhật tồn kho
-        sanPham.setTonKho(sanPham.getTonKho() + request.getSoLuongTra());
-        sanPhamRepository.save(sanPham);
+        // Cộng tồn kho trực tiếp trên DB (không ghi đè lượt trừ tồn kho của checkout chạy cùng lúc)
+        addStock(Map.of(sanPham.getId(), request.getSoLuongTra()));
 
         phieuTraHangRepository.save(phieuTra);
 
@@ -149,15 +158,37 @@ public class InventoryServiceImpl implements InventoryService {
         return sanPham.getTonKho();
     }
 
-    private String generateImportCode() {
-        String prefix = "NH";
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return prefix + timestamp;
+    @Override
+    @Transactional
+    public void deductStock(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return;
+        }
+
+        List<Long> failedProductIds = sanPhamRepository.decrementStockIfAvailable(quantities);
+
+        if (!failedProductIds.isEmpty()) {
+            // Chỉ load tên sản phẩm khi có lỗi (trường hợp hiếm)
+            String productNames = sanPhamRepository.findAllById(failedProductIds).stream()
+                    .map(SanPham::getTenSanPham)
+                    .collect(Collectors.joining("', '"));
+
+            log.warn("Stock deduction rejected for products {} - Insufficient stock", failedProductIds);
+            throw new BusinessException(ErrorCode.INSUFFICIENT_STOCK,
+                    String.format("Sản phẩm '%s' không đủ tồn kho", productNames),
+                    failedProductIds.toArray());
+        }
+
+        log.info("Deducted stock for {} products in one batch", quantities.size());
     }
 
-    private String generateReturnCode() {
-        String prefix = "TH";
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return prefix + timestamp;
+    /**
+     * Cộng tồn kho bằng 1 batch UPDATE ton_kho = ton_kho + ? (sản phẩm đã được kiểm tra tồn tại trước đó)
+     */
+    private void addStock(Map<Long, Integer> quantities) {
+        List<Long> missingProductIds = sanPhamRepository.incrementStock(quantities);
+        if (!missingProductIds.isEmpty()) {
+            throw new ResourceNotFoundException("Sản phẩm", missingProductIds);
+        }
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,8 @@ import com.retail.application.dto.NguyenLieuDTO;
 import com.retail.application.dto.NhapXuatNguyenLieuRequest;
 import com.retail.application.dto.PhieuNhapXuatNguyenLieuDTO;
 import com.retail.application.mapper.NguyenLieuMapper;
+import com.retail.application.service.document.DocumentNumberService;
+import com.retail.common.constant.DocumentType;
 import com.retail.common.constant.ErrorCode;
 import com.retail.common.constant.Status;
 import com.retail.common.exception.BusinessException;
@@ -26,8 +28,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -39,6 +39,7 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
     private final ChiNhanhRepository chiNhanhRepository;
     private final NhanVienRepository nhanVienRepository;
     private final NguyenLieuMapper nguyenLieuMapper;
+    private final DocumentNumberService documentNumberService;
 
     @Override
     @Transactional
@@ -157,7 +158,7 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
 
         // Tạo phiếu nhập
         PhieuNhapXuatNguyenLieu phieu = PhieuNhapXuatNguyenLieu.builder()
-                .maPhieu(generateMaPhieu("NHAP"))
+                .maPhieu(documentNumberService.nextNumber(DocumentType.NHAP_NGUYEN_LIEU))
                 .nguyenLieu(nguyenLieu)
                 .ngayNhapXuat(LocalDateTime.now())
                 .loaiPhieu(PhieuNhapXuatNguyenLieu.LoaiPhieu.NHAP)
@@ -202,7 +203,7 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
 
         // Tạo phiếu xuất
         PhieuNhapXuatNguyenLieu phieu = PhieuNhapXuatNguyenLieu.builder()
-                .maPhieu(generateMaPhieu("XUAT"))
+                .maPhieu(documentNumberService.nextNumber(DocumentType.XUAT_NGUYEN_LIEU))
                 .nguyenLieu(nguyenLieu)
                 .ngayNhapXuat(LocalDateTime.now())
                 .loaiPhieu(PhieuNhapXuatNguyenLieu.LoaiPhieu.XUAT)
@@ -227,8 +228,9 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
 
         // Base mã phiếu (có thể từ request hoặc tự generate)
         String baseMaPhieu = request.getMaPhieu();
-        if (baseMaPhieu == null || baseMaPhieu.trim().isEmpty()) {
-            baseMaPhieu = generateMaPhieu("NHAP");
+        boolean customMaPhieu = baseMaPhieu != null && !baseMaPhieu.trim().isEmpty();
+        if (!customMaPhieu) {
+            baseMaPhieu = documentNumberService.nextNumber(DocumentType.NHAP_NGUYEN_LIEU);
         }
 
         LocalDateTime ngayNhapXuat = LocalDateTime.now();
@@ -244,18 +246,11 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
                     ? baseMaPhieu 
                     : baseMaPhieu + "-" + itemIndex;
 
-            // Đảm bảo maPhieu unique (nếu trùng thì thêm random suffix)
+            // Mã tự sinh luôn unique - chỉ kiểm tra trùng khi FE tự nhập mã phiếu
             String finalMaPhieu = itemMaPhieu;
-            int retryCount = 0;
-            while (phieuRepository.existsByMaPhieu(finalMaPhieu) && retryCount < 10) {
-                retryCount++;
-                String randomSuffix = UUID.randomUUID().toString().substring(0, 4).toUpperCase();
-                finalMaPhieu = itemMaPhieu + "-" + randomSuffix;
-            }
-            
-            if (retryCount >= 10) {
+            if (customMaPhieu && phieuRepository.existsByMaPhieu(finalMaPhieu)) {
                 throw new BusinessException(ErrorCode.BAD_REQUEST,
-                        "Không thể tạo mã phiếu unique sau nhiều lần thử: " + itemMaPhieu);
+                        "Mã phiếu đã tồn tại: " + finalMaPhieu);
             }
 
             NguyenLieu nguyenLieu = nguyenLieuRepository.findById(item.getNguyenLieuId())
@@ -325,8 +320,9 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
 
         // Base mã phiếu (có thể từ request hoặc tự generate)
         String baseMaPhieu = request.getMaPhieu();
-        if (baseMaPhieu == null || baseMaPhieu.trim().isEmpty()) {
-            baseMaPhieu = generateMaPhieu("XUAT");
+        boolean customMaPhieu = baseMaPhieu != null && !baseMaPhieu.trim().isEmpty();
+        if (!customMaPhieu) {
+            baseMaPhieu = documentNumberService.nextNumber(DocumentType.XUAT_NGUYEN_LIEU);
         }
 
         LocalDateTime ngayNhapXuat = LocalDateTime.now();
@@ -342,18 +338,11 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
                     ? baseMaPhieu 
                     : baseMaPhieu + "-" + itemIndex;
 
-            // Đảm bảo maPhieu unique (nếu trùng thì thêm random suffix)
+            // Mã tự sinh luôn unique - chỉ kiểm tra trùng khi FE tự nhập mã phiếu
             String finalMaPhieu = itemMaPhieu;
-            int retryCount = 0;
-            while (phieuRepository.existsByMaPhieu(finalMaPhieu) && retryCount < 10) {
-                retryCount++;
-                String randomSuffix = UUID.randomUUID().toString().substring(0, 4).toUpperCase();
-                finalMaPhieu = itemMaPhieu + "-" + randomSuffix;
-            }
-            
-            if (retryCount >= 10) {
+            if (customMaPhieu && phieuRepository.existsByMaPhieu(finalMaPhieu)) {
                 throw new BusinessException(ErrorCode.BAD_REQUEST,
-                        "Không thể tạo mã phiếu unique sau nhiều lần thử: " + itemMaPhieu);
+                        "Mã phiếu đã tồn tại: " + finalMaPhieu);
             }
 
             NguyenLieu nguyenLieu = nguyenLieuRepository.findById(item.getNguyenLieuId())
@@ -478,7 +467,7 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
 
         // Tạo phiếu điều chỉnh
         PhieuNhapXuatNguyenLieu phieu = PhieuNhapXuatNguyenLieu.builder()
-                .maPhieu(generateMaPhieu("DIEU_CHINH"))
+                .maPhieu(documentNumberService.nextNumber(DocumentType.DIEU_CHINH_NGUYEN_LIEU))
                 .nguyenLieu(nguyenLieu)
                 .ngayNhapXuat(LocalDateTime.now())
                 .loaiPhieu(PhieuNhapXuatNguyenLieu.LoaiPhieu.DIEU_CHINH)
@@ -540,13 +529,4 @@ public class NguyenLieuServiceImpl implements NguyenLieuService {
                 .ghiChu(entity.getGhiChu())
                 .build();
     }
-
-    private String generateMaPhieu(String loai) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String uniqueId = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        // Chuyển DIEU_CHINH thành DC cho ngắn gọn
-        String prefix = loai.equals("DIEU_CHINH") ? "DC" : loai;
-        return String.format("%s-%s-%s", prefix, timestamp, uniqueId);
-    }
 }
-
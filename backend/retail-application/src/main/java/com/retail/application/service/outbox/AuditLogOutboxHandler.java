@@ -0,0 +1,66 @@
+package com.retail.application.service.outbox;
+
+import com.retail.application.dto.AuditLogDTO;
+import com.retail.application.service.audit.AuditLogService;
+import com.retail.application.service.employee.EmployeeService;
+import com.retail.domain.entity.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ghi audit log theo lô (1 saveAll cho cả lô).
+ * Tra cứu nhân viên theo username cũng được chuyển về đây thay vì chạy trên request thread
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogOutboxHandler implements OutboxEventHandler {
+
+    private final OutboxService outboxService;
+    private final AuditLogService auditLogService;
+    private final EmployeeService employeeService;
+
+    @Override
+    public boolean supports(OutboxEvent.EventType type) {
+        return type == OutboxEvent.EventType.AUDIT_LOG;
+    }
+
+    @Override
+    public void handle(List<OutboxEvent> events) {
+        Map<String, Long> userIds = new HashMap<>();
+        List<AuditLogDTO> auditLogs = new ArrayList<>(events.size());
+
+        for (OutboxEvent event : events) {
+            AuditLogDTO dto = outboxService.readPayload(event, AuditLogDTO.class);
+            // audit_log.entity_id NOT NULL - trước đây insert lỗi và bị bỏ qua, giữ nguyên hành vi đó
+            if (dto.getEntityId() == null) {
+                log.warn("Skipping audit log without entity id: {} {}", dto.getAction(), dto.getEntityName());
+                continue;
+            }
+            if (dto.getUserId() == null && dto.getUsername() != null) {
+                if (!userIds.containsKey(dto.getUsername())) {
+                    userIds.put(dto.getUsername(), resolveUserId(dto.getUsername()));
+                }
+                dto.setUserId(userIds.get(dto.getUsername()));
+            }
+            auditLogs.add(dto);
+        }
+
+        auditLogService.createAll(auditLogs);
+    }
+
+    private Long resolveUserId(String username) {
+        try {
+            return employeeService.findByUsername(username).getId();
+        } catch (Exception e) {
+            log.warn("Could not find employee for username: {}", username);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.retail.application.service.outbox;
+
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.HoaDon;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payload của sự kiện INVOICE_COMPLETED / INVOICE_CHANGED -
+ * chụp lại các giá trị cần cho tác vụ phụ để dispatcher không phải load lại hóa đơn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceEventPayload {
+    private Long invoiceId;
+    private LocalDateTime ngayTao;
+    private Long chiNhanhId;
+    private Long khachHangId;
+    private Status trangThai;
+    private BigDecimal thanhTien;
+    private BigDecimal diemTichLuy;
+    @Builder.Default
+    private List<Long> promotionIds = new ArrayList<>(); // Khuyến mãi đã áp dụng (tăng / trừ lượt dùng)
+
+    public static InvoiceEventPayload from(HoaDon hoaDon, List<Long> promotionIds) {
+        return InvoiceEventPayload.builder()
+                .invoiceId(hoaDon.getId())
+                .ngayTao(hoaDon.getNgayTao())
+                .chiNhanhId(hoaDon.getChiNhanh() != null ? hoaDon.getChiNhanh().getId() : null)
+                .khachHangId(hoaDon.getKhachHang() != null ? hoaDon.getKhachHang().getId() : null)
+                .trangThai(hoaDon.getTrangThai())
+                .thanhTien(hoaDon.getThanhTien())
+                .diemTichLuy(hoaDon.getDiemTichLuy())
+                .promotionIds(promotionIds != null ? new ArrayList<>(promotionIds) : new ArrayList<>())
+                .build();
+    }
+}
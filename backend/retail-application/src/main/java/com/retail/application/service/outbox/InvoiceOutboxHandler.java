@@ -0,0 +1,100 @@
+package com.retail.application.service.outbox;
+
+import com.retail.application.service.cache.CacheInvalidationService;
+import com.retail.application.service.promotion.PromotionService;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.KhachHangRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tác vụ phụ sau khi ghi hóa đơn, gom theo lô:
+ * - Cộng / trừ điểm tích lũy: 1 UPDATE mỗi khách hàng cho cả lô
+ * - Tăng / trừ lượt dùng khuyến mãi: 1 UPDATE mỗi khuyến mãi cho cả lô
+ * - Xóa các key cache hóa đơn / khách hàng bị ảnh hưởng
+ *
+ * Sự kiện của cùng 1 hóa đơn đến theo thứ tự và không bao giờ nằm chung 1 lô (OutboxEventRepository.claimPending):
+ * sự kiện hủy chỉ được xử lý sau khi điểm / lượt dùng của lần thanh toán đã được cộng
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceOutboxHandler implements OutboxEventHandler {
+
+    private final OutboxService outboxService;
+    private final KhachHangRepository khachHangRepository;
+    private final PromotionService promotionService;
+    private final CacheInvalidationService cacheInvalidationService;
+
+    @Override
+    public boolean supports(OutboxEvent.EventType type) {
+        return type == OutboxEvent.EventType.INVOICE_COMPLETED
+                || type == OutboxEvent.EventType.INVOICE_CANCELLED
+                || type == OutboxEvent.EventType.INVOICE_CHANGED;
+    }
+
+    @Override
+    public void handle(List<OutboxEvent> events) {
+        Map<Long, BigDecimal> pointsByCustomer = new LinkedHashMap<>();
+        List<Long> promotionIds = new ArrayList<>();
+        List<Long> releasedPromotionIds = new ArrayList<>();
+        Map<Long, InvoiceEventPayload> invoices = new LinkedHashMap<>();
+
+        for (OutboxEvent event : events) {
+            InvoiceEventPayload payload = outboxService.readPayload(event, InvoiceEventPayload.class);
+
+            boolean hasPoints = payload.getKhachHangId() != null && payload.getDiemTichLuy() != null
+                    && payload.getDiemTichLuy().compareTo(BigDecimal.ZERO) > 0;
+
+            if (event.getEventType() == OutboxEvent.EventType.INVOICE_COMPLETED) {
+                if (hasPoints) {
+                    pointsByCustomer.merge(payload.getKhachHangId(), payload.getDiemTichLuy(), BigDecimal::add);
+                }
+                if (payload.getPromotionIds() != null) {
+                    promotionIds.addAll(payload.getPromotionIds());
+                }
+            } else if (event.getEventType() == OutboxEvent.EventType.INVOICE_CANCELLED) {
+                if (hasPoints) {
+                    pointsByCustomer.merge(payload.getKhachHangId(), payload.getDiemTichLuy().negate(), BigDecimal::add);
+                }
+                if (payload.getPromotionIds() != null) {
+                    releasedPromotionIds.addAll(payload.getPromotionIds());
+                }
+            }
+
+            // Nhiều sự kiện của cùng 1 hóa đơn trong lô -> chỉ xóa cache 1 lần
+            invoices.put(payload.getInvoiceId() != null ? payload.getInvoiceId() : event.getAggregateId(), payload);
+        }
+
+        // Cộng/trừ điểm trực tiếp trên DB - không ghi đè điểm do thao tác khác cập nhật đồng thời
+        pointsByCustomer.values().removeIf(points -> points.signum() == 0);
+        pointsByCustomer.forEach(khachHangRepository::addPoints);
+        if (!pointsByCustomer.isEmpty()) {
+            khachHangRepository.findAllById(pointsByCustomer.keySet())
+                    .forEach(cacheInvalidationService::evictCustomer);
+            log.info("Updated loyalty points for {} customers", pointsByCustomer.size());
+        }
+
+        // Tăng trước rồi mới trừ: hóa đơn thanh toán và bị hủy trong cùng lô không làm lượt dùng xuống dưới 0
+        if (!promotionIds.isEmpty()) {
+            promotionService.incrementPromotionUsage(promotionIds);
+        }
+        if (!releasedPromotionIds.isEmpty()) {
+            promotionService.releasePromotionUsage(releasedPromotionIds);
+        }
+
+        for (InvoiceEventPayload payload : invoices.values()) {
+            cacheInvalidationService.evictInvoice(payload.getInvoiceId(),
+                    payload.getNgayTao() != null ? payload.getNgayTao().toLocalDate() : null,
+                    payload.getKhachHangId(),
+                    payload.getChiNhanhId());
+        }
+    }
+}
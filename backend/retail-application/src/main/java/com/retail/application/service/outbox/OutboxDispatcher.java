@@ -0,0 +1,174 @@
+package com.retail.application.service.outbox;
+
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Xử lý nền các sự kiện outbox theo lô.
+ *
+ * Mỗi lô chạy trong 1 transaction: nhận lô (UPDLOCK, READPAST) -> chạy handler theo loại sự kiện
+ * -> đánh dấu PROCESSED. Lô lỗi thì rollback toàn bộ và xử lý lại từng sự kiện,
+ * sự kiện lỗi quá số lần cho phép chuyển sang FAILED để không chặn hàng đợi.
+ * Handler có thể chạy lại với cùng sự kiện khi transaction lỗi giữa chừng, nhưng không bao giờ commit 2 lần.
+ * Sự kiện hóa đơn chỉ được nhận khi các sự kiện trước đó của cùng hóa đơn đã xử lý xong (xem claimPending) -
+ * thử lại từng sự kiện / sự kiện lỗi chờ lần sau không làm sự kiện hủy chạy trước sự kiện thanh toán.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher {
+
+    // markProcessed dùng IN (...) - SQL Server giới hạn 2100 tham số mỗi câu lệnh
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxEventHandler> handlers;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retention;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<OutboxEventHandler> handlers,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.outbox.batch-size:200}") int batchSize,
+                            @Value("${app.outbox.max-attempts:5}") int maxAttempts,
+                            @Value("${app.outbox.retention-hours:24}") long retentionHours) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.handlers = handlers;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.min(Math.max(1, batchSize), MAX_BATCH_SIZE);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        // Lô đầy = có thể còn sự kiện đang chờ -> xử lý tiếp, không đợi lần poll sau
+        int processed;
+        do {
+            processed = dispatchBatch();
+        } while (processed >= batchSize);
+    }
+
+    /**
+     * @return số sự kiện đã xử lý thành công trong lô (0 nếu lô lỗi và đã chuyển sang xử lý từng sự kiện)
+     */
+    int dispatchBatch() {
+        List<Long> claimedIds = new ArrayList<>();
+        try {
+            Integer processed = transactionTemplate.execute(status -> {
+                List<OutboxEvent> events = outboxEventRepository.claimPending(batchSize);
+                if (events.isEmpty()) {
+                    return 0;
+                }
+                events.forEach(event -> claimedIds.add(event.getId()));
+
+                handle(events);
+                outboxEventRepository.markProcessed(claimedIds, LocalDateTime.now());
+                return events.size();
+            });
+            if (processed != null && processed > 0) {
+                log.debug("Dispatched {} outbox events", processed);
+            }
+            return processed != null ? processed : 0;
+        } catch (Exception e) {
+            if (claimedIds.isEmpty()) {
+                log.error("Could not claim outbox events", e);
+                return 0;
+            }
+            log.warn("Outbox batch of {} events failed, retrying one by one: {}", claimedIds.size(), e.getMessage());
+            claimedIds.forEach(this::dispatchSingle);
+            return 0;
+        }
+    }
+
+    /**
+     * Xóa sự kiện đã xử lý quá thời gian lưu giữ (mặc định mỗi giờ)
+     */
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 0 * * * *}")
+    public void purgeProcessed() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteProcessedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} processed outbox events", deleted);
+        }
+    }
+
+    private void dispatchSingle(Long id) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<OutboxEvent> events = outboxEventRepository.claimPendingById(id);
+                if (events.isEmpty()) {
+                    return; // Node khác đã nhận sự kiện này
+                }
+                handle(events);
+                outboxEventRepository.markProcessed(List.of(id), LocalDateTime.now());
+            });
+        } catch (Exception e) {
+            recordFailure(id, e);
+        }
+    }
+
+    private void recordFailure(Long id, Exception error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findById(id).ifPresent(event -> {
+                int attempts = event.getAttempts() + 1;
+                event.setAttempts(attempts);
+                event.setLastError(truncate(error.getMessage()));
+                if (attempts >= maxAttempts) {
+                    event.setStatus(OutboxEvent.EventStatus.FAILED);
+                    log.error("Outbox event {} ({}) failed after {} attempts: {}",
+                            id, event.getEventType(), attempts, error.getMessage());
+                } else {
+                    log.warn("Outbox event {} ({}) failed, attempt {}/{}: {}",
+                            id, event.getEventType(), attempts, maxAttempts, error.getMessage());
+                }
+                outboxEventRepository.save(event);
+            }));
+        } catch (Exception e) {
+            log.error("Could not record failure for outbox event {}", id, e);
+        }
+    }
+
+    private void handle(List<OutboxEvent> events) {
+        Map<OutboxEvent.EventType, List<OutboxEvent>> eventsByType = events.stream()
+                .collect(Collectors.groupingBy(OutboxEvent::getEventType,
+                        () -> new EnumMap<>(OutboxEvent.EventType.class),
+                        Collectors.toList()));
+
+        eventsByType.forEach((type, group) -> {
+            boolean handled = false;
+            for (OutboxEventHandler handler : handlers) {
+                if (handler.supports(type)) {
+                    handler.handle(group);
+                    handled = true;
+                }
+            }
+            if (!handled) {
+                log.warn("No outbox handler for event type {} - {} events skipped", type, group.size());
+            }
+        });
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
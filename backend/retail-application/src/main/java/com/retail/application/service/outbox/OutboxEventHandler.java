@@ -0,0 +1,16 @@
+package com.retail.application.service.outbox;
+
+import com.retail.domain.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Xử lý 1 lô sự kiện outbox cùng loại.
+ * Chạy trong transaction của dispatcher: lỗi ném ra sẽ rollback cả lô và lô được xử lý lại từng sự kiện
+ */
+public interface OutboxEventHandler {
+
+    boolean supports(OutboxEvent.EventType type);
+
+    void handle(List<OutboxEvent> events);
+}
@@ -0,0 +1,23 @@
+package com.retail.application.service.outbox;
+
+import com.retail.domain.entity.OutboxEvent;
+
+/**
+ * Ghi sự kiện outbox trong transaction hiện tại của nghiệp vụ.
+ * Tác vụ phụ được OutboxDispatcher xử lý nền theo lô sau khi transaction commit
+ * (rollback nghiệp vụ thì sự kiện cũng bị rollback - không bao giờ chạy tác vụ phụ cho dữ liệu không tồn tại)
+ */
+public interface OutboxService {
+
+    /**
+     * Ghi 1 sự kiện outbox
+     *
+     * @param payload đối tượng được serialize sang JSON
+     */
+    void enqueue(OutboxEvent.EventType type, Long aggregateId, Object payload);
+
+    /**
+     * Đọc payload JSON của sự kiện
+     */
+    <T> T readPayload(OutboxEvent event, Class<T> payloadType);
+}
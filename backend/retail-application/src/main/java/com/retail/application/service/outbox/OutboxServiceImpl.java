@@ -0,0 +1,53 @@
+package com.retail.application.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional
+    public void enqueue(OutboxEvent.EventType type, Long aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR,
+                    "Không thể ghi sự kiện " + type + ": " + e.getOriginalMessage());
+        }
+
+        outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(type)
+                .aggregateId(aggregateId)
+                .payload(json)
+                .createdAt(LocalDateTime.now())
+                .build());
+        log.debug("Enqueued outbox event {} for aggregate {}", type, aggregateId);
+    }
+
+    @Override
+    public <T> T readPayload(OutboxEvent event, Class<T> payloadType) {
+        try {
+            return objectMapper.readValue(event.getPayload(), payloadType);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR,
+                    "Payload sự kiện outbox " + event.getId() + " không hợp lệ: " + e.getOriginalMessage());
+        }
+    }
+}
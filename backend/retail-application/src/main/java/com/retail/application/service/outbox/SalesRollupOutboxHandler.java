@@ -0,0 +1,36 @@
+package com.retail.application.service.outbox;
+
+import com.retail.application.service.report.SalesRollupService;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.SalesDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cộng delta hóa đơn vào rollup doanh số theo lô: cả lô chỉ ghi 1 lần mỗi (chi nhánh, ngày),
+ * thay vì mỗi checkout khóa dòng rollup của chi nhánh trong ngày
+ */
+@Component
+@RequiredArgsConstructor
+public class SalesRollupOutboxHandler implements OutboxEventHandler {
+
+    private final OutboxService outboxService;
+    private final SalesRollupService salesRollupService;
+
+    @Override
+    public boolean supports(OutboxEvent.EventType type) {
+        return type == OutboxEvent.EventType.SALES_ROLLUP;
+    }
+
+    @Override
+    public void handle(List<OutboxEvent> events) {
+        List<SalesDelta> deltas = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            deltas.add(outboxService.readPayload(event, SalesDelta.class));
+        }
+        salesRollupService.apply(deltas);
+    }
+}
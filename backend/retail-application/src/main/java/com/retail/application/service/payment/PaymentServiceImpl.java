@@ -3,6 +3,8 @@ package com.retail.application.service.payment;
 import com.retail.application.dto.PaymentRequest;
 import com.retail.application.dto.PaymentResponse;
 import com.retail.application.mapper.PaymentTransactionMapper;
+import com.retail.application.service.document.DocumentNumberService;
+import com.retail.common.constant.DocumentType;
 import com.retail.common.constant.PaymentStatus;
 import com.retail.common.exception.ResourceNotFoundException;
 import com.retail.domain.entity.HoaDon;
@@ -30,6 +32,7 @@ public class PaymentServiceImpl implements PaymentService {
     private final HoaDonRepository hoaDonRepository;
     private final PaymentTransactionMapper paymentTransactionMapper;
     private final List<PaymentGateway> paymentGateways;
+    private final DocumentNumberService documentNumberService;
 
     @Override
     @Transactional
@@ -207,7 +210,7 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     private String generateTransactionCode() {
-        return "PAY" + System.currentTimeMillis();
+        return documentNumberService.nextNumber(DocumentType.PAYMENT);
     }
 
     private String serializeGatewayResponse(PaymentResponse response) {
@@ -0,0 +1,132 @@
+package com.retail.application.service.pos;
+
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.domain.entity.ChiTietHoaDon;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.HoaDonKhuyenMai;
+import com.retail.domain.entity.PhanBoGiamGia;
+import com.retail.domain.entity.SanPham;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tính tiền hóa đơn tại quầy (dòng hàng, thành tiền, điểm tích lũy) - không truy cập DB.
+ * Tách khỏi PosServiceImpl để dùng chung giữa checkout/treo bill và benchmark được riêng (retail-benchmarks)
+ */
+public final class InvoiceTotals {
+
+    // 1.000 VND = 1 điểm
+    private static final BigDecimal VND_PER_POINT = BigDecimal.valueOf(1000);
+
+    private InvoiceTotals() {
+    }
+
+    /**
+     * Thêm chi tiết hóa đơn từ giỏ hàng đã resolve (giá lấy từ sản phẩm) - Trả về tổng tiền
+     */
+    public static BigDecimal addInvoiceLines(HoaDon hoaDon, List<CartItemDTO> items, Map<Long, SanPham> products) {
+        BigDecimal tongTien = BigDecimal.ZERO;
+
+        for (CartItemDTO item : items) {
+            SanPham sanPham = products.get(item.getSanPhamId());
+
+            ChiTietHoaDon chiTiet = ChiTietHoaDon.builder()
+                    .sanPham(sanPham)
+                    .soLuong(item.getSoLuong())
+                    .donGia(sanPham.getGiaBan())
+                    .ghiChu(item.getGhiChu())
+                    .build();
+
+            chiTiet.calculateThanhTien();
+            hoaDon.addChiTiet(chiTiet);
+
+            tongTien = tongTien.add(chiTiet.getThanhTien());
+        }
+
+        return tongTien;
+    }
+
+    /**
+     * Ghi khuyến mãi đã áp dụng vào hóa đơn và phân bổ số tiền giảm xuống từng dòng theo tỉ lệ thành tiền.
+     * Chỉ phân bổ cho dòng của sản phẩm tạo ra mức giảm (sanPhamIds), không có thì cho mọi dòng;
+     * phần lẻ do làm tròn dồn vào dòng lớn nhất để tổng phân bổ đúng bằng số tiền giảm
+     */
+    public static void addAppliedPromotions(HoaDon hoaDon, List<AppliedPromotionDTO> appliedPromotions) {
+        for (AppliedPromotionDTO applied : appliedPromotions) {
+            HoaDonKhuyenMai khuyenMaiApDung = HoaDonKhuyenMai.builder()
+                    .khuyenMaiId(applied.getPromotionId())
+                    .maKhuyenMai(applied.getMaKhuyenMai())
+                    .tenKhuyenMai(applied.getTenKhuyenMai())
+                    .loaiKhuyenMai(applied.getLoaiKhuyenMai())
+                    .soTienGiam(applied.getDiscountAmount())
+                    .maGiamGia(applied.getMaGiamGia())
+                    .build();
+            allocate(khuyenMaiApDung,
+                    discountedLines(hoaDon.getChiTietHoaDons(), applied.getSanPhamIds()),
+                    applied.getDiscountAmount());
+            hoaDon.addKhuyenMaiApDung(khuyenMaiApDung);
+        }
+    }
+
+    private static List<ChiTietHoaDon> discountedLines(List<ChiTietHoaDon> lines, List<Long> sanPhamIds) {
+        if (sanPhamIds == null || sanPhamIds.isEmpty()) {
+            return lines;
+        }
+        Set<Long> products = new HashSet<>(sanPhamIds);
+        List<ChiTietHoaDon> discounted = lines.stream()
+                .filter(line -> products.contains(line.getSanPham().getId()))
+                .toList();
+        return discounted.isEmpty() ? lines : discounted;
+    }
+
+    private static void allocate(HoaDonKhuyenMai khuyenMaiApDung, List<ChiTietHoaDon> lines, BigDecimal discount) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        ChiTietHoaDon largest = lines.get(0);
+        for (ChiTietHoaDon line : lines) {
+            total = total.add(line.getThanhTien());
+            if (line.getThanhTien().compareTo(largest.getThanhTien()) > 0) {
+                largest = line;
+            }
+        }
+
+        BigDecimal allocated = BigDecimal.ZERO;
+        for (ChiTietHoaDon line : lines) {
+            if (line == largest || total.signum() <= 0) {
+                continue;
+            }
+            BigDecimal share = discount.multiply(line.getThanhTien()).divide(total, 2, RoundingMode.DOWN);
+            if (share.signum() > 0) {
+                khuyenMaiApDung.addPhanBo(PhanBoGiamGia.builder().chiTietHoaDon(line).soTienGiam(share).build());
+                allocated = allocated.add(share);
+            }
+        }
+        khuyenMaiApDung.addPhanBo(PhanBoGiamGia.builder()
+                .chiTietHoaDon(largest)
+                .soTienGiam(discount.subtract(allocated))
+                .build());
+    }
+
+    /**
+     * Thành tiền = tổng tiền - giảm giá, không âm
+     */
+    public static BigDecimal finalAmount(BigDecimal tongTien, BigDecimal giamGia) {
+        BigDecimal thanhTien = tongTien.subtract(giamGia);
+        return thanhTien.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : thanhTien;
+    }
+
+    /**
+     * Điểm tích lũy: 1.000 VND = 1 điểm (làm tròn đến số nguyên)
+     */
+    public static BigDecimal loyaltyPoints(BigDecimal thanhTien) {
+        return (thanhTien != null ? thanhTien : BigDecimal.ZERO).divide(VND_PER_POINT, 0, RoundingMode.HALF_UP);
+    }
+}
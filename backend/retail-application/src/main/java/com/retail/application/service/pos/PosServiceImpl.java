@@ -3,7 +3,16 @@ package com.retail.application.service.pos;
 import com.retail.application.dto.*;
 import com.retail.application.mapper.InvoiceMapper;
 import com.retail.application.mapper.ProductMapper;
+import com.retail.application.service.cache.CacheInvalidationService;
+import com.retail.application.service.document.DocumentNumberService;
+import com.retail.application.service.inventory.InventoryService;
+import com.retail.application.service.outbox.InvoiceEventPayload;
+import com.retail.application.service.outbox.OutboxService;
 import com.retail.application.service.product.ProductService;
+import com.retail.application.service.promotion.CouponService;
+import com.retail.application.service.promotion.PromotionUsageService;
+import com.retail.application.service.report.SalesRollupService;
+import com.retail.common.constant.DocumentType;
 import com.retail.common.constant.ErrorCode;
 import com.retail.common.constant.Status;
 import com.retail.common.exception.BusinessException;
@@ -11,8 +20,10 @@ import com.retail.common.exception.ResourceNotFoundException;
 import com.retail.domain.entity.ChiNhanh;
 import com.retail.domain.entity.ChiTietHoaDon;
 import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.HoaDonKhuyenMai;
 import com.retail.domain.entity.KhachHang;
 import com.retail.domain.entity.NhanVien;
+import com.retail.domain.entity.OutboxEvent;
 import com.retail.domain.entity.SanPham;
 import com.retail.persistence.repository.ChiNhanhRepository;
 import com.retail.persistence.repository.HoaDonRepository;
@@ -21,17 +32,22 @@ import com.retail.persistence.repository.NhanVienRepository;
 import com.retail.persistence.repository.SanPhamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -47,6 +63,13 @@ public class PosServiceImpl implements PosService {
     private final ProductMapper productMapper;
     private final InvoiceMapper invoiceMapper;
     private final com.retail.application.service.promotion.PromotionService promotionService;
+    private final PromotionUsageService promotionUsageService;
+    private final CouponService couponService;
+    private final InventoryService inventoryService;
+    private final DocumentNumberService documentNumberService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final OutboxService outboxService;
+    private final SalesRollupService salesRollupService;
 
     @Override
     @Transactional(readOnly = true)
@@ -58,52 +81,27 @@ public class PosServiceImpl implements PosService {
     @Override
     @Transactional(readOnly = true)
     public void validateCart(List<CartItemDTO> items) {
-        log.info("Validating cart with {} items", items.size());
-
-        if (items == null || items.isEmpty()) {
-            throw new BusinessException(ErrorCode.BAD_REQUEST, "Giỏ hàng trống");
-        }
-
-        for (CartItemDTO item : items) {
-            SanPham sanPham = sanPhamRepository.findById(item.getSanPhamId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm", item.getSanPhamId()));
-
-            // Kiểm tra tồn kho
-            if (sanPham.getTonKho() < item.getSoLuong()) {
-                throw new BusinessException(ErrorCode.INSUFFICIENT_STOCK,
-                        String.format("Sản phẩm '%s' không đủ tồn kho. Còn lại: %d",
-                                sanPham.getTenSanPham(), sanPham.getTonKho()));
-            }
-
-            // Kiểm tra số lượng
-            if (item.getSoLuong() <= 0) {
-                throw new BusinessException(ErrorCode.INVALID_QUANTITY,
-                        "Số lượng phải lớn hơn 0");
-            }
-        }
-
-        log.info("Cart validation successful");
+        resolveCart(items);
     }
 
     /**
-     * Thanh toán và tạo hóa đơn - Xóa cache sau khi tạo để đảm bảo hóa đơn mới có thể truy cập ngay
+     * Thanh toán và tạo hóa đơn - Xóa các key cache liên quan (ngày, khách hàng, chi nhánh) để hóa đơn mới có thể truy cập ngay
      */
     @Override
     @Transactional
-    @CacheEvict(value = "invoices", allEntries = true)
     public InvoiceDTO checkout(CheckoutRequest request) {
         log.info("Processing checkout for {} items", request.getItems().size());
 
-        // Kiểm tra giỏ hàng
-        validateCart(request.getItems());
+        // Kiểm tra giỏ hàng - load tất cả sản phẩm bằng 1 query, dùng chung cho tính tiền và trừ tồn kho
+        Map<Long, SanPham> products = resolveCart(request.getItems());
 
-        // Load các entity
         NhanVien nhanVien = nhanVienRepository.findById(request.getNhanVienId())
                 .orElseThrow(() -> new ResourceNotFoundException("Nhân viên", request.getNhanVienId()));
 
         ChiNhanh chiNhanh = chiNhanhRepository.findById(request.getChiNhanhId())
                 .orElseThrow(() -> new ResourceNotFoundException("Chi nhánh", request.getChiNhanhId()));
 
+        // Khách hàng cần kiểm tra tồn tại (điểm tích lũy được cộng qua outbox)
         KhachHang khachHang = null;
         if (request.getKhachHangId() != null) {
             khachHang = khachHangRepository.findById(request.getKhachHangId())
@@ -112,7 +110,7 @@ public class PosServiceImpl implements PosService {
 
         // Tạo hóa đơn
         HoaDon hoaDon = HoaDon.builder()
-                .maHoaDon(generateInvoiceCode())
+                .maHoaDon(documentNumberService.nextNumber(DocumentType.HOA_DON, request.getChiNhanhId()))
                 .khachHang(khachHang)
                 .nhanVien(nhanVien)
                 .chiNhanh(chiNhanh)
@@ -123,49 +121,28 @@ public class PosServiceImpl implements PosService {
                 .trangThai(Status.COMPLETED)
                 .build();
 
-        // Tính tổng tiền
-        BigDecimal tongTien = BigDecimal.ZERO;
-
-        // Thêm chi tiết hóa đơn
-        for (CartItemDTO item : request.getItems()) {
-            SanPham sanPham = sanPhamRepository.findById(item.getSanPhamId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm", item.getSanPhamId()));
-
-            ChiTietHoaDon chiTiet = ChiTietHoaDon.builder()
-                    .sanPham(sanPham)
-                    .soLuong(item.getSoLuong())
-                    .donGia(sanPham.getGiaBan())
-                    .ghiChu(item.getGhiChu())
-                    .build();
-
-            chiTiet.calculateThanhTien();
-            hoaDon.addChiTiet(chiTiet);
-
-            tongTien = tongTien.add(chiTiet.getThanhTien());
-
-            // Cập nhật tồn kho
-            sanPham.setTonKho(sanPham.getTonKho() - item.getSoLuong());
-            sanPhamRepository.save(sanPham);
-
-            log.info("Updated stock for product {}: new stock = {}",
-                    sanPham.getMaSanPham(), sanPham.getTonKho());
-        }
-
+        // Thêm chi tiết hóa đơn và tính tổng tiền
+        BigDecimal tongTien = InvoiceTotals.addInvoiceLines(hoaDon, request.getItems(), products);
         hoaDon.setTongTien(tongTien);
 
+        // Trừ tồn kho có điều kiện (1 batch UPDATE ... WHERE ton_kho >= so_luong) - chống bán vượt tồn kho
+        inventoryService.deductStock(sumQuantities(request.getItems()));
+
         // Áp dụng khuyến mãi - CHỈ áp dụng khi user chọn mã khuyến mãi
+        // hoặc yêu cầu tự chọn tổ hợp khuyến mãi giảm nhiều nhất
         BigDecimal promotionDiscount = BigDecimal.ZERO;
-        AppliedPromotionDTO appliedPromotion = null;
+        List<AppliedPromotionDTO> appliedPromotions = List.of();
         
         if (request.getMaKhuyenMai() != null && !request.getMaKhuyenMai().trim().isEmpty()) {
             try {
-                appliedPromotion = promotionService.applyPromotionByCode(
+                AppliedPromotionDTO appliedPromotion = promotionService.applyPromotionByCode(
                         request.getMaKhuyenMai(),
                         request.getChiNhanhId(),
                         request.getItems(),
                         tongTien);
                 
                 if (appliedPromotion != null) {
+                    appliedPromotions = List.of(appliedPromotion);
                     promotionDiscount = appliedPromotion.getDiscountAmount();
                     log.info("Applied promotion: {} - Discount: {}", 
                             request.getMaKhuyenMai(), promotionDiscount);
@@ -175,57 +152,68 @@ public class PosServiceImpl implements PosService {
                         request.getMaKhuyenMai(), e.getMessage());
                 // Không throw exception, tiếp tục checkout mà không có promotion
             }
+        } else if (Boolean.TRUE.equals(request.getApDungKhuyenMaiTotNhat())) {
+            BestDiscountDTO best = promotionService.findBestDiscount(
+                    request.getChiNhanhId(), request.getKhachHangId(), request.getItems(), tongTien);
+            appliedPromotions = best.getAppliedPromotions();
+            promotionDiscount = best.getTotalDiscount();
+            log.info("Applied best promotion combination: {} promotions - Discount: {}",
+                    appliedPromotions.size(), promotionDiscount);
         }
         
+        // Giữ chỗ lượt dùng (giới hạn tổng + giới hạn mỗi khách hàng) - hết lượt thì từ chối checkout,
+        // checkout lỗi ở bước sau thì lượt được trả lại
+        List<Long> promotionIds = appliedPromotions.stream()
+                .map(AppliedPromotionDTO::getPromotionId)
+                .toList();
+        promotionUsageService.reserve(promotionIds, request.getKhachHangId());
+        
         // Tổng giảm giá = giảm giá thủ công + giảm giá từ khuyến mãi (nếu có)
         BigDecimal totalDiscount = hoaDon.getGiamGia().add(promotionDiscount);
         hoaDon.setGiamGia(totalDiscount);
         
         // Lưu thông tin khuyến mãi vào ghiChu để hiển thị trong PDF
-        if (appliedPromotion != null) {
+        if (!appliedPromotions.isEmpty()) {
             StringBuilder promotionInfo = new StringBuilder();
             if (hoaDon.getGhiChu() != null && !hoaDon.getGhiChu().trim().isEmpty()) {
                 promotionInfo.append(hoaDon.getGhiChu()).append(" | ");
             }
-            promotionInfo.append("Khuyến mãi: ")
-                    .append(appliedPromotion.getTenKhuyenMai())
-                    .append(" (").append(appliedPromotion.getMaKhuyenMai()).append(")");
+            promotionInfo.append("Khuyến mãi: ");
+            for (int i = 0; i < appliedPromotions.size(); i++) {
+                AppliedPromotionDTO appliedPromotion = appliedPromotions.get(i);
+                if (i > 0) {
+                    promotionInfo.append(", ");
+                }
+                promotionInfo.append(appliedPromotion.getTenKhuyenMai())
+                        .append(" (").append(appliedPromotion.getMaKhuyenMai()).append(")");
+            }
             hoaDon.setGhiChu(promotionInfo.toString());
         }
 
-        // Tính số tiền cuối cùng
-        BigDecimal thanhTien = tongTien.subtract(hoaDon.getGiamGia());
-
-        if (thanhTien.compareTo(BigDecimal.ZERO) < 0) {
-            thanhTien = BigDecimal.ZERO;
-        }
+        // Lưu khuyến mãi đã áp dụng và phân bổ giảm giá theo dòng (dùng cho báo cáo)
+        InvoiceTotals.addAppliedPromotions(hoaDon, appliedPromotions);
 
+        // Tính số tiền cuối cùng
+        BigDecimal thanhTien = InvoiceTotals.finalAmount(tongTien, hoaDon.getGiamGia());
         hoaDon.setThanhTien(thanhTien);
 
         // Tính điểm tích lũy: 1.000 VND = 1 điểm (làm tròn đến số nguyên)
-        BigDecimal diemTichLuy = thanhTien.divide(BigDecimal.valueOf(1000), 0, RoundingMode.HALF_UP);
-        hoaDon.setDiemTichLuy(diemTichLuy);
-
-        // Cập nhật điểm khách hàng
-        if (khachHang != null) {
-            // Thêm điểm mới (1.000 VND = 1 điểm)
-            khachHang.setDiemTichLuy(
-                    khachHang.getDiemTichLuy().add(diemTichLuy));
-
-            khachHangRepository.save(khachHang);
-            log.info("Updated customer points: {} (added {} points from {} VND - 1.000 VND = 1 điểm)", 
-                    khachHang.getDiemTichLuy(), diemTichLuy, thanhTien);
-        }
+        hoaDon.setDiemTichLuy(InvoiceTotals.loyaltyPoints(thanhTien));
 
         // Lưu hóa đơn
         HoaDon savedInvoice = hoaDonRepository.save(hoaDon);
-        log.info("Invoice created successfully: {} - Invoice cache cleared", savedInvoice.getMaHoaDon());
+        log.info("Invoice created successfully: {}", savedInvoice.getMaHoaDon());
 
-        // Cập nhật số lần sử dụng promotion (nếu có)
-        if (appliedPromotion != null) {
-            promotionService.incrementPromotionUsage(List.of(appliedPromotion.getPromotionId()));
-            log.info("Updated promotion usage for promotion: {}", appliedPromotion.getMaKhuyenMai());
-        }
+        // Đánh dấu mã giảm giá dùng 1 lần - mã đã bị quầy khác dùng thì checkout bị hủy (rollback)
+        appliedPromotions.forEach(applied -> redeemCoupon(applied, savedInvoice.getId()));
+
+        // Cộng vào rollup doanh số theo ngày - ghi outbox, dispatcher cộng theo lô (chi nhánh x ngày)
+        salesRollupService.recordCompleted(savedInvoice);
+
+        // Tác vụ phụ (cộng điểm khách hàng, tăng lượt dùng khuyến mãi, xóa cache) ghi vào outbox
+        // trong cùng transaction - OutboxDispatcher xử lý nền theo lô
+        outboxService.enqueue(OutboxEvent.EventType.INVOICE_COMPLETED, savedInvoice.getId(),
+                InvoiceEventPayload.from(savedInvoice, promotionIds));
 
         return invoiceMapper.toDto(savedInvoice);
     }
@@ -241,7 +229,7 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "invoices", key = "#invoiceId", unless = "#result == null")
+    @Cacheable(value = "invoices", key = "#invoiceId", sync = true)
     public InvoiceDTO getInvoice(Long invoiceId) {
         log.info("Getting invoice by ID: {} - Checking cache first", invoiceId);
 
@@ -258,11 +246,11 @@ public class PosServiceImpl implements PosService {
      * Cache key: "date:{date}"
      * Cache TTL: 10 minutes
      *
-     * Note: Cleared automatically when new invoices are created via checkout
+     * Note: Chỉ bị xóa khi có hóa đơn thuộc key này được ghi (xem CacheInvalidationService)
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "invoices", key = "'date:' + #date")
+    @Cacheable(value = "invoices", key = "'date:' + #date", sync = true)
     public List<InvoiceDTO> getInvoicesByDate(String date) {
         log.info("Getting invoices by date: {} - Checking cache first", date);
         LocalDate localDate = LocalDate.parse(date, DateTimeFormatter.ISO_DATE);
@@ -284,11 +272,10 @@ public class PosServiceImpl implements PosService {
      * Cache key: "daterange:{fromDate}:{toDate}"
      * Cache TTL: 10 minutes
      *
-     * Note: Cleared automatically when new invoices are created via checkout
+     * Note: Chỉ bị xóa khi có hóa đơn thuộc key này được ghi (xem CacheInvalidationService)
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "invoices", key = "'daterange:' + #fromDate + ':' + #toDate")
     public List<InvoiceDTO> getInvoicesByDateRange(String fromDate, String toDate) {
         log.info("Getting invoices by date range: {} to {} - Checking cache first", fromDate, toDate);
         
@@ -301,17 +288,19 @@ public class PosServiceImpl implements PosService {
                     "Ngày bắt đầu không được sau ngày kết thúc");
         }
         
-        LocalDateTime startOfDay = fromLocalDate.atStartOfDay();
-        LocalDateTime endOfDay = toLocalDate.plusDays(1).atStartOfDay();
-
-        List<HoaDon> invoices = hoaDonRepository.findByDateRange(
-                startOfDay, endOfDay, Status.COMPLETED);
-
-        List<InvoiceDTO> result = invoiceMapper.toDtoList(invoices);
-        log.info("Invoices found from database for date range {} to {}: {} items - Will be cached", 
-                fromDate, toDate, result.size());
-
-        return result;
+        // Cache qua CacheInvalidationService để key được ghi vào index trước khi nạp
+        return cacheInvalidationService.getInvoiceDateRange(fromDate, toDate, null, () -> {
+            LocalDateTime startOfDay = fromLocalDate.atStartOfDay();
+            LocalDateTime endOfDay = toLocalDate.plusDays(1).atStartOfDay();
+
+            List<HoaDon> invoices = hoaDonRepository.findByDateRange(
+                    startOfDay, endOfDay, Status.COMPLETED);
+
+            List<InvoiceDTO> result = invoiceMapper.toDtoList(invoices);
+            log.info("Invoices found from database for date range {} to {}: {} items - Will be cached", 
+                    fromDate, toDate, result.size());
+            return result;
+        });
     }
 
     /**
@@ -320,11 +309,11 @@ public class PosServiceImpl implements PosService {
      * Cache key: "customer:{customerId}"
      * Cache TTL: 10 minutes
      *
-     * Note: Cleared automatically when new invoices are created via checkout
+     * Note: Chỉ bị xóa khi có hóa đơn thuộc key này được ghi (xem CacheInvalidationService)
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "invoices", key = "'customer:' + #customerId")
+    @Cacheable(value = "invoices", key = "'customer:' + #customerId", sync = true)
     public List<InvoiceDTO> getInvoicesByCustomer(Long customerId) {
         log.info("Getting invoices by customer ID: {} - Checking cache first", customerId);
         
@@ -345,7 +334,6 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional
-    @CacheEvict(value = "invoices", allEntries = true)
     public InvoiceDTO cancelInvoice(Long invoiceId) {
         log.info("Cancelling invoice ID: {} - Soft delete (chuyển status CANCELLED)", invoiceId);
 
@@ -357,33 +345,29 @@ public class PosServiceImpl implements PosService {
             throw new BusinessException(ErrorCode.BAD_REQUEST, "Hóa đơn đã bị hủy trước đó");
         }
 
-        // Trừ điểm khách hàng (nếu đã tích điểm)
-        if (hoaDon.getKhachHang() != null && hoaDon.getDiemTichLuy() != null 
-                && hoaDon.getDiemTichLuy().compareTo(BigDecimal.ZERO) > 0) {
-            KhachHang khachHang = hoaDon.getKhachHang();
-            BigDecimal currentPoints = khachHang.getDiemTichLuy();
-            BigDecimal pointsToSubtract = hoaDon.getDiemTichLuy();
-            
-            // Trừ điểm (không để âm)
-            BigDecimal newPoints = currentPoints.subtract(pointsToSubtract);
-            if (newPoints.compareTo(BigDecimal.ZERO) < 0) {
-                newPoints = BigDecimal.ZERO;
-            }
-            
-            khachHang.setDiemTichLuy(newPoints);
-            khachHangRepository.save(khachHang);
-            
-            log.info("Subtracted {} points from customer {} (from {} to {})", 
-                    pointsToSubtract, khachHang.getId(), currentPoints, newPoints);
-        }
-
         // Chuyển trạng thái sang CANCELLED
+        boolean wasCompleted = hoaDon.getTrangThai() == Status.COMPLETED;
         hoaDon.setTrangThai(Status.CANCELLED);
         HoaDon savedInvoice = hoaDonRepository.save(hoaDon);
 
-        log.info("Invoice cancelled successfully: {} - Status changed to CANCELLED - Cache cleared", 
+        // Hóa đơn đã tính vào doanh số thì trừ khỏi rollup và trả lại lượt dùng khuyến mãi
+        List<Long> promotionIds = List.of();
+        if (wasCompleted) {
+            salesRollupService.recordCancelled(savedInvoice);
+            promotionIds = appliedPromotionIds(savedInvoice);
+            promotionUsageService.release(promotionIds,
+                    savedInvoice.getKhachHang() != null ? savedInvoice.getKhachHang().getId() : null);
+        }
+
+        log.info("Invoice cancelled successfully: {} - Status changed to CANCELLED", 
                 savedInvoice.getMaHoaDon());
 
+        // Trừ điểm khách hàng (nếu đã tích điểm), trừ lượt dùng khuyến mãi và xóa cache qua outbox.
+        // Dispatcher không nhận sự kiện này khi sự kiện thanh toán của cùng hóa đơn còn chưa xử lý / FAILED
+        // (OutboxEventRepository.claimPending) nên điểm / lượt dùng luôn được cộng trước khi trừ
+        outboxService.enqueue(OutboxEvent.EventType.INVOICE_CANCELLED, savedInvoice.getId(),
+                InvoiceEventPayload.from(savedInvoice, promotionIds));
+
         return invoiceMapper.toDto(savedInvoice);
     }
 
@@ -393,7 +377,7 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "invoices", key = "'date:' + #date + ':status:' + #status")
+    @Cacheable(value = "invoices", key = "'date:' + #date + ':status:' + #status", sync = true)
     public List<InvoiceDTO> getInvoicesByDateAndStatus(String date, Status status) {
         log.info("Getting invoices by date: {} and status: {} - Checking cache first", date, status);
         LocalDate localDate = LocalDate.parse(date, DateTimeFormatter.ISO_DATE);
@@ -416,7 +400,6 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "invoices", key = "'daterange:' + #fromDate + ':' + #toDate + ':status:' + #status")
     public List<InvoiceDTO> getInvoicesByDateRangeAndStatus(String fromDate, String toDate, Status status) {
         log.info("Getting invoices by date range: {} to {} and status: {} - Checking cache first", 
                 fromDate, toDate, status);
@@ -430,17 +413,19 @@ public class PosServiceImpl implements PosService {
                     "Ngày bắt đầu không được sau ngày kết thúc");
         }
         
-        LocalDateTime startOfDay = fromLocalDate.atStartOfDay();
-        LocalDateTime endOfDay = toLocalDate.plusDays(1).atStartOfDay();
-
-        List<HoaDon> invoices = hoaDonRepository.findByDateRange(
-                startOfDay, endOfDay, status);
-
-        List<InvoiceDTO> result = invoiceMapper.toDtoList(invoices);
-        log.info("Invoices found from database for date range {} to {} and status {}: {} items - Will be cached", 
-                fromDate, toDate, status, result.size());
-
-        return result;
+        // Cache key: "daterange:{fromDate}:{toDate}:status:{status}" - xem CacheInvalidationService
+        return cacheInvalidationService.getInvoiceDateRange(fromDate, toDate, status, () -> {
+            LocalDateTime startOfDay = fromLocalDate.atStartOfDay();
+            LocalDateTime endOfDay = toLocalDate.plusDays(1).atStartOfDay();
+
+            List<HoaDon> invoices = hoaDonRepository.findByDateRange(
+                    startOfDay, endOfDay, status);
+
+            List<InvoiceDTO> result = invoiceMapper.toDtoList(invoices);
+            log.info("Invoices found from database for date range {} to {} and status {}: {} items - Will be cached", 
+                    fromDate, toDate, status, result.size());
+            return result;
+        });
     }
 
     /**
@@ -452,14 +437,12 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional
-    @CacheEvict(value = "invoices", allEntries = true)
     public InvoiceDTO holdBill(com.retail.application.dto.HoldBillRequest request) {
         log.info("Holding bill (treo bill) for {} items", request.getItems().size());
 
-        // Kiểm tra giỏ hàng
-        validateCart(request.getItems());
+        // Kiểm tra giỏ hàng - load tất cả sản phẩm bằng 1 query
+        Map<Long, SanPham> products = resolveCart(request.getItems());
 
-        // Load các entity
         NhanVien nhanVien = nhanVienRepository.findById(request.getNhanVienId())
                 .orElseThrow(() -> new ResourceNotFoundException("Nhân viên", request.getNhanVienId()));
 
@@ -474,7 +457,7 @@ public class PosServiceImpl implements PosService {
 
         // Tạo hóa đơn với status PENDING
         HoaDon hoaDon = HoaDon.builder()
-                .maHoaDon(generateInvoiceCode())
+                .maHoaDon(documentNumberService.nextNumber(DocumentType.HOA_DON, request.getChiNhanhId()))
                 .khachHang(khachHang)
                 .nhanVien(nhanVien)
                 .chiNhanh(chiNhanh)
@@ -485,29 +468,9 @@ public class PosServiceImpl implements PosService {
                 .trangThai(Status.PENDING) // ✅ Status PENDING
                 .build();
 
-        // Tính tổng tiền
-        BigDecimal tongTien = BigDecimal.ZERO;
-
-        // Thêm chi tiết hóa đơn (KHÔNG trừ tồn kho)
-        for (CartItemDTO item : request.getItems()) {
-            SanPham sanPham = sanPhamRepository.findById(item.getSanPhamId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm", item.getSanPhamId()));
-
-            ChiTietHoaDon chiTiet = ChiTietHoaDon.builder()
-                    .sanPham(sanPham)
-                    .soLuong(item.getSoLuong())
-                    .donGia(sanPham.getGiaBan())
-                    .ghiChu(item.getGhiChu())
-                    .build();
-
-            chiTiet.calculateThanhTien();
-            hoaDon.addChiTiet(chiTiet);
-
-            tongTien = tongTien.add(chiTiet.getThanhTien());
-
-            // ❌ KHÔNG cập nhật tồn kho (treo bill)
-        }
-
+        // Thêm chi tiết hóa đơn và tính tổng tiền
+        // ❌ KHÔNG cập nhật tồn kho (treo bill)
+        BigDecimal tongTien = InvoiceTotals.addInvoiceLines(hoaDon, request.getItems(), products);
         hoaDon.setTongTien(tongTien);
 
         // Áp dụng khuyến mãi - CHỈ áp dụng khi user chọn mã khuyến mãi
@@ -550,12 +513,13 @@ public class PosServiceImpl implements PosService {
             hoaDon.setGhiChu(promotionInfo.toString());
         }
 
-        // Tính số tiền cuối cùng
-        BigDecimal thanhTien = tongTien.subtract(hoaDon.getGiamGia());
-        if (thanhTien.compareTo(BigDecimal.ZERO) < 0) {
-            thanhTien = BigDecimal.ZERO;
+        // Lưu khuyến mãi đã áp dụng và phân bổ giảm giá theo dòng
+        if (appliedPromotion != null) {
+            InvoiceTotals.addAppliedPromotions(hoaDon, List.of(appliedPromotion));
         }
-        hoaDon.setThanhTien(thanhTien);
+
+        // Tính số tiền cuối cùng
+        hoaDon.setThanhTien(InvoiceTotals.finalAmount(tongTien, hoaDon.getGiamGia()));
 
         // ❌ KHÔNG tính điểm tích lũy (treo bill)
         hoaDon.setDiemTichLuy(BigDecimal.ZERO);
@@ -569,7 +533,14 @@ public class PosServiceImpl implements PosService {
         log.info("Bill held successfully (treo bill): {} - Status: PENDING - No stock deducted - No points added", 
                 savedInvoice.getMaHoaDon());
 
-        // ❌ KHÔNG cập nhật số lần sử dụng promotion (vì chưa thanh toán)
+        // Giữ mã giảm giá dùng 1 lần cho đơn treo (hủy đơn thì trả lại mã)
+        redeemCoupon(appliedPromotion, savedInvoice.getId());
+
+        // ❌ KHÔNG giữ chỗ lượt dùng khuyến mãi (vì chưa thanh toán) - giữ chỗ lúc completePendingInvoice
+
+        // Xóa các key cache liên quan tới hóa đơn này qua outbox
+        outboxService.enqueue(OutboxEvent.EventType.INVOICE_CHANGED, savedInvoice.getId(),
+                InvoiceEventPayload.from(savedInvoice, List.of()));
 
         return invoiceMapper.toDto(savedInvoice);
     }
@@ -582,7 +553,7 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "invoices", key = "'pending:' + #chiNhanhId")
+    @Cacheable(value = "invoices", key = "'pending:' + #chiNhanhId", sync = true)
     public List<InvoiceDTO> getPendingInvoices(Long chiNhanhId) {
         log.info("Getting pending invoices for branch: {} - Checking cache first", chiNhanhId);
         
@@ -632,7 +603,6 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional
-    @CacheEvict(value = "invoices", allEntries = true)
     public InvoiceDTO updatePendingInvoice(Long invoiceId, com.retail.application.dto.HoldBillRequest request) {
         log.info("Updating pending invoice ID: {} with {} items", invoiceId, request.getItems().size());
 
@@ -645,10 +615,12 @@ public class PosServiceImpl implements PosService {
                     "Chỉ có thể cập nhật hóa đơn đang treo (PENDING). Hóa đơn hiện tại có trạng thái: " + hoaDon.getTrangThai());
         }
 
-        // Validate giỏ hàng mới
-        validateCart(request.getItems());
+        // Validate giỏ hàng mới - load tất cả sản phẩm bằng 1 query
+        Map<Long, SanPham> products = resolveCart(request.getItems());
 
-        // Xóa tất cả chi tiết cũ
+        // Xóa khuyến mãi đã áp dụng trước (phân bổ giảm giá tham chiếu tới dòng cũ), rồi mới xóa chi tiết cũ
+        hoaDon.getKhuyenMaiApDungs().clear();
+        hoaDonRepository.flush();
         hoaDon.getChiTietHoaDons().clear();
 
         // Cập nhật ghi chú nếu có
@@ -656,29 +628,13 @@ public class PosServiceImpl implements PosService {
             hoaDon.setGhiChu(request.getGhiChu());
         }
 
-        // Tính tổng tiền mới
-        BigDecimal tongTien = BigDecimal.ZERO;
-
-        // Thêm chi tiết hóa đơn mới (KHÔNG trừ tồn kho)
-        for (CartItemDTO item : request.getItems()) {
-            SanPham sanPham = sanPhamRepository.findById(item.getSanPhamId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm", item.getSanPhamId()));
-
-            ChiTietHoaDon chiTiet = ChiTietHoaDon.builder()
-                    .sanPham(sanPham)
-                    .soLuong(item.getSoLuong())
-                    .donGia(sanPham.getGiaBan())
-                    .ghiChu(item.getGhiChu())
-                    .build();
-
-            chiTiet.calculateThanhTien();
-            hoaDon.addChiTiet(chiTiet);
-
-            tongTien = tongTien.add(chiTiet.getThanhTien());
-        }
-
+        // Thêm chi tiết hóa đơn mới và tính tổng tiền mới (KHÔNG trừ tồn kho)
+        BigDecimal tongTien = InvoiceTotals.addInvoiceLines(hoaDon, request.getItems(), products);
         hoaDon.setTongTien(tongTien);
 
+        // Trả lại mã giảm giá đơn đang giữ - áp dụng lại bên dưới nếu request vẫn dùng mã đó
+        couponService.releaseForInvoice(invoiceId);
+
         // Áp dụng khuyến mãi nếu có
         BigDecimal promotionDiscount = BigDecimal.ZERO;
         AppliedPromotionDTO appliedPromotion = null;
@@ -703,12 +659,12 @@ public class PosServiceImpl implements PosService {
         BigDecimal totalDiscount = (request.getGiamGia() != null ? request.getGiamGia() : BigDecimal.ZERO).add(promotionDiscount);
         hoaDon.setGiamGia(totalDiscount);
 
-        // Tính số tiền cuối cùng
-        BigDecimal thanhTien = tongTien.subtract(hoaDon.getGiamGia());
-        if (thanhTien.compareTo(BigDecimal.ZERO) < 0) {
-            thanhTien = BigDecimal.ZERO;
+        if (appliedPromotion != null) {
+            InvoiceTotals.addAppliedPromotions(hoaDon, List.of(appliedPromotion));
         }
-        hoaDon.setThanhTien(thanhTien);
+
+        // Tính số tiền cuối cùng
+        hoaDon.setThanhTien(InvoiceTotals.finalAmount(tongTien, hoaDon.getGiamGia()));
 
         // ❌ KHÔNG tính điểm tích lũy (vẫn là PENDING)
         hoaDon.setDiemTichLuy(BigDecimal.ZERO);
@@ -718,6 +674,12 @@ public class PosServiceImpl implements PosService {
         log.info("Pending invoice updated successfully: {} - Still PENDING - No stock deducted", 
                 savedInvoice.getMaHoaDon());
 
+        redeemCoupon(appliedPromotion, savedInvoice.getId());
+
+        // Xóa các key cache liên quan tới hóa đơn này qua outbox
+        outboxService.enqueue(OutboxEvent.EventType.INVOICE_CHANGED, savedInvoice.getId(),
+                InvoiceEventPayload.from(savedInvoice, List.of()));
+
         return invoiceMapper.toDto(savedInvoice);
     }
 
@@ -729,7 +691,6 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional
-    @CacheEvict(value = "invoices", allEntries = true)
     public InvoiceDTO cancelPendingInvoice(Long invoiceId) {
         log.info("Cancelling pending invoice ID: {} - Changing status to CANCELLED", invoiceId);
 
@@ -746,9 +707,16 @@ public class PosServiceImpl implements PosService {
         hoaDon.setTrangThai(Status.CANCELLED);
         HoaDon savedInvoice = hoaDonRepository.save(hoaDon);
 
+        // Trả lại mã giảm giá dùng 1 lần mà đơn treo đang giữ
+        couponService.releaseForInvoice(savedInvoice.getId());
+
         log.info("Pending invoice cancelled successfully: {} - Status changed to CANCELLED - No stock/points affected", 
                 savedInvoice.getMaHoaDon());
 
+        // Xóa các key cache liên quan tới hóa đơn này qua outbox
+        outboxService.enqueue(OutboxEvent.EventType.INVOICE_CHANGED, savedInvoice.getId(),
+                InvoiceEventPayload.from(savedInvoice, List.of()));
+
         return invoiceMapper.toDto(savedInvoice);
     }
 
@@ -760,7 +728,6 @@ public class PosServiceImpl implements PosService {
      */
     @Override
     @Transactional
-    @CacheEvict(value = "invoices", allEntries = true)
     public InvoiceDTO completePendingInvoice(Long invoiceId, String phuongThucThanhToan) {
         log.info("Completing pending invoice ID: {} - Payment method: {}", invoiceId, phuongThucThanhToan);
 
@@ -776,53 +743,110 @@ public class PosServiceImpl implements PosService {
         // Cập nhật phương thức thanh toán
         hoaDon.setPhuongThucThanhToan(phuongThucThanhToan);
 
-        // Trừ tồn kho cho từng sản phẩm
+        // Trừ tồn kho có điều kiện cho toàn bộ đơn trong 1 batch (chống bán vượt tồn kho)
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (ChiTietHoaDon chiTiet : hoaDon.getChiTietHoaDons()) {
-            SanPham sanPham = chiTiet.getSanPham();
-            
-            // Kiểm tra tồn kho còn đủ không
-            if (sanPham.getTonKho() < chiTiet.getSoLuong()) {
-                throw new BusinessException(ErrorCode.INSUFFICIENT_STOCK,
-                        String.format("Sản phẩm %s không đủ tồn kho. Tồn kho hiện tại: %d, yêu cầu: %d",
-                                sanPham.getTenSanPham(), sanPham.getTonKho(), chiTiet.getSoLuong()));
-            }
-            
-            // Trừ tồn kho
-            sanPham.setTonKho(sanPham.getTonKho() - chiTiet.getSoLuong());
-            sanPhamRepository.save(sanPham);
-            
-            log.info("Deducted stock for product {}: {} units (new stock: {})",
-                    sanPham.getMaSanPham(), chiTiet.getSoLuong(), sanPham.getTonKho());
+            quantities.merge(chiTiet.getSanPham().getId(), chiTiet.getSoLuong(), Integer::sum);
         }
+        inventoryService.deductStock(quantities);
+
+        // Giữ chỗ lượt dùng cho khuyến mãi đã áp dụng lúc treo bill (giống checkout) - hết lượt thì từ chối
+        // thanh toán, lỗi ở bước sau thì lượt được trả lại
+        List<Long> promotionIds = appliedPromotionIds(hoaDon);
+        promotionUsageService.reserve(promotionIds,
+                hoaDon.getKhachHang() != null ? hoaDon.getKhachHang().getId() : null);
 
         // Tính điểm tích lũy: 1.000 VND = 1 điểm
-        BigDecimal thanhTien = hoaDon.getThanhTien() != null ? hoaDon.getThanhTien() : BigDecimal.ZERO;
-        BigDecimal diemTichLuy = thanhTien.divide(BigDecimal.valueOf(1000), 0, RoundingMode.HALF_UP);
-        hoaDon.setDiemTichLuy(diemTichLuy);
-
-        // Cập nhật điểm khách hàng
-        if (hoaDon.getKhachHang() != null) {
-            KhachHang khachHang = hoaDon.getKhachHang();
-            khachHang.setDiemTichLuy(khachHang.getDiemTichLuy().add(diemTichLuy));
-            khachHangRepository.save(khachHang);
-            
-            log.info("Updated customer points: {} (added {} points from {} VND - 1.000 VND = 1 điểm)",
-                    khachHang.getDiemTichLuy(), diemTichLuy, thanhTien);
-        }
+        hoaDon.setDiemTichLuy(InvoiceTotals.loyaltyPoints(hoaDon.getThanhTien()));
 
         // Chuyển trạng thái sang COMPLETED
         hoaDon.setTrangThai(Status.COMPLETED);
         HoaDon savedInvoice = hoaDonRepository.save(hoaDon);
 
-        log.info("Pending invoice completed successfully: {} - Status changed to COMPLETED - Stock deducted - Points added",
+        salesRollupService.recordCompleted(savedInvoice);
+
+        log.info("Pending invoice completed successfully: {} - Status changed to COMPLETED - Stock deducted",
                 savedInvoice.getMaHoaDon());
 
+        // Cộng điểm khách hàng, tăng lượt dùng khuyến mãi và xóa cache qua outbox (xử lý nền theo lô)
+        outboxService.enqueue(OutboxEvent.EventType.INVOICE_COMPLETED, savedInvoice.getId(),
+                InvoiceEventPayload.from(savedInvoice, promotionIds));
+
         return invoiceMapper.toDto(savedInvoice);
     }
 
-    private String generateInvoiceCode() {
-        String prefix = "HD";
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return prefix + timestamp;
+    /**
+     * Id các khuyến mãi đã lưu trên hóa đơn (bỏ qua khuyến mãi đã bị xóa)
+     */
+    private static List<Long> appliedPromotionIds(HoaDon hoaDon) {
+        return hoaDon.getKhuyenMaiApDungs().stream()
+                .map(HoaDonKhuyenMai::getKhuyenMaiId)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Load toàn bộ sản phẩm trong giỏ hàng bằng 1 query (IN) và kiểm tra giỏ hàng
+     * - Kết quả dùng chung cho validate, tính giá từng dòng và trừ tồn kho
+     * - Số lượng của cùng 1 sản phẩm xuất hiện nhiều dòng được cộng dồn khi kiểm tra tồn kho
+     */
+    private Map<Long, SanPham> resolveCart(List<CartItemDTO> items) {
+        log.info("Validating cart with {} items", items.size());
+
+        if (items == null || items.isEmpty()) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Giỏ hàng trống");
+        }
+
+        Set<Long> productIds = items.stream()
+                .map(CartItemDTO::getSanPhamId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Long, SanPham> products = sanPhamRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(SanPham::getId, Function.identity()));
+
+        for (CartItemDTO item : items) {
+            if (!products.containsKey(item.getSanPhamId())) {
+                throw new ResourceNotFoundException("Sản phẩm", item.getSanPhamId());
+            }
+
+            // Kiểm tra số lượng
+            if (item.getSoLuong() <= 0) {
+                throw new BusinessException(ErrorCode.INVALID_QUANTITY,
+                        "Số lượng phải lớn hơn 0");
+            }
+        }
+
+        // Kiểm tra tồn kho sơ bộ (báo lỗi sớm) - tồn kho thực sự được bảo vệ bởi UPDATE có điều kiện khi thanh toán
+        sumQuantities(items).forEach((sanPhamId, soLuong) -> {
+            SanPham sanPham = products.get(sanPhamId);
+            if (sanPham.getTonKho() < soLuong) {
+                throw new BusinessException(ErrorCode.INSUFFICIENT_STOCK,
+                        String.format("Sản phẩm '%s' không đủ tồn kho. Còn lại: %d",
+                                sanPham.getTenSanPham(), sanPham.getTonKho()));
+            }
+        });
+
+        log.info("Cart validation successful");
+        return products;
+    }
+
+    /**
+     * Đánh dấu mã giảm giá dùng 1 lần thuộc về hóa đơn (bỏ qua khuyến mãi áp dụng theo mã khuyến mãi thường)
+     */
+    private void redeemCoupon(AppliedPromotionDTO appliedPromotion, Long hoaDonId) {
+        if (appliedPromotion != null && appliedPromotion.getMaGiamGia() != null) {
+            couponService.redeem(appliedPromotion.getMaGiamGia(), hoaDonId);
+        }
+    }
+
+    /**
+     * Cộng dồn số lượng theo sản phẩm (giữ thứ tự xuất hiện trong giỏ hàng)
+     */
+    private Map<Long, Integer> sumQuantities(List<CartItemDTO> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemDTO item : items) {
+            quantities.merge(item.getSanPhamId(), item.getSoLuong(), Integer::sum);
+        }
+        return quantities;
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.retail.application.service.product;
 
 import com.retail.application.dto.ProductDTO;
 import com.retail.application.mapper.ProductMapper;
+import com.retail.application.service.cache.CacheInvalidationService;
 import com.retail.common.constant.ErrorCode;
 import com.retail.common.constant.Status;
 import com.retail.common.exception.BusinessException;
@@ -12,10 +13,8 @@ import com.retail.persistence.repository.DanhMucRepository;
 import com.retail.persistence.repository.SanPhamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -34,13 +33,13 @@ public class ProductServiceImpl implements ProductService {
     private final SanPhamRepository sanPhamRepository;
     private final DanhMucRepository danhMucRepository;
     private final ProductMapper productMapper;
+    private final CacheInvalidationService cacheInvalidationService;
 
     /**
-     * Tạo sản phẩm mới - Xóa cache sau khi tạo
+     * Tạo sản phẩm mới - Xóa key cache theo barcode của sản phẩm mới
      */
     @Override
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
     public ProductDTO create(ProductDTO dto) {
         log.info("Creating new product: {}", dto.getMaSanPham());
 
@@ -75,26 +74,26 @@ public class ProductServiceImpl implements ProductService {
         }
 
         SanPham saved = sanPhamRepository.save(entity);
-        log.info("Product created successfully with ID: {} - Cache cleared", saved.getId());
+        cacheInvalidationService.evictProduct(saved.getId(), saved.getBarcode());
+        log.info("Product created successfully with ID: {}", saved.getId());
 
         return productMapper.toDto(saved);
     }
 
     /**
-     * Cập nhật sản phẩm - Cập nhật cache và xóa list cache
+     * Cập nhật sản phẩm - Cập nhật cache theo id, xóa key barcode cũ và mới
      */
     @Override
     @Transactional
-    @Caching(
-            put = @CachePut(value = "products", key = "#id"),
-            evict = @CacheEvict(value = "products", allEntries = true)
-    )
+    @CachePut(value = "products", key = "#id")
     public ProductDTO update(Long id, ProductDTO dto) {
         log.info("Updating product ID: {}", id);
 
         SanPham existing = sanPhamRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Sản phẩm", id));
 
+        String oldBarcode = existing.getBarcode();
+
         // Normalize barcode: empty string -> null (để tránh unique constraint violation với NULL)
         String barcode = dto.getBarcode();
         if (barcode != null && barcode.trim().isEmpty()) {
@@ -130,6 +129,8 @@ public class ProductServiceImpl implements ProductService {
         }
 
         SanPham updated = sanPhamRepository.save(existing);
+        cacheInvalidationService.evictProduct(id, oldBarcode);
+        cacheInvalidationService.evictProduct(null, updated.getBarcode());
 
         log.info("Product updated successfully: {} - Cache updated", id);
         return productMapper.toDto(updated);
@@ -144,7 +145,7 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "products", key = "#id", unless = "#result == null")
+    @Cacheable(value = "products", key = "#id", sync = true)
     public ProductDTO findById(Long id) {
         log.info("Finding product by ID: {} - Checking cache first", id);
 
@@ -163,7 +164,7 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "products", key = "'barcode:' + #barcode", unless = "#result == null")
+    @Cacheable(value = "products", key = "'barcode:' + #barcode", sync = true)
     public ProductDTO findByBarcode(String barcode) {
         log.info("Finding product by barcode: {} - Checking cache first", barcode);
 
@@ -226,11 +227,10 @@ public class ProductServiceImpl implements ProductService {
     }
 
     /**
-     * Delete product - Evict all cache
+     * Delete product - Evict cache keys of this product (id, barcode)
      */
     @Override
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
     public void delete(Long id) {
         log.info("Deleting product ID: {} - Cache will be cleared", id);
 
@@ -239,16 +239,16 @@ public class ProductServiceImpl implements ProductService {
 
         entity.setTrangThai(Status.DELETED);
         sanPhamRepository.save(entity);
+        cacheInvalidationService.evictProduct(id, entity.getBarcode());
 
-        log.info("Product marked as deleted: {} - All cache cleared", id);
+        log.info("Product marked as deleted: {} - Cache cleared", id);
     }
 
     /**
-     * Update status - Evict all cache
+     * Update status - Evict cache keys of this product (id, barcode)
      */
     @Override
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
     public void updateStatus(Long id, Status status) {
         log.info("Updating product status ID: {} to {} - Cache will be cleared", id, status);
 
@@ -257,7 +257,8 @@ public class ProductServiceImpl implements ProductService {
 
         entity.setTrangThai(status);
         sanPhamRepository.save(entity);
+        cacheInvalidationService.evictProduct(id, entity.getBarcode());
 
-        log.info("Product status updated: {} - All cache cleared", id);
+        log.info("Product status updated: {} - Cache cleared", id);
     }
 }
\ No newline at end of file
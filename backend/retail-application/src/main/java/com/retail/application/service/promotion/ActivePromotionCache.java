@@ -0,0 +1,186 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.PromotionDTO;
+import com.retail.application.mapper.PromotionMapper;
+import com.retail.common.constant.Status;
+import com.retail.common.util.TimerWheel;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.persistence.repository.ChiNhanhRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Danh sách khuyến mãi đang hiệu lực theo chi nhánh (findActivePromotionsForBranch) - đọc không truy cập DB.
+ *
+ * - Mỗi chi nhánh giữ 1 danh sách bất biến kèm mốc thời gian kế tiếp làm danh sách thay đổi:
+ *   khuyến mãi sắp bắt đầu sớm nhất hoặc khuyến mãi đang chạy kết thúc sớm nhất
+ * - Mốc được xếp vào bánh xe hẹn giờ; tới mốc thì nạp lại đúng chi nhánh đó
+ * - Đã qua mốc kết thúc mà bánh xe chưa kịp nạp lại: thread đọc tự lọc bỏ khuyến mãi hết hạn
+ *   (không bao giờ trả về khuyến mãi đã hết hạn)
+ * - Khuyến mãi thay đổi (PromotionIndex nạp lại, trên node này hoặc phát hiện từ node khác): nạp lại mọi chi nhánh
+ */
+@Component
+@Slf4j
+public class ActivePromotionCache {
+
+    // Khóa của danh sách cho lời gọi không có chi nhánh (chỉ khuyến mãi toàn hệ thống)
+    private static final long NO_BRANCH = -1L;
+    private static final int WHEEL_SIZE = 512;
+    private static final long RETRY_DELAY_MS = 5_000;
+
+    private final KhuyenMaiRepository khuyenMaiRepository;
+    private final ChiNhanhRepository chiNhanhRepository;
+    private final PromotionMapper promotionMapper;
+    private final TransactionTemplate readTransaction;
+    private final TimerWheel<Long> boundaries;
+
+    private final ConcurrentMap<Long, BranchPromotions> branches = new ConcurrentHashMap<>();
+
+    public ActivePromotionCache(KhuyenMaiRepository khuyenMaiRepository,
+                                ChiNhanhRepository chiNhanhRepository,
+                                PromotionMapper promotionMapper,
+                                PromotionIndex promotionIndex,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.promotion.schedule.tick-ms:1000}") long tickMs) {
+        this.khuyenMaiRepository = khuyenMaiRepository;
+        this.chiNhanhRepository = chiNhanhRepository;
+        this.promotionMapper = promotionMapper;
+        // REQUIRES_NEW: được gọi trong afterCommit của PromotionIndex
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.boundaries = new TimerWheel<>(tickMs, WHEEL_SIZE, System.currentTimeMillis());
+        promotionIndex.addChangeListener(this::refreshAll);
+    }
+
+    /**
+     * Khuyến mãi đang hiệu lực của chi nhánh (gồm khuyến mãi toàn hệ thống) - danh sách chỉ đọc, không được sửa
+     */
+    public List<PromotionDTO> activePromotions(Long chiNhanhId) {
+        long key = chiNhanhId != null ? chiNhanhId : NO_BRANCH;
+        BranchPromotions cached = branches.get(key);
+        if (cached == null) {
+            // Chi nhánh chưa nạp (tạo sau khi khởi động) - chỉ lần đọc đầu tiên truy cập DB
+            cached = refresh(key);
+        }
+        return cached.activeAt(LocalDateTime.now());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            refresh(NO_BRANCH);
+            List<ChiNhanh> activeBranches = readTransaction.execute(status ->
+                    chiNhanhRepository.findByTrangThai(Status.ACTIVE));
+            for (ChiNhanh chiNhanh : Objects.requireNonNull(activeBranches)) {
+                refresh(chiNhanh.getId());
+            }
+            log.info("Active promotion cache loaded for {} branches", branches.size());
+        } catch (Exception e) {
+            // Không chặn khởi động - lần đọc đầu tiên của mỗi chi nhánh sẽ nạp
+            log.warn("Could not load active promotion cache on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Quay bánh xe hẹn giờ - nạp lại các chi nhánh vừa tới mốc bắt đầu/kết thúc
+     */
+    @Scheduled(fixedRateString = "${app.promotion.schedule.tick-ms:1000}")
+    public void advance() {
+        boundaries.advance(System.currentTimeMillis()).forEach(this::refreshOrRetry);
+    }
+
+    /**
+     * Nạp lại mọi chi nhánh đã có trong bộ nhớ
+     */
+    public void refreshAll() {
+        List.copyOf(branches.keySet()).forEach(this::refreshOrRetry);
+    }
+
+    private void refreshOrRetry(Long key) {
+        try {
+            refresh(key);
+        } catch (Exception e) {
+            // Thread đọc vẫn tự lọc khuyến mãi hết hạn - thử lại sau
+            boundaries.schedule(key, System.currentTimeMillis() + RETRY_DELAY_MS);
+            log.warn("Could not refresh active promotions of branch {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Đồng bộ để lần nạp cũ không ghi đè kết quả của lần nạp mới hơn
+     */
+    synchronized BranchPromotions refresh(long key) {
+        LocalDateTime now = LocalDateTime.now();
+        Long chiNhanhId = key == NO_BRANCH ? null : key;
+
+        BranchPromotions loaded = readTransaction.execute(status -> {
+            List<PromotionDTO> promotions = khuyenMaiRepository
+                    .findActivePromotionsWithDetailsForBranch(Status.ACTIVE, chiNhanhId, now).stream()
+                    .filter(KhuyenMai::isActive)
+                    .sorted(Comparator.comparing(KhuyenMai::getId))
+                    .map(entity -> PromotionServiceImpl.enrichPromotionDTO(promotionMapper.toDto(entity), entity))
+                    .toList();
+            LocalDateTime nextStart = khuyenMaiRepository.findNextStartForBranch(Status.ACTIVE, chiNhanhId, now);
+            return BranchPromotions.of(promotions, nextStart);
+        });
+
+        branches.put(key, Objects.requireNonNull(loaded));
+        if (loaded.nextBoundary() != null) {
+            boundaries.schedule(key, epochMillis(loaded.nextBoundary()));
+        }
+        log.debug("Branch {} has {} active promotions, next change at {}",
+                key, loaded.promotions().size(), loaded.nextBoundary());
+        return loaded;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @param validUntil  ngày kết thúc sớm nhất trong danh sách (null nếu danh sách rỗng)
+     * @param nextBoundary mốc thay đổi kế tiếp: min(khuyến mãi sắp bắt đầu, ngay sau validUntil)
+     */
+    record BranchPromotions(List<PromotionDTO> promotions, LocalDateTime validUntil, LocalDateTime nextBoundary) {
+
+        static BranchPromotions of(List<PromotionDTO> promotions, LocalDateTime nextStart) {
+            LocalDateTime validUntil = promotions.stream()
+                    .map(PromotionDTO::getNgayKetThuc)
+                    .min(Comparator.naturalOrder())
+                    .orElse(null);
+            // Khuyến mãi còn hiệu lực tới hết ngayKetThuc -> hết hạn ngay sau đó
+            LocalDateTime firstExpiry = validUntil != null ? validUntil.plusNanos(1_000_000) : null;
+            LocalDateTime nextBoundary = firstExpiry == null ? nextStart
+                    : nextStart == null || firstExpiry.isBefore(nextStart) ? firstExpiry : nextStart;
+            return new BranchPromotions(promotions, validUntil, nextBoundary);
+        }
+
+        List<PromotionDTO> activeAt(LocalDateTime now) {
+            if (validUntil == null || !now.isAfter(validUntil)) {
+                return promotions;
+            }
+            // Đã qua mốc kết thúc nhưng bánh xe chưa kịp nạp lại
+            return promotions.stream()
+                    .filter(p -> !now.isAfter(p.getNgayKetThuc()))
+                    .toList();
+        }
+    }
+}
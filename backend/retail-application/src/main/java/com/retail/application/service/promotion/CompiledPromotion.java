@@ -0,0 +1,116 @@
+package com.retail.application.service.promotion;
+
+import com.retail.common.constant.PromotionType;
+import com.retail.common.util.LongHashSet;
+import com.retail.domain.entity.KhuyenMai;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bản "biên dịch" bất biến của 1 KhuyenMai dùng trong PromotionIndex - tách khỏi entity/Hibernate session
+ * nên đọc được từ nhiều thread mà không cần truy cập DB.
+ *
+ * Sản phẩm áp dụng lưu 2 dạng: mảng theo thứ tự gốc (để duyệt giống hệt logic cũ)
+ * và LongHashSet để kiểm tra thuộc tập O(1)
+ */
+@Getter
+public final class CompiledPromotion {
+
+    private static final long[] NO_PRODUCTS = new long[0];
+
+    private final Long id;
+    private final String maKhuyenMai;
+    private final String tenKhuyenMai;
+    private final PromotionType loaiKhuyenMai;
+    private final Long chiNhanhId; // null = áp dụng cho tất cả chi nhánh
+    private final LocalDateTime ngayBatDau;
+    private final LocalDateTime ngayKetThuc;
+    private final BigDecimal giaTriKhuyenMai;
+    private final BigDecimal giaTriToiThieu;
+    private final BigDecimal giamToiDa;
+    private final Integer soLuongMua;
+    private final Integer soLuongTang;
+    private final Integer soLanSuDungToiDa;
+    private final Integer tongSoLanSuDungToiDa;
+    private final boolean choPhepKetHop;
+    private final long[] productIds;
+    private final LongHashSet productSet;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicInteger soLanDaSuDung;
+
+    private CompiledPromotion(KhuyenMai khuyenMai, long[] productIds) {
+        this.id = khuyenMai.getId();
+        this.maKhuyenMai = khuyenMai.getMaKhuyenMai();
+        this.tenKhuyenMai = khuyenMai.getTenKhuyenMai();
+        this.loaiKhuyenMai = khuyenMai.getLoaiKhuyenMai();
+        this.chiNhanhId = khuyenMai.getChiNhanh() != null ? khuyenMai.getChiNhanh().getId() : null;
+        this.ngayBatDau = khuyenMai.getNgayBatDau();
+        this.ngayKetThuc = khuyenMai.getNgayKetThuc();
+        this.giaTriKhuyenMai = khuyenMai.getGiaTriKhuyenMai();
+        this.giaTriToiThieu = khuyenMai.getGiaTriToiThieu();
+        this.giamToiDa = khuyenMai.getGiamToiDa();
+        this.soLuongMua = khuyenMai.getSoLuongMua();
+        this.soLuongTang = khuyenMai.getSoLuongTang();
+        this.soLanSuDungToiDa = khuyenMai.getSoLanSuDungToiDa();
+        this.tongSoLanSuDungToiDa = khuyenMai.getTongSoLanSuDungToiDa();
+        this.choPhepKetHop = Boolean.TRUE.equals(khuyenMai.getChoPhepKetHop());
+        this.soLanDaSuDung = new AtomicInteger(khuyenMai.getSoLanDaSuDung() != null ? khuyenMai.getSoLanDaSuDung() : 0);
+        this.productIds = productIds;
+        this.productSet = LongHashSet.of(productIds);
+    }
+
+    /**
+     * Chỉ đọc id sản phẩm (proxy lazy của Hibernate trả id mà không load sản phẩm)
+     */
+    public static CompiledPromotion from(KhuyenMai khuyenMai) {
+        long[] productIds = NO_PRODUCTS;
+        if (khuyenMai.getChiTietKhuyenMais() != null && !khuyenMai.getChiTietKhuyenMais().isEmpty()) {
+            productIds = khuyenMai.getChiTietKhuyenMais().stream()
+                    .filter(ct -> ct.getApDung() != null && ct.getApDung())
+                    .mapToLong(ct -> ct.getSanPham().getId())
+                    .toArray();
+        }
+        return new CompiledPromotion(khuyenMai, productIds);
+    }
+
+    /**
+     * Không giới hạn sản phẩm (không có chi tiết áp dụng)
+     */
+    public boolean appliesToAllProducts() {
+        return productIds.length == 0;
+    }
+
+    /**
+     * Tương đương KhuyenMai.isActive() (trạng thái ACTIVE đã được PromotionIndex lọc sẵn)
+     * nhưng nhận sẵn thời điểm - không gọi LocalDateTime.now() cho từng khuyến mãi
+     */
+    public boolean isActiveAt(LocalDateTime now) {
+        return !now.isBefore(ngayBatDau) && !now.isAfter(ngayKetThuc) && !isUsageExhausted();
+    }
+
+    public boolean isUsageExhausted() {
+        return tongSoLanSuDungToiDa != null && soLanDaSuDung.get() >= tongSoLanSuDungToiDa;
+    }
+
+    public int getSoLanDaSuDung() {
+        return soLanDaSuDung.get();
+    }
+
+    /**
+     * Cộng lượt dùng đã commit xuống DB (không phải reload cả khuyến mãi)
+     */
+    void recordUsage(int count) {
+        soLanDaSuDung.addAndGet(count);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledPromotion{id=" + id + ", ma=" + maKhuyenMai + ", loai=" + loaiKhuyenMai
+                + ", chiNhanhId=" + chiNhanhId + ", products=" + Arrays.toString(productIds) + "}";
+    }
+}
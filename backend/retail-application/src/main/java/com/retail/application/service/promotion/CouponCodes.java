@@ -0,0 +1,84 @@
+package com.retail.application.service.promotion;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Mã giảm giá dạng XXXX-XXXX-XXXX (12 ký tự Crockford base32 = 60 bit, lưu BIGINT).
+ *
+ * 55 bit ngẫu nhiên + 5 bit kiểm tra: 31/32 mã gõ sai bị loại ngay khi đọc, không cần tra bộ lọc hay DB.
+ * Khi đọc: bỏ '-' và khoảng trắng, không phân biệt hoa thường, O = 0, I/L = 1
+ */
+final class CouponCodes {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 12;
+    private static final int CHECK_BITS = 5;
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+            DECODE[Character.toLowerCase(ALPHABET[i])] = i;
+        }
+        DECODE['O'] = 0;
+        DECODE['o'] = 0;
+        DECODE['I'] = 1;
+        DECODE['i'] = 1;
+        DECODE['L'] = 1;
+        DECODE['l'] = 1;
+    }
+
+    private CouponCodes() {
+    }
+
+    static long random(SecureRandom random) {
+        long payload = random.nextLong() >>> (64 - 60 + CHECK_BITS);
+        return (payload << CHECK_BITS) | checksum(payload);
+    }
+
+    static String format(long code) {
+        char[] chars = new char[LENGTH + 2];
+        int position = chars.length;
+        for (int i = 0; i < LENGTH; i++) {
+            if (i > 0 && i % 4 == 0) {
+                chars[--position] = '-';
+            }
+            chars[--position] = ALPHABET[(int) (code & 31)];
+            code >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return mã dạng số, hoặc null nếu chuỗi không phải mã giảm giá hợp lệ về hình thức
+     */
+    static Long parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        long code = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '-' || Character.isWhitespace(c)) {
+                continue;
+            }
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0 || ++digits > LENGTH) {
+                return null;
+            }
+            code = (code << 5) | value;
+        }
+        if (digits != LENGTH) {
+            return null;
+        }
+        long payload = code >>> CHECK_BITS;
+        return (code & 31) == checksum(payload) ? code : null;
+    }
+
+    private static long checksum(long payload) {
+        return (payload * 0x9E3779B97F4A7C15L) >>> (64 - CHECK_BITS);
+    }
+}
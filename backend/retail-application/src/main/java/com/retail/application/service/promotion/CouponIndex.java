@@ -0,0 +1,164 @@
+package com.retail.application.service.promotion;
+
+import com.retail.common.util.LongBloomFilter;
+import com.retail.persistence.repository.MaGiamGiaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bộ lọc Bloom chứa mọi mã giảm giá đã tạo - khi sinh mã, loại mã trùng mà không truy cập DB.
+ *
+ * - "Không có" chỉ chắc chắn với mã tạo trên node này: mã do node khác tạo chỉ vào bộ lọc ở lần đồng bộ kế tiếp,
+ *   nên tra cứu mã (CouponServiceImpl.findPromotionId) vẫn tra DB khi bộ lọc trả false
+ * - Mã tạo trên node này: thêm vào bộ lọc ngay sau khi transaction commit
+ * - Mã tạo/xóa trên node khác: định kỳ so số dòng và id lớn nhất; có mã mới thì đọc tiếp từ id cuối,
+ *   số dòng lệch (mã bị xóa, transaction commit không theo thứ tự id) thì dựng lại toàn bộ
+ * - Dựng lại với kích thước gấp đôi khi số mã vượt dung lượng dự kiến
+ */
+@Component
+@Slf4j
+public class CouponIndex {
+
+    private static final int MIN_CAPACITY = 1 << 16;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final MaGiamGiaRepository maGiamGiaRepository;
+    private final TransactionTemplate readTransaction;
+
+    private volatile Filter filter;
+
+    public CouponIndex(MaGiamGiaRepository maGiamGiaRepository, PlatformTransactionManager transactionManager) {
+        this.maGiamGiaRepository = maGiamGiaRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * false = không có mã này trong các mã đã đồng bộ (mã node khác vừa tạo có thể chưa có)
+     */
+    public boolean mightContain(long code) {
+        return currentFilter().bloom.mightContain(code);
+    }
+
+    /**
+     * Thêm mã vừa tạo (hoặc vừa tìm thấy trong DB) vào bộ lọc sau khi transaction hiện tại commit
+     */
+    public void addAfterCommit(long[] codes) {
+        Runnable action = () -> {
+            Filter current = filter;
+            if (current == null) {
+                return; // Lần đọc đầu tiên sẽ dựng từ DB
+            }
+            // Chỉ đặt bit - số mã và id cuối được cập nhật ở lần đồng bộ kế tiếp
+            for (long code : codes) {
+                current.bloom.add(code);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // Không chặn khởi động - lần đọc đầu tiên sẽ dựng lại
+            log.warn("Could not build coupon index on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc toàn bộ mã từ DB vào bộ lọc mới
+     */
+    public synchronized void rebuild() {
+        MaGiamGiaRepository.ChangeMarker marker = readTransaction.execute(status ->
+                maGiamGiaRepository.findChangeMarker());
+        long total = marker != null ? marker.getTotal() : 0;
+        Filter rebuilt = new Filter(new LongBloomFilter(
+                (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_CAPACITY, total * 2)), FALSE_POSITIVE_RATE));
+        loadAfter(rebuilt, 0);
+        filter = rebuilt;
+        log.info("Coupon index rebuilt with {} codes", rebuilt.count);
+    }
+
+    @Scheduled(fixedDelayString = "${app.promotion.coupon.sync-interval-ms:30000}")
+    public void syncWithDatabase() {
+        Filter current = filter;
+        if (current == null) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                MaGiamGiaRepository.ChangeMarker marker = readTransaction.execute(status ->
+                        maGiamGiaRepository.findChangeMarker());
+                if (marker == null) {
+                    return;
+                }
+                long lastId = marker.getLastId() != null ? marker.getLastId() : 0;
+                if (lastId > current.lastId) {
+                    loadAfter(current, current.lastId);
+                }
+                if (current.count != marker.getTotal() || current.count > current.bloom.expectedInsertions()) {
+                    log.debug("Coupon table changed - rebuilding coupon index");
+                    rebuild();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Coupon index sync failed: {}", e.getMessage());
+        }
+    }
+
+    private Filter currentFilter() {
+        Filter current = filter;
+        if (current == null) {
+            synchronized (this) {
+                if (filter == null) {
+                    rebuild();
+                }
+                current = filter;
+            }
+        }
+        return current;
+    }
+
+    private void loadAfter(Filter target, long afterId) {
+        long[] loaded = {0};
+        Long lastId = readTransaction.execute(status -> maGiamGiaRepository.forEachCodeAfter(afterId, code -> {
+            target.bloom.add(code);
+            loaded[0]++;
+        }));
+        target.count += loaded[0];
+        target.lastId = lastId != null ? lastId : afterId;
+    }
+
+    /**
+     * Bộ lọc và số mã/id cuối đã nạp (chỉ sửa trong synchronized)
+     */
+    private static final class Filter {
+        private final LongBloomFilter bloom;
+        private long count;
+        private long lastId;
+
+        Filter(LongBloomFilter bloom) {
+            this.bloom = bloom;
+        }
+    }
+}
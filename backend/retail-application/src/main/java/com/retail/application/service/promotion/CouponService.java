@@ -0,0 +1,41 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.CouponBatchDTO;
+
+/**
+ * Interface service mã giảm giá dùng 1 lần - Tạo hàng loạt, tra mã và đánh dấu đã dùng
+ */
+public interface CouponService {
+
+    /**
+     * Tạo {@code quantity} mã mới, không trùng, cho khuyến mãi
+     */
+    CouponBatchDTO generate(Long khuyenMaiId, int quantity);
+
+    /**
+     * Id khuyến mãi của mã giảm giá
+     *
+     * @return null nếu chuỗi không phải mã giảm giá về hình thức (có thể là mã khuyến mãi thường)
+     * @throws com.retail.common.exception.ResourceNotFoundException mã không tồn tại
+     * @throws com.retail.common.exception.BusinessException mã đã được dùng
+     */
+    Long findPromotionId(String code);
+
+    /**
+     * Đánh dấu mã đã dùng cho hóa đơn (UPDATE có điều kiện) - gọi trong transaction lưu hóa đơn.
+     * Gọi lại với cùng hóa đơn không lỗi
+     *
+     * @throws com.retail.common.exception.BusinessException mã đã được hóa đơn khác dùng
+     */
+    void redeem(String code, Long hoaDonId);
+
+    /**
+     * Trả lại các mã đã gắn với hóa đơn (hủy hoặc sửa hóa đơn treo)
+     */
+    void releaseForInvoice(Long hoaDonId);
+
+    /**
+     * Thống kê mã của khuyến mãi (không kèm danh sách mã)
+     */
+    CouponBatchDTO getSummary(Long khuyenMaiId);
+}
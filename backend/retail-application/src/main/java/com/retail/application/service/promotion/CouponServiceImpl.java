@@ -0,0 +1,138 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.CouponBatchDTO;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import com.retail.common.exception.ResourceNotFoundException;
+import com.retail.common.util.LongHashSet;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import com.retail.persistence.repository.MaGiamGiaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service mã giảm giá dùng 1 lần.
+ *
+ * - Tạo: sinh mã ngẫu nhiên (SecureRandom), bỏ mã trùng trong lô và mã CouponIndex báo có thể đã tồn tại,
+ *   ghi bằng JDBC batch; unique index trên cột ma là chốt chặn cuối
+ * - Tra mã: mã sai hình thức hoặc không có trong CouponIndex bị loại không cần DB; còn lại tra 1 dòng qua unique index
+ * - Dùng mã: UPDATE có điều kiện (hoa_don_id IS NULL) trong transaction lưu hóa đơn - 2 quầy dùng cùng 1 mã
+ *   thì chỉ 1 quầy thành công
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CouponServiceImpl implements CouponService {
+
+    private static final int MAX_BATCH = 500_000;
+
+    private final KhuyenMaiRepository khuyenMaiRepository;
+    private final MaGiamGiaRepository maGiamGiaRepository;
+    private final CouponIndex couponIndex;
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    @Transactional
+    public CouponBatchDTO generate(Long khuyenMaiId, int quantity) {
+        if (quantity < 1 || quantity > MAX_BATCH) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST,
+                    "Số lượng mã mỗi lần tạo phải từ 1 đến " + MAX_BATCH);
+        }
+        KhuyenMai khuyenMai = khuyenMaiRepository.findById(khuyenMaiId)
+                .orElseThrow(() -> new ResourceNotFoundException("Khuyến mãi", khuyenMaiId));
+
+        long[] codes = new long[quantity];
+        LongHashSet generated = new LongHashSet(quantity);
+        int count = 0;
+        while (count < quantity) {
+            long code = CouponCodes.random(random);
+            // Dương tính giả của bộ lọc chỉ làm bỏ thêm 1 mã ngẫu nhiên
+            if (generated.add(code) && !couponIndex.mightContain(code)) {
+                codes[count++] = code;
+            }
+        }
+
+        maGiamGiaRepository.insertCodes(khuyenMaiId, codes, LocalDateTime.now());
+        couponIndex.addAfterCommit(codes);
+        log.info("Generated {} coupon codes for promotion {}", quantity, khuyenMai.getMaKhuyenMai());
+
+        List<String> formatted = new ArrayList<>(quantity);
+        for (long code : codes) {
+            formatted.add(CouponCodes.format(code));
+        }
+        return CouponBatchDTO.builder()
+                .khuyenMaiId(khuyenMaiId)
+                .maKhuyenMai(khuyenMai.getMaKhuyenMai())
+                .soLuong(quantity)
+                .tongSoMa(maGiamGiaRepository.countByKhuyenMaiId(khuyenMaiId))
+                .soMaDaDung(maGiamGiaRepository.countByKhuyenMaiIdAndHoaDonIdIsNotNull(khuyenMaiId))
+                .codes(formatted)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long findPromotionId(String code) {
+        Long parsed = CouponCodes.parse(code);
+        if (parsed == null) {
+            return null;
+        }
+        // Bộ lọc chưa có mã chưa chắc là mã không tồn tại: mã do node khác vừa tạo chỉ vào bộ lọc
+        // ở lần đồng bộ kế tiếp - vẫn tra DB, mã gõ sai đã bị checksum loại ở bước parse
+        boolean indexed = couponIndex.mightContain(parsed);
+        MaGiamGiaRepository.CouponState state = maGiamGiaRepository.findStateByMa(parsed)
+                .orElseThrow(() -> new ResourceNotFoundException("Mã giảm giá", code));
+        if (!indexed) {
+            couponIndex.addAfterCommit(new long[]{parsed});
+        }
+        if (state.getHoaDonId() != null) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Mã giảm giá đã được sử dụng: " + code);
+        }
+        return state.getKhuyenMaiId();
+    }
+
+    @Override
+    @Transactional
+    public void redeem(String code, Long hoaDonId) {
+        Long parsed = CouponCodes.parse(code);
+        if (parsed == null) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Mã giảm giá không hợp lệ: " + code);
+        }
+        if (maGiamGiaRepository.redeem(parsed, hoaDonId, LocalDateTime.now()) == 0) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Mã giảm giá đã được sử dụng: " + code);
+        }
+        log.info("Coupon {} redeemed by invoice {}", code, hoaDonId);
+    }
+
+    @Override
+    @Transactional
+    public void releaseForInvoice(Long hoaDonId) {
+        int released = maGiamGiaRepository.releaseByHoaDonId(hoaDonId);
+        if (released > 0) {
+            log.info("Released {} coupon codes of invoice {}", released, hoaDonId);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CouponBatchDTO getSummary(Long khuyenMaiId) {
+        KhuyenMai khuyenMai = khuyenMaiRepository.findById(khuyenMaiId)
+                .orElseThrow(() -> new ResourceNotFoundException("Khuyến mãi", khuyenMaiId));
+        return CouponBatchDTO.builder()
+                .khuyenMaiId(khuyenMaiId)
+                .maKhuyenMai(khuyenMai.getMaKhuyenMai())
+                .soLuong(0)
+                .tongSoMa(maGiamGiaRepository.countByKhuyenMaiId(khuyenMaiId))
+                .soMaDaDung(maGiamGiaRepository.countByKhuyenMaiIdAndHoaDonIdIsNotNull(khuyenMaiId))
+                .codes(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,224 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.CartItemDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tính giảm giá của 1 khuyến mãi trên 1 giỏ hàng - hàm thuần, không truy cập DB, không giữ trạng thái.
+ * Dùng chung cho applyPromotionsToCart (qua PromotionIndex) và applyPromotionByCode
+ */
+public final class PromotionEvaluator {
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private PromotionEvaluator() {
+    }
+
+    /**
+     * Gom giỏ hàng theo sản phẩm (dòng đầu tiên của mỗi sản phẩm được giữ lại)
+     */
+    public static Map<Long, CartItemDTO> indexCart(List<CartItemDTO> cartItems) {
+        Map<Long, CartItemDTO> cartItemMap = new HashMap<>(Math.max(16, cartItems.size() * 2));
+        for (CartItemDTO item : cartItems) {
+            cartItemMap.putIfAbsent(item.getSanPhamId(), item);
+        }
+        return cartItemMap;
+    }
+
+    /**
+     * Apply a single promotion to cart items
+     *
+     * @return null nếu khuyến mãi không áp dụng hoặc không giảm được gì
+     */
+    public static AppliedPromotionDTO evaluate(CompiledPromotion promotion, List<CartItemDTO> cartItems,
+                                               BigDecimal totalAmount, Map<Long, CartItemDTO> cartItemMap) {
+
+        // Check minimum amount requirement
+        if (promotion.getGiaTriToiThieu() != null &&
+                totalAmount.compareTo(promotion.getGiaTriToiThieu()) < 0) {
+            return null; // Promotion doesn't apply
+        }
+
+        // Check if promotion applies to any products in cart
+        if (!promotion.appliesToAllProducts() && !containsApplicableProduct(promotion, cartItems)) {
+            return null; // No applicable products in cart
+        }
+
+        BigDecimal discountAmount;
+        BigDecimal applicableAmount = totalAmount;
+
+        // Calculate discount based on promotion type
+        switch (promotion.getLoaiKhuyenMai()) {
+            case PERCENTAGE:
+                discountAmount = calculatePercentageDiscount(promotion, applicableAmount);
+                break;
+
+            case FIXED_AMOUNT:
+                discountAmount = promotion.getGiaTriKhuyenMai();
+                if (discountAmount.compareTo(applicableAmount) > 0) {
+                    discountAmount = applicableAmount;
+                }
+                break;
+
+            case BOGO:
+                discountAmount = calculateBOGODiscount(promotion, cartItemMap);
+                break;
+
+            case BUNDLE:
+                discountAmount = calculateBundleDiscount(promotion, cartItemMap);
+                break;
+
+            case BUY_X_GET_Y:
+                discountAmount = calculateBuyXGetYDiscount(promotion, cartItemMap);
+                break;
+
+            default:
+                return null;
+        }
+
+        // Apply maximum discount limit
+        if (promotion.getGiamToiDa() != null && discountAmount.compareTo(promotion.getGiamToiDa()) > 0) {
+            discountAmount = promotion.getGiamToiDa();
+        }
+
+        if (discountAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            return null;
+        }
+
+        return AppliedPromotionDTO.builder()
+                .promotionId(promotion.getId())
+                .maKhuyenMai(promotion.getMaKhuyenMai())
+                .tenKhuyenMai(promotion.getTenKhuyenMai())
+                .loaiKhuyenMai(promotion.getLoaiKhuyenMai())
+                .discountAmount(discountAmount)
+                .originalAmount(applicableAmount)
+                .finalAmount(applicableAmount.subtract(discountAmount))
+                .description(buildPromotionDescription(promotion, discountAmount))
+                .sanPhamIds(discountedProducts(promotion))
+                .build();
+    }
+
+    /**
+     * Sản phẩm tạo ra mức giảm - dùng để phân bổ giảm giá xuống dòng hóa đơn.
+     * PERCENTAGE/FIXED_AMOUNT tính trên tổng hóa đơn nên trả về null (phân bổ cho mọi dòng)
+     */
+    static List<Long> discountedProducts(CompiledPromotion promotion) {
+        return switch (promotion.getLoaiKhuyenMai()) {
+            case BOGO, BUNDLE, BUY_X_GET_Y -> promotion.appliesToAllProducts()
+                    ? null
+                    : Arrays.stream(promotion.getProductIds()).boxed().toList();
+            default -> null;
+        };
+    }
+
+    private static boolean containsApplicableProduct(CompiledPromotion promotion, List<CartItemDTO> cartItems) {
+        for (CartItemDTO item : cartItems) {
+            if (item.getSanPhamId() != null && promotion.getProductSet().contains(item.getSanPhamId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BigDecimal calculatePercentageDiscount(CompiledPromotion promotion, BigDecimal amount) {
+        BigDecimal percentage = promotion.getGiaTriKhuyenMai();
+        return amount.multiply(percentage).divide(ONE_HUNDRED, 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal calculateBOGODiscount(CompiledPromotion promotion, Map<Long, CartItemDTO> cartItemMap) {
+        // BOGO: Buy 1 Get 1 - free cheapest item
+        if (promotion.appliesToAllProducts()) {
+            return BigDecimal.ZERO;
+        }
+
+        BigDecimal totalDiscount = BigDecimal.ZERO;
+
+        for (long productId : promotion.getProductIds()) {
+            CartItemDTO item = cartItemMap.get(productId);
+            if (item != null && item.getSoLuong() >= 2) {
+                // For BOGO, give free item = cheapest item price
+                int freeItems = item.getSoLuong() / 2;
+                totalDiscount = totalDiscount.add(item.getDonGia().multiply(BigDecimal.valueOf(freeItems)));
+            }
+        }
+
+        return totalDiscount;
+    }
+
+    private static BigDecimal calculateBundleDiscount(CompiledPromotion promotion, Map<Long, CartItemDTO> cartItemMap) {
+        // Bundle: Buy specific products together for special price
+        if (promotion.appliesToAllProducts()) {
+            return BigDecimal.ZERO;
+        }
+
+        // Check if all bundle products are in cart
+        BigDecimal originalTotal = BigDecimal.ZERO;
+        for (long productId : promotion.getProductIds()) {
+            CartItemDTO item = cartItemMap.get(productId);
+            if (item == null) {
+                return BigDecimal.ZERO;
+            }
+            originalTotal = originalTotal.add(item.getDonGia().multiply(BigDecimal.valueOf(item.getSoLuong())));
+        }
+
+        // Calculate bundle discount
+        BigDecimal bundlePrice = promotion.getGiaTriKhuyenMai(); // Bundle price
+        return originalTotal.subtract(bundlePrice);
+    }
+
+    private static BigDecimal calculateBuyXGetYDiscount(CompiledPromotion promotion, Map<Long, CartItemDTO> cartItemMap) {
+        if (promotion.appliesToAllProducts()) {
+            return BigDecimal.ZERO;
+        }
+
+        BigDecimal totalDiscount = BigDecimal.ZERO;
+        int buyX = promotion.getSoLuongMua() != null ? promotion.getSoLuongMua() : 1;
+        int getY = promotion.getSoLuongTang() != null ? promotion.getSoLuongTang() : 1;
+
+        for (long productId : promotion.getProductIds()) {
+            CartItemDTO item = cartItemMap.get(productId);
+            if (item != null && item.getSoLuong() >= buyX) {
+                int freeSets = item.getSoLuong() / buyX;
+                int freeItems = freeSets * getY;
+                // Only discount up to purchased quantity
+                int actualFreeItems = Math.min(freeItems, item.getSoLuong() - buyX);
+                totalDiscount = totalDiscount.add(item.getDonGia().multiply(BigDecimal.valueOf(actualFreeItems)));
+            }
+        }
+
+        return totalDiscount;
+    }
+
+    static String buildPromotionDescription(CompiledPromotion promotion, BigDecimal discountAmount) {
+        switch (promotion.getLoaiKhuyenMai()) {
+            case PERCENTAGE:
+                return String.format("Giảm %s%% - Tiết kiệm %s VNĐ",
+                        promotion.getGiaTriKhuyenMai(), formatCurrency(discountAmount));
+            case FIXED_AMOUNT:
+                return String.format("Giảm %s VNĐ",
+                        formatCurrency(discountAmount));
+            case BOGO:
+                return String.format("Mua 1 tặng 1 - Tiết kiệm %s VNĐ",
+                        formatCurrency(discountAmount));
+            case BUNDLE:
+                return String.format("Combo giảm giá - Tiết kiệm %s VNĐ",
+                        formatCurrency(discountAmount));
+            case BUY_X_GET_Y:
+                return String.format("Mua %s tặng %s - Tiết kiệm %s VNĐ",
+                        promotion.getSoLuongMua(), promotion.getSoLuongTang(), formatCurrency(discountAmount));
+            default:
+                return "Khuyến mãi áp dụng";
+        }
+    }
+
+    private static String formatCurrency(BigDecimal amount) {
+        return amount.setScale(0, RoundingMode.HALF_UP).toString();
+    }
+}
@@ -0,0 +1,296 @@
+package com.retail.application.service.promotion;
+
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.persistence.repository.ChiTietKhuyenMaiRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Chỉ mục khuyến mãi trong bộ nhớ - tính giảm giá giỏ hàng không cần truy cập DB.
+ *
+ * - Giữ mọi khuyến mãi ACTIVE chưa hết hạn (kể cả chưa tới ngày bắt đầu - tự có hiệu lực khi tới giờ)
+ * - Mỗi chi nhánh có 1 mảng (khuyến mãi riêng + khuyến mãi toàn hệ thống) sắp theo ngày bắt đầu,
+ *   dựng lười ở lần đọc đầu tiên; duyệt dừng ngay khi gặp khuyến mãi chưa bắt đầu
+ * - Snapshot bất biến, thay nguyên khối khi có thay đổi (copy-on-write) - thread đọc không bao giờ bị khóa
+ *
+ * Đồng bộ:
+ * - Ghi trên node này (tạo/sửa/bật/tắt/xóa): nạp lại đúng 1 khuyến mãi sau khi transaction commit
+ * - Ghi trên node khác: định kỳ so dấu vết thay đổi (số dòng, updated_at, id chi tiết), khác thì nạp lại toàn bộ
+ * - Sau mỗi lần nạp, báo cho các listener (ActivePromotionCache) - không báo khi chỉ cộng lượt dùng
+ */
+@Component
+@Slf4j
+public class PromotionIndex {
+
+    // Khóa của chế độ xem cho lời gọi không có chi nhánh (chỉ khuyến mãi toàn hệ thống)
+    private static final long NO_BRANCH = -1L;
+
+    private static final Comparator<CompiledPromotion> BY_VALIDITY_WINDOW = Comparator
+            .comparing(CompiledPromotion::getNgayBatDau)
+            .thenComparing(CompiledPromotion::getNgayKetThuc)
+            .thenComparing(CompiledPromotion::getId);
+
+    private final KhuyenMaiRepository khuyenMaiRepository;
+    private final ChiTietKhuyenMaiRepository chiTietKhuyenMaiRepository;
+    private final TransactionTemplate readTransaction;
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot;
+    private volatile String lastChangeMarker;
+
+    public PromotionIndex(KhuyenMaiRepository khuyenMaiRepository,
+                          ChiTietKhuyenMaiRepository chiTietKhuyenMaiRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.khuyenMaiRepository = khuyenMaiRepository;
+        this.chiTietKhuyenMaiRepository = chiTietKhuyenMaiRepository;
+        // REQUIRES_NEW: có thể được gọi trong afterCommit, khi transaction cũ vẫn còn gắn với thread
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Khuyến mãi đang hiệu lực tại thời điểm {@code now} cho chi nhánh (gồm khuyến mãi toàn hệ thống),
+     * theo thứ tự ngày bắt đầu
+     */
+    public List<CompiledPromotion> activePromotions(Long chiNhanhId, LocalDateTime now) {
+        CompiledPromotion[] view = currentSnapshot().branchView(chiNhanhId != null ? chiNhanhId : NO_BRANCH);
+        List<CompiledPromotion> active = new ArrayList<>(view.length);
+        for (CompiledPromotion promotion : view) {
+            if (promotion.getNgayBatDau().isAfter(now)) {
+                break; // Sắp theo ngày bắt đầu - các khuyến mãi sau đều chưa bắt đầu
+            }
+            if (promotion.isActiveAt(now)) {
+                active.add(promotion);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Khuyến mãi theo id (null nếu không có trong chỉ mục: đã tắt, đã hết hạn hoặc không tồn tại)
+     */
+    public CompiledPromotion find(Long promotionId) {
+        return currentSnapshot().byId().get(promotionId);
+    }
+
+    /**
+     * Khuyến mãi theo mã (null nếu không có trong chỉ mục)
+     */
+    public CompiledPromotion findByCode(String maKhuyenMai) {
+        return maKhuyenMai != null ? currentSnapshot().byCode().get(maKhuyenMai) : null;
+    }
+
+    /**
+     * Nạp lại 1 khuyến mãi sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     */
+    public void refreshAfterCommit(Long promotionId) {
+        afterCommit(() -> refresh(promotionId));
+    }
+
+    /**
+     * Cộng lượt dùng vào chỉ mục sau khi transaction tăng lượt dùng commit
+     */
+    public void recordUsageAfterCommit(Map<Long, Integer> usage) {
+        afterCommit(() -> {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            usage.forEach((promotionId, count) -> {
+                CompiledPromotion promotion = current.byId().get(promotionId);
+                if (promotion != null) {
+                    promotion.recordUsage(count);
+                }
+            });
+        });
+    }
+
+    /**
+     * Đăng ký hàm được gọi sau mỗi lần chỉ mục nạp lại khuyến mãi (toàn bộ hoặc 1 khuyến mãi)
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Nạp toàn bộ chỉ mục từ DB
+     */
+    public void rebuild() {
+        // Lấy dấu vết trước khi nạp: có ghi chen giữa thì lần đồng bộ sau vẫn thấy khác và nạp lại
+        String marker = readChangeMarker();
+        List<KhuyenMai> promotions = readTransaction.execute(status ->
+                khuyenMaiRepository.findIndexablePromotions(Status.ACTIVE, LocalDateTime.now()));
+
+        Map<Long, CompiledPromotion> byId = new HashMap<>();
+        for (KhuyenMai khuyenMai : Objects.requireNonNull(promotions)) {
+            byId.put(khuyenMai.getId(), CompiledPromotion.from(khuyenMai));
+        }
+
+        synchronized (this) {
+            snapshot = new Snapshot(byId);
+            lastChangeMarker = marker;
+        }
+        log.info("Promotion index rebuilt with {} promotions", byId.size());
+        notifyChanged();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // Không chặn khởi động - lần đọc đầu tiên sẽ nạp lại
+            log.warn("Could not build promotion index on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Phát hiện thay đổi từ node khác (hoặc ghi thẳng vào DB) và dọn khuyến mãi đã hết hạn
+     */
+    @Scheduled(fixedDelayString = "${app.promotion.index.sync-interval-ms:30000}")
+    public void syncWithDatabase() {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            if (!Objects.equals(readChangeMarker(), lastChangeMarker)) {
+                log.debug("Promotion tables changed - rebuilding promotion index");
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.warn("Promotion index sync failed: {}", e.getMessage());
+        }
+    }
+
+    void refresh(Long promotionId) {
+        if (snapshot == null) {
+            rebuild();
+            return;
+        }
+
+        KhuyenMai khuyenMai = readTransaction.execute(status ->
+                khuyenMaiRepository.findWithDetailsById(promotionId).orElse(null));
+        boolean indexable = khuyenMai != null
+                && khuyenMai.getTrangThai() == Status.ACTIVE
+                && !khuyenMai.getNgayKetThuc().isBefore(LocalDateTime.now());
+        CompiledPromotion compiled = indexable ? CompiledPromotion.from(khuyenMai) : null;
+
+        synchronized (this) {
+            Map<Long, CompiledPromotion> byId = new HashMap<>(snapshot.byId());
+            if (compiled != null) {
+                byId.put(promotionId, compiled);
+            } else {
+                byId.remove(promotionId);
+            }
+            snapshot = new Snapshot(byId);
+        }
+        log.debug("Promotion {} {} promotion index", promotionId, compiled != null ? "refreshed in" : "removed from");
+        notifyChanged();
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private String readChangeMarker() {
+        return readTransaction.execute(status -> {
+            KhuyenMaiRepository.ChangeMarker promotions = khuyenMaiRepository.findChangeMarker();
+            ChiTietKhuyenMaiRepository.ChangeMarker details = chiTietKhuyenMaiRepository.findChangeMarker();
+            return promotions.getTotal() + "|" + promotions.getLastUpdated()
+                    + "|" + details.getTotal() + "|" + details.getLastId();
+        });
+    }
+
+    private void notifyChanged() {
+        for (Runnable listener : changeListeners) {
+            runSafely(listener);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runSafely(action);
+                }
+            });
+        } else {
+            runSafely(action);
+        }
+    }
+
+    private static void runSafely(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            // Dữ liệu đã commit - chỉ mục sẽ được sửa ở lần đồng bộ định kỳ
+            log.warn("Promotion index update failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Trạng thái bất biến của chỉ mục; chế độ xem theo chi nhánh được dựng lười và dùng lại tới snapshot sau
+     */
+    private record Snapshot(Map<Long, CompiledPromotion> byId, Map<String, CompiledPromotion> byCode,
+                            ConcurrentMap<Long, CompiledPromotion[]> branchViews) {
+
+        Snapshot(Map<Long, CompiledPromotion> byId) {
+            this(Map.copyOf(byId), indexByCode(byId.values()), new ConcurrentHashMap<>());
+        }
+
+        private static Map<String, CompiledPromotion> indexByCode(Collection<CompiledPromotion> promotions) {
+            Map<String, CompiledPromotion> byCode = new HashMap<>(Math.max(16, promotions.size() * 2));
+            for (CompiledPromotion promotion : promotions) {
+                if (promotion.getMaKhuyenMai() != null) {
+                    byCode.put(promotion.getMaKhuyenMai(), promotion);
+                }
+            }
+            return Map.copyOf(byCode);
+        }
+
+        CompiledPromotion[] branchView(long chiNhanhId) {
+            return branchViews.computeIfAbsent(chiNhanhId, branch -> buildView(byId.values(), branch));
+        }
+
+        private static CompiledPromotion[] buildView(Collection<CompiledPromotion> promotions, long chiNhanhId) {
+            return promotions.stream()
+                    .filter(p -> p.getChiNhanhId() == null || p.getChiNhanhId() == chiNhanhId)
+                    .sorted(BY_VALIDITY_WINDOW)
+                    .toArray(CompiledPromotion[]::new);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.BestDiscountDTO;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.common.constant.PromotionType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chọn tổ hợp khuyến mãi giảm nhiều nhất cho 1 giỏ hàng - hàm thuần, không truy cập DB, không giữ trạng thái.
+ *
+ * Quy tắc kết hợp:
+ * - Khuyến mãi không cho phép kết hợp (choPhepKetHop = false) chỉ được áp dụng một mình
+ * - Khuyến mãi cho phép kết hợp: nhiều khuyến mãi theo sản phẩm (BOGO, BUNDLE, BUY_X_GET_Y)
+ *   + tối đa 1 khuyến mãi theo hóa đơn (PERCENTAGE, FIXED_AMOUNT)
+ * - Mỗi đơn vị hàng chỉ thuộc 1 khuyến mãi theo sản phẩm: BOGO dùng các cặp mua 1 tặng 1,
+ *   BUNDLE và BUY_X_GET_Y dùng cả dòng hàng - phần đã dùng không được tính lại cho khuyến mãi khác
+ * - Khuyến mãi theo hóa đơn tính trên số tiền còn lại sau khuyến mãi theo sản phẩm;
+ *   điều kiện giaTriToiThieu luôn so với tổng tiền gốc
+ * - Mức giảm của từng khuyến mãi tính đúng công thức của PromotionEvaluator (áp dụng một mình thì kết quả như nhau)
+ *
+ * Tìm kiếm nhánh-cận trên các khuyến mãi theo sản phẩm, sắp giảm dần theo mức giảm khi áp dụng một mình:
+ * nhánh đầu tiên chính là lời giải tham lam, nhánh nào không thể vượt kết quả tốt nhất thì bị cắt.
+ * Số nút bị giới hạn nên thời gian luôn bị chặn; vượt giới hạn thì trả tổ hợp tốt nhất đã tìm được.
+ *
+ * Tiền tính bằng long theo đơn vị 0,01 VNĐ (bằng scale của cột tiền) - không tạo BigDecimal trong vòng lặp
+ */
+public final class PromotionOptimizer {
+
+    // Đủ để duyệt hết mọi giỏ hàng thực tế; chỉ chạm tới khi rất nhiều khuyến mãi cùng tranh 1 nhóm sản phẩm
+    static final int MAX_SEARCH_NODES = 20_000;
+
+    private static final Comparator<Candidate> BY_STANDALONE_DISCOUNT = Comparator
+            .comparingLong((Candidate c) -> c.standalone).reversed()
+            .thenComparing(c -> c.promotion.getId(), Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private PromotionOptimizer() {
+    }
+
+    /**
+     * @param promotions khuyến mãi đang hiệu lực (thường lấy từ PromotionIndex)
+     * @return tổ hợp giảm nhiều nhất; danh sách rỗng nếu không khuyến mãi nào áp dụng được
+     */
+    public static BestDiscountDTO optimize(List<CompiledPromotion> promotions, List<CartItemDTO> cartItems,
+                                           BigDecimal totalAmount) {
+        Cart cart = Cart.of(cartItems);
+        long total = toCents(totalAmount);
+
+        // Khuyến mãi tốt nhất khi áp dụng một mình (kể cả loại kết hợp được) - tổ hợp phải giảm nhiều hơn hẳn
+        Candidate bestSingle = null;
+        List<Candidate> items = new ArrayList<>();
+        List<Candidate> orders = new ArrayList<>();
+
+        for (CompiledPromotion promotion : promotions) {
+            Candidate candidate = Candidate.of(promotion, cart, total);
+            if (candidate == null) {
+                continue;
+            }
+            if (bestSingle == null || BY_STANDALONE_DISCOUNT.compare(candidate, bestSingle) < 0) {
+                bestSingle = candidate;
+            }
+            if (promotion.isChoPhepKetHop()) {
+                (candidate.orderLevel ? orders : items).add(candidate);
+            }
+        }
+
+        items.sort(BY_STANDALONE_DISCOUNT);
+        orders.sort(BY_STANDALONE_DISCOUNT);
+
+        Search search = new Search(items.toArray(Candidate[]::new), orders.toArray(Candidate[]::new), cart, total,
+                bestSingle != null ? bestSingle.standalone : 0);
+        search.run(0, 0);
+
+        List<AppliedPromotionDTO> applied = search.found
+                ? search.replay()
+                : bestSingle != null ? List.of(toApplied(bestSingle.promotion, bestSingle.standalone, total)) : List.of();
+
+        long totalDiscount = 0;
+        for (AppliedPromotionDTO promotion : applied) {
+            totalDiscount += toCents(promotion.getDiscountAmount());
+        }
+
+        return BestDiscountDTO.builder()
+                .appliedPromotions(applied)
+                .totalDiscount(fromCents(totalDiscount))
+                .originalAmount(totalAmount)
+                .finalAmount(totalAmount.subtract(fromCents(totalDiscount)))
+                .exhaustive(!search.truncated)
+                .build();
+    }
+
+    private static boolean isOrderLevel(PromotionType type) {
+        return type == PromotionType.PERCENTAGE || type == PromotionType.FIXED_AMOUNT;
+    }
+
+    /**
+     * Mức giảm của khuyến mãi theo sản phẩm trên số lượng còn lại (đã trừ phần khuyến mãi khác dùng)
+     */
+    private static long itemDiscount(Candidate c, long[] price, int[] qty) {
+        long discount = 0;
+        switch (c.promotion.getLoaiKhuyenMai()) {
+            case BOGO:
+                for (int slot : c.slots) {
+                    if (qty[slot] >= 2) {
+                        discount += price[slot] * (qty[slot] / 2);
+                    }
+                }
+                break;
+
+            case BUY_X_GET_Y:
+                for (int slot : c.slots) {
+                    if (qty[slot] >= c.buyX) {
+                        int freeItems = Math.min((qty[slot] / c.buyX) * c.getY, qty[slot] - c.buyX);
+                        discount += price[slot] * freeItems;
+                    }
+                }
+                break;
+
+            case BUNDLE:
+                for (int slot : c.slots) {
+                    if (qty[slot] == 0) {
+                        return 0; // Thiếu 1 sản phẩm của combo
+                    }
+                    discount += price[slot] * qty[slot];
+                }
+                discount -= c.value; // value = giá combo
+                break;
+
+            default:
+                return 0;
+        }
+        return Math.min(discount, c.cap);
+    }
+
+    /**
+     * Đánh dấu phần hàng khuyến mãi đã dùng (chỉ gọi khi itemDiscount > 0)
+     */
+    private static void consume(Candidate c, int[] qty) {
+        for (int slot : c.slots) {
+            switch (c.promotion.getLoaiKhuyenMai()) {
+                case BOGO -> qty[slot] = qty[slot] % 2;
+                case BUY_X_GET_Y -> {
+                    if (qty[slot] > c.buyX) {
+                        qty[slot] = 0;
+                    }
+                }
+                default -> qty[slot] = 0;
+            }
+        }
+    }
+
+    private static long orderDiscount(Candidate c, long amount) {
+        long discount = c.promotion.getLoaiKhuyenMai() == PromotionType.PERCENTAGE
+                ? (amount * c.value + 5_000) / 10_000 // value = phần trăm x 100, làm tròn HALF_UP tới 0,01 VNĐ
+                : Math.min(c.value, amount);
+        return Math.max(0, Math.min(discount, c.cap));
+    }
+
+    private static AppliedPromotionDTO toApplied(CompiledPromotion promotion, long discount, long amountBefore) {
+        BigDecimal discountAmount = fromCents(discount);
+        BigDecimal originalAmount = fromCents(amountBefore);
+        return AppliedPromotionDTO.builder()
+                .promotionId(promotion.getId())
+                .maKhuyenMai(promotion.getMaKhuyenMai())
+                .tenKhuyenMai(promotion.getTenKhuyenMai())
+                .loaiKhuyenMai(promotion.getLoaiKhuyenMai())
+                .discountAmount(discountAmount)
+                .originalAmount(originalAmount)
+                .finalAmount(originalAmount.subtract(discountAmount))
+                .description(PromotionEvaluator.buildPromotionDescription(promotion, discountAmount))
+                .sanPhamIds(PromotionEvaluator.discountedProducts(promotion))
+                .build();
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Giỏ hàng dạng mảng: mỗi sản phẩm 1 vị trí (dòng đầu tiên của sản phẩm, giống PromotionEvaluator.indexCart)
+     */
+    private record Cart(Map<Long, Integer> slotOf, long[] price, int[] qty) {
+
+        static Cart of(List<CartItemDTO> cartItems) {
+            Map<Long, Integer> slotOf = new HashMap<>(Math.max(16, cartItems.size() * 2));
+            long[] price = new long[cartItems.size()];
+            int[] qty = new int[cartItems.size()];
+            for (CartItemDTO item : cartItems) {
+                if (item.getSanPhamId() == null || item.getSoLuong() == null || item.getDonGia() == null
+                        || slotOf.containsKey(item.getSanPhamId())) {
+                    continue;
+                }
+                int slot = slotOf.size();
+                slotOf.put(item.getSanPhamId(), slot);
+                price[slot] = toCents(item.getDonGia());
+                qty[slot] = item.getSoLuong();
+            }
+            return new Cart(slotOf, price, qty);
+        }
+    }
+
+    /**
+     * Khuyến mãi áp dụng được cho giỏ hàng, các tham số đã quy về long
+     */
+    private static final class Candidate {
+        final CompiledPromotion promotion;
+        final boolean orderLevel;
+        final int[] slots; // Vị trí trong giỏ của sản phẩm áp dụng (khuyến mãi theo sản phẩm)
+        final long value; // PERCENTAGE: phần trăm x 100; FIXED_AMOUNT: số tiền; BUNDLE: giá combo
+        final long cap; // giamToiDa
+        final int buyX;
+        final int getY;
+        long standalone; // Mức giảm khi áp dụng một mình trên cả giỏ hàng
+
+        private Candidate(CompiledPromotion promotion, int[] slots) {
+            this.promotion = promotion;
+            this.orderLevel = isOrderLevel(promotion.getLoaiKhuyenMai());
+            this.slots = slots;
+            this.value = toCents(promotion.getGiaTriKhuyenMai()); // Phần trăm cũng nhân 100: 12.5% -> 1250
+            this.cap = promotion.getGiamToiDa() != null ? toCents(promotion.getGiamToiDa()) : Long.MAX_VALUE;
+            this.buyX = promotion.getSoLuongMua() != null ? Math.max(1, promotion.getSoLuongMua()) : 1;
+            this.getY = promotion.getSoLuongTang() != null ? promotion.getSoLuongTang() : 1;
+        }
+
+        /**
+         * @return null nếu khuyến mãi không áp dụng được hoặc không giảm được gì
+         */
+        static Candidate of(CompiledPromotion promotion, Cart cart, long total) {
+            if (promotion.getLoaiKhuyenMai() == null) {
+                return null;
+            }
+            if (promotion.getGiaTriToiThieu() != null && total < toCents(promotion.getGiaTriToiThieu())) {
+                return null;
+            }
+
+            int[] slots = new int[promotion.getProductIds().length];
+            int found = 0;
+            for (long productId : promotion.getProductIds()) {
+                Integer slot = cart.slotOf().get(productId);
+                if (slot != null) {
+                    slots[found++] = slot;
+                } else if (promotion.getLoaiKhuyenMai() == PromotionType.BUNDLE) {
+                    return null; // Combo thiếu sản phẩm
+                }
+            }
+            if (!promotion.appliesToAllProducts() && found == 0) {
+                return null; // Không có sản phẩm áp dụng trong giỏ
+            }
+
+            boolean orderLevel = isOrderLevel(promotion.getLoaiKhuyenMai());
+            if (promotion.getGiaTriKhuyenMai() == null
+                    && (orderLevel || promotion.getLoaiKhuyenMai() == PromotionType.BUNDLE)) {
+                return null;
+            }
+
+            Candidate candidate = new Candidate(promotion, Arrays.copyOf(slots, found));
+            candidate.standalone = orderLevel
+                    ? orderDiscount(candidate, total)
+                    : itemDiscount(candidate, cart.price(), cart.qty());
+            return candidate.standalone > 0 ? candidate : null;
+        }
+    }
+
+    /**
+     * Trạng thái tìm kiếm nhánh-cận - chỉ dùng trong 1 lời gọi optimize
+     */
+    private static final class Search {
+        private final Candidate[] items;
+        private final Candidate[] orders;
+        private final long[] price;
+        private final int[] qty;
+        private final long total;
+        private final long[] suffix; // suffix[i] = tổng mức giảm một mình của items[i..]
+        private final long orderUpperBound;
+        private final int[] chosen;
+        private int depth;
+        private int nodes;
+
+        private long bestValue;
+        private int[] bestChosen;
+        private Candidate bestOrder;
+        boolean found;
+        boolean truncated;
+
+        Search(Candidate[] items, Candidate[] orders, Cart cart, long total, long lowerBound) {
+            this.items = items;
+            this.orders = orders;
+            this.price = cart.price();
+            this.qty = cart.qty().clone();
+            this.total = total;
+            this.suffix = new long[items.length + 1];
+            for (int i = items.length - 1; i >= 0; i--) {
+                suffix[i] = suffix[i + 1] + items[i].standalone;
+            }
+            // Mức giảm trên số tiền nhỏ hơn không vượt mức giảm trên cả hóa đơn -> cận trên hợp lệ
+            this.orderUpperBound = orders.length > 0 ? orders[0].standalone : 0;
+            this.chosen = new int[items.length];
+            this.bestValue = lowerBound;
+        }
+
+        void run(int i, long itemDiscount) {
+            // Cận trên: mức giảm khi áp dụng một mình không bao giờ nhỏ hơn khi phần hàng đã bị dùng bớt
+            if (itemDiscount + suffix[i] + orderUpperBound <= bestValue) {
+                return;
+            }
+            if (i == items.length || ++nodes > MAX_SEARCH_NODES) {
+                truncated |= i < items.length;
+                evaluateLeaf(itemDiscount);
+                return;
+            }
+
+            Candidate candidate = items[i];
+            long discount = itemDiscount(candidate, price, qty);
+            if (discount > 0) {
+                int[] saved = new int[candidate.slots.length];
+                for (int k = 0; k < saved.length; k++) {
+                    saved[k] = qty[candidate.slots[k]];
+                }
+                consume(candidate, qty);
+                chosen[depth++] = i;
+
+                run(i + 1, itemDiscount + discount);
+
+                depth--;
+                for (int k = 0; k < saved.length; k++) {
+                    qty[candidate.slots[k]] = saved[k];
+                }
+            }
+            run(i + 1, itemDiscount);
+        }
+
+        private void evaluateLeaf(long itemDiscount) {
+            long remaining = Math.max(0, total - itemDiscount);
+            long orderValue = 0;
+            Candidate order = null;
+            for (Candidate candidate : orders) {
+                if (candidate.standalone <= orderValue) {
+                    break; // Sắp giảm dần - các khuyến mãi sau không thể tốt hơn
+                }
+                long discount = orderDiscount(candidate, remaining);
+                if (discount > orderValue) {
+                    orderValue = discount;
+                    order = candidate;
+                }
+            }
+
+            if (itemDiscount + orderValue > bestValue) {
+                bestValue = itemDiscount + orderValue;
+                bestChosen = Arrays.copyOf(chosen, depth);
+                bestOrder = order;
+                found = true;
+            }
+        }
+
+        /**
+         * Áp dụng lại tổ hợp tốt nhất theo thứ tự để lấy số tiền trước/sau của từng khuyến mãi
+         */
+        List<AppliedPromotionDTO> replay() {
+            int[] remainingQty = qty.clone();
+            long amount = total;
+            List<AppliedPromotionDTO> applied = new ArrayList<>(bestChosen.length + 1);
+            for (int index : bestChosen) {
+                Candidate candidate = items[index];
+                long discount = itemDiscount(candidate, price, remainingQty);
+                consume(candidate, remainingQty);
+                applied.add(toApplied(candidate.promotion, discount, amount));
+                amount -= discount;
+            }
+            if (bestOrder != null) {
+                applied.add(toApplied(bestOrder.promotion, orderDiscount(bestOrder, Math.max(0, amount)), amount));
+            }
+            return applied;
+        }
+    }
+}
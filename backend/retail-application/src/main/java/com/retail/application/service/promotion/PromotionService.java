@@ -1,6 +1,7 @@
 package com.retail.application.service.promotion;
 
 import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.BestDiscountDTO;
 import com.retail.application.dto.CartItemDTO;
 import com.retail.application.dto.PromotionDTO;
 
@@ -75,6 +76,18 @@ public interface PromotionService {
             List<CartItemDTO> cartItems,
             BigDecimal totalAmount);
 
+    /**
+     * Tìm tổ hợp khuyến mãi đang hiệu lực giảm nhiều nhất cho giỏ hàng (theo quy tắc kết hợp của PromotionOptimizer)
+     * - thu ngân không phải thử từng mã. Khuyến mãi đã hết lượt (tổng hoặc của khách hàng) không được chọn
+     *
+     * @param khachHangId null = khách vãng lai (không xét giới hạn theo khách hàng)
+     */
+    BestDiscountDTO findBestDiscount(
+            Long chiNhanhId,
+            Long khachHangId,
+            List<CartItemDTO> cartItems,
+            BigDecimal totalAmount);
+
     /**
      * Vô hiệu hóa khuyến mãi
      */
@@ -92,7 +105,14 @@ public interface PromotionService {
 
     /**
      * Tăng số lần sử dụng cho các khuyến mãi đã được áp dụng
+     * (id lặp lại nhiều lần được tính là nhiều lượt dùng)
      */
     void incrementPromotionUsage(List<Long> promotionIds);
+
+    /**
+     * Trừ số lần sử dụng của các khuyến mãi thuộc hóa đơn đã thanh toán bị hủy
+     * (id lặp lại nhiều lần được tính là nhiều lượt dùng)
+     */
+    void releasePromotionUsage(List<Long> promotionIds);
 }
 
@@ -1,6 +1,7 @@
 package com.retail.application.service.promotion;
 
 import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.BestDiscountDTO;
 import com.retail.application.dto.CartItemDTO;
 import com.retail.application.dto.PromotionDTO;
 import com.retail.application.mapper.PromotionMapper;
@@ -24,7 +25,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -42,6 +42,10 @@ public class PromotionServiceImpl implements PromotionService {
     private final ChiNhanhRepository chiNhanhRepository;
     private final SanPhamRepository sanPhamRepository;
     private final PromotionMapper promotionMapper;
+    private final PromotionIndex promotionIndex;
+    private final ActivePromotionCache activePromotionCache;
+    private final CouponService couponService;
+    private final PromotionUsageService promotionUsageService;
 
     @Override
     @Transactional
@@ -86,6 +90,7 @@ public class PromotionServiceImpl implements PromotionService {
             saved = khuyenMaiRepository.save(saved);
         }
 
+        promotionIndex.refreshAfterCommit(saved.getId());
         log.info("Promotion created successfully with ID: {}", saved.getId());
         return promotionMapper.toDto(saved);
     }
@@ -120,6 +125,9 @@ public class PromotionServiceImpl implements PromotionService {
         existing.setSoLuongTang(dto.getSoLuongTang());
         existing.setSoLanSuDungToiDa(dto.getSoLanSuDungToiDa());
         existing.setTongSoLanSuDungToiDa(dto.getTongSoLanSuDungToiDa());
+        if (dto.getChoPhepKetHop() != null) {
+            existing.setChoPhepKetHop(dto.getChoPhepKetHop());
+        }
         
         // Update status (quan trọng: cho phép chuyển ACTIVE <-> INACTIVE)
         if (dto.getTrangThai() != null) {
@@ -157,6 +165,7 @@ public class PromotionServiceImpl implements PromotionService {
         }
 
         KhuyenMai updated = khuyenMaiRepository.save(existing);
+        promotionIndex.refreshAfterCommit(id);
         log.info("Promotion updated successfully: {}", id);
 
         return enrichPromotionDTO(promotionMapper.toDto(updated), updated);
@@ -164,7 +173,7 @@ public class PromotionServiceImpl implements PromotionService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "promotions", key = "#id", unless = "#result == null")
+    @Cacheable(value = "promotions", key = "#id", sync = true)
     public PromotionDTO findById(Long id) {
         log.info("Finding promotion by ID: {}", id);
         KhuyenMai entity = khuyenMaiRepository.findById(id)
@@ -174,7 +183,7 @@ public class PromotionServiceImpl implements PromotionService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "promotions", key = "'code:' + #maKhuyenMai", unless = "#result == null")
+    @Cacheable(value = "promotions", key = "'code:' + #maKhuyenMai", sync = true)
     public PromotionDTO findByCode(String maKhuyenMai) {
         log.info("Finding promotion by code: {}", maKhuyenMai);
         KhuyenMai entity = khuyenMaiRepository.findByMaKhuyenMai(maKhuyenMai)
@@ -182,17 +191,13 @@ public class PromotionServiceImpl implements PromotionService {
         return enrichPromotionDTO(promotionMapper.toDto(entity), entity);
     }
 
+    /**
+     * Không truy cập DB: đọc từ ActivePromotionCache (tự làm mới đúng lúc khuyến mãi bắt đầu/kết thúc)
+     */
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "promotions", key = "'branch:' + #chiNhanhId + ':' + T(java.time.LocalDateTime).now().toLocalDate()", unless = "#result.isEmpty()")
     public List<PromotionDTO> findActivePromotionsForBranch(Long chiNhanhId) {
-        log.info("Finding active promotions for branch: {}", chiNhanhId);
-        List<KhuyenMai> promotions = khuyenMaiRepository.findActivePromotionsForBranch(
-                Status.ACTIVE, chiNhanhId, LocalDateTime.now());
-        return promotions.stream()
-                .filter(KhuyenMai::isActive)
-                .map(entity -> enrichPromotionDTO(promotionMapper.toDto(entity), entity))
-                .collect(Collectors.toList());
+        log.debug("Finding active promotions for branch: {}", chiNhanhId);
+        return activePromotionCache.activePromotions(chiNhanhId);
     }
 
     @Override
@@ -205,8 +210,10 @@ public class PromotionServiceImpl implements PromotionService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Không truy cập DB: khuyến mãi lấy từ PromotionIndex (không mở transaction)
+     */
     @Override
-    @Transactional(readOnly = true)
     public Map<Long, AppliedPromotionDTO> applyPromotionsToCart(
             Long chiNhanhId, List<CartItemDTO> cartItems, BigDecimal totalAmount) {
 
@@ -215,21 +222,15 @@ public class PromotionServiceImpl implements PromotionService {
 
         Map<Long, AppliedPromotionDTO> appliedPromotions = new HashMap<>();
 
-        // Get active promotions for this branch
-        List<KhuyenMai> activePromotions = khuyenMaiRepository.findActivePromotionsForBranch(
-                Status.ACTIVE, chiNhanhId, LocalDateTime.now());
-
-        activePromotions = activePromotions.stream()
-                .filter(KhuyenMai::isActive)
-                .collect(Collectors.toList());
+        // Khuyến mãi đang hiệu lực của chi nhánh - "now" chỉ lấy 1 lần cho cả giỏ hàng
+        List<CompiledPromotion> activePromotions = promotionIndex.activePromotions(chiNhanhId, LocalDateTime.now());
 
         // Group cart items by product ID for easier processing
-        Map<Long, CartItemDTO> cartItemMap = cartItems.stream()
-                .collect(Collectors.toMap(CartItemDTO::getSanPhamId, item -> item, (a, b) -> a));
+        Map<Long, CartItemDTO> cartItemMap = PromotionEvaluator.indexCart(cartItems);
 
         // Apply promotions
-        for (KhuyenMai promotion : activePromotions) {
-            AppliedPromotionDTO applied = applyPromotion(promotion, cartItems, totalAmount, cartItemMap);
+        for (CompiledPromotion promotion : activePromotions) {
+            AppliedPromotionDTO applied = PromotionEvaluator.evaluate(promotion, cartItems, totalAmount, cartItemMap);
             if (applied != null && applied.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0) {
                 // Use promotion ID as key, or create a composite key if needed
                 appliedPromotions.put(promotion.getId(), applied);
@@ -240,7 +241,6 @@ public class PromotionServiceImpl implements PromotionService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public BigDecimal calculateDiscount(Long chiNhanhId, List<CartItemDTO> cartItems, BigDecimal totalAmount) {
         Map<Long, AppliedPromotionDTO> appliedPromotions = applyPromotionsToCart(chiNhanhId, cartItems, totalAmount);
         return appliedPromotions.values().stream()
@@ -248,6 +248,46 @@ public class PromotionServiceImpl implements PromotionService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
+    /**
+     * Khuyến mãi lấy từ PromotionIndex, tổ hợp chọn bởi PromotionOptimizer.
+     * Chỉ truy cập DB khi có khuyến mãi giới hạn lượt dùng: loại khuyến mãi đã hết lượt trước khi tìm,
+     * để tổ hợp được chọn không bị reserve từ chối lúc checkout
+     */
+    @Override
+    public BestDiscountDTO findBestDiscount(Long chiNhanhId, Long khachHangId, List<CartItemDTO> cartItems,
+                                            BigDecimal totalAmount) {
+        log.info("Finding best promotion combination - Branch: {}, Items: {}, Total: {}",
+                chiNhanhId, cartItems.size(), totalAmount);
+
+        List<CompiledPromotion> activePromotions = withoutExhausted(
+                promotionIndex.activePromotions(chiNhanhId, LocalDateTime.now()), khachHangId);
+        BestDiscountDTO best = PromotionOptimizer.optimize(activePromotions, cartItems, totalAmount);
+
+        if (!Boolean.TRUE.equals(best.getExhaustive())) {
+            log.warn("Promotion search budget exhausted for branch {} ({} active promotions) - returning best found",
+                    chiNhanhId, activePromotions.size());
+        }
+        return best;
+    }
+
+    private List<CompiledPromotion> withoutExhausted(List<CompiledPromotion> promotions, Long khachHangId) {
+        List<Long> limited = promotions.stream()
+                .filter(p -> p.getTongSoLanSuDungToiDa() != null
+                        || (khachHangId != null && p.getSoLanSuDungToiDa() != null))
+                .map(CompiledPromotion::getId)
+                .toList();
+        if (limited.isEmpty()) {
+            return promotions;
+        }
+        Set<Long> unavailable = promotionUsageService.findUnavailable(limited, khachHangId);
+        if (unavailable.isEmpty()) {
+            return promotions;
+        }
+        return promotions.stream()
+                .filter(p -> !unavailable.contains(p.getId()))
+                .toList();
+    }
+
     @Override
     @Transactional
     @CacheEvict(value = "promotions", allEntries = true)
@@ -257,6 +297,7 @@ public class PromotionServiceImpl implements PromotionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Khuyến mãi", id));
         entity.setTrangThai(Status.INACTIVE);
         khuyenMaiRepository.save(entity);
+        promotionIndex.refreshAfterCommit(id);
     }
 
     @Override
@@ -268,6 +309,7 @@ public class PromotionServiceImpl implements PromotionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Khuyến mãi", id));
         entity.setTrangThai(Status.ACTIVE);
         khuyenMaiRepository.save(entity);
+        promotionIndex.refreshAfterCommit(id);
     }
 
     @Override
@@ -278,31 +320,65 @@ public class PromotionServiceImpl implements PromotionService {
         KhuyenMai entity = khuyenMaiRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Khuyến mãi", id));
         khuyenMaiRepository.delete(entity);
+        promotionIndex.refreshAfterCommit(id);
     }
 
+    /**
+     * Không xóa cache "promotions": soLanDaSuDung trong DTO đã cache chỉ để hiển thị (tối đa 15 phút),
+     * giới hạn lượt dùng do PromotionUsageService đảm bảo
+     */
     @Override
     @Transactional
-    @CacheEvict(value = "promotions", allEntries = true)
     public void incrementPromotionUsage(List<Long> promotionIds) {
         if (promotionIds == null || promotionIds.isEmpty()) {
             return;
         }
 
-        log.info("Incrementing usage for {} promotions", promotionIds.size());
+        // 1 id xuất hiện nhiều lần = nhiều lượt dùng (outbox gom cả lô hóa đơn lại) -> 1 UPDATE mỗi khuyến mãi
+        Map<Long, Integer> usage = countUsage(promotionIds);
+
+        log.info("Incrementing usage for {} promotions", usage.size());
 
+        Map<Long, Integer> recorded = new LinkedHashMap<>();
+        usage.forEach((promotionId, count) -> {
+            // Khuyến mãi không tồn tại -> UPDATE không ảnh hưởng dòng nào, bỏ qua
+            if (khuyenMaiRepository.incrementUsage(promotionId, count) > 0) {
+                recorded.put(promotionId, count);
+                log.info("Incremented usage for promotion {} by {}", promotionId, count);
+            }
+        });
+        promotionIndex.recordUsageAfterCommit(recorded);
+    }
+
+    @Override
+    @Transactional
+    public void releasePromotionUsage(List<Long> promotionIds) {
+        if (promotionIds == null || promotionIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> usage = countUsage(promotionIds);
+
+        log.info("Releasing usage for {} promotions", usage.size());
+
+        Map<Long, Integer> recorded = new LinkedHashMap<>();
+        usage.forEach((promotionId, count) -> {
+            if (khuyenMaiRepository.decrementUsage(promotionId, count) > 0) {
+                recorded.put(promotionId, -count);
+                log.info("Released usage for promotion {} by {}", promotionId, count);
+            }
+        });
+        promotionIndex.recordUsageAfterCommit(recorded);
+    }
+
+    private static Map<Long, Integer> countUsage(List<Long> promotionIds) {
+        Map<Long, Integer> usage = new LinkedHashMap<>();
         for (Long promotionId : promotionIds) {
-            KhuyenMai promotion = khuyenMaiRepository.findById(promotionId)
-                    .orElse(null); // Skip if promotion not found
-
-            if (promotion != null) {
-                promotion.incrementUsage();
-                khuyenMaiRepository.save(promotion);
-                log.info("Incremented usage for promotion {}: {} / {}",
-                        promotion.getMaKhuyenMai(),
-                        promotion.getSoLanDaSuDung(),
-                        promotion.getTongSoLanSuDungToiDa());
+            if (promotionId != null) {
+                usage.merge(promotionId, 1, Integer::sum);
             }
         }
+        return usage;
     }
 
     /**
@@ -319,6 +395,28 @@ public class PromotionServiceImpl implements PromotionService {
         log.info("Applying promotion by code: {} - Branch: {}, Total: {}", 
                 maKhuyenMai, chiNhanhId, totalAmount);
 
+        // Khuyến mãi đang ACTIVE nằm sẵn trong chỉ mục - kiểm tra trong bộ nhớ, không truy cập DB
+        CompiledPromotion indexed = promotionIndex.findByCode(maKhuyenMai);
+        if (indexed != null) {
+            return validateAndEvaluate(indexed, maKhuyenMai, chiNhanhId, cartItems, totalAmount);
+        }
+
+        // Mã giảm giá dùng 1 lần (XXXX-XXXX-XXXX) - null nếu chuỗi không có dạng mã giảm giá
+        Long couponPromotionId = couponService.findPromotionId(maKhuyenMai);
+        if (couponPromotionId != null) {
+            CompiledPromotion promotion = promotionIndex.find(couponPromotionId);
+            if (promotion == null) {
+                throw new BusinessException(ErrorCode.BAD_REQUEST,
+                        "Khuyến mãi của mã giảm giá không còn hiệu lực: " + maKhuyenMai);
+            }
+            AppliedPromotionDTO applied = validateAndEvaluate(
+                    promotion, maKhuyenMai, chiNhanhId, cartItems, totalAmount);
+            if (applied != null) {
+                applied.setMaGiamGia(CouponCodes.format(CouponCodes.parse(maKhuyenMai)));
+            }
+            return applied;
+        }
+
         // Tìm promotion theo mã
         KhuyenMai promotion = khuyenMaiRepository.findByMaKhuyenMai(maKhuyenMai)
                 .orElseThrow(() -> new ResourceNotFoundException("Khuyến mãi", maKhuyenMai));
@@ -329,6 +427,19 @@ public class PromotionServiceImpl implements PromotionService {
                     "Khuyến mãi không đang hoạt động: " + maKhuyenMai);
         }
 
+        return validateAndEvaluate(CompiledPromotion.from(promotion), maKhuyenMai, chiNhanhId, cartItems, totalAmount);
+    }
+
+    /**
+     * Kiểm tra thời gian, chi nhánh, số lần sử dụng rồi áp dụng khuyến mãi lên giỏ hàng
+     */
+    private static AppliedPromotionDTO validateAndEvaluate(
+            CompiledPromotion promotion,
+            String maKhuyenMai,
+            Long chiNhanhId,
+            List<CartItemDTO> cartItems,
+            BigDecimal totalAmount) {
+
         // Kiểm tra thời gian hiệu lực
         LocalDateTime now = LocalDateTime.now();
         if (now.isBefore(promotion.getNgayBatDau()) || now.isAfter(promotion.getNgayKetThuc())) {
@@ -337,226 +448,29 @@ public class PromotionServiceImpl implements PromotionService {
         }
 
         // Kiểm tra chi nhánh (nếu promotion có giới hạn chi nhánh)
-        if (promotion.getChiNhanh() != null && !promotion.getChiNhanh().getId().equals(chiNhanhId)) {
+        if (promotion.getChiNhanhId() != null && !promotion.getChiNhanhId().equals(chiNhanhId)) {
             throw new BusinessException(ErrorCode.BAD_REQUEST, 
                     "Khuyến mãi không áp dụng cho chi nhánh này: " + maKhuyenMai);
         }
 
-        // Kiểm tra số lần sử dụng (nếu có giới hạn)
-        if (promotion.getTongSoLanSuDungToiDa() != null) {
-            if (promotion.getSoLanDaSuDung() >= promotion.getTongSoLanSuDungToiDa()) {
-                throw new BusinessException(ErrorCode.BAD_REQUEST, 
-                        "Khuyến mãi đã hết số lần sử dụng: " + maKhuyenMai);
-            }
+        // Kiểm tra nhanh số lần sử dụng (nếu có giới hạn) - giới hạn thật sự được đảm bảo khi checkout
+        // giữ chỗ lượt dùng qua PromotionUsageService
+        if (promotion.isUsageExhausted()) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, 
+                    "Khuyến mãi đã hết số lần sử dụng: " + maKhuyenMai);
         }
 
         // Group cart items by product ID
-        Map<Long, CartItemDTO> cartItemMap = cartItems.stream()
-                .collect(Collectors.toMap(CartItemDTO::getSanPhamId, item -> item, (a, b) -> a));
+        Map<Long, CartItemDTO> cartItemMap = PromotionEvaluator.indexCart(cartItems);
 
         // Áp dụng promotion
-        return applyPromotion(promotion, cartItems, totalAmount, cartItemMap);
-    }
-
-    /**
-     * Apply a single promotion to cart items
-     */
-    private AppliedPromotionDTO applyPromotion(KhuyenMai promotion, List<CartItemDTO> cartItems,
-                                               BigDecimal totalAmount, Map<Long, CartItemDTO> cartItemMap) {
-
-        // Check minimum amount requirement
-        if (promotion.getGiaTriToiThieu() != null &&
-                totalAmount.compareTo(promotion.getGiaTriToiThieu()) < 0) {
-            return null; // Promotion doesn't apply
-        }
-
-        // Check if promotion applies to any products in cart
-        List<Long> applicableProductIds = getApplicableProductIds(promotion);
-        if (applicableProductIds != null && !applicableProductIds.isEmpty()) {
-            // Promotion applies to specific products
-            boolean hasApplicableProduct = cartItems.stream()
-                    .anyMatch(item -> applicableProductIds.contains(item.getSanPhamId()));
-            if (!hasApplicableProduct) {
-                return null; // No applicable products in cart
-            }
-        }
-
-        BigDecimal discountAmount = BigDecimal.ZERO;
-        BigDecimal applicableAmount = totalAmount;
-
-        // Calculate discount based on promotion type
-        switch (promotion.getLoaiKhuyenMai()) {
-            case PERCENTAGE:
-                discountAmount = calculatePercentageDiscount(promotion, applicableAmount);
-                break;
-
-            case FIXED_AMOUNT:
-                discountAmount = promotion.getGiaTriKhuyenMai();
-                if (discountAmount.compareTo(applicableAmount) > 0) {
-                    discountAmount = applicableAmount;
-                }
-                break;
-
-            case BOGO:
-                discountAmount = calculateBOGODiscount(promotion, cartItems, cartItemMap);
-                break;
-
-            case BUNDLE:
-                discountAmount = calculateBundleDiscount(promotion, cartItems, cartItemMap);
-                break;
-
-            case BUY_X_GET_Y:
-                discountAmount = calculateBuyXGetYDiscount(promotion, cartItems, cartItemMap);
-                break;
-
-            default:
-                return null;
-        }
-
-        // Apply maximum discount limit
-        if (promotion.getGiamToiDa() != null && discountAmount.compareTo(promotion.getGiamToiDa()) > 0) {
-            discountAmount = promotion.getGiamToiDa();
-        }
-
-        if (discountAmount.compareTo(BigDecimal.ZERO) <= 0) {
-            return null;
-        }
-
-        return AppliedPromotionDTO.builder()
-                .promotionId(promotion.getId())
-                .maKhuyenMai(promotion.getMaKhuyenMai())
-                .tenKhuyenMai(promotion.getTenKhuyenMai())
-                .loaiKhuyenMai(promotion.getLoaiKhuyenMai())
-                .discountAmount(discountAmount)
-                .originalAmount(applicableAmount)
-                .finalAmount(applicableAmount.subtract(discountAmount))
-                .description(buildPromotionDescription(promotion, discountAmount))
-                .build();
-    }
-
-    private BigDecimal calculatePercentageDiscount(KhuyenMai promotion, BigDecimal amount) {
-        BigDecimal percentage = promotion.getGiaTriKhuyenMai();
-        BigDecimal discount = amount.multiply(percentage).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-        return discount;
-    }
-
-    private BigDecimal calculateBOGODiscount(KhuyenMai promotion, List<CartItemDTO> cartItems,
-                                            Map<Long, CartItemDTO> cartItemMap) {
-        // BOGO: Buy 1 Get 1 - free cheapest item
-        List<Long> applicableProductIds = getApplicableProductIds(promotion);
-        if (applicableProductIds == null || applicableProductIds.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal totalDiscount = BigDecimal.ZERO;
-
-        for (Long productId : applicableProductIds) {
-            CartItemDTO item = cartItemMap.get(productId);
-            if (item != null && item.getSoLuong() >= 2) {
-                // For BOGO, give free item = cheapest item price
-                int freeItems = item.getSoLuong() / 2;
-                BigDecimal itemPrice = item.getDonGia();
-                totalDiscount = totalDiscount.add(itemPrice.multiply(BigDecimal.valueOf(freeItems)));
-            }
-        }
-
-        return totalDiscount;
-    }
-
-    private BigDecimal calculateBundleDiscount(KhuyenMai promotion, List<CartItemDTO> cartItems,
-                                              Map<Long, CartItemDTO> cartItemMap) {
-        // Bundle: Buy specific products together for special price
-        // This is a simplified implementation - can be enhanced
-        List<Long> applicableProductIds = getApplicableProductIds(promotion);
-        if (applicableProductIds == null || applicableProductIds.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        // Check if all bundle products are in cart
-        boolean hasAllProducts = applicableProductIds.stream()
-                .allMatch(cartItemMap::containsKey);
-
-        if (!hasAllProducts) {
-            return BigDecimal.ZERO;
-        }
-
-        // Calculate bundle discount
-        BigDecimal bundlePrice = promotion.getGiaTriKhuyenMai(); // Bundle price
-        BigDecimal originalTotal = applicableProductIds.stream()
-                .map(cartItemMap::get)
-                .map(item -> item.getDonGia().multiply(BigDecimal.valueOf(item.getSoLuong())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return originalTotal.subtract(bundlePrice);
-    }
-
-    private BigDecimal calculateBuyXGetYDiscount(KhuyenMai promotion, List<CartItemDTO> cartItems,
-                                                 Map<Long, CartItemDTO> cartItemMap) {
-        List<Long> applicableProductIds = getApplicableProductIds(promotion);
-        if (applicableProductIds == null || applicableProductIds.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal totalDiscount = BigDecimal.ZERO;
-        Integer buyX = promotion.getSoLuongMua() != null ? promotion.getSoLuongMua() : 1;
-        Integer getY = promotion.getSoLuongTang() != null ? promotion.getSoLuongTang() : 1;
-
-        for (Long productId : applicableProductIds) {
-            CartItemDTO item = cartItemMap.get(productId);
-            if (item != null && item.getSoLuong() >= buyX) {
-                int freeSets = item.getSoLuong() / buyX;
-                int freeItems = freeSets * getY;
-                BigDecimal itemPrice = item.getDonGia();
-                // Only discount up to purchased quantity
-                int actualFreeItems = Math.min(freeItems, item.getSoLuong() - buyX);
-                totalDiscount = totalDiscount.add(itemPrice.multiply(BigDecimal.valueOf(actualFreeItems)));
-            }
-        }
-
-        return totalDiscount;
-    }
-
-    private List<Long> getApplicableProductIds(KhuyenMai promotion) {
-        if (promotion.getChiTietKhuyenMais() == null || promotion.getChiTietKhuyenMais().isEmpty()) {
-            return null; // Applies to all products
-        }
-
-        return promotion.getChiTietKhuyenMais().stream()
-                .filter(ct -> ct.getApDung() != null && ct.getApDung())
-                .map(ct -> ct.getSanPham().getId())
-                .collect(Collectors.toList());
-    }
-
-    private String buildPromotionDescription(KhuyenMai promotion, BigDecimal discountAmount) {
-        switch (promotion.getLoaiKhuyenMai()) {
-            case PERCENTAGE:
-                return String.format("Giảm %s%% - Tiết kiệm %s VNĐ",
-                        promotion.getGiaTriKhuyenMai(), formatCurrency(discountAmount));
-            case FIXED_AMOUNT:
-                return String.format("Giảm %s VNĐ",
-                        formatCurrency(discountAmount));
-            case BOGO:
-                return String.format("Mua 1 tặng 1 - Tiết kiệm %s VNĐ",
-                        formatCurrency(discountAmount));
-            case BUNDLE:
-                return String.format("Combo giảm giá - Tiết kiệm %s VNĐ",
-                        formatCurrency(discountAmount));
-            case BUY_X_GET_Y:
-                return String.format("Mua %s tặng %s - Tiết kiệm %s VNĐ",
-                        promotion.getSoLuongMua(), promotion.getSoLuongTang(), formatCurrency(discountAmount));
-            default:
-                return "Khuyến mãi áp dụng";
-        }
-    }
-
-    private String formatCurrency(BigDecimal amount) {
-        return amount.setScale(0, RoundingMode.HALF_UP).toString();
+        return PromotionEvaluator.evaluate(promotion, cartItems, totalAmount, cartItemMap);
     }
 
     /**
      * Enrich PromotionDTO with computed fields (isActive, sanPhamIds)
      */
-    private PromotionDTO enrichPromotionDTO(PromotionDTO dto, KhuyenMai entity) {
+    static PromotionDTO enrichPromotionDTO(PromotionDTO dto, KhuyenMai entity) {
         if (dto == null) {
             return null;
         }
@@ -0,0 +1,16 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.PromotionDTO;
+import com.retail.application.dto.PromotionSimulationDTO;
+
+/**
+ * Interface service mô phỏng khuyến mãi - Ước tính chi phí của khuyến mãi nháp trên dữ liệu bán hàng đã có
+ */
+public interface PromotionSimulationService {
+
+    /**
+     * Áp khuyến mãi nháp (chưa lưu) lên các hóa đơn đã hoàn tất trong {@code weeks} tuần gần nhất
+     * (của chi nhánh trong khuyến mãi, hoặc mọi chi nhánh)
+     */
+    PromotionSimulationDTO simulate(PromotionDTO draft, int weeks);
+}
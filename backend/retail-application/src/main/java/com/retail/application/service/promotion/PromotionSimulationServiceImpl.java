@@ -0,0 +1,234 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.concurrent.BoundedChunkExecutor;
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.application.dto.PromotionDTO;
+import com.retail.application.dto.PromotionSimulationDTO;
+import com.retail.application.mapper.PromotionMapper;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.ChiTietKhuyenMai;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.SanPham;
+import com.retail.persistence.repository.HoaDonRepository;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.InvoiceLines;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.Line;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mô phỏng khuyến mãi nháp trên hóa đơn cũ.
+ *
+ * - Hóa đơn đọc bằng 1 câu SELECT dạng stream, gom theo khối (HoaDonRepository.streamCompletedInvoiceLines)
+ * - Mỗi khối được tính song song trên pool riêng (BoundedChunkExecutor - chia đôi tới ngưỡng rồi tính tuần tự);
+ *   số khối đang chờ tính bị giới hạn nên heap chỉ giữ vài khối cùng lúc dù có hàng triệu dòng
+ * - Giảm giá tính bằng PromotionEvaluator - cùng code với applyPromotionByCode/applyPromotionsToCart
+ *
+ * Không áp giới hạn số lần sử dụng và khoảng thời gian của khuyến mãi nháp; giá vốn lấy theo giá nhập hiện tại
+ */
+@Service
+@Slf4j
+public class PromotionSimulationServiceImpl implements PromotionSimulationService {
+
+    private static final int MAX_WEEKS = 52;
+    // Dưới ngưỡng này tính tuần tự - chia nhỏ hơn thì chi phí fork lớn hơn phần việc
+    private static final int SEQUENTIAL_THRESHOLD = 256;
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private final HoaDonRepository hoaDonRepository;
+    private final PromotionMapper promotionMapper;
+    private final BoundedChunkExecutor chunkExecutor;
+    private final int chunkSize;
+
+    public PromotionSimulationServiceImpl(HoaDonRepository hoaDonRepository,
+                                          PromotionMapper promotionMapper,
+                                          @Value("${app.promotion.simulation.chunk-size:2000}") int chunkSize,
+                                          @Value("${app.promotion.simulation.parallelism:0}") int parallelism) {
+        this.hoaDonRepository = hoaDonRepository;
+        this.promotionMapper = promotionMapper;
+        this.chunkExecutor = new BoundedChunkExecutor("Promotion simulation", parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chunkExecutor.shutdown();
+    }
+
+    @Override
+    public PromotionSimulationDTO simulate(PromotionDTO draft, int weeks) {
+        if (weeks < 1 || weeks > MAX_WEEKS) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST,
+                    "Số tuần mô phỏng phải từ 1 đến " + MAX_WEEKS);
+        }
+        if (draft == null || draft.getLoaiKhuyenMai() == null) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Thiếu loại khuyến mãi cần mô phỏng");
+        }
+
+        long started = System.nanoTime();
+        CompiledPromotion promotion = compileDraft(draft);
+        LocalDateTime toDate = LocalDateTime.now();
+        LocalDateTime fromDate = toDate.minusWeeks(weeks);
+        log.info("Simulating promotion {} over {} weeks (branch {})", draft.getMaKhuyenMai(), weeks, draft.getChiNhanhId());
+
+        SimulationTotals totals = new SimulationTotals();
+        chunkExecutor.<List<InvoiceLines>>run(
+                dispatch -> hoaDonRepository.streamCompletedInvoiceLines(
+                        draft.getChiNhanhId(), fromDate, toDate, chunkSize, dispatch),
+                chunk -> totals.merge(new ChunkTask(promotion, chunk, 0, chunk.size()).invoke()));
+
+        PromotionSimulationDTO result = totals.toDto(fromDate, toDate,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        log.info("Promotion simulation done: {} invoices, {} affected, discount {} in {} ms",
+                result.getTotalInvoices(), result.getAffectedInvoices(), result.getTotalDiscount(), result.getDurationMs());
+        return result;
+    }
+
+    /**
+     * Dựng CompiledPromotion từ khuyến mãi nháp như khi tạo thật (create), không truy cập DB
+     */
+    private CompiledPromotion compileDraft(PromotionDTO draft) {
+        KhuyenMai khuyenMai = promotionMapper.toEntity(draft);
+        if (draft.getChiNhanhId() != null) {
+            khuyenMai.setChiNhanh(ChiNhanh.builder().id(draft.getChiNhanhId()).build());
+        }
+        if (draft.getSanPhamIds() != null) {
+            for (Long sanPhamId : draft.getSanPhamIds()) {
+                khuyenMai.addChiTiet(ChiTietKhuyenMai.builder()
+                        .sanPham(SanPham.builder().id(sanPhamId).build())
+                        .apDung(true)
+                        .build());
+            }
+        }
+        return CompiledPromotion.from(khuyenMai);
+    }
+
+    /**
+     * Tính 1 đoạn [from, to) của khối: chia đôi tới ngưỡng rồi tính tuần tự
+     */
+    private static final class ChunkTask extends RecursiveTask<SimulationTotals> {
+        private final CompiledPromotion promotion;
+        private final List<InvoiceLines> invoices;
+        private final int from;
+        private final int to;
+
+        ChunkTask(CompiledPromotion promotion, List<InvoiceLines> invoices, int from, int to) {
+            this.promotion = promotion;
+            this.invoices = invoices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationTotals compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                SimulationTotals totals = new SimulationTotals();
+                for (int i = from; i < to; i++) {
+                    evaluate(promotion, invoices.get(i), totals);
+                }
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(promotion, invoices, from, middle);
+            left.fork();
+            SimulationTotals right = new ChunkTask(promotion, invoices, middle, to).compute();
+            SimulationTotals totals = left.join();
+            totals.merge(right);
+            return totals;
+        }
+    }
+
+    static void evaluate(CompiledPromotion promotion, InvoiceLines invoice, SimulationTotals totals) {
+        List<CartItemDTO> cartItems = new ArrayList<>(invoice.lines().size());
+        BigDecimal cost = BigDecimal.ZERO;
+        for (Line line : invoice.lines()) {
+            cartItems.add(CartItemDTO.builder()
+                    .sanPhamId(line.sanPhamId())
+                    .soLuong(line.soLuong())
+                    .donGia(line.donGia())
+                    .build());
+            if (line.giaNhap() != null) {
+                cost = cost.add(line.giaNhap().multiply(BigDecimal.valueOf(line.soLuong())));
+            }
+        }
+
+        AppliedPromotionDTO applied = PromotionEvaluator.evaluate(promotion, cartItems, invoice.tongTien(),
+                PromotionEvaluator.indexCart(cartItems));
+        totals.add(invoice.tongTien(), cost, applied != null ? applied.getDiscountAmount() : null,
+                invoice.lines().size());
+    }
+
+    /**
+     * Cộng dồn kết quả - mỗi task có bản riêng, chỉ merge ở cuối (synchronized)
+     */
+    static final class SimulationTotals {
+        private long invoices;
+        private long affectedInvoices;
+        private long lines;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private BigDecimal discount = BigDecimal.ZERO;
+
+        void add(BigDecimal invoiceRevenue, BigDecimal invoiceCost, BigDecimal invoiceDiscount, int lineCount) {
+            invoices++;
+            lines += lineCount;
+            revenue = revenue.add(invoiceRevenue);
+            cost = cost.add(invoiceCost);
+            if (invoiceDiscount != null) {
+                affectedInvoices++;
+                discount = discount.add(invoiceDiscount);
+            }
+        }
+
+        synchronized void merge(SimulationTotals other) {
+            invoices += other.invoices;
+            affectedInvoices += other.affectedInvoices;
+            lines += other.lines;
+            revenue = revenue.add(other.revenue);
+            cost = cost.add(other.cost);
+            discount = discount.add(other.discount);
+        }
+
+        synchronized PromotionSimulationDTO toDto(LocalDateTime fromDate, LocalDateTime toDate, long durationMs) {
+            BigDecimal marginBefore = revenue.subtract(cost);
+            BigDecimal marginAfter = marginBefore.subtract(discount);
+            BigDecimal rateBefore = rate(marginBefore, revenue);
+            BigDecimal rateAfter = rate(marginAfter, revenue.subtract(discount));
+            return PromotionSimulationDTO.builder()
+                    .fromDate(fromDate)
+                    .toDate(toDate)
+                    .totalInvoices(invoices)
+                    .affectedInvoices(affectedInvoices)
+                    .totalLines(lines)
+                    .totalRevenue(revenue)
+                    .totalDiscount(discount)
+                    .totalCost(cost)
+                    .grossMarginBefore(marginBefore)
+                    .grossMarginAfter(marginAfter)
+                    .marginRateBefore(rateBefore)
+                    .marginRateAfter(rateAfter)
+                    .marginImpact(rateAfter.subtract(rateBefore))
+                    .durationMs(durationMs)
+                    .build();
+        }
+
+        private static BigDecimal rate(BigDecimal margin, BigDecimal base) {
+            if (base.signum() == 0) {
+                return BigDecimal.ZERO;
+            }
+            return margin.multiply(ONE_HUNDRED).divide(base, 2, RoundingMode.HALF_UP);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.retail.application.service.promotion;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Interface service giữ chỗ lượt dùng khuyến mãi - Đảm bảo không vượt giới hạn tổng và giới hạn mỗi khách hàng
+ */
+public interface PromotionUsageService {
+
+    /**
+     * Giữ chỗ 1 lượt dùng cho mỗi khuyến mãi (id lặp lại = nhiều lượt) - gọi trong transaction của checkout.
+     * Transaction rollback thì lượt đã giữ được trả lại; vượt giới hạn thì ném BusinessException
+     * và không giữ lượt nào
+     *
+     * @param khachHangId null = khách vãng lai (không áp giới hạn theo khách hàng)
+     */
+    void reserve(List<Long> promotionIds, Long khachHangId);
+
+    /**
+     * Trả lại lượt dùng theo khách hàng của hóa đơn đã thanh toán bị hủy - gọi trong transaction hủy hóa đơn.
+     * Số lần đã dùng tổng được trừ qua outbox (INVOICE_CANCELLED, xem PromotionService.releasePromotionUsage)
+     *
+     * @param khachHangId null = khách vãng lai (không có gì để trả)
+     */
+    void release(List<Long> promotionIds, Long khachHangId);
+
+    /**
+     * Khuyến mãi không còn dùng thêm được 1 lượt (hết lượt tổng hoặc khách hàng đã dùng đủ) - chỉ đọc, không giữ chỗ.
+     * Dùng để loại trước khi chọn tổ hợp khuyến mãi; reserve vẫn là bước kiểm tra cuối cùng
+     *
+     * @param khachHangId null = khách vãng lai (không xét giới hạn theo khách hàng)
+     */
+    Set<Long> findUnavailable(Collection<Long> promotionIds, Long khachHangId);
+
+    /**
+     * Trả lại DB các lượt đã giữ chỗ trong bộ nhớ nhưng lâu không dùng tới (để node khác dùng)
+     */
+    void returnIdleReservations();
+}
@@ -0,0 +1,354 @@
+package com.retail.application.service.promotion;
+
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import com.retail.domain.entity.KhuyenMaiKhachHang;
+import com.retail.persistence.repository.KhuyenMaiKhachHangRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Giữ chỗ lượt dùng khuyến mãi theo block (cùng cách với DocumentNumberServiceImpl).
+ *
+ * Giới hạn tổng (tongSoLanSuDungToiDa):
+ * - Mỗi node giữ chỗ 1 block lượt dùng trên DB bằng 1 UPDATE có điều kiện trong transaction riêng
+ *   (so_lan_da_su_dung + so_lan_giu_cho + block <= giới hạn) - row lock chỉ giữ trong vài ms, không suốt checkout
+ * - Lượt trong block phát ra từ bộ nhớ: chia nhiều ngăn (stripe), mỗi thread bắt đầu ở ngăn riêng, lấy bằng CAS
+ * - Hóa đơn hoàn tất: outbox chuyển lượt từ "giữ chỗ" sang "đã dùng" (KhuyenMaiRepository.incrementUsage)
+ * - Checkout lỗi: lượt quay lại bộ nhớ; lượt không dùng tới lâu được trả lại DB cho node khác
+ * - Hóa đơn đã thanh toán bị hủy: outbox trừ lượt đã dùng (KhuyenMaiRepository.decrementUsage)
+ * - Block nhỏ dần khi gần hết lượt - 1 node không ôm hết phần còn lại
+ *
+ * Giới hạn mỗi khách hàng (soLanSuDungToiDa): 1 MERGE có điều kiện trên dòng (khuyến mãi, khách hàng)
+ * trong chính transaction checkout (tạo dòng ở lần dùng đầu) - chỉ các checkout của cùng 1 khách hàng phải chờ nhau.
+ *
+ * Node dừng đột ngột thì lượt đang giữ trong bộ nhớ bị mất (khuyến mãi phát ít hơn giới hạn, không bao giờ vượt)
+ */
+@Service
+@Slf4j
+public class PromotionUsageServiceImpl implements PromotionUsageService {
+
+    // Số ngăn là lũy thừa của 2; mỗi ngăn cách nhau 1 cache line (16 int) để tránh false sharing
+    private static final int STRIPES = Integer.highestOneBit(Math.min(16, Runtime.getRuntime().availableProcessors()));
+    private static final int PADDING = 16;
+
+    private final KhuyenMaiRepository khuyenMaiRepository;
+    private final KhuyenMaiKhachHangRepository khuyenMaiKhachHangRepository;
+    private final PromotionIndex promotionIndex;
+    private final TransactionTemplate requiresNewTransaction;
+    private final int leaseSize;
+    private final long leaseIdleNanos;
+
+    private final ConcurrentMap<Long, UsageLease> leases = new ConcurrentHashMap<>();
+
+    public PromotionUsageServiceImpl(KhuyenMaiRepository khuyenMaiRepository,
+                                     KhuyenMaiKhachHangRepository khuyenMaiKhachHangRepository,
+                                     PromotionIndex promotionIndex,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.promotion.usage.lease-size:20}") int leaseSize,
+                                     @Value("${app.promotion.usage.lease-idle-ms:5000}") long leaseIdleMs) {
+        this.khuyenMaiRepository = khuyenMaiRepository;
+        this.khuyenMaiKhachHangRepository = khuyenMaiKhachHangRepository;
+        this.promotionIndex = promotionIndex;
+        // Giữ chỗ/trả lượt trong transaction riêng: commit ngay, không bị rollback theo checkout
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.leaseSize = Math.max(1, leaseSize);
+        this.leaseIdleNanos = TimeUnit.MILLISECONDS.toNanos(leaseIdleMs);
+    }
+
+    @Override
+    public void reserve(List<Long> promotionIds, Long khachHangId) {
+        if (promotionIds == null || promotionIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> usage = countUsage(promotionIds);
+
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Long, Integer> entry : usage.entrySet()) {
+                Long promotionId = entry.getKey();
+                int count = entry.getValue();
+                UsageLimits limits = limitsOf(promotionId);
+
+                if (limits.total() != null) {
+                    UsageLease lease = leases.computeIfAbsent(promotionId, id -> new UsageLease());
+                    for (int i = 0; i < count; i++) {
+                        int taken = take(promotionId, lease);
+                        if (taken == 0) {
+                            throw new BusinessException(ErrorCode.BAD_REQUEST,
+                                    "Khuyến mãi đã hết số lần sử dụng: " + limits.maKhuyenMai());
+                        }
+                        if (taken < 0) {
+                            break; // Giới hạn tổng vừa được bỏ trên DB - không cần giữ chỗ
+                        }
+                        reserved.merge(promotionId, 1, Integer::sum);
+                    }
+                }
+
+                if (khachHangId != null && limits.perCustomer() != null) {
+                    reserveForCustomer(promotionId, khachHangId, count, limits);
+                }
+            }
+        } catch (RuntimeException e) {
+            putBack(reserved);
+            throw e;
+        }
+
+        if (!reserved.isEmpty()) {
+            putBackOnRollback(reserved);
+        }
+    }
+
+    @Override
+    public void release(List<Long> promotionIds, Long khachHangId) {
+        if (khachHangId == null || promotionIds == null || promotionIds.isEmpty()) {
+            return;
+        }
+        // Khuyến mãi không giới hạn theo khách hàng thì không có dòng nào -> UPDATE không ảnh hưởng, bỏ qua
+        LocalDateTime now = LocalDateTime.now();
+        countUsage(promotionIds).forEach((promotionId, count) ->
+                khuyenMaiKhachHangRepository.decrement(promotionId, khachHangId, count, now));
+    }
+
+    @Override
+    public Set<Long> findUnavailable(Collection<Long> promotionIds, Long khachHangId) {
+        Set<Long> unavailable = new HashSet<>();
+        if (promotionIds == null || promotionIds.isEmpty()) {
+            return unavailable;
+        }
+
+        List<Long> checkTotal = new ArrayList<>();
+        Map<Long, Integer> perCustomer = new HashMap<>();
+        for (Long promotionId : new HashSet<>(promotionIds)) {
+            UsageLimits limits = limitsOf(promotionId);
+            // Còn lượt đã giữ chỗ trong bộ nhớ thì chắc chắn dùng được - không cần hỏi DB
+            UsageLease lease = leases.get(promotionId);
+            if (limits.total() != null && (lease == null || lease.available() == 0)) {
+                checkTotal.add(promotionId);
+            }
+            if (khachHangId != null && limits.perCustomer() != null) {
+                perCustomer.put(promotionId, limits.perCustomer());
+            }
+        }
+
+        if (!checkTotal.isEmpty()) {
+            unavailable.addAll(khuyenMaiRepository.findExhaustedIds(checkTotal));
+        }
+        if (!perCustomer.isEmpty()) {
+            for (KhuyenMaiKhachHang used : khuyenMaiKhachHangRepository
+                    .findByKhachHangIdAndKhuyenMaiIdIn(khachHangId, perCustomer.keySet())) {
+                if (used.getSoLanSuDung() >= perCustomer.get(used.getKhuyenMaiId())) {
+                    unavailable.add(used.getKhuyenMaiId());
+                }
+            }
+        }
+        return unavailable;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.promotion.usage.lease-idle-ms:5000}")
+    public void returnIdleReservations() {
+        long now = System.nanoTime();
+        leases.forEach((promotionId, lease) -> {
+            if (now - lease.lastUsedNanos >= leaseIdleNanos) {
+                giveBack(promotionId, lease);
+            }
+        });
+    }
+
+    /**
+     * Tắt ứng dụng bình thường: trả hết lượt đang giữ để không bị mất
+     */
+    @PreDestroy
+    public void returnAllReservations() {
+        leases.forEach(this::giveBack);
+    }
+
+    /**
+     * @return 1 = đã giữ được 1 lượt; 0 = hết lượt; -1 = khuyến mãi không còn giới hạn tổng
+     */
+    private int take(Long promotionId, UsageLease lease) {
+        if (lease.tryTake()) {
+            return 1;
+        }
+
+        // Bộ nhớ đã hết lượt: chỉ 1 thread giữ chỗ block mới, các thread khác chờ rồi lấy tiếp
+        synchronized (lease) {
+            if (lease.tryTake()) {
+                return 1;
+            }
+            int leased = leaseFromDatabase(promotionId);
+            if (leased <= 0) {
+                return leased;
+            }
+            lease.put(leased - 1); // 1 lượt dùng ngay cho lần gọi này
+            return 1;
+        }
+    }
+
+    /**
+     * @return số lượt giữ chỗ được; 0 = đã hết lượt; -1 = khuyến mãi không còn giới hạn tổng
+     */
+    private int leaseFromDatabase(Long promotionId) {
+        Integer leased = requiresNewTransaction.execute(status -> {
+            // Node khác có thể giữ chỗ chen giữa SELECT và UPDATE -> đọc lại và thử với block nhỏ hơn
+            for (int attempt = 0; attempt < 3; attempt++) {
+                Integer unreserved = khuyenMaiRepository.findUnreservedUsage(promotionId);
+                if (unreserved == null) {
+                    return -1;
+                }
+                if (unreserved <= 0) {
+                    return 0;
+                }
+                int block = Math.min(leaseSize, Math.max(1, unreserved / 4));
+                if (khuyenMaiRepository.reserveUsage(promotionId, block) > 0) {
+                    return block;
+                }
+            }
+            return 0;
+        });
+        log.debug("Leased {} usages of promotion {}", leased, promotionId);
+        return leased != null ? leased : 0;
+    }
+
+    private void reserveForCustomer(Long promotionId, Long khachHangId, int count, UsageLimits limits) {
+        // Tăng hoặc tạo dòng trong 1 MERGE - lần dùng đầu tiên của 2 checkout cùng lúc không vượt giới hạn
+        if (khuyenMaiKhachHangRepository.reserveIfBelow(
+                promotionId, khachHangId, count, limits.perCustomer(), LocalDateTime.now()) == 0) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST,
+                    "Khách hàng đã dùng hết số lần cho phép của khuyến mãi: " + limits.maKhuyenMai());
+        }
+    }
+
+    private static Map<Long, Integer> countUsage(List<Long> promotionIds) {
+        Map<Long, Integer> usage = new LinkedHashMap<>();
+        for (Long promotionId : promotionIds) {
+            if (promotionId != null) {
+                usage.merge(promotionId, 1, Integer::sum);
+            }
+        }
+        return usage;
+    }
+
+    private UsageLimits limitsOf(Long promotionId) {
+        CompiledPromotion promotion = promotionIndex.find(promotionId);
+        if (promotion != null) {
+            return new UsageLimits(promotion.getMaKhuyenMai(),
+                    promotion.getTongSoLanSuDungToiDa(), promotion.getSoLanSuDungToiDa());
+        }
+        // Không có trong chỉ mục (vừa sửa, chưa đồng bộ) -> đọc DB
+        return khuyenMaiRepository.findById(promotionId)
+                .map(k -> new UsageLimits(k.getMaKhuyenMai(), k.getTongSoLanSuDungToiDa(), k.getSoLanSuDungToiDa()))
+                .orElse(new UsageLimits(String.valueOf(promotionId), null, null));
+    }
+
+    private void putBack(Map<Long, Integer> reserved) {
+        reserved.forEach((promotionId, count) -> leases.get(promotionId).put(count));
+    }
+
+    private void putBackOnRollback(Map<Long, Integer> reserved) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    putBack(reserved);
+                }
+            }
+        });
+    }
+
+    private void giveBack(Long promotionId, UsageLease lease) {
+        int unused = lease.drain();
+        if (unused == 0) {
+            return;
+        }
+        try {
+            requiresNewTransaction.executeWithoutResult(status ->
+                    khuyenMaiRepository.releaseReservedUsage(promotionId, unused));
+            log.debug("Returned {} unused usages of promotion {}", unused, promotionId);
+        } catch (Exception e) {
+            // Giữ lại trong bộ nhớ, lần sau trả tiếp
+            lease.put(unused);
+            log.warn("Could not return reserved usages of promotion {}: {}", promotionId, e.getMessage());
+        }
+    }
+
+    private record UsageLimits(String maKhuyenMai, Integer total, Integer perCustomer) {
+    }
+
+    /**
+     * Lượt đã giữ chỗ trên DB, chưa phát cho hóa đơn nào - chia ngăn để các thread ít tranh chấp cùng 1 biến
+     */
+    private static final class UsageLease {
+        private final AtomicIntegerArray available = new AtomicIntegerArray(STRIPES * PADDING);
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        boolean tryTake() {
+            int home = homeStripe();
+            for (int i = 0; i < STRIPES; i++) {
+                int index = ((home + i) & (STRIPES - 1)) * PADDING;
+                int value;
+                while ((value = available.get(index)) > 0) {
+                    if (available.compareAndSet(index, value, value - 1)) {
+                        lastUsedNanos = System.nanoTime();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void put(int count) {
+            available.addAndGet(homeStripe() * PADDING, count);
+            lastUsedNanos = System.nanoTime();
+        }
+
+        int available() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += available.get(i * PADDING);
+            }
+            return total;
+        }
+
+        int drain() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += available.getAndSet(i * PADDING, 0);
+            }
+            return total;
+        }
+
+        private static int homeStripe() {
+            return (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        }
+    }
+}
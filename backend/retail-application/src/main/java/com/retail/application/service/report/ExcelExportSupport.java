@@ -0,0 +1,65 @@
+package com.retail.application.service.report;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Workbook Excel dạng streaming (SXSSF) cho các báo cáo xuất file.
+ *
+ * - Chỉ giữ tối đa row-window dòng mỗi sheet trong heap, các dòng cũ hơn được ghi ra file tạm (nén gzip)
+ * - Dòng đã ra file tạm không sửa được nữa: sheet tổng kết tạo trước (giữ thứ tự sheet) và điền sau cùng
+ * - Độ rộng cột tự động được theo dõi trong lúc ghi dòng (chỉ giữ độ rộng lớn nhất mỗi cột)
+ */
+@Component
+@Slf4j
+public class ExcelExportSupport {
+
+    public static final String CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final int rowWindow;
+
+    public ExcelExportSupport(@Value("${app.report.excel.row-window:200}") int rowWindow) {
+        this.rowWindow = Math.max(1, rowWindow);
+    }
+
+    /**
+     * Tạo workbook streaming, để writer điền dữ liệu rồi ghi thẳng ra out (không đóng out); file tạm luôn được xóa
+     */
+    public void export(OutputStream out, WorkbookWriter writer) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            writer.write(workbook);
+            workbook.write(out);
+            out.flush();
+        } finally {
+            if (!workbook.dispose()) {
+                log.warn("Could not delete all temporary files of a streamed workbook");
+            }
+            workbook.close();
+        }
+    }
+
+    /**
+     * Tạo sheet có theo dõi độ rộng cột - autoSizeColumn vẫn dùng được sau khi dòng đã ra file tạm
+     */
+    public static Sheet createSheet(Workbook workbook, String name) {
+        SXSSFSheet sheet = (SXSSFSheet) workbook.createSheet(name);
+        sheet.trackAllColumnsForAutoSizing();
+        return sheet;
+    }
+
+    @FunctionalInterface
+    public interface WorkbookWriter {
+        void write(Workbook workbook) throws IOException;
+    }
+}
@@ -1,22 +1,18 @@
 package com.retail.application.service.report;
 
 import com.retail.common.constant.Status;
-import com.retail.domain.entity.SanPham;
 import com.retail.persistence.repository.SanPhamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -24,24 +20,24 @@ import java.util.List;
 public class InventoryReportService {
 
     private final SanPhamRepository sanPhamRepository;
+    private final ExcelExportSupport excelExportSupport;
 
     /**
-     * Tạo báo cáo tồn kho dạng Excel
+     * Ghi báo cáo tồn kho Excel thẳng ra out (không đóng out)
+     *
+     * Sản phẩm đọc bằng con trỏ và ghi từng dòng vào sheet chi tiết; sheet tổng quan tạo trước, điền sau cùng
      */
     @Transactional(readOnly = true)
-    public byte[] generateInventoryReportExcel() {
+    public void writeInventoryReportExcel(OutputStream out) {
         log.info("Generating inventory report Excel");
 
-        try {
-            // Lấy dữ liệu
-            List<InventoryReportDTO> reportData = getInventoryReportData();
-            log.info("Retrieved {} products for inventory report", reportData.size());
-
-            // Tạo Excel
-            byte[] excelBytes = generateExcelFile(reportData);
-            log.info("Inventory report Excel generated, size: {} bytes", excelBytes.length);
-
-            return excelBytes;
+        try (Stream<Object[]> rows = sanPhamRepository.streamInventoryReportRows(Status.ACTIVE)) {
+            excelExportSupport.export(out, workbook -> {
+                Sheet summarySheet = ExcelExportSupport.createSheet(workbook, "Tổng quan");
+                InventoryTotals totals = createDetailSheet(workbook, rows);
+                fillSummarySheet(workbook, summarySheet, totals);
+                log.info("Inventory report Excel generated with {} products", totals.totalProducts);
+            });
 
         } catch (Exception e) {
             log.error("Error generating inventory report Excel", e);
@@ -50,48 +46,31 @@ public class InventoryReportService {
     }
 
     /**
-     * Lấy dữ liệu báo cáo tồn kho từ database
+     * Dòng báo cáo tồn kho: [maSanPham, tenSanPham, donViTinh, tonKho, tonKhoToiThieu, giaNhap, tenChiNhanh]
      */
-    private List<InventoryReportDTO> getInventoryReportData() {
-        // ⭐ SỬA: Dùng Status.ACTIVE thay vì String
-        List<SanPham> products = sanPhamRepository.findAllForInventoryReport(Status.ACTIVE);
-        List<InventoryReportDTO> reportList = new ArrayList<>();
-
-        for (SanPham product : products) {
-            // Tính giá trị tồn kho
-            BigDecimal inventoryValue = product.getGiaNhap()
-                    .multiply(BigDecimal.valueOf(product.getTonKho()));
-
-            // Xác định trạng thái
-            String status = determineStockStatus(product);
-
-            InventoryReportDTO dto = InventoryReportDTO.builder()
-                    .productCode(product.getMaSanPham())
-                    .productName(product.getTenSanPham())
-                    .unit(product.getDonViTinh())
-                    .currentStock(product.getTonKho())
-                    .minimumStock(product.getTonKhoToiThieu())
-                    .purchasePrice(product.getGiaNhap())
-                    .inventoryValue(inventoryValue)
-                    .status(status)
-                    .branchName(product.getChiNhanh() != null ?
-                            product.getChiNhanh().getTenChiNhanh() : "N/A")
-                    .build();
-
-            reportList.add(dto);
-        }
-
-        log.info("Processed {} inventory records", reportList.size());
-        return reportList;
+    private InventoryReportDTO toReportRow(Object[] row) {
+        int currentStock = (Integer) row[3];
+        Integer minimumStock = (Integer) row[4];
+        BigDecimal purchasePrice = (BigDecimal) row[5];
+
+        return InventoryReportDTO.builder()
+                .productCode((String) row[0])
+                .productName((String) row[1])
+                .unit((String) row[2])
+                .currentStock(currentStock)
+                .minimumStock(minimumStock)
+                .purchasePrice(purchasePrice)
+                // Tính giá trị tồn kho
+                .inventoryValue(purchasePrice.multiply(BigDecimal.valueOf(currentStock)))
+                .status(determineStockStatus(currentStock, minimumStock))
+                .branchName(row[6] != null ? (String) row[6] : "N/A")
+                .build();
     }
 
     /**
      * Xác định trạng thái tồn kho
      */
-    private String determineStockStatus(SanPham product) {
-        int currentStock = product.getTonKho();
-        Integer minimumStock = product.getTonKhoToiThieu();
-
+    private String determineStockStatus(int currentStock, Integer minimumStock) {
         if (currentStock == 0) {
             return "HẾT HÀNG";
         } else if (minimumStock != null && currentStock <= minimumStock) {
@@ -102,30 +81,9 @@ public class InventoryReportService {
     }
 
     /**
-     * Tạo file Excel từ dữ liệu báo cáo
-     */
-    private byte[] generateExcelFile(List<InventoryReportDTO> reportData) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            // Tạo sheet tổng quan
-            createSummarySheet(workbook, reportData);
-
-            // Tạo sheet chi tiết
-            createDetailSheet(workbook, reportData);
-
-            // Ghi vào output stream
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
-        }
-    }
-
-    /**
-     * Create summary sheet
+     * Fill summary sheet (đã tạo trước sheet chi tiết để giữ thứ tự sheet)
      */
-    private void createSummarySheet(Workbook workbook, List<InventoryReportDTO> reportData) {
-        Sheet sheet = workbook.createSheet("Tổng quan");
-
+    private void fillSummarySheet(Workbook workbook, Sheet sheet, InventoryTotals totals) {
         // Tạo styles
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle dataStyle = createDataStyle(workbook);
@@ -148,20 +106,11 @@ public class InventoryReportService {
 
         rowNum++; // Dòng trống
 
-        // Tính tổng kết
-        int totalProducts = reportData.size();
-        long lowStockCount = reportData.stream()
-                .filter(p -> "SẮP HẾT".equals(p.getStatus()) || "HẾT HÀNG".equals(p.getStatus()))
-                .count();
-        BigDecimal totalValue = reportData.stream()
-                .map(InventoryReportDTO::getInventoryValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Các dòng tổng kết
-        createSummaryRow(sheet, rowNum++, "Tổng số sản phẩm:", String.valueOf(totalProducts), dataStyle);
-        createSummaryRow(sheet, rowNum++, "Sản phẩm cần nhập thêm:", String.valueOf(lowStockCount), dataStyle);
+        // Các dòng tổng kết (cộng dồn khi ghi sheet chi tiết)
+        createSummaryRow(sheet, rowNum++, "Tổng số sản phẩm:", String.valueOf(totals.totalProducts), dataStyle);
+        createSummaryRow(sheet, rowNum++, "Sản phẩm cần nhập thêm:", String.valueOf(totals.lowStockCount), dataStyle);
         createSummaryRow(sheet, rowNum++, "Tổng giá trị tồn kho:",
-                String.format("%,.0f VND", totalValue), currencyStyle);
+                String.format("%,.0f VND", totals.totalValue), currencyStyle);
 
         // Tự động điều chỉnh độ rộng cột
         sheet.setColumnWidth(0, 8000);
@@ -169,10 +118,10 @@ public class InventoryReportService {
     }
 
     /**
-     * Tạo sheet chi tiết
+     * Tạo sheet chi tiết - ghi từng sản phẩm ngay khi đọc, đồng thời cộng dồn số liệu tổng quan
      */
-    private void createDetailSheet(Workbook workbook, List<InventoryReportDTO> reportData) {
-        Sheet sheet = workbook.createSheet("Chi tiết tồn kho");
+    private InventoryTotals createDetailSheet(Workbook workbook, Stream<Object[]> rows) {
+        Sheet sheet = ExcelExportSupport.createSheet(workbook, "Chi tiết tồn kho");
 
         // Tạo styles
         CellStyle headerStyle = createHeaderStyle(workbook);
@@ -197,8 +146,11 @@ public class InventoryReportService {
         }
 
         // Các dòng dữ liệu
+        InventoryTotals totals = new InventoryTotals();
         int stt = 1;
-        for (InventoryReportDTO dto : reportData) {
+        for (Object[] result : (Iterable<Object[]>) rows::iterator) {
+            InventoryReportDTO dto = toReportRow(result);
+            totals.add(dto);
             Row row = sheet.createRow(rowNum++);
 
             // Chọn style dựa trên trạng thái
@@ -226,6 +178,24 @@ public class InventoryReportService {
             sheet.autoSizeColumn(i);
             sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
         }
+        return totals;
+    }
+
+    /**
+     * Số liệu tổng quan cộng dồn khi ghi sheet chi tiết
+     */
+    private static class InventoryTotals {
+        int totalProducts = 0;
+        long lowStockCount = 0;
+        BigDecimal totalValue = BigDecimal.ZERO;
+
+        void add(InventoryReportDTO dto) {
+            totalProducts++;
+            if ("SẮP HẾT".equals(dto.getStatus()) || "HẾT HÀNG".equals(dto.getStatus())) {
+                lowStockCount++;
+            }
+            totalValue = totalValue.add(dto.getInventoryValue());
+        }
     }
 
     // ========== Helper methods for creating styles ==========
@@ -1,53 +1,49 @@
 package com.retail.application.service.report;
 
-import com.retail.application.dto.NguyenLieuDTO;
-import com.retail.application.dto.PhieuNhapXuatNguyenLieuDTO;
-import com.retail.application.service.nguyenlieu.NguyenLieuService;
 import com.retail.common.constant.Status;
-import com.retail.domain.entity.NguyenLieu;
 import com.retail.domain.entity.PhieuNhapXuatNguyenLieu;
 import com.retail.persistence.repository.NguyenLieuRepository;
 import com.retail.persistence.repository.PhieuNhapXuatNguyenLieuRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Service xuất báo cáo Excel cho nguyên liệu
+ *
+ * Dữ liệu đọc bằng con trỏ (Stream, chỉ lấy cột cần in) và ghi từng dòng vào workbook SXSSF ghi thẳng ra out
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class NguyenLieuReportService {
 
+    private static final DateTimeFormatter CREATED_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final DateTimeFormatter PHIEU_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     private final NguyenLieuRepository nguyenLieuRepository;
     private final PhieuNhapXuatNguyenLieuRepository phieuRepository;
+    private final ExcelExportSupport excelExportSupport;
 
     /**
      * Xuất Excel danh sách nguyên liệu tồn kho
      */
     @Transactional(readOnly = true)
-    public byte[] exportTonKhoExcel() {
+    public void writeTonKhoExcel(OutputStream out) {
         log.info("Exporting ton kho Excel for nguyen lieu");
 
-        try {
-            List<NguyenLieu> nguyenLieuList = nguyenLieuRepository.findByTrangThaiWithChiNhanh(Status.ACTIVE);
-            log.info("Retrieved {} nguyen lieu for ton kho report", nguyenLieuList.size());
-
-            byte[] excelBytes = generateTonKhoExcel(nguyenLieuList);
-            log.info("Ton kho Excel generated, size: {} bytes", excelBytes.length);
-
-            return excelBytes;
+        try (Stream<Object[]> rows = nguyenLieuRepository.streamTonKhoRows(Status.ACTIVE)) {
+            excelExportSupport.export(out, workbook -> {
+                int count = fillTonKhoSheet(workbook, rows);
+                log.info("Ton kho Excel generated with {} nguyen lieu", count);
+            });
 
         } catch (Exception e) {
             log.error("Error generating ton kho Excel", e);
@@ -59,20 +55,14 @@ public class NguyenLieuReportService {
      * Xuất Excel bảng nhập kho
      */
     @Transactional(readOnly = true)
-    public byte[] exportNhapKhoExcel() {
+    public void writeNhapKhoExcel(OutputStream out) {
         log.info("Exporting nhap kho Excel for nguyen lieu");
 
-        try {
-            // Lấy tất cả phiếu nhập với JOIN FETCH
-            List<PhieuNhapXuatNguyenLieu> phieuList = phieuRepository.findByLoaiPhieuWithDetails(
-                    PhieuNhapXuatNguyenLieu.LoaiPhieu.NHAP);
-
-            log.info("Retrieved {} phieu nhap for report", phieuList.size());
-
-            byte[] excelBytes = generateNhapKhoExcel(phieuList);
-            log.info("Nhap kho Excel generated, size: {} bytes", excelBytes.length);
-
-            return excelBytes;
+        try (Stream<Object[]> rows = phieuRepository.streamPhieuRows(PhieuNhapXuatNguyenLieu.LoaiPhieu.NHAP)) {
+            excelExportSupport.export(out, workbook -> {
+                int count = fillPhieuSheet(workbook, rows, "Bảng nhập kho", "BẢNG NHẬP KHO NGUYÊN LIỆU", "Ngày nhập");
+                log.info("Nhap kho Excel generated with {} phieu", count);
+            });
 
         } catch (Exception e) {
             log.error("Error generating nhap kho Excel", e);
@@ -84,20 +74,14 @@ public class NguyenLieuReportService {
      * Xuất Excel bảng xuất kho
      */
     @Transactional(readOnly = true)
-    public byte[] exportXuatKhoExcel() {
+    public void writeXuatKhoExcel(OutputStream out) {
         log.info("Exporting xuat kho Excel for nguyen lieu");
 
-        try {
-            // Lấy tất cả phiếu xuất với JOIN FETCH
-            List<PhieuNhapXuatNguyenLieu> phieuList = phieuRepository.findByLoaiPhieuWithDetails(
-                    PhieuNhapXuatNguyenLieu.LoaiPhieu.XUAT);
-
-            log.info("Retrieved {} phieu xuat for report", phieuList.size());
-
-            byte[] excelBytes = generateXuatKhoExcel(phieuList);
-            log.info("Xuat kho Excel generated, size: {} bytes", excelBytes.length);
-
-            return excelBytes;
+        try (Stream<Object[]> rows = phieuRepository.streamPhieuRows(PhieuNhapXuatNguyenLieu.LoaiPhieu.XUAT)) {
+            excelExportSupport.export(out, workbook -> {
+                int count = fillPhieuSheet(workbook, rows, "Bảng xuất kho", "BẢNG XUẤT KHO NGUYÊN LIỆU", "Ngày xuất");
+                log.info("Xuat kho Excel generated with {} phieu", count);
+            });
 
         } catch (Exception e) {
             log.error("Error generating xuat kho Excel", e);
@@ -108,215 +92,126 @@ public class NguyenLieuReportService {
     // ========== Private methods for generating Excel ==========
 
     /**
-     * Tạo Excel danh sách tồn kho
+     * Sheet danh sách tồn kho - rows: [maNguyenLieu, tenNguyenLieu, donViTinh, soLuong, tenChiNhanh]
+     *
+     * @return số nguyên liệu đã ghi
      */
-    private byte[] generateTonKhoExcel(List<NguyenLieu> nguyenLieuList) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.createSheet("Danh sách tồn kho");
-
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle dataStyle = createDataStyle(workbook);
-
-            int rowNum = 0;
-
-            // Tiêu đề
-            Row titleRow = sheet.createRow(rowNum++);
-            Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue("DANH SÁCH NGUYÊN LIỆU TỒN KHO");
-            titleCell.setCellStyle(headerStyle);
-            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 5));
-
-            // Ngày
-            Row dateRow = sheet.createRow(rowNum++);
-            Cell dateCell = dateRow.createCell(0);
-            String currentDate = LocalDateTime.now()
-                    .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
-            dateCell.setCellValue("Ngày tạo: " + currentDate);
-
-            rowNum++; // Dòng trống
-
-            // Header
-            Row headerRow = sheet.createRow(rowNum++);
-            String[] headers = {"STT", "Mã NL", "Tên nguyên liệu", "Đơn vị", "Số lượng", "Chi nhánh"};
-            
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            // Data rows
-            int stt = 1;
-            for (NguyenLieu nl : nguyenLieuList) {
-                Row row = sheet.createRow(rowNum++);
-                
-                createCell(row, 0, stt++, dataStyle);
-                createCell(row, 1, nl.getMaNguyenLieu(), dataStyle);
-                createCell(row, 2, nl.getTenNguyenLieu(), dataStyle);
-                createCell(row, 3, nl.getDonViTinh() != null ? nl.getDonViTinh() : "", dataStyle);
-                createCell(row, 4, nl.getSoLuong() != null ? nl.getSoLuong() : 0, dataStyle);
-                createCell(row, 5, nl.getChiNhanh() != null ? nl.getChiNhanh().getTenChiNhanh() : "", dataStyle);
-            }
-
-            // Auto size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-            }
-
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
+    private int fillTonKhoSheet(Workbook workbook, Stream<Object[]> rows) {
+        Sheet sheet = ExcelExportSupport.createSheet(workbook, "Danh sách tồn kho");
+
+        CellStyle headerStyle = createHeaderStyle(workbook);
+        CellStyle dataStyle = createDataStyle(workbook);
+
+        int rowNum = 0;
+
+        // Tiêu đề
+        Row titleRow = sheet.createRow(rowNum++);
+        Cell titleCell = titleRow.createCell(0);
+        titleCell.setCellValue("DANH SÁCH NGUYÊN LIỆU TỒN KHO");
+        titleCell.setCellStyle(headerStyle);
+        sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 5));
+
+        // Ngày
+        Row dateRow = sheet.createRow(rowNum++);
+        Cell dateCell = dateRow.createCell(0);
+        dateCell.setCellValue("Ngày tạo: " + LocalDateTime.now().format(CREATED_FORMATTER));
+
+        rowNum++; // Dòng trống
+
+        // Header
+        Row headerRow = sheet.createRow(rowNum++);
+        String[] headers = {"STT", "Mã NL", "Tên nguyên liệu", "Đơn vị", "Số lượng", "Chi nhánh"};
+
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
         }
-    }
 
-    /**
-     * Tạo Excel bảng nhập kho
-     */
-    private byte[] generateNhapKhoExcel(List<PhieuNhapXuatNguyenLieu> phieuList) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.createSheet("Bảng nhập kho");
-
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle dataStyle = createDataStyle(workbook);
-            CellStyle dateStyle = createDateStyle(workbook);
-
-            int rowNum = 0;
-
-            // Tiêu đề
-            Row titleRow = sheet.createRow(rowNum++);
-            Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue("BẢNG NHẬP KHO NGUYÊN LIỆU");
-            titleCell.setCellStyle(headerStyle);
-            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 6));
-
-            // Ngày
-            Row dateRow = sheet.createRow(rowNum++);
-            Cell dateCell = dateRow.createCell(0);
-            String currentDate = LocalDateTime.now()
-                    .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
-            dateCell.setCellValue("Ngày tạo: " + currentDate);
-
-            rowNum++; // Dòng trống
-
-            // Header
-            Row headerRow = sheet.createRow(rowNum++);
-            String[] headers = {"STT", "Mã phiếu", "Ngày nhập", "Nguyên liệu", "Số lượng", "Nhân viên", "Ghi chú"};
-            
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            // Data rows
-            int stt = 1;
-            for (PhieuNhapXuatNguyenLieu phieu : phieuList) {
-                Row row = sheet.createRow(rowNum++);
-                
-                createCell(row, 0, stt++, dataStyle);
-                createCell(row, 1, phieu.getMaPhieu(), dataStyle);
-                
-                Cell dateCellData = row.createCell(2);
-                dateCellData.setCellValue(phieu.getNgayNhapXuat()
-                        .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-                dateCellData.setCellStyle(dateStyle);
-                
-                String tenNL = phieu.getNguyenLieu() != null ? phieu.getNguyenLieu().getTenNguyenLieu() : "";
-                createCell(row, 3, tenNL, dataStyle);
-                createCell(row, 4, phieu.getSoLuong(), dataStyle);
-                
-                String tenNV = phieu.getNhanVien() != null ? phieu.getNhanVien().getTenNhanVien() : "";
-                createCell(row, 5, tenNV, dataStyle);
-                createCell(row, 6, phieu.getGhiChu() != null ? phieu.getGhiChu() : "", dataStyle);
-            }
-
-            // Auto size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-            }
-
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
+        // Data rows
+        int stt = 1;
+        for (Object[] nl : (Iterable<Object[]>) rows::iterator) {
+            Row row = sheet.createRow(rowNum++);
+
+            createCell(row, 0, stt++, dataStyle);
+            createCell(row, 1, nl[0], dataStyle);
+            createCell(row, 2, nl[1], dataStyle);
+            createCell(row, 3, nl[2] != null ? nl[2] : "", dataStyle);
+            createCell(row, 4, nl[3] != null ? nl[3] : 0, dataStyle);
+            createCell(row, 5, nl[4] != null ? nl[4] : "", dataStyle);
+        }
+
+        // Auto size columns
+        for (int i = 0; i < headers.length; i++) {
+            sheet.autoSizeColumn(i);
+            sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
         }
+        return stt - 1;
     }
 
     /**
-     * Tạo Excel bảng xuất kho
+     * Sheet bảng nhập/xuất kho - rows: [maPhieu, ngayNhapXuat, tenNguyenLieu, soLuong, tenNhanVien, ghiChu]
+     *
+     * @return số phiếu đã ghi
      */
-    private byte[] generateXuatKhoExcel(List<PhieuNhapXuatNguyenLieu> phieuList) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.createSheet("Bảng xuất kho");
-
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle dataStyle = createDataStyle(workbook);
-            CellStyle dateStyle = createDateStyle(workbook);
-
-            int rowNum = 0;
-
-            // Tiêu đề
-            Row titleRow = sheet.createRow(rowNum++);
-            Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue("BẢNG XUẤT KHO NGUYÊN LIỆU");
-            titleCell.setCellStyle(headerStyle);
-            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 6));
-
-            // Ngày
-            Row dateRow = sheet.createRow(rowNum++);
-            Cell dateCell = dateRow.createCell(0);
-            String currentDate = LocalDateTime.now()
-                    .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
-            dateCell.setCellValue("Ngày tạo: " + currentDate);
-
-            rowNum++; // Dòng trống
-
-            // Header
-            Row headerRow = sheet.createRow(rowNum++);
-            String[] headers = {"STT", "Mã phiếu", "Ngày xuất", "Nguyên liệu", "Số lượng", "Nhân viên", "Ghi chú"};
-            
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            // Data rows
-            int stt = 1;
-            for (PhieuNhapXuatNguyenLieu phieu : phieuList) {
-                Row row = sheet.createRow(rowNum++);
-                
-                createCell(row, 0, stt++, dataStyle);
-                createCell(row, 1, phieu.getMaPhieu(), dataStyle);
-                
-                Cell dateCellData = row.createCell(2);
-                dateCellData.setCellValue(phieu.getNgayNhapXuat()
-                        .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-                dateCellData.setCellStyle(dateStyle);
-                
-                String tenNL = phieu.getNguyenLieu() != null ? phieu.getNguyenLieu().getTenNguyenLieu() : "";
-                createCell(row, 3, tenNL, dataStyle);
-                createCell(row, 4, phieu.getSoLuong(), dataStyle);
-                
-                String tenNV = phieu.getNhanVien() != null ? phieu.getNhanVien().getTenNhanVien() : "";
-                createCell(row, 5, tenNV, dataStyle);
-                createCell(row, 6, phieu.getGhiChu() != null ? phieu.getGhiChu() : "", dataStyle);
-            }
-
-            // Auto size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-            }
-
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
+    private int fillPhieuSheet(Workbook workbook, Stream<Object[]> rows,
+                               String sheetName, String title, String dateHeader) {
+        Sheet sheet = ExcelExportSupport.createSheet(workbook, sheetName);
+
+        CellStyle headerStyle = createHeaderStyle(workbook);
+        CellStyle dataStyle = createDataStyle(workbook);
+        CellStyle dateStyle = createDateStyle(workbook);
+
+        int rowNum = 0;
+
+        // Tiêu đề
+        Row titleRow = sheet.createRow(rowNum++);
+        Cell titleCell = titleRow.createCell(0);
+        titleCell.setCellValue(title);
+        titleCell.setCellStyle(headerStyle);
+        sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 6));
+
+        // Ngày
+        Row dateRow = sheet.createRow(rowNum++);
+        Cell dateCell = dateRow.createCell(0);
+        dateCell.setCellValue("Ngày tạo: " + LocalDateTime.now().format(CREATED_FORMATTER));
+
+        rowNum++; // Dòng trống
+
+        // Header
+        Row headerRow = sheet.createRow(rowNum++);
+        String[] headers = {"STT", "Mã phiếu", dateHeader, "Nguyên liệu", "Số lượng", "Nhân viên", "Ghi chú"};
+
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+        }
+
+        // Data rows
+        int stt = 1;
+        for (Object[] phieu : (Iterable<Object[]>) rows::iterator) {
+            Row row = sheet.createRow(rowNum++);
+
+            createCell(row, 0, stt++, dataStyle);
+            createCell(row, 1, phieu[0], dataStyle);
+
+            Cell dateCellData = row.createCell(2);
+            dateCellData.setCellValue(((LocalDateTime) phieu[1]).format(PHIEU_DATE_FORMATTER));
+            dateCellData.setCellStyle(dateStyle);
+
+            createCell(row, 3, phieu[2] != null ? phieu[2] : "", dataStyle);
+            createCell(row, 4, phieu[3], dataStyle);
+            createCell(row, 5, phieu[4] != null ? phieu[4] : "", dataStyle);
+            createCell(row, 6, phieu[5] != null ? phieu[5] : "", dataStyle);
+        }
+
+        // Auto size columns
+        for (int i = 0; i < headers.length; i++) {
+            sheet.autoSizeColumn(i);
+            sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
         }
+        return stt - 1;
     }
 
     // ========== Helper methods ==========
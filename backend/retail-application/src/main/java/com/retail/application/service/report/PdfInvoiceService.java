@@ -25,6 +25,8 @@ import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import com.retail.common.exception.ResourceNotFoundException;
 import com.retail.domain.entity.ChiTietHoaDon;
 import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.HoaDonKhuyenMai;
+import com.retail.persistence.repository.HoaDonKhuyenMaiRepository;
 import com.retail.persistence.repository.HoaDonRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +43,7 @@ import java.text.NumberFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import javax.imageio.ImageIO;
@@ -54,6 +57,7 @@ import javax.imageio.ImageIO;
 public class PdfInvoiceService {
 
     private final HoaDonRepository hoaDonRepository;
+    private final HoaDonKhuyenMaiRepository hoaDonKhuyenMaiRepository;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
@@ -192,6 +196,25 @@ public class PdfInvoiceService {
         }
     }
 
+    /**
+     * Thông tin khuyến mãi đã áp dụng: "Tên mã1 (Mã1), Tên mã2 (Mã2)"
+     * Hóa đơn tạo trước khi có bảng hoa_don_khuyen_mai thì đọc lại từ ghiChu
+     */
+    private String getPromotionInfo(HoaDon invoice) {
+        List<HoaDonKhuyenMai> applied = hoaDonKhuyenMaiRepository.findByHoaDonIdOrderByIdAsc(invoice.getId());
+        if (applied.isEmpty()) {
+            return extractPromotionInfo(invoice.getGhiChu());
+        }
+        StringBuilder info = new StringBuilder();
+        for (HoaDonKhuyenMai khuyenMai : applied) {
+            if (info.length() > 0) {
+                info.append(", ");
+            }
+            info.append(khuyenMai.getTenKhuyenMai()).append(" (").append(khuyenMai.getMaKhuyenMai()).append(")");
+        }
+        return info.toString();
+    }
+
     /**
      * Extract thông tin khuyến mãi từ ghiChu
      * Format: "Khuyến mãi: Tên mã (Mã)" hoặc "Khuyến mãi: Tên mã1 (Mã1), Tên mã2 (Mã2)"
@@ -348,8 +371,7 @@ public class PdfInvoiceService {
         // Giảm giá (nếu có) - Hiển thị chi tiết khuyến mãi
         if (giamGia.compareTo(BigDecimal.ZERO) > 0) {
             String discountLabel = "Giảm giá";
-            // Parse thông tin khuyến mãi từ ghiChu
-            String promotionInfo = extractPromotionInfo(invoice.getGhiChu());
+            String promotionInfo = getPromotionInfo(invoice);
             if (promotionInfo != null && !promotionInfo.isEmpty()) {
                 discountLabel = "Giảm giá (" + promotionInfo + ")";
             }
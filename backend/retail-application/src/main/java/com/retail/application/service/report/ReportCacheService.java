@@ -0,0 +1,32 @@
+package com.retail.application.service.report;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả báo cáo của khoảng ngày đã kết thúc (endDate trước hôm nay).
+ *
+ * Khóa gồm loại báo cáo, tham số và phiên bản dữ liệu của khoảng ngày (phien_ban_doanh_so) -
+ * entry không bao giờ bị sửa, dữ liệu trong khoảng đổi thì phiên bản đổi và báo cáo được tính lại
+ */
+public interface ReportCacheService {
+
+    /**
+     * Phiên bản dữ liệu của khoảng ngày đã kết thúc
+     *
+     * @param chiNhanhId null = mọi chi nhánh
+     * @return rỗng khi khoảng còn gồm hôm nay (chưa đóng, không cache)
+     */
+    Optional<Long> closedPeriodVersion(LocalDate startDate, LocalDate endDate, Long chiNhanhId);
+
+    /**
+     * Kết quả báo cáo lấy từ cache khi khoảng đã kết thúc, ngược lại luôn gọi loader
+     *
+     * @param report     tên báo cáo trong khóa cache
+     * @param chiNhanhId null = mọi chi nhánh
+     * @param params     tham số khác của báo cáo (limit...), null nếu không có
+     */
+    <T> T get(String report, LocalDate startDate, LocalDate endDate, Long chiNhanhId, Object params,
+              Supplier<T> loader);
+}
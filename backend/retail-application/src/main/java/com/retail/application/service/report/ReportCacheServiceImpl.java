@@ -0,0 +1,69 @@
+package com.retail.application.service.report;
+
+import com.retail.persistence.repository.DoanhSoNgayRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cache "reports", key: {report}:{startDate}:{endDate}:{chiNhanhId|all}[:{params}]:v{phiên bản}
+ *
+ * Phiên bản được đọc trước khi tính báo cáo: hóa đơn cũ bị hủy giữa lúc đọc phiên bản và lúc tính
+ * chỉ làm entry mới hơn phiên bản của nó, lần đọc sau thấy phiên bản mới và tính lại
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportCacheServiceImpl implements ReportCacheService {
+
+    static final String REPORTS_CACHE = "reports";
+
+    private final DoanhSoNgayRepository doanhSoNgayRepository;
+    private final CacheManager cacheManager;
+
+    @Override
+    public Optional<Long> closedPeriodVersion(LocalDate startDate, LocalDate endDate, Long chiNhanhId) {
+        if (startDate == null || endDate == null || !endDate.isBefore(LocalDate.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(chiNhanhId != null
+                ? doanhSoNgayRepository.dataVersionByChiNhanh(chiNhanhId, startDate, endDate)
+                : doanhSoNgayRepository.dataVersion(startDate, endDate));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String report, LocalDate startDate, LocalDate endDate, Long chiNhanhId, Object params,
+                     Supplier<T> loader) {
+        Optional<Long> version = closedPeriodVersion(startDate, endDate, chiNhanhId);
+        Cache cache = version.isPresent() ? cacheManager.getCache(REPORTS_CACHE) : null;
+        if (cache == null) {
+            return loader.get();
+        }
+
+        String key = key(report, startDate, endDate, chiNhanhId, params, version.get());
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            log.debug("Report cache hit: {}", key);
+            return (T) cached.get();
+        }
+
+        T result = loader.get();
+        if (result != null) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    static String key(String report, LocalDate startDate, LocalDate endDate, Long chiNhanhId, Object params,
+                      long version) {
+        return report + ":" + startDate + ":" + endDate + ":" + (chiNhanhId != null ? chiNhanhId : "all")
+                + (params != null ? ":" + params : "") + ":v" + version;
+    }
+}
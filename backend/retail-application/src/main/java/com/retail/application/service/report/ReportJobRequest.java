@@ -0,0 +1,46 @@
+package com.retail.application.service.report;
+
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+
+import java.time.LocalDate;
+
+/**
+ * Tham số 1 job báo cáo - 2 yêu cầu bằng nhau (record equals) dùng chung 1 job đang chạy
+ *
+ * @param limit chỉ dùng cho SALES (số sản phẩm top), các báo cáo khác luôn null
+ */
+public record ReportJobRequest(ReportJobType type, LocalDate startDate, LocalDate endDate, Integer limit) {
+
+    private static final int DEFAULT_SALES_LIMIT = 10;
+
+    /**
+     * Chuẩn hóa tham số để yêu cầu giống nhau có cùng khóa: bỏ tham số báo cáo không dùng, limit mặc định 10
+     */
+    public static ReportJobRequest of(ReportJobType type, LocalDate startDate, LocalDate endDate, Integer limit) {
+        if (type == null) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Thiếu loại báo cáo");
+        }
+        if (!type.hasDateRange()) {
+            return new ReportJobRequest(type, null, null, null);
+        }
+        if (startDate == null || endDate == null) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Báo cáo " + type + " cần startDate và endDate");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Ngày bắt đầu không được sau ngày kết thúc");
+        }
+        Integer salesLimit = null;
+        if (type == ReportJobType.SALES) {
+            salesLimit = limit != null ? limit : DEFAULT_SALES_LIMIT;
+            if (salesLimit <= 0) {
+                throw new BusinessException(ErrorCode.BAD_REQUEST, "limit phải lớn hơn 0");
+            }
+        }
+        return new ReportJobRequest(type, startDate, endDate, salesLimit);
+    }
+
+    public static ReportJobRequest of(ReportJobType type) {
+        return of(type, null, null, null);
+    }
+}
@@ -0,0 +1,50 @@
+package com.retail.application.service.report;
+
+import com.retail.application.dto.ReportJobDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Hàng đợi job xuất báo cáo Excel - báo cáo được tạo trên pool worker giới hạn (không chiếm thread/kết nối DB
+ * của request), ghi ra file tạm, client hỏi trạng thái rồi tải file
+ */
+public interface ReportJobService {
+
+    /**
+     * Gửi yêu cầu báo cáo. Yêu cầu giống hệt 1 job đang chờ/đang chạy thì trả về job đó thay vì tạo job mới
+     *
+     * @throws com.retail.common.exception.BusinessException REPORT_QUEUE_FULL khi hàng đợi đã đầy
+     */
+    ReportJobDTO submit(ReportJobRequest request);
+
+    /**
+     * @throws com.retail.common.exception.ResourceNotFoundException job không tồn tại hoặc đã hết hạn giữ file
+     */
+    ReportJobDTO getJob(String jobId);
+
+    /**
+     * File của job đã xong
+     *
+     * @throws com.retail.common.exception.BusinessException REPORT_NOT_READY khi job chưa xong hoặc bị lỗi
+     */
+    ReportFile getFile(String jobId);
+
+    /**
+     * Chờ job xong (tối đa app.report.jobs.wait-timeout-ms) rồi trả file - dùng cho các endpoint tải trực tiếp cũ
+     */
+    ReportFile awaitFile(String jobId);
+
+    record ReportFile(Path path, String fileName, long size) {
+
+        /**
+         * Ghi nội dung file ra out (không đóng out)
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            Files.copy(path, out);
+            out.flush();
+        }
+    }
+}
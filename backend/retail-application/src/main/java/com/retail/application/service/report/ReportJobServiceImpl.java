@@ -0,0 +1,298 @@
+package com.retail.application.service.report;
+
+import com.retail.application.dto.ReportJobDTO;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import com.retail.common.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hàng đợi job báo cáo trong bộ nhớ của node.
+ *
+ * - workers thread cố định, hàng đợi tối đa queue-capacity job - số kết nối DB dùng cho báo cáo không vượt workers
+ * - Yêu cầu giống hệt 1 job đang chờ/đang chạy (cùng ReportJobRequest) được gộp vào job đó
+ * - Job xong giữ file tạm trong retention rồi bị dọn; job là của node đã nhận yêu cầu
+ * - Báo cáo của khoảng ngày đã kết thúc: file đã tạo được dùng lại (giữ closed-retention) cho tới khi
+ *   phiên bản dữ liệu của khoảng đổi (ReportCacheService)
+ */
+@Service
+@Slf4j
+public class ReportJobServiceImpl implements ReportJobService {
+
+    enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    private final RevenueReportService revenueReportService;
+    private final SalesReportService salesReportService;
+    private final InventoryReportService inventoryReportService;
+    private final NguyenLieuReportService nguyenLieuReportService;
+    private final ReportCacheService reportCacheService;
+    private final ThreadPoolExecutor workers;
+    private final Path directory;
+    private final Duration retention;
+    private final Duration closedRetention;
+    private final long waitTimeoutMs;
+
+    private final ConcurrentMap<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // Job đang chờ/đang chạy theo tham số - để gộp yêu cầu trùng
+    private final ConcurrentMap<ReportJobRequest, ReportJob> activeJobs = new ConcurrentHashMap<>();
+    // Job DONE mới nhất của khoảng ngày đã kết thúc - dùng lại khi phiên bản dữ liệu không đổi
+    private final ConcurrentMap<ReportJobRequest, ReportJob> finishedJobs = new ConcurrentHashMap<>();
+
+    public ReportJobServiceImpl(RevenueReportService revenueReportService,
+                                SalesReportService salesReportService,
+                                InventoryReportService inventoryReportService,
+                                NguyenLieuReportService nguyenLieuReportService,
+                                ReportCacheService reportCacheService,
+                                @Value("${app.report.jobs.workers:2}") int workers,
+                                @Value("${app.report.jobs.queue-capacity:20}") int queueCapacity,
+                                @Value("${app.report.jobs.directory:}") String directory,
+                                @Value("${app.report.jobs.retention-minutes:30}") long retentionMinutes,
+                                @Value("${app.report.jobs.closed-retention-minutes:1440}") long closedRetentionMinutes,
+                                @Value("${app.report.jobs.wait-timeout-ms:300000}") long waitTimeoutMs) throws IOException {
+        this.revenueReportService = revenueReportService;
+        this.salesReportService = salesReportService;
+        this.inventoryReportService = inventoryReportService;
+        this.nguyenLieuReportService = nguyenLieuReportService;
+        this.reportCacheService = reportCacheService;
+        int threads = Math.max(1, workers);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.directory = directory.isBlank()
+                ? Files.createTempDirectory("report-jobs")
+                : Files.createDirectories(Path.of(directory));
+        this.retention = Duration.ofMinutes(Math.max(1, retentionMinutes));
+        this.closedRetention = Duration.ofMinutes(Math.max(retentionMinutes, closedRetentionMinutes));
+        this.waitTimeoutMs = Math.max(1, waitTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        jobs.values().forEach(job -> deleteQuietly(job.file));
+    }
+
+    @Override
+    public ReportJobDTO submit(ReportJobRequest request) {
+        // Đọc phiên bản trước khi tạo báo cáo - dữ liệu đổi sau đó thì lần sau phiên bản khác, tạo lại
+        Long version = request.type().hasDateRange()
+                ? reportCacheService.closedPeriodVersion(request.startDate(), request.endDate(), null).orElse(null)
+                : null;
+        if (version != null) {
+            ReportJob finished = finishedJobs.get(request);
+            if (finished != null && version.equals(finished.version)) {
+                log.info("Report request {} reuses finished job {} (data version {})", request, finished.id, version);
+                return toDto(finished);
+            }
+        }
+
+        ReportJob created = new ReportJob(UUID.randomUUID().toString(), request, version);
+        ReportJob job = activeJobs.putIfAbsent(request, created);
+        if (job != null) {
+            log.info("Report request {} joined running job {}", request, job.id);
+            return toDto(job);
+        }
+
+        jobs.put(created.id, created);
+        try {
+            workers.execute(() -> run(created));
+        } catch (RejectedExecutionException e) {
+            // Yêu cầu trùng có thể vừa gộp vào job này - kết thúc job là FAILED thay vì xóa
+            created.error = "Hàng đợi báo cáo đã đầy";
+            created.status = Status.FAILED;
+            created.finishedAt = LocalDateTime.now();
+            activeJobs.remove(request, created);
+            created.completion.complete(Status.FAILED);
+            throw new BusinessException(ErrorCode.REPORT_QUEUE_FULL,
+                    "Đang có quá nhiều báo cáo chờ tạo, vui lòng thử lại sau");
+        }
+        log.info("Report job {} queued: {}", created.id, request);
+        return toDto(created);
+    }
+
+    @Override
+    public ReportJobDTO getJob(String jobId) {
+        return toDto(find(jobId));
+    }
+
+    @Override
+    public ReportFile getFile(String jobId) {
+        ReportJob job = find(jobId);
+        if (job.status != Status.DONE) {
+            throw new BusinessException(ErrorCode.REPORT_NOT_READY, job.status == Status.FAILED
+                    ? "Tạo báo cáo thất bại: " + job.error
+                    : "Báo cáo chưa tạo xong (" + job.status + ")");
+        }
+        return new ReportFile(job.file, job.fileName, job.fileSize);
+    }
+
+    @Override
+    public ReportFile awaitFile(String jobId) {
+        ReportJob job = find(jobId);
+        try {
+            job.completion.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new BusinessException(ErrorCode.REPORT_NOT_READY,
+                    "Báo cáo chưa tạo xong, theo dõi tiếp bằng job " + jobId);
+        } catch (ExecutionException e) {
+            // Job lỗi - getFile trả lỗi kèm nguyên nhân
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.REPORT_NOT_READY, "Đã hủy chờ báo cáo " + jobId);
+        }
+        return getFile(jobId);
+    }
+
+    /**
+     * Dọn job đã xong quá retention cùng file tạm (mặc định mỗi phút)
+     */
+    @Scheduled(fixedDelayString = "${app.report.jobs.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ReportJob> expired = jobs.values().stream()
+                .filter(job -> job.finishedAt != null && job.finishedAt.isBefore(now.minus(
+                        finishedJobs.get(job.request) == job ? closedRetention : retention)))
+                .toList();
+        for (ReportJob job : expired) {
+            jobs.remove(job.id);
+            finishedJobs.remove(job.request, job);
+            deleteQuietly(job.file);
+        }
+        if (!expired.isEmpty()) {
+            log.info("Removed {} expired report jobs", expired.size());
+        }
+    }
+
+    void run(ReportJob job) {
+        job.startedAt = LocalDateTime.now();
+        job.status = Status.RUNNING;
+        Path file = null;
+        try {
+            file = Files.createTempFile(directory, "report-", ".xlsx");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                render(job.request, out);
+            }
+            job.fileSize = Files.size(file);
+            job.file = file;
+            job.status = Status.DONE;
+            if (job.version != null) {
+                finishedJobs.merge(job.request, job, (previous, current) ->
+                        current.version >= previous.version ? current : previous);
+            }
+            log.info("Report job {} finished: {} ({} bytes)", job.id, job.fileName, job.fileSize);
+        } catch (Exception e) {
+            deleteQuietly(file);
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+            log.error("Report job {} failed: {}", job.id, job.request, e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            // Từ đây yêu cầu giống hệt tạo job mới (dữ liệu có thể đã đổi)
+            activeJobs.remove(job.request, job);
+            job.completion.complete(job.status);
+        }
+    }
+
+    private void render(ReportJobRequest request, OutputStream out) {
+        switch (request.type()) {
+            case REVENUE -> revenueReportService.writeRevenueReportExcel(request.startDate(), request.endDate(), out);
+            case SALES -> salesReportService.writeSalesReportExcel(
+                    request.startDate(), request.endDate(), request.limit(), out);
+            case INVENTORY -> inventoryReportService.writeInventoryReportExcel(out);
+            case NGUYEN_LIEU_TON_KHO -> nguyenLieuReportService.writeTonKhoExcel(out);
+            case NHAP_KHO -> nguyenLieuReportService.writeNhapKhoExcel(out);
+            case XUAT_KHO -> nguyenLieuReportService.writeXuatKhoExcel(out);
+        }
+    }
+
+    private ReportJob find(String jobId) {
+        ReportJob job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null) {
+            throw new ResourceNotFoundException("Job báo cáo", jobId);
+        }
+        return job;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete report file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static ReportJobDTO toDto(ReportJob job) {
+        return ReportJobDTO.builder()
+                .jobId(job.id)
+                .type(job.request.type().name())
+                .status(job.status.name())
+                .startDate(job.request.startDate())
+                .endDate(job.request.endDate())
+                .limit(job.request.limit())
+                .fileName(job.fileName)
+                .fileSize(job.status == Status.DONE ? job.fileSize : null)
+                .error(job.error)
+                .createdAt(job.createdAt)
+                .startedAt(job.startedAt)
+                .finishedAt(job.finishedAt)
+                .build();
+    }
+
+    /**
+     * Trạng thái chỉ do thread worker ghi; volatile để thread hỏi trạng thái thấy ngay
+     */
+    static final class ReportJob {
+        final String id;
+        final ReportJobRequest request;
+        // Phiên bản dữ liệu khi nhận yêu cầu, null khi khoảng chưa kết thúc / báo cáo không theo ngày
+        final Long version;
+        final String fileName;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final CompletableFuture<Status> completion = new CompletableFuture<>();
+        volatile Status status = Status.PENDING;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile Path file;
+        volatile long fileSize;
+        volatile String error;
+
+        ReportJob(String id, ReportJobRequest request, Long version) {
+            this.id = id;
+            this.request = request;
+            this.version = version;
+            this.fileName = request.type().fileName(request.startDate(), request.endDate(), LocalDate.now());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.retail.application.service.report;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Các báo cáo Excel chạy qua hàng đợi job (ReportJobService)
+ */
+public enum ReportJobType {
+
+    REVENUE("BaoCaoDoanhThu", true),
+    SALES("BaoCaoBanHang", true),
+    INVENTORY("BaoCaoTonKho", false),
+    NGUYEN_LIEU_TON_KHO("DanhSachNguyenLieuTonKho", false),
+    NHAP_KHO("BangNhapKho", false),
+    XUAT_KHO("BangXuatKho", false);
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("ddMMyyyy");
+
+    private final String filePrefix;
+    private final boolean dateRange;
+
+    ReportJobType(String filePrefix, boolean dateRange) {
+        this.filePrefix = filePrefix;
+        this.dateRange = dateRange;
+    }
+
+    /**
+     * Báo cáo có tham số khoảng ngày (startDate, endDate)
+     */
+    public boolean hasDateRange() {
+        return dateRange;
+    }
+
+    /**
+     * Tên file tải xuống - báo cáo theo khoảng ngày: {prefix}_{từ}_den_{đến}.xlsx, còn lại: {prefix}_{ngày tạo}.xlsx
+     */
+    public String fileName(LocalDate startDate, LocalDate endDate, LocalDate createdOn) {
+        if (dateRange) {
+            return String.format("%s_%s_den_%s.xlsx", filePrefix, startDate.format(FILE_DATE), endDate.format(FILE_DATE));
+        }
+        return String.format("%s_%s.xlsx", filePrefix, createdOn.format(FILE_DATE));
+    }
+}
@@ -6,10 +6,10 @@ import com.retail.application.dto.RevenueReportDTO;
 import com.retail.application.dto.TopProductDTO;
 import com.retail.application.mapper.ProductMapper;
 import com.retail.common.constant.Status;
-import com.retail.domain.entity.HoaDon;
 import com.retail.domain.entity.SanPham;
-import com.retail.persistence.repository.ChiTietHoaDonRepository;
-import com.retail.persistence.repository.HoaDonRepository;
+import com.retail.persistence.repository.DoanhSoNgayRepository;
+import com.retail.persistence.repository.DoanhSoSanPhamNgayRepository;
+import com.retail.persistence.repository.KhachHangNgayRepository;
 import com.retail.persistence.repository.SanPhamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,34 +19,40 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+/**
+ * Báo cáo doanh thu đọc từ rollup theo ngày - chi phí theo số ngày trong khoảng, không theo số hóa đơn.
+ * Khoảng ngày đã kết thúc được cache theo phiên bản dữ liệu (ReportCacheService)
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReportServiceImpl implements ReportService {
 
-    private final HoaDonRepository hoaDonRepository;
-    private final ChiTietHoaDonRepository chiTietHoaDonRepository;
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final DoanhSoNgayRepository doanhSoNgayRepository;
+    private final DoanhSoSanPhamNgayRepository doanhSoSanPhamNgayRepository;
+    private final KhachHangNgayRepository khachHangNgayRepository;
     private final SanPhamRepository sanPhamRepository;
     private final ProductMapper productMapper;
+    private final ReportCacheService reportCacheService;
 
     @Override
     @Transactional(readOnly = true)
     public RevenueReportDTO getRevenueReport(LocalDate startDate, LocalDate endDate) {
-        log.info("Generating revenue report from {} to {}", startDate, endDate);
-
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
+        return reportCacheService.get("revenue", startDate, endDate, null, null, () -> {
+            log.info("Generating revenue report from {} to {}", startDate, endDate);
 
-        List<HoaDon> invoices = hoaDonRepository.findByDateRange(
-                startDateTime, endDateTime, Status.COMPLETED);
+            List<Object[]> days = doanhSoNgayRepository.sumByDay(startDate, endDate);
+            Long totalCustomers = khachHangNgayRepository.countDistinctCustomers(startDate, endDate);
 
-        return calculateRevenueReport(invoices, startDateTime, endDateTime);
+            return calculateRevenueReport(days, totalCustomers, startDate, endDate);
+        });
     }
 
     @Override
@@ -54,16 +60,16 @@ public class ReportServiceImpl implements ReportService {
     public RevenueReportDTO getRevenueReportByBranch(Long chiNhanhId,
                                                      LocalDate startDate,
                                                      LocalDate endDate) {
-        log.info("Generating revenue report for branch {} from {} to {}",
-                chiNhanhId, startDate, endDate);
-
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
+        return reportCacheService.get("revenue", startDate, endDate, chiNhanhId, null, () -> {
+            log.info("Generating revenue report for branch {} from {} to {}",
+                    chiNhanhId, startDate, endDate);
 
-        List<HoaDon> invoices = hoaDonRepository.findByChiNhanhAndDateRange(
-                chiNhanhId, startDateTime, endDateTime, Status.COMPLETED);
+            List<Object[]> days = doanhSoNgayRepository.sumByDayAndChiNhanh(chiNhanhId, startDate, endDate);
+            Long totalCustomers = khachHangNgayRepository.countDistinctCustomersByChiNhanh(
+                    chiNhanhId, startDate, endDate);
 
-        return calculateRevenueReport(invoices, startDateTime, endDateTime);
+            return calculateRevenueReport(days, totalCustomers, startDate, endDate);
+        });
     }
 
     @Override
@@ -71,13 +77,14 @@ public class ReportServiceImpl implements ReportService {
     public List<TopProductDTO> getTopSellingProducts(LocalDate startDate,
                                                      LocalDate endDate,
                                                      int limit) {
-        log.info("Getting top {} selling products from {} to {}", limit, startDate, endDate);
+        return reportCacheService.get("top-products", startDate, endDate, null, limit,
+                () -> loadTopSellingProducts(startDate, endDate, limit));
+    }
 
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
+    private List<TopProductDTO> loadTopSellingProducts(LocalDate startDate, LocalDate endDate, int limit) {
+        log.info("Getting top {} selling products from {} to {}", limit, startDate, endDate);
 
-        List<Object[]> results = chiTietHoaDonRepository.getTopSellingProductsReport(
-                startDateTime, endDateTime, Status.COMPLETED);
+        List<Object[]> results = doanhSoSanPhamNgayRepository.sumByProduct(startDate, endDate);
 
         List<TopProductDTO> products = IntStream.range(0, Math.min(results.size(), limit))
                 .mapToObj(i -> {
@@ -106,101 +113,65 @@ public class ReportServiceImpl implements ReportService {
         return productMapper.toDtoList(products);
     }
 
-    private RevenueReportDTO calculateRevenueReport(List<HoaDon> invoices,
-                                                    LocalDateTime startDate,
-                                                    LocalDateTime endDate) {
-        if (invoices.isEmpty()) {
-            return RevenueReportDTO.builder()
-                    .startDate(startDate)
-                    .endDate(endDate)
-                    .totalOrders(0L)
-                    .totalRevenue(BigDecimal.ZERO)
-                    .totalDiscount(BigDecimal.ZERO)
-                    .netRevenue(BigDecimal.ZERO)
-                    .totalProfit(BigDecimal.ZERO)
-                    .totalCustomers(0L)
-                    .averageOrderValue(BigDecimal.ZERO)
-                    .revenueByMonth(new ArrayList<>())
-                    .build();
+    /**
+     * Tính báo cáo từ các dòng rollup theo ngày [ngay, soDon, tongTien, giamGia, thanhTien]
+     */
+    private RevenueReportDTO calculateRevenueReport(List<Object[]> days,
+                                                    Long customers,
+                                                    LocalDate startDate,
+                                                    LocalDate endDate) {
+        long totalOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        BigDecimal totalDiscount = BigDecimal.ZERO;
+        BigDecimal netRevenue = BigDecimal.ZERO;
+        // Nhóm theo tháng - TreeMap giữ tháng tăng dần
+        Map<String, RevenueByMonthDTO> byMonth = new TreeMap<>();
+
+        for (Object[] day : days) {
+            long dayOrders = ((Number) day[1]).longValue();
+            BigDecimal dayNet = (BigDecimal) day[4];
+
+            totalOrders += dayOrders;
+            totalRevenue = totalRevenue.add((BigDecimal) day[2]);
+            totalDiscount = totalDiscount.add((BigDecimal) day[3]);
+            netRevenue = netRevenue.add(dayNet);
+
+            String month = ((LocalDate) day[0]).format(MONTH_FORMATTER);
+            RevenueByMonthDTO monthTotals = byMonth.computeIfAbsent(month, m -> RevenueByMonthDTO.builder()
+                    .month(m)
+                    .revenue(BigDecimal.ZERO)
+                    .orders(0L)
+                    .build());
+            monthTotals.setRevenue(monthTotals.getRevenue().add(dayNet));
+            monthTotals.setOrders(monthTotals.getOrders() + dayOrders);
         }
 
-        long totalOrders = invoices.size();
-
-        BigDecimal totalRevenue = invoices.stream()
-                .map(HoaDon::getTongTien)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalDiscount = invoices.stream()
-                .map(HoaDon::getGiamGia)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal netRevenue = invoices.stream()
-                .map(HoaDon::getThanhTien)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        long totalCustomers = invoices.stream()
-                .map(HoaDon::getKhachHang)
-                .filter(kh -> kh != null)
-                .map(kh -> kh.getId())
-                .distinct()
-                .count();
+        // Ngày chỉ còn hóa đơn đã hủy có soDon = 0 - không tính là tháng có bán
+        List<RevenueByMonthDTO> revenueByMonth = byMonth.values().stream()
+                .filter(month -> month.getOrders() > 0)
+                .collect(Collectors.toCollection(ArrayList::new));
+        log.info("Calculated revenue for {} months", revenueByMonth.size());
 
         BigDecimal averageOrderValue = totalOrders > 0
                 ? netRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP)
                 : BigDecimal.ZERO;
 
         // Tính lợi nhuận (10% của netRevenue)
-        BigDecimal totalProfit = netRevenue.multiply(BigDecimal.valueOf(0.1))
-                .setScale(0, RoundingMode.HALF_UP);
-
-        // Tính doanh thu theo tháng
-        List<RevenueByMonthDTO> revenueByMonth = calculateRevenueByMonth(invoices);
+        BigDecimal totalProfit = totalOrders > 0
+                ? netRevenue.multiply(BigDecimal.valueOf(0.1)).setScale(0, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
 
         return RevenueReportDTO.builder()
-                .startDate(startDate)
-                .endDate(endDate)
+                .startDate(startDate.atStartOfDay())
+                .endDate(endDate.plusDays(1).atStartOfDay())
                 .totalOrders(totalOrders)
                 .totalRevenue(totalRevenue)
                 .totalDiscount(totalDiscount)
                 .netRevenue(netRevenue)
                 .totalProfit(totalProfit)
-                .totalCustomers(totalCustomers)
+                .totalCustomers(customers != null ? customers : 0L)
                 .averageOrderValue(averageOrderValue)
                 .revenueByMonth(revenueByMonth)
                 .build();
     }
-
-    /**
-     * Tính doanh thu theo tháng từ danh sách hóa đơn
-     */
-    private List<RevenueByMonthDTO> calculateRevenueByMonth(List<HoaDon> invoices) {
-        // Nhóm hóa đơn theo tháng
-        Map<String, List<HoaDon>> invoicesByMonth = invoices.stream()
-                .collect(Collectors.groupingBy(invoice -> {
-                    LocalDate date = invoice.getNgayTao().toLocalDate();
-                    return date.format(DateTimeFormatter.ofPattern("yyyy-MM"));
-                }));
-
-        // Tính doanh thu và số đơn hàng cho mỗi tháng
-        List<RevenueByMonthDTO> revenueByMonth = new ArrayList<>();
-        invoicesByMonth.forEach((month, monthInvoices) -> {
-            BigDecimal monthRevenue = monthInvoices.stream()
-                    .map(HoaDon::getThanhTien)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            Long monthOrders = (long) monthInvoices.size();
-
-            revenueByMonth.add(RevenueByMonthDTO.builder()
-                    .month(month)
-                    .revenue(monthRevenue)
-                    .orders(monthOrders)
-                    .build());
-        });
-
-        // Sắp xếp theo tháng tăng dần
-        revenueByMonth.sort(Comparator.comparing(RevenueByMonthDTO::getMonth));
-
-        log.info("Calculated revenue for {} months", revenueByMonth.size());
-        return revenueByMonth;
-    }
-}
\ No newline at end of file
+}
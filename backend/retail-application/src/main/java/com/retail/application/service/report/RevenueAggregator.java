@@ -0,0 +1,170 @@
+package com.retail.application.service.report;
+
+import com.retail.common.util.LongHashSet;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.InvoiceSummary;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.ReportInvoice;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.ReportLine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Số liệu báo cáo doanh thu cộng dồn trong 1 lượt đọc - mỗi hóa đơn và mỗi dòng chỉ ghé 1 lần,
+ * các sheet chỉ việc in kết quả.
+ *
+ * - Tiền lưu bằng long theo đơn vị nhỏ nhất (1/100 đồng, cùng scale 2 với cột DB) thay cho cộng BigDecimal
+ * - Phần cộng dồn (add) chạy trên bản riêng của từng thread rồi gộp vào bản chung bằng merge
+ * - Số khách khác nhau phụ thuộc thứ tự đọc nên chỉ đếm trên thread đọc (countCustomer), không qua merge
+ */
+final class RevenueAggregator {
+
+    private static final int MINOR_SCALE = 2;
+
+    long orders;
+    long grossMinor;
+    long discountMinor;
+    long netMinor;
+    final Map<YearMonth, PeriodTotals> months = new TreeMap<>();
+    final Map<LocalDate, PeriodTotals> days = new TreeMap<>();
+    // Khóa null = không phân loại
+    final Map<Long, ItemTotals> categories = new HashMap<>();
+    final Map<Long, ItemTotals> products = new HashMap<>();
+
+    // Chỉ thread đọc - hóa đơn đến theo ngayTao giảm dần nên khách trong ngày chỉ cần giữ cho ngày đang đọc
+    private final LongHashSet customerIds = new LongHashSet();
+    private final Map<LocalDate, Integer> customersByDate = new HashMap<>();
+    private LocalDate currentDate;
+    private LongHashSet currentDateCustomerIds;
+
+    /**
+     * Cộng 1 hóa đơn và các dòng của nó
+     */
+    void add(ReportInvoice invoice) {
+        InvoiceSummary summary = invoice.summary();
+        long net = toMinor(summary.thanhTien());
+
+        orders++;
+        grossMinor += toMinor(summary.tongTien());
+        discountMinor += toMinor(summary.giamGia());
+        netMinor += net;
+        months.computeIfAbsent(YearMonth.from(summary.ngayTao()), k -> new PeriodTotals()).add(net);
+        days.computeIfAbsent(summary.ngayTao().toLocalDate(), k -> new PeriodTotals()).add(net);
+
+        for (ReportLine line : invoice.lines()) {
+            long revenue = toMinor(line.thanhTien());
+            long discount = toMinor(line.giamGia());
+            categories.computeIfAbsent(line.danhMucId(), k -> new ItemTotals()).add(line.soLuong(), revenue, discount);
+            products.computeIfAbsent(line.sanPhamId(), k -> new ItemTotals()).add(line.soLuong(), revenue, discount);
+        }
+    }
+
+    /**
+     * Gộp phần cộng dồn của bản riêng (không gộp số khách)
+     */
+    synchronized void merge(RevenueAggregator other) {
+        orders += other.orders;
+        grossMinor += other.grossMinor;
+        discountMinor += other.discountMinor;
+        netMinor += other.netMinor;
+        other.months.forEach((key, totals) -> months.merge(key, totals, PeriodTotals::merge));
+        other.days.forEach((key, totals) -> days.merge(key, totals, PeriodTotals::merge));
+        other.categories.forEach((key, totals) -> categories.merge(key, totals, ItemTotals::merge));
+        other.products.forEach((key, totals) -> products.merge(key, totals, ItemTotals::merge));
+    }
+
+    /**
+     * Đếm khách của hóa đơn - gọi theo đúng thứ tự đọc (ngayTao giảm dần)
+     */
+    void countCustomer(InvoiceSummary summary) {
+        LocalDate date = summary.ngayTao().toLocalDate();
+        if (!date.equals(currentDate)) {
+            finishCustomers();
+            currentDate = date;
+            currentDateCustomerIds = new LongHashSet();
+        }
+        if (summary.khachHangId() != null) {
+            customerIds.add(summary.khachHangId());
+            currentDateCustomerIds.add(summary.khachHangId());
+        }
+    }
+
+    /**
+     * Chốt số khách của ngày đang đọc - gọi sau hóa đơn cuối cùng
+     */
+    void finishCustomers() {
+        if (currentDate != null) {
+            customersByDate.put(currentDate, currentDateCustomerIds.size());
+            currentDate = null;
+            currentDateCustomerIds = null;
+        }
+    }
+
+    int customerCount() {
+        return customerIds.size();
+    }
+
+    int customersOn(LocalDate date) {
+        return customersByDate.getOrDefault(date, 0);
+    }
+
+    static long toMinor(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(MINOR_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static double toAmount(long minor) {
+        return BigDecimal.valueOf(minor, MINOR_SCALE).doubleValue();
+    }
+
+    /**
+     * value / divisor làm tròn HALF_UP (divisor > 0)
+     */
+    static long divideHalfUp(long value, long divisor) {
+        return Math.floorDiv(2 * value + divisor, 2 * divisor);
+    }
+
+    /**
+     * Số đơn và doanh thu thực của 1 tháng/ngày
+     */
+    static final class PeriodTotals {
+        long orders;
+        long netMinor;
+
+        void add(long net) {
+            orders++;
+            netMinor += net;
+        }
+
+        PeriodTotals merge(PeriodTotals other) {
+            orders += other.orders;
+            netMinor += other.netMinor;
+            return this;
+        }
+    }
+
+    /**
+     * Số lượng, doanh thu và giảm giá khuyến mãi đã phân bổ của 1 danh mục/sản phẩm
+     */
+    static final class ItemTotals {
+        long quantity;
+        long revenueMinor;
+        long discountMinor;
+
+        void add(int soLuong, long revenue, long discount) {
+            quantity += soLuong;
+            revenueMinor += revenue;
+            discountMinor += discount;
+        }
+
+        ItemTotals merge(ItemTotals other) {
+            quantity += other.quantity;
+            revenueMinor += other.revenueMinor;
+            discountMinor += other.discountMinor;
+            return this;
+        }
+    }
+}
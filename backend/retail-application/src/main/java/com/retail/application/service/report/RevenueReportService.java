@@ -1,112 +1,141 @@
 package com.retail.application.service.report;
 
+import com.retail.application.concurrent.BoundedChunkExecutor;
+import com.retail.application.service.report.RevenueAggregator.ItemTotals;
+import com.retail.application.service.report.RevenueAggregator.PeriodTotals;
 import com.retail.common.constant.Status;
-import com.retail.domain.entity.ChiTietHoaDon;
-import com.retail.domain.entity.HoaDon;
-import com.retail.domain.entity.SanPham;
+import com.retail.domain.entity.DanhMuc;
+import com.retail.persistence.repository.DanhMucRepository;
+import com.retail.persistence.repository.HoaDonKhuyenMaiRepository;
 import com.retail.persistence.repository.HoaDonRepository;
-import lombok.RequiredArgsConstructor;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.InvoiceSummary;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.ReportInvoice;
+import com.retail.persistence.repository.SanPhamRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFColor;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
- * Service tạo báo cáo doanh thu Excel với 6 sheets:
+ * Service tạo báo cáo doanh thu Excel với 7 sheets:
  * 1. Tổng quan (Overview)
  * 2. Doanh thu theo tháng (Monthly Revenue)
  * 3. Doanh số theo danh mục (Sales by Category)
  * 4. Sản phẩm bán chạy (Top Products)
  * 5. Chi tiết đơn hàng (Order Details)
  * 6. Thống kê theo ngày (Daily Statistics)
+ * 7. Giảm giá theo khuyến mãi (Promotion Discounts)
+ *
+ * Sheet 1-6 lấy từ 1 lượt đọc hóa đơn kèm dòng (RevenueAggregator) - giảm giá theo sản phẩm/danh mục
+ * lấy từ bảng phân bổ giảm giá; sheet 7 vẫn GROUP BY bằng SQL. Workbook SXSSF ghi thẳng ra response
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RevenueReportService {
 
-    private final HoaDonRepository hoaDonRepository;
-
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
     private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MM/yyyy");
-    private static final BigDecimal PROFIT_PERCENTAGE = BigDecimal.valueOf(0.1); // 10%
+    private static final long PROFIT_DIVISOR = 10; // Lợi nhuận ước tính 10% doanh thu thực
+    private static final int TOP_PRODUCTS = 20;
+
+    private final HoaDonRepository hoaDonRepository;
+    private final HoaDonKhuyenMaiRepository hoaDonKhuyenMaiRepository;
+    private final SanPhamRepository sanPhamRepository;
+    private final DanhMucRepository danhMucRepository;
+    private final ExcelExportSupport excelExportSupport;
+    private final BoundedChunkExecutor chunkExecutor;
+    private final int chunkSize;
+
+    public RevenueReportService(HoaDonRepository hoaDonRepository,
+                                HoaDonKhuyenMaiRepository hoaDonKhuyenMaiRepository,
+                                SanPhamRepository sanPhamRepository,
+                                DanhMucRepository danhMucRepository,
+                                ExcelExportSupport excelExportSupport,
+                                @Value("${app.report.revenue.chunk-size:1000}") int chunkSize,
+                                @Value("${app.report.revenue.parallelism:0}") int parallelism) {
+        this.hoaDonRepository = hoaDonRepository;
+        this.hoaDonKhuyenMaiRepository = hoaDonKhuyenMaiRepository;
+        this.sanPhamRepository = sanPhamRepository;
+        this.danhMucRepository = danhMucRepository;
+        this.excelExportSupport = excelExportSupport;
+        this.chunkExecutor = new BoundedChunkExecutor("Revenue aggregation", parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chunkExecutor.shutdown();
+    }
 
-    public byte[] generateRevenueReportExcel(LocalDate startDate, LocalDate endDate) {
+    /**
+     * Ghi báo cáo doanh thu Excel thẳng ra out (không đóng out)
+     *
+     * Hóa đơn kèm dòng được đọc 1 lượt bằng con trỏ JDBC chỉ đọc tới, gom theo khối: sheet 5 ghi từng dòng
+     * ngay khi đọc, các khối được cộng dồn song song cho sheet 1-4, 6 rồi điền sau cùng
+     */
+    public void writeRevenueReportExcel(LocalDate startDate, LocalDate endDate, OutputStream out) {
         log.info("Generating revenue report Excel from {} to {}", startDate, endDate);
 
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
 
-        // Lấy tất cả hóa đơn với chi tiết
-        log.info("Querying invoices from {} to {} with status COMPLETED", startDateTime, endDateTime);
-        List<HoaDon> invoices = hoaDonRepository.getInvoicesForRevenueReport(
-                startDateTime, endDateTime, Status.COMPLETED
-        );
-
-        log.info("Found {} invoices to process", invoices.size());
-        // Log dates of all invoices for debugging
-        if (!invoices.isEmpty()) {
-            Map<LocalDate, Long> invoicesByDate = invoices.stream()
-                    .filter(inv -> inv.getNgayTao() != null)
-                    .collect(Collectors.groupingBy(
-                            inv -> inv.getNgayTao().toLocalDate(),
-                            Collectors.counting()
-                    ));
-            log.info("Invoices by date: {}", invoicesByDate);
-        }
-
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            // Tạo styles
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle currencyStyle = createCurrencyStyle(workbook);
-            CellStyle numberStyle = createNumberStyle(workbook);
-            CellStyle dateStyle = createDateStyle(workbook);
-            CellStyle percentageStyle = createPercentageStyle(workbook);
-            CellStyle textStyle = createTextStyle(workbook);
-
-            // Sheet 1: Tổng quan
-            createOverviewSheet(workbook, invoices, startDate, endDate,
-                    headerStyle, currencyStyle, numberStyle, dateStyle, textStyle);
-
-            // Sheet 2: Doanh thu theo tháng
-            createMonthlyRevenueSheet(workbook, invoices,
-                    headerStyle, currencyStyle, numberStyle, textStyle);
-
-            // Sheet 3: Doanh số theo danh mục
-            createCategorySalesSheet(workbook, invoices,
-                    headerStyle, currencyStyle, numberStyle, percentageStyle, textStyle);
-
-            // Sheet 4: Sản phẩm bán chạy
-            createTopProductsSheet(workbook, invoices,
-                    headerStyle, currencyStyle, numberStyle, textStyle);
-
-            // Sheet 5: Chi tiết đơn hàng
-            createOrderDetailsSheet(workbook, invoices,
-                    headerStyle, currencyStyle, numberStyle, dateStyle, textStyle);
-
-            // Sheet 6: Thống kê theo ngày
-            log.debug("Creating daily statistics sheet with {} invoices", invoices.size());
-            createDailyStatisticsSheet(workbook, invoices,
-                    headerStyle, currencyStyle, numberStyle, dateStyle, textStyle);
-
-            workbook.write(baos);
-            log.info("Revenue report Excel generated successfully, size: {} bytes", baos.size());
-
-            return baos.toByteArray();
+        try {
+            excelExportSupport.export(out, workbook -> {
+                // Tạo styles
+                CellStyle headerStyle = createHeaderStyle(workbook);
+                CellStyle currencyStyle = createCurrencyStyle(workbook);
+                CellStyle numberStyle = createNumberStyle(workbook);
+                CellStyle dateStyle = createDateStyle(workbook);
+                CellStyle percentageStyle = createPercentageStyle(workbook);
+                CellStyle textStyle = createTextStyle(workbook);
+
+                // Sheet 1-4: tạo trước để giữ thứ tự sheet, điền sau khi đã đọc hết hóa đơn
+                Sheet overviewSheet = ExcelExportSupport.createSheet(workbook, "Tổng quan");
+                Sheet monthlySheet = ExcelExportSupport.createSheet(workbook, "Doanh thu theo tháng");
+                Sheet categorySheet = ExcelExportSupport.createSheet(workbook, "Doanh số theo danh mục");
+                Sheet topProductsSheet = ExcelExportSupport.createSheet(workbook, "Sản phẩm bán chạy");
+
+                // Sheet 5: Chi tiết đơn hàng (đọc hóa đơn 1 lượt)
+                RevenueAggregator totals = createOrderDetailsSheet(workbook, startDateTime, endDateTime,
+                        headerStyle, currencyStyle, numberStyle, dateStyle, textStyle);
+                log.info("Aggregated {} invoices into revenue report", totals.orders);
+
+                // Sheet 6: Thống kê theo ngày
+                createDailyStatisticsSheet(workbook, totals,
+                        headerStyle, currencyStyle, numberStyle, dateStyle, textStyle);
+
+                // Sheet 7: Giảm giá theo khuyến mãi
+                createPromotionDiscountSheet(workbook, startDateTime, endDateTime,
+                        headerStyle, currencyStyle, numberStyle, textStyle);
+
+                fillOverviewSheet(overviewSheet, totals, startDate, endDate,
+                        headerStyle, currencyStyle, numberStyle, dateStyle, textStyle);
+                fillMonthlyRevenueSheet(monthlySheet, totals.months,
+                        headerStyle, currencyStyle, numberStyle, textStyle);
+                fillCategorySalesSheet(categorySheet, totals,
+                        headerStyle, currencyStyle, numberStyle, percentageStyle, textStyle);
+                fillTopProductsSheet(topProductsSheet, totals,
+                        headerStyle, currencyStyle, numberStyle, textStyle);
+            });
+            log.info("Revenue report Excel generated successfully from {} to {}", startDate, endDate);
 
         } catch (Exception e) {
             log.error("Error generating revenue report Excel", e);
@@ -116,12 +145,10 @@ public class RevenueReportService {
 
     // ========== SHEET 1: TỔNG QUAN ==========
 
-    private void createOverviewSheet(Workbook workbook, List<HoaDon> invoices,
-                                     LocalDate startDate, LocalDate endDate,
-                                     CellStyle headerStyle, CellStyle currencyStyle,
-                                     CellStyle numberStyle, CellStyle dateStyle, CellStyle textStyle) {
-        Sheet sheet = workbook.createSheet("Tổng quan");
-
+    private void fillOverviewSheet(Sheet sheet, RevenueAggregator totals,
+                                   LocalDate startDate, LocalDate endDate,
+                                   CellStyle headerStyle, CellStyle currencyStyle,
+                                   CellStyle numberStyle, CellStyle dateStyle, CellStyle textStyle) {
         // Header
         Row headerRow = sheet.createRow(0);
         String[] headers = {"Chỉ số", "Giá trị"};
@@ -132,39 +159,23 @@ public class RevenueReportService {
         }
 
         // Tính toán dữ liệu
-        long totalOrders = invoices.size();
-        BigDecimal totalRevenue = invoices.stream()
-                .map(HoaDon::getTongTien)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal totalDiscount = invoices.stream()
-                .map(h -> h.getGiamGia() != null ? h.getGiamGia() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal netRevenue = invoices.stream()
-                .map(HoaDon::getThanhTien)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal totalProfit = netRevenue.multiply(PROFIT_PERCENTAGE)
-                .setScale(2, RoundingMode.HALF_UP);
-        long totalCustomers = invoices.stream()
-                .map(HoaDon::getKhachHang)
-                .filter(Objects::nonNull)
-                .map(kh -> kh.getId())
-                .distinct()
-                .count();
-        BigDecimal averageOrderValue = totalOrders > 0
-                ? netRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP)
-                : BigDecimal.ZERO;
+        long totalOrders = totals.orders;
+        long totalProfit = RevenueAggregator.divideHalfUp(totals.netMinor, PROFIT_DIVISOR);
+        long averageOrderValue = totalOrders > 0
+                ? RevenueAggregator.divideHalfUp(totals.netMinor, totalOrders)
+                : 0;
 
         // Data rows
         int rowNum = 1;
-        rowNum = addOverviewRow(sheet, rowNum++, "Ngày bắt đầu", startDate.format(DATE_FORMATTER), textStyle, dateStyle);
-        rowNum = addOverviewRow(sheet, rowNum++, "Ngày kết thúc", endDate.format(DATE_FORMATTER), textStyle, dateStyle);
-        rowNum = addOverviewRow(sheet, rowNum++, "Tổng số đơn hàng", String.valueOf(totalOrders), textStyle, numberStyle);
-        rowNum = addOverviewRow(sheet, rowNum++, "Tổng doanh thu", totalRevenue, textStyle, currencyStyle);
-        rowNum = addOverviewRow(sheet, rowNum++, "Tổng giảm giá", totalDiscount, textStyle, currencyStyle);
-        rowNum = addOverviewRow(sheet, rowNum++, "Doanh thu thực tế", netRevenue, textStyle, currencyStyle);
-        rowNum = addOverviewRow(sheet, rowNum++, "Tổng lợi nhuận", totalProfit, textStyle, currencyStyle);
-        rowNum = addOverviewRow(sheet, rowNum++, "Tổng số khách hàng", String.valueOf(totalCustomers), textStyle, numberStyle);
-        addOverviewRow(sheet, rowNum, "Giá trị đơn hàng trung bình", averageOrderValue, textStyle, currencyStyle);
+        addOverviewRow(sheet, rowNum++, "Ngày bắt đầu", startDate.format(DATE_FORMATTER), textStyle, dateStyle);
+        addOverviewRow(sheet, rowNum++, "Ngày kết thúc", endDate.format(DATE_FORMATTER), textStyle, dateStyle);
+        addOverviewRow(sheet, rowNum++, "Tổng số đơn hàng", String.valueOf(totalOrders), textStyle, numberStyle);
+        addOverviewRow(sheet, rowNum++, "Tổng doanh thu", amount(totals.grossMinor), textStyle, currencyStyle);
+        addOverviewRow(sheet, rowNum++, "Tổng giảm giá", amount(totals.discountMinor), textStyle, currencyStyle);
+        addOverviewRow(sheet, rowNum++, "Doanh thu thực tế", amount(totals.netMinor), textStyle, currencyStyle);
+        addOverviewRow(sheet, rowNum++, "Tổng lợi nhuận", amount(totalProfit), textStyle, currencyStyle);
+        addOverviewRow(sheet, rowNum++, "Tổng số khách hàng", String.valueOf(totals.customerCount()), textStyle, numberStyle);
+        addOverviewRow(sheet, rowNum, "Giá trị đơn hàng trung bình", amount(averageOrderValue), textStyle, currencyStyle);
 
         // Auto-size columns
         sheet.autoSizeColumn(0);
@@ -189,13 +200,18 @@ public class RevenueReportService {
         return rowNum;
     }
 
-    // ========== SHEET 2: DOANH THU THEO THÁNG ==========
+    /**
+     * Đơn vị nhỏ nhất (1/100 đồng) -> số tiền để in ra ô
+     */
+    private static BigDecimal amount(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
 
-    private void createMonthlyRevenueSheet(Workbook workbook, List<HoaDon> invoices,
-                                           CellStyle headerStyle, CellStyle currencyStyle,
-                                           CellStyle numberStyle, CellStyle textStyle) {
-        Sheet sheet = workbook.createSheet("Doanh thu theo tháng");
+    // ========== SHEET 2: DOANH THU THEO THÁNG ==========
 
+    private void fillMonthlyRevenueSheet(Sheet sheet, Map<YearMonth, PeriodTotals> monthlyData,
+                                         CellStyle headerStyle, CellStyle currencyStyle,
+                                         CellStyle numberStyle, CellStyle textStyle) {
         // Header
         Row headerRow = sheet.createRow(0);
         String[] headers = {"Tháng", "Doanh thu", "Số đơn hàng", "Lợi nhuận"};
@@ -205,26 +221,16 @@ public class RevenueReportService {
             cell.setCellStyle(headerStyle);
         }
 
-        // Nhóm theo tháng
-        Map<String, MonthlyData> monthlyData = new TreeMap<>();
-        for (HoaDon invoice : invoices) {
-            String month = invoice.getNgayTao().format(MONTH_FORMATTER);
-            MonthlyData data = monthlyData.computeIfAbsent(month, k -> new MonthlyData());
-            data.revenue = data.revenue.add(invoice.getThanhTien());
-            data.orders++;
-            data.profit = data.profit.add(invoice.getThanhTien().multiply(PROFIT_PERCENTAGE));
-        }
-
-        // Data rows
+        // Data rows - TreeMap theo YearMonth nên tháng qua năm vẫn đúng thứ tự
         int rowNum = 1;
-        for (Map.Entry<String, MonthlyData> entry : monthlyData.entrySet()) {
+        for (Map.Entry<YearMonth, PeriodTotals> entry : monthlyData.entrySet()) {
             Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue("Tháng " + entry.getKey());
+            row.createCell(0).setCellValue("Tháng " + entry.getKey().format(MONTH_FORMATTER));
             row.getCell(0).setCellStyle(textStyle);
 
-            MonthlyData data = entry.getValue();
+            PeriodTotals data = entry.getValue();
             Cell revenueCell = row.createCell(1);
-            revenueCell.setCellValue(data.revenue.doubleValue());
+            revenueCell.setCellValue(RevenueAggregator.toAmount(data.netMinor));
             revenueCell.setCellStyle(currencyStyle);
 
             Cell ordersCell = row.createCell(2);
@@ -232,7 +238,8 @@ public class RevenueReportService {
             ordersCell.setCellStyle(numberStyle);
 
             Cell profitCell = row.createCell(3);
-            profitCell.setCellValue(data.profit.setScale(2, RoundingMode.HALF_UP).doubleValue());
+            profitCell.setCellValue(RevenueAggregator.toAmount(
+                    RevenueAggregator.divideHalfUp(data.netMinor, PROFIT_DIVISOR)));
             profitCell.setCellStyle(currencyStyle);
         }
 
@@ -242,79 +249,64 @@ public class RevenueReportService {
         }
     }
 
-    private static class MonthlyData {
-        BigDecimal revenue = BigDecimal.ZERO;
-        int orders = 0;
-        BigDecimal profit = BigDecimal.ZERO;
-    }
-
     // ========== SHEET 3: DOANH SỐ THEO DANH MỤC ==========
 
-    private void createCategorySalesSheet(Workbook workbook, List<HoaDon> invoices,
-                                          CellStyle headerStyle, CellStyle currencyStyle,
-                                          CellStyle numberStyle, CellStyle percentageStyle,
-                                          CellStyle textStyle) {
-        Sheet sheet = workbook.createSheet("Doanh số theo danh mục");
-
+    private void fillCategorySalesSheet(Sheet sheet, RevenueAggregator totals,
+                                        CellStyle headerStyle, CellStyle currencyStyle,
+                                        CellStyle numberStyle, CellStyle percentageStyle,
+                                        CellStyle textStyle) {
         // Header
         Row headerRow = sheet.createRow(0);
-        String[] headers = {"Danh mục", "Doanh thu", "Số lượng", "Tỷ lệ %"};
+        String[] headers = {"Danh mục", "Doanh thu", "Số lượng", "Tỷ lệ %", "Giảm giá khuyến mãi"};
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
             cell.setCellStyle(headerStyle);
         }
 
-        // Tính tổng doanh thu và nhóm theo danh mục
-        Map<String, CategoryData> categoryData = new LinkedHashMap<>();
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-
-        for (HoaDon invoice : invoices) {
-            for (ChiTietHoaDon detail : invoice.getChiTietHoaDons()) {
-                SanPham product = detail.getSanPham();
-                String category = product.getDanhMuc() != null
-                        ? product.getDanhMuc().getTenDanhMuc()
-                        : "Không phân loại";
-
-                CategoryData data = categoryData.computeIfAbsent(category, k -> new CategoryData());
-                BigDecimal itemRevenue = detail.getThanhTien();
-                data.revenue = data.revenue.add(itemRevenue);
-                data.quantity += detail.getSoLuong();
-                totalRevenue = totalRevenue.add(itemRevenue);
+        // Doanh thu giảm dần; tên danh mục nạp 1 lần theo các id có bán
+        List<Map.Entry<Long, ItemTotals>> categories = sortByRevenue(totals.categories);
+        Map<Long, String> names = new HashMap<>();
+        List<Long> ids = categories.stream().map(Map.Entry::getKey).filter(Objects::nonNull).toList();
+        if (!ids.isEmpty()) {
+            for (DanhMuc danhMuc : danhMucRepository.findAllById(ids)) {
+                names.put(danhMuc.getId(), danhMuc.getTenDanhMuc());
             }
         }
 
-        // Tính phần trăm
-        for (CategoryData data : categoryData.values()) {
-            if (totalRevenue.compareTo(BigDecimal.ZERO) > 0) {
-                data.percentage = data.revenue.divide(totalRevenue, 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100));
-            }
+        long totalRevenue = 0;
+        for (Map.Entry<Long, ItemTotals> entry : categories) {
+            totalRevenue += entry.getValue().revenueMinor;
         }
 
-        // Data rows (sắp xếp theo doanh thu giảm dần)
-        List<Map.Entry<String, CategoryData>> sortedEntries = categoryData.entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().revenue.compareTo(e1.getValue().revenue))
-                .collect(Collectors.toList());
-
+        // Data rows
         int rowNum = 1;
-        for (Map.Entry<String, CategoryData> entry : sortedEntries) {
+        for (Map.Entry<Long, ItemTotals> entry : categories) {
+            ItemTotals data = entry.getValue();
+
             Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(entry.getKey());
+            String name = entry.getKey() != null ? names.get(entry.getKey()) : null;
+            row.createCell(0).setCellValue(name != null ? name : "Không phân loại");
             row.getCell(0).setCellStyle(textStyle);
 
-            CategoryData data = entry.getValue();
             Cell revenueCell = row.createCell(1);
-            revenueCell.setCellValue(data.revenue.doubleValue());
+            revenueCell.setCellValue(RevenueAggregator.toAmount(data.revenueMinor));
             revenueCell.setCellStyle(currencyStyle);
 
             Cell quantityCell = row.createCell(2);
             quantityCell.setCellValue(data.quantity);
             quantityCell.setCellStyle(numberStyle);
 
+            // Tỷ lệ làm tròn 4 chữ số (0.01%)
             Cell percentageCell = row.createCell(3);
-            percentageCell.setCellValue(data.percentage.doubleValue() / 100.0);
+            percentageCell.setCellValue(totalRevenue > 0
+                    ? RevenueAggregator.divideHalfUp(data.revenueMinor * 10_000, totalRevenue) / 10_000.0
+                    : 0);
             percentageCell.setCellStyle(percentageStyle);
+
+            Cell discountCell = row.createCell(4);
+            discountCell.setCellValue(RevenueAggregator.toAmount(data.discountMinor));
+            discountCell.setCellStyle(currencyStyle);
         }
 
         // Auto-size columns
@@ -323,88 +315,70 @@ public class RevenueReportService {
         }
     }
 
-    private static class CategoryData {
-        BigDecimal revenue = BigDecimal.ZERO;
-        int quantity = 0;
-        BigDecimal percentage = BigDecimal.ZERO;
-    }
-
     // ========== SHEET 4: SẢN PHẨM BÁN CHẠY ==========
 
-    private void createTopProductsSheet(Workbook workbook, List<HoaDon> invoices,
-                                        CellStyle headerStyle, CellStyle currencyStyle,
-                                        CellStyle numberStyle, CellStyle textStyle) {
-        Sheet sheet = workbook.createSheet("Sản phẩm bán chạy");
-
+    private void fillTopProductsSheet(Sheet sheet, RevenueAggregator totals,
+                                      CellStyle headerStyle, CellStyle currencyStyle,
+                                      CellStyle numberStyle, CellStyle textStyle) {
         // Header
         Row headerRow = sheet.createRow(0);
         String[] headers = {"Hạng", "Mã sản phẩm", "Tên sản phẩm", "Danh mục",
-                "Số lượng bán", "Doanh thu", "Giá trung bình"};
+                "Số lượng bán", "Doanh thu", "Giá trung bình", "Giảm giá khuyến mãi"};
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
             cell.setCellStyle(headerStyle);
         }
 
-        // Nhóm theo sản phẩm
-        Map<Long, ProductData> productData = new HashMap<>();
-        for (HoaDon invoice : invoices) {
-            for (ChiTietHoaDon detail : invoice.getChiTietHoaDons()) {
-                SanPham product = detail.getSanPham();
-                ProductData data = productData.computeIfAbsent(product.getId(), k -> {
-                    ProductData pd = new ProductData();
-                    pd.maSanPham = product.getMaSanPham();
-                    pd.tenSanPham = product.getTenSanPham();
-                    pd.tenDanhMuc = product.getDanhMuc() != null
-                            ? product.getDanhMuc().getTenDanhMuc()
-                            : "Không phân loại";
-                    return pd;
-                });
-                data.totalQuantity += detail.getSoLuong();
-                data.totalRevenue = data.totalRevenue.add(detail.getThanhTien());
+        // Top 20 theo doanh thu; mã/tên chỉ nạp cho 20 sản phẩm này
+        List<Map.Entry<Long, ItemTotals>> products = sortByRevenue(totals.products);
+        products = products.subList(0, Math.min(TOP_PRODUCTS, products.size()));
+        Map<Long, Object[]> labels = new HashMap<>();
+        if (!products.isEmpty()) {
+            List<Long> ids = products.stream().map(Map.Entry::getKey).toList();
+            for (Object[] label : sanPhamRepository.findReportLabelsByIds(ids)) {
+                labels.put((Long) label[0], label);
             }
         }
 
-        // Tính giá trung bình và sắp xếp
-        List<ProductData> sortedProducts = productData.values().stream()
-                .peek(data -> {
-                    if (data.totalQuantity > 0) {
-                        data.averagePrice = data.totalRevenue.divide(
-                                BigDecimal.valueOf(data.totalQuantity), 2, RoundingMode.HALF_UP);
-                    }
-                })
-                .sorted((p1, p2) -> p2.totalRevenue.compareTo(p1.totalRevenue))
-                .limit(20)
-                .collect(Collectors.toList());
-
         // Data rows
         int rowNum = 1;
-        int rank = 1;
-        for (ProductData data : sortedProducts) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(rank++);
+        for (Map.Entry<Long, ItemTotals> entry : products) {
+            ItemTotals data = entry.getValue();
+            Object[] label = labels.getOrDefault(entry.getKey(), new Object[4]);
+            long averagePrice = data.quantity > 0
+                    ? RevenueAggregator.divideHalfUp(data.revenueMinor, data.quantity)
+                    : 0;
+
+            Row row = sheet.createRow(rowNum);
+            row.createCell(0).setCellValue(rowNum);
             row.getCell(0).setCellStyle(numberStyle);
+            rowNum++;
 
-            row.createCell(1).setCellValue(data.maSanPham);
+            row.createCell(1).setCellValue((String) label[1]);
             row.getCell(1).setCellStyle(textStyle);
 
-            row.createCell(2).setCellValue(data.tenSanPham);
+            row.createCell(2).setCellValue((String) label[2]);
             row.getCell(2).setCellStyle(textStyle);
 
-            row.createCell(3).setCellValue(data.tenDanhMuc);
+            row.createCell(3).setCellValue(label[3] != null ? (String) label[3] : "Không phân loại");
             row.getCell(3).setCellStyle(textStyle);
 
             Cell quantityCell = row.createCell(4);
-            quantityCell.setCellValue(data.totalQuantity);
+            quantityCell.setCellValue(data.quantity);
             quantityCell.setCellStyle(numberStyle);
 
             Cell revenueCell = row.createCell(5);
-            revenueCell.setCellValue(data.totalRevenue.doubleValue());
+            revenueCell.setCellValue(RevenueAggregator.toAmount(data.revenueMinor));
             revenueCell.setCellStyle(currencyStyle);
 
             Cell avgPriceCell = row.createCell(6);
-            avgPriceCell.setCellValue(data.averagePrice.doubleValue());
+            avgPriceCell.setCellValue(RevenueAggregator.toAmount(averagePrice));
             avgPriceCell.setCellStyle(currencyStyle);
+
+            Cell discountCell = row.createCell(7);
+            discountCell.setCellValue(RevenueAggregator.toAmount(data.discountMinor));
+            discountCell.setCellStyle(currencyStyle);
         }
 
         // Auto-size columns
@@ -413,21 +387,27 @@ public class RevenueReportService {
         }
     }
 
-    private static class ProductData {
-        String maSanPham;
-        String tenSanPham;
-        String tenDanhMuc;
-        int totalQuantity = 0;
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        BigDecimal averagePrice = BigDecimal.ZERO;
+    /**
+     * Sắp xếp theo doanh thu giảm dần
+     */
+    private static List<Map.Entry<Long, ItemTotals>> sortByRevenue(Map<Long, ItemTotals> items) {
+        List<Map.Entry<Long, ItemTotals>> sorted = new ArrayList<>(items.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<Long, ItemTotals> entry) -> entry.getValue().revenueMinor)
+                .reversed());
+        return sorted;
     }
 
     // ========== SHEET 5: CHI TIẾT ĐƠN HÀNG ==========
 
-    private void createOrderDetailsSheet(Workbook workbook, List<HoaDon> invoices,
-                                         CellStyle headerStyle, CellStyle currencyStyle,
-                                         CellStyle numberStyle, CellStyle dateStyle, CellStyle textStyle) {
-        Sheet sheet = workbook.createSheet("Chi tiết đơn hàng");
+    /**
+     * Ghi từng hóa đơn ngay khi đọc từ con trỏ (thread đọc), mỗi khối đọc xong được cộng dồn
+     * song song trên pool vào bản riêng rồi gộp vào kết quả chung
+     */
+    private RevenueAggregator createOrderDetailsSheet(Workbook workbook,
+                                                      LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                                      CellStyle headerStyle, CellStyle currencyStyle,
+                                                      CellStyle numberStyle, CellStyle dateStyle, CellStyle textStyle) {
+        Sheet sheet = ExcelExportSupport.createSheet(workbook, "Chi tiết đơn hàng");
 
         // Header
         Row headerRow = sheet.createRow(0);
@@ -440,63 +420,85 @@ public class RevenueReportService {
         }
 
         // Data rows (đã sắp xếp theo ngayTao DESC từ query)
-        int rowNum = 1;
-        for (HoaDon invoice : invoices) {
-            Row row = sheet.createRow(rowNum++);
-
-            row.createCell(0).setCellValue(invoice.getMaHoaDon());
-            row.getCell(0).setCellStyle(textStyle);
-
-            Cell dateCell = row.createCell(1);
-            dateCell.setCellValue(invoice.getNgayTao().format(DATE_FORMATTER) + " " +
-                    invoice.getNgayTao().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
-            dateCell.setCellStyle(dateStyle);
-
-            String customerName = invoice.getKhachHang() != null
-                    ? invoice.getKhachHang().getTenKhachHang()
-                    : "Khách vãng lai";
-            row.createCell(2).setCellValue(customerName);
-            row.getCell(2).setCellStyle(textStyle);
-
-            Cell tongTienCell = row.createCell(3);
-            tongTienCell.setCellValue(invoice.getTongTien().doubleValue());
-            tongTienCell.setCellStyle(currencyStyle);
-
-            Cell giamGiaCell = row.createCell(4);
-            giamGiaCell.setCellValue(invoice.getGiamGia() != null
-                    ? invoice.getGiamGia().doubleValue() : 0);
-            giamGiaCell.setCellStyle(currencyStyle);
-
-            Cell thanhTienCell = row.createCell(5);
-            thanhTienCell.setCellValue(invoice.getThanhTien().doubleValue());
-            thanhTienCell.setCellStyle(currencyStyle);
-
-            row.createCell(6).setCellValue(invoice.getPhuongThucThanhToan() != null
-                    ? invoice.getPhuongThucThanhToan() : "");
-            row.getCell(6).setCellStyle(textStyle);
-
-            row.createCell(7).setCellValue(invoice.getTrangThai().name());
-            row.getCell(7).setCellStyle(textStyle);
-
-            Cell diemCell = row.createCell(8);
-            diemCell.setCellValue(invoice.getDiemTichLuy() != null
-                    ? invoice.getDiemTichLuy().intValue() : 0);
-            diemCell.setCellStyle(numberStyle);
-        }
+        RevenueAggregator totals = new RevenueAggregator();
+        int[] rowNum = {1};
+
+        chunkExecutor.<List<ReportInvoice>>run(
+                dispatch -> hoaDonRepository.streamInvoiceLinesForReport(
+                        startDateTime, endDateTime, Status.COMPLETED, chunkSize, chunk -> {
+                            for (ReportInvoice invoice : chunk) {
+                                totals.countCustomer(invoice.summary());
+                                writeOrderRow(sheet.createRow(rowNum[0]++), invoice.summary(),
+                                        currencyStyle, numberStyle, dateStyle, textStyle);
+                            }
+                            dispatch.accept(chunk);
+                        }),
+                chunk -> {
+                    RevenueAggregator partial = new RevenueAggregator();
+                    for (ReportInvoice invoice : chunk) {
+                        partial.add(invoice);
+                    }
+                    totals.merge(partial);
+                });
+        totals.finishCustomers();
 
         // Auto-size columns
         for (int i = 0; i < headers.length; i++) {
             sheet.autoSizeColumn(i);
         }
+        return totals;
+    }
+
+    private void writeOrderRow(Row row, InvoiceSummary invoice,
+                               CellStyle currencyStyle, CellStyle numberStyle,
+                               CellStyle dateStyle, CellStyle textStyle) {
+        row.createCell(0).setCellValue(invoice.maHoaDon());
+        row.getCell(0).setCellStyle(textStyle);
+
+        Cell dateCell = row.createCell(1);
+        dateCell.setCellValue(invoice.ngayTao().format(DATE_FORMATTER) + " " +
+                invoice.ngayTao().toLocalTime().format(TIME_FORMATTER));
+        dateCell.setCellStyle(dateStyle);
+
+        String customerName = invoice.tenKhachHang() != null
+                ? invoice.tenKhachHang()
+                : "Khách vãng lai";
+        row.createCell(2).setCellValue(customerName);
+        row.getCell(2).setCellStyle(textStyle);
+
+        Cell tongTienCell = row.createCell(3);
+        tongTienCell.setCellValue(invoice.tongTien().doubleValue());
+        tongTienCell.setCellStyle(currencyStyle);
+
+        Cell giamGiaCell = row.createCell(4);
+        giamGiaCell.setCellValue(invoice.giamGia() != null
+                ? invoice.giamGia().doubleValue() : 0);
+        giamGiaCell.setCellStyle(currencyStyle);
+
+        Cell thanhTienCell = row.createCell(5);
+        thanhTienCell.setCellValue(invoice.thanhTien().doubleValue());
+        thanhTienCell.setCellStyle(currencyStyle);
+
+        row.createCell(6).setCellValue(invoice.phuongThucThanhToan() != null
+                ? invoice.phuongThucThanhToan() : "");
+        row.getCell(6).setCellStyle(textStyle);
+
+        row.createCell(7).setCellValue(invoice.trangThai());
+        row.getCell(7).setCellStyle(textStyle);
+
+        Cell diemCell = row.createCell(8);
+        diemCell.setCellValue(invoice.diemTichLuy() != null
+                ? invoice.diemTichLuy().intValue() : 0);
+        diemCell.setCellStyle(numberStyle);
     }
 
     // ========== SHEET 6: THỐNG KÊ THEO NGÀY ==========
 
-    private void createDailyStatisticsSheet(Workbook workbook, List<HoaDon> invoices,
+    private void createDailyStatisticsSheet(Workbook workbook, RevenueAggregator totals,
                                             CellStyle headerStyle, CellStyle currencyStyle,
                                             CellStyle numberStyle, CellStyle dateStyle,
                                             CellStyle textStyle) {
-        Sheet sheet = workbook.createSheet("Thống kê theo ngày");
+        Sheet sheet = ExcelExportSupport.createSheet(workbook, "Thống kê theo ngày");
 
         // Header
         Row headerRow = sheet.createRow(0);
@@ -508,49 +510,19 @@ public class RevenueReportService {
             cell.setCellStyle(headerStyle);
         }
 
-        // Nhóm theo ngày - sử dụng TreeMap để tự động sắp xếp theo ngày
-        Map<LocalDate, DailyData> dailyData = new TreeMap<>();
-        for (HoaDon invoice : invoices) {
-            if (invoice.getNgayTao() != null) {
-                LocalDate date = invoice.getNgayTao().toLocalDate();
-                log.debug("Processing invoice {} with date: {}", invoice.getMaHoaDon(), date);
-                DailyData data = dailyData.computeIfAbsent(date, k -> {
-                    log.debug("Creating new DailyData for date: {}", date);
-                    return new DailyData();
-                });
-                data.orders++;
-                data.revenue = data.revenue.add(invoice.getThanhTien());
-                data.profit = data.profit.add(invoice.getThanhTien().multiply(PROFIT_PERCENTAGE));
-                if (invoice.getKhachHang() != null) {
-                    data.customerIds.add(invoice.getKhachHang().getId());
-                }
-                log.debug("Updated DailyData for date {}: orders={}, revenue={}", 
-                        date, data.orders, data.revenue);
-            } else {
-                log.warn("Invoice {} has null ngayTao", invoice.getMaHoaDon());
-            }
-        }
-
-        log.info("Daily statistics: Found {} unique dates from {} invoices", dailyData.size(), invoices.size());
-        log.info("Daily statistics dates: {}", dailyData.keySet());
-
-        // Tính giá trị đơn hàng TB cho mỗi ngày
-        for (DailyData data : dailyData.values()) {
-            if (data.orders > 0) {
-                data.averageOrderValue = data.revenue.divide(
-                        BigDecimal.valueOf(data.orders), 2, RoundingMode.HALF_UP);
-            }
-        }
+        log.info("Daily statistics: Found {} unique dates", totals.days.size());
 
         // Data rows - TreeMap đã sắp xếp theo ngày tăng dần
         int rowNum = 1;
-        for (Map.Entry<LocalDate, DailyData> entry : dailyData.entrySet()) {
+        for (Map.Entry<LocalDate, PeriodTotals> entry : totals.days.entrySet()) {
             LocalDate date = entry.getKey();
-            DailyData data = entry.getValue();
-            
-            log.debug("Creating row for date {}: orders={}, revenue={}, customers={}", 
-                    date, data.orders, data.revenue, data.customerIds.size());
-            
+            PeriodTotals data = entry.getValue();
+
+            // Tính giá trị đơn hàng TB cho ngày
+            long averageOrderValue = data.orders > 0
+                    ? RevenueAggregator.divideHalfUp(data.netMinor, data.orders)
+                    : 0;
+
             Row row = sheet.createRow(rowNum++);
 
             Cell dateCell = row.createCell(0);
@@ -562,37 +534,72 @@ public class RevenueReportService {
             ordersCell.setCellStyle(numberStyle);
 
             Cell revenueCell = row.createCell(2);
-            revenueCell.setCellValue(data.revenue.doubleValue());
+            revenueCell.setCellValue(RevenueAggregator.toAmount(data.netMinor));
             revenueCell.setCellStyle(currencyStyle);
 
             Cell profitCell = row.createCell(3);
-            profitCell.setCellValue(data.profit.setScale(2, RoundingMode.HALF_UP).doubleValue());
+            profitCell.setCellValue(RevenueAggregator.toAmount(
+                    RevenueAggregator.divideHalfUp(data.netMinor, PROFIT_DIVISOR)));
             profitCell.setCellStyle(currencyStyle);
 
             Cell customersCell = row.createCell(4);
-            customersCell.setCellValue(data.customerIds.size());
+            customersCell.setCellValue(totals.customersOn(date));
             customersCell.setCellStyle(numberStyle);
 
             Cell avgCell = row.createCell(5);
-            avgCell.setCellValue(data.averageOrderValue.doubleValue());
+            avgCell.setCellValue(RevenueAggregator.toAmount(averageOrderValue));
             avgCell.setCellStyle(currencyStyle);
         }
 
-        log.info("Daily statistics: Created {} rows in Excel sheet for dates: {}", 
-                rowNum - 1, dailyData.keySet());
-
         // Auto-size columns
         for (int i = 0; i < headers.length; i++) {
             sheet.autoSizeColumn(i);
         }
     }
 
-    private static class DailyData {
-        int orders = 0;
-        BigDecimal revenue = BigDecimal.ZERO;
-        BigDecimal profit = BigDecimal.ZERO;
-        Set<Long> customerIds = new HashSet<>();
-        BigDecimal averageOrderValue = BigDecimal.ZERO;
+    // ========== SHEET 7: GIẢM GIÁ THEO KHUYẾN MÃI ==========
+
+    private void createPromotionDiscountSheet(Workbook workbook, LocalDateTime startDateTime,
+                                              LocalDateTime endDateTime,
+                                              CellStyle headerStyle, CellStyle currencyStyle,
+                                              CellStyle numberStyle, CellStyle textStyle) {
+        Sheet sheet = ExcelExportSupport.createSheet(workbook, "Giảm giá theo khuyến mãi");
+
+        // Header
+        Row headerRow = sheet.createRow(0);
+        String[] headers = {"Mã khuyến mãi", "Tên khuyến mãi", "Số hóa đơn", "Tổng giảm giá"};
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+        }
+
+        List<Object[]> promotions = hoaDonKhuyenMaiRepository.getDiscountByPromotion(
+                startDateTime, endDateTime, Status.COMPLETED);
+
+        // Data rows (giảm nhiều nhất trước)
+        int rowNum = 1;
+        for (Object[] result : promotions) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue((String) result[0]);
+            row.getCell(0).setCellStyle(textStyle);
+
+            row.createCell(1).setCellValue((String) result[1]);
+            row.getCell(1).setCellStyle(textStyle);
+
+            Cell invoicesCell = row.createCell(2);
+            invoicesCell.setCellValue(((Number) result[2]).longValue());
+            invoicesCell.setCellStyle(numberStyle);
+
+            Cell discountCell = row.createCell(3);
+            discountCell.setCellValue(((BigDecimal) result[3]).doubleValue());
+            discountCell.setCellStyle(currencyStyle);
+        }
+
+        // Auto-size columns
+        for (int i = 0; i < headers.length; i++) {
+            sheet.autoSizeColumn(i);
+        }
     }
 
     // ========== STYLES ==========
@@ -606,8 +613,7 @@ public class RevenueReportService {
         style.setFont(font);
         
         // Use custom color #F97316 (RGB: 249, 115, 22)
-        if (workbook instanceof XSSFWorkbook) {
-            XSSFCellStyle xssfStyle = (XSSFCellStyle) style;
+        if (style instanceof XSSFCellStyle xssfStyle) {
             XSSFColor orangeColor = new XSSFColor(new byte[]{(byte) 249, (byte) 115, (byte) 22}, null);
             xssfStyle.setFillForegroundColor(orangeColor);
         } else {
@@ -1,18 +1,16 @@
 package com.retail.application.service.report;
 
 import com.retail.application.dto.TopProductDTO;
-import com.retail.common.constant.Status;
-import com.retail.persistence.repository.ChiTietHoaDonRepository;
+import com.retail.persistence.repository.DoanhSoSanPhamNgayRepository;
 import com.retail.persistence.repository.SanPhamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -27,25 +25,22 @@ import java.util.List;
 @Slf4j
 public class SalesReportService {
 
-    private final ChiTietHoaDonRepository chiTietHoaDonRepository;
+    private final DoanhSoSanPhamNgayRepository doanhSoSanPhamNgayRepository;
     private final SanPhamRepository sanPhamRepository;
+    private final ExcelExportSupport excelExportSupport;
 
     private static final DateTimeFormatter DATE_FORMATTER =
             DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     /**
-     * Tạo báo cáo bán hàng Excel - Top sản phẩm bán chạy
+     * Ghi báo cáo bán hàng Excel - Top sản phẩm bán chạy thẳng ra out (không đóng out)
      */
     @Transactional(readOnly = true)
-    public byte[] generateSalesReportExcel(LocalDate startDate, LocalDate endDate, int limit) {
+    public void writeSalesReportExcel(LocalDate startDate, LocalDate endDate, int limit, OutputStream out) {
         log.info("Generating sales report from {} to {}, top {} products", startDate, endDate, limit);
 
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-
-        // Lấy top sản phẩm bán chạy
-        List<Object[]> results = chiTietHoaDonRepository.getTopSellingProductsReport(
-                startDateTime, endDateTime, Status.COMPLETED);
+        // Lấy top sản phẩm bán chạy từ rollup sản phẩm x ngày
+        List<Object[]> results = doanhSoSanPhamNgayRepository.sumByProduct(startDate, endDate);
 
         List<TopProductDTO> topProducts = results.stream()
                 .limit(limit)
@@ -68,50 +63,19 @@ public class SalesReportService {
 
         log.info("Found {} top selling products", topProducts.size());
 
-        return generateExcelFile(topProducts, startDate, endDate);
+        writeExcelFile(topProducts, startDate, endDate, out);
     }
 
     /**
-     * Generate Excel file with sales report data
+     * Write Excel file with sales report data
      */
-    private byte[] generateExcelFile(List<TopProductDTO> topProducts, 
-                                     LocalDate startDate, 
-                                     LocalDate endDate) {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.createSheet("Báo cáo bán hàng");
-
-            // Tạo styles
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle titleStyle = createTitleStyle(workbook);
-            CellStyle currencyStyle = createCurrencyStyle(workbook);
-            CellStyle numberStyle = createNumberStyle(workbook);
-            CellStyle summaryStyle = createSummaryStyle(workbook);
-            CellStyle dataStyle = createDataStyle(workbook);
-
-            int rowNum = 0;
-
-            // Thêm tiêu đề
-            rowNum = addTitle(sheet, rowNum, titleStyle, startDate, endDate);
-            
-            // Thêm tổng kết
-            rowNum = addSummary(sheet, rowNum, topProducts, summaryStyle, currencyStyle);
-            
-            // Thêm bảng dữ liệu
-            rowNum = addDataTable(sheet, rowNum, topProducts, headerStyle, 
-                    dataStyle, numberStyle, currencyStyle);
-
-            // Tự động điều chỉnh độ rộng cột
-            for (int i = 0; i < 5; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-            }
-
-            workbook.write(baos);
-            log.info("Sales report Excel generated, size: {} bytes", baos.size());
-
-            return baos.toByteArray();
+    private void writeExcelFile(List<TopProductDTO> topProducts,
+                                LocalDate startDate,
+                                LocalDate endDate,
+                                OutputStream out) {
+        try {
+            excelExportSupport.export(out, workbook -> fillSalesSheet(workbook, topProducts, startDate, endDate));
+            log.info("Sales report Excel generated with {} products", topProducts.size());
 
         } catch (Exception e) {
             log.error("Error generating sales report Excel", e);
@@ -119,6 +83,37 @@ public class SalesReportService {
         }
     }
 
+    private void fillSalesSheet(Workbook workbook, List<TopProductDTO> topProducts,
+                                LocalDate startDate, LocalDate endDate) {
+        Sheet sheet = ExcelExportSupport.createSheet(workbook, "Báo cáo bán hàng");
+
+        // Tạo styles
+        CellStyle headerStyle = createHeaderStyle(workbook);
+        CellStyle titleStyle = createTitleStyle(workbook);
+        CellStyle currencyStyle = createCurrencyStyle(workbook);
+        CellStyle numberStyle = createNumberStyle(workbook);
+        CellStyle summaryStyle = createSummaryStyle(workbook);
+        CellStyle dataStyle = createDataStyle(workbook);
+
+        int rowNum = 0;
+
+        // Thêm tiêu đề
+        rowNum = addTitle(sheet, rowNum, titleStyle, startDate, endDate);
+        
+        // Thêm tổng kết
+        rowNum = addSummary(sheet, rowNum, topProducts, summaryStyle, currencyStyle);
+        
+        // Thêm bảng dữ liệu
+        rowNum = addDataTable(sheet, rowNum, topProducts, headerStyle, 
+                dataStyle, numberStyle, currencyStyle);
+
+        // Tự động điều chỉnh độ rộng cột
+        for (int i = 0; i < 5; i++) {
+            sheet.autoSizeColumn(i);
+            sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
+        }
+    }
+
     /**
      * Add title section
      */
@@ -0,0 +1,37 @@
+package com.retail.application.service.report;
+
+import com.retail.domain.entity.HoaDon;
+
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.SalesDelta;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Bảng rollup doanh số theo ngày (chi nhánh, sản phẩm, khách hàng) cho dashboard và báo cáo
+ */
+public interface SalesRollupService {
+
+    /**
+     * Ghi delta cộng hóa đơn vừa hoàn tất vào outbox - gọi trong transaction ghi hóa đơn
+     */
+    void recordCompleted(HoaDon hoaDon);
+
+    /**
+     * Ghi delta trừ hóa đơn COMPLETED vừa bị hủy vào outbox - gọi trong transaction hủy hóa đơn
+     */
+    void recordCancelled(HoaDon hoaDon);
+
+    /**
+     * Cộng 1 lô delta vào rollup: gộp theo (chi nhánh, ngày), mỗi cặp 1 lần ghi -
+     * gọi từ dispatcher outbox, trong transaction của lô
+     */
+    void apply(List<SalesDelta> deltas);
+
+    /**
+     * Dựng lại rollup các ngày [fromDate, toDate] từ hóa đơn (backfill / sửa lệch), mỗi ngày 1 transaction
+     *
+     * @return số ngày đã dựng lại
+     */
+    int rebuild(LocalDate fromDate, LocalDate toDate);
+}
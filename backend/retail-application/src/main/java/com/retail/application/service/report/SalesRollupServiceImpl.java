@@ -0,0 +1,213 @@
+package com.retail.application.service.report;
+
+import com.retail.application.service.cache.CacheInvalidationService;
+import com.retail.application.service.outbox.OutboxService;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import com.retail.domain.entity.ChiTietHoaDon;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.DoanhSoNgayRepository;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.ProductDelta;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.SalesDelta;
+import com.retail.persistence.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Duy trì rollup doanh số theo ngày.
+ *
+ * - PosServiceImpl ghi delta của từng hóa đơn vào outbox (SALES_ROLLUP) trong transaction hoàn tất / hủy hóa đơn;
+ *   dispatcher gộp cả lô theo (chi nhánh, ngày) rồi mới cộng vào rollup. Checkout không còn khóa dòng rollup
+ *   nóng của chi nhánh trong ngày - rollup trễ hơn hóa đơn khoảng 1 chu kỳ poll của dispatcher
+ * - Job đêm dựng lại vài ngày gần nhất (không gồm hôm nay) để sửa lệch; backfill khoảng dài gọi rebuild.
+ *   Mỗi ngày giữ khóa sp_getapplock tới hết transaction: node khác đang dựng lại ngày đó thì bỏ qua
+ * - Rollup của ngày đã qua thay đổi (hủy hóa đơn cũ, dựng lại) thì xóa số liệu dashboard đã cache của ngày đó
+ *   và tăng phiên bản dữ liệu của ngày đó (báo cáo khoảng ngày đã kết thúc cache theo phiên bản)
+ */
+@Service
+@Slf4j
+public class SalesRollupServiceImpl implements SalesRollupService {
+
+    private static final int MAX_REBUILD_DAYS = 366;
+
+    private static final Comparator<BranchDay> BRANCH_DAY_ORDER =
+            Comparator.comparingLong(BranchDay::chiNhanhId).thenComparing(BranchDay::ngay);
+
+    private final DoanhSoNgayRepository doanhSoNgayRepository;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final OutboxService outboxService;
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildDays;
+
+    public SalesRollupServiceImpl(DoanhSoNgayRepository doanhSoNgayRepository,
+                                  CacheInvalidationService cacheInvalidationService,
+                                  OutboxService outboxService,
+                                  OutboxEventRepository outboxEventRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.report.rollup.rebuild-days:3}") int rebuildDays) {
+        this.doanhSoNgayRepository = doanhSoNgayRepository;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.outboxService = outboxService;
+        this.outboxEventRepository = outboxEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildDays = Math.max(1, rebuildDays);
+    }
+
+    @Override
+    public void recordCompleted(HoaDon hoaDon) {
+        outboxService.enqueue(OutboxEvent.EventType.SALES_ROLLUP, hoaDon.getId(), toDelta(hoaDon, 1));
+    }
+
+    @Override
+    public void recordCancelled(HoaDon hoaDon) {
+        outboxService.enqueue(OutboxEvent.EventType.SALES_ROLLUP, hoaDon.getId(), toDelta(hoaDon, -1));
+    }
+
+    @Override
+    public void apply(List<SalesDelta> deltas) {
+        Map<BranchDay, SalesDelta> merged = new TreeMap<>(BRANCH_DAY_ORDER);
+        for (SalesDelta delta : deltas) {
+            merged.merge(new BranchDay(delta.chiNhanhId(), delta.ngay()), delta, SalesRollupServiceImpl::merge);
+        }
+
+        LocalDate today = LocalDate.now();
+        // Thứ tự (chi nhánh, ngày) cố định giữa các lô - 2 dispatcher không khóa chéo dòng rollup của nhau
+        for (SalesDelta delta : merged.values()) {
+            doanhSoNgayRepository.addDelta(delta);
+            // Hôm nay không được cache - chỉ ngày đã qua (hủy hóa đơn cũ, thanh toán bill treo từ hôm trước)
+            if (delta.ngay().isBefore(today)) {
+                // Cùng transaction với rollup: báo cáo đã cache của khoảng chứa ngày này không còn khớp phiên bản
+                doanhSoNgayRepository.bumpVersion(delta.chiNhanhId(), delta.ngay());
+                cacheInvalidationService.evictDashboardDay(delta.ngay());
+            }
+        }
+        log.debug("Applied {} sales rollup deltas to {} branch days", deltas.size(), merged.size());
+    }
+
+    /**
+     * Dựng lại các ngày gần nhất (mặc định 2h30 mỗi đêm). Hôm nay chỉ được cộng dồn -
+     * dựng lại ngày đang bán có thể đếm trùng hóa đơn đang commit dở
+     */
+    @Scheduled(cron = "${app.report.rollup.rebuild-cron:0 30 2 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        rebuild(yesterday.minusDays(rebuildDays - 1L), yesterday);
+    }
+
+    @Override
+    public int rebuild(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null || fromDate.isAfter(toDate)) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "Khoảng ngày dựng lại rollup không hợp lệ");
+        }
+        if (ChronoUnit.DAYS.between(fromDate, toDate) >= MAX_REBUILD_DAYS) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST,
+                    "Chỉ dựng lại tối đa " + MAX_REBUILD_DAYS + " ngày mỗi lần");
+        }
+
+        int days = 0;
+        for (LocalDate day = fromDate; !day.isAfter(toDate); day = day.plusDays(1)) {
+            LocalDate ngay = day;
+            Integer branches = transactionTemplate.execute(status -> rebuildDay(ngay));
+            if (branches == null) {
+                log.info("Sales rollup for {} is being rebuilt by another node, skipping", ngay);
+                continue;
+            }
+            log.debug("Rebuilt sales rollup for {} ({} branches)", ngay, branches);
+            days++;
+        }
+        log.info("Rebuilt sales rollup for {} days from {} to {}", days, fromDate, toDate);
+        return days;
+    }
+
+    /**
+     * Dựng lại 1 ngày trong transaction hiện tại
+     *
+     * Delta SALES_ROLLUP còn PENDING của hóa đơn trong ngày đã nằm trong số liệu dựng lại nên được đánh dấu
+     * PROCESSED trước (lô dispatcher đang xử lý thì chờ lô đó commit). Hóa đơn commit xen giữa bước này và
+     * bước dựng lại có thể bị đếm 2 lần - chỉ xảy ra với ngày đã qua và được sửa ở lần dựng lại đêm sau
+     * (mỗi ngày được dựng lại rebuild-days đêm liên tiếp)
+     *
+     * @return số chi nhánh đã dựng lại, null nếu node khác đang dựng lại ngày này
+     */
+    private Integer rebuildDay(LocalDate ngay) {
+        if (!doanhSoNgayRepository.tryLockDayForRebuild(ngay)) {
+            return null;
+        }
+        outboxEventRepository.markPendingProcessedForInvoices(OutboxEvent.EventType.SALES_ROLLUP,
+                ngay.atStartOfDay(), ngay.plusDays(1).atStartOfDay(), LocalDateTime.now());
+        int rebuilt = doanhSoNgayRepository.rebuildDay(ngay);
+        // Cache transaction-aware: chỉ xóa sau khi ngày được dựng lại đã commit
+        cacheInvalidationService.evictDashboardDay(ngay);
+        return rebuilt;
+    }
+
+    /**
+     * Delta của 1 hóa đơn: sign = 1 khi hoàn tất, -1 khi hủy; các dòng cùng sản phẩm được gộp
+     */
+    static SalesDelta toDelta(HoaDon hoaDon, int sign) {
+        BigDecimal multiplier = BigDecimal.valueOf(sign);
+        SortedMap<Long, ProductDelta> products = new TreeMap<>();
+        for (ChiTietHoaDon chiTiet : hoaDon.getChiTietHoaDons()) {
+            ProductDelta line = new ProductDelta((long) sign * chiTiet.getSoLuong(),
+                    chiTiet.getThanhTien().multiply(multiplier));
+            products.merge(chiTiet.getSanPham().getId(), line, (a, b) ->
+                    new ProductDelta(a.soLuong() + b.soLuong(), a.thanhTien().add(b.thanhTien())));
+        }
+
+        SortedMap<Long, Integer> customers = new TreeMap<>();
+        if (hoaDon.getKhachHang() != null) {
+            customers.put(hoaDon.getKhachHang().getId(), sign);
+        }
+
+        return new SalesDelta(
+                hoaDon.getChiNhanh().getId(),
+                hoaDon.getNgayTao().toLocalDate(),
+                sign,
+                hoaDon.getTongTien().multiply(multiplier),
+                (hoaDon.getGiamGia() != null ? hoaDon.getGiamGia() : BigDecimal.ZERO).multiply(multiplier),
+                hoaDon.getThanhTien().multiply(multiplier),
+                customers,
+                products);
+    }
+
+    /**
+     * Gộp 2 delta cùng (chi nhánh, ngày); bỏ khách hàng / sản phẩm có tổng bằng 0
+     * (hóa đơn hoàn tất rồi bị hủy trong cùng lô)
+     */
+    static SalesDelta merge(SalesDelta a, SalesDelta b) {
+        SortedMap<Long, Integer> customers = new TreeMap<>(a.customers());
+        b.customers().forEach((id, soDon) -> customers.merge(id, soDon, Integer::sum));
+        customers.values().removeIf(soDon -> soDon == 0);
+
+        SortedMap<Long, ProductDelta> products = new TreeMap<>(a.products());
+        b.products().forEach((id, line) -> products.merge(id, line, (x, y) ->
+                new ProductDelta(x.soLuong() + y.soLuong(), x.thanhTien().add(y.thanhTien()))));
+        products.values().removeIf(line -> line.soLuong() == 0 && line.thanhTien().signum() == 0);
+
+        return new SalesDelta(a.chiNhanhId(), a.ngay(), a.soDon() + b.soDon(),
+                a.tongTien().add(b.tongTien()),
+                a.giamGia().add(b.giamGia()),
+                a.thanhTien().add(b.thanhTien()),
+                customers,
+                products);
+    }
+
+    private record BranchDay(long chiNhanhId, LocalDate ngay) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.retail.application.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for BoundedChunkExecutor
+ * Tests that every chunk is processed, in-flight chunks are bounded and failures stop the source
+ */
+@DisplayName("BoundedChunkExecutor Unit Tests")
+class BoundedChunkExecutorTest {
+
+    private final BoundedChunkExecutor executor = new BoundedChunkExecutor("Test job", 2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private static Consumer<Consumer<List<Integer>>> chunks(int count) {
+        return dispatch -> IntStream.range(0, count).forEach(i -> dispatch.accept(List.of(i, i)));
+    }
+
+    @Test
+    @DisplayName("✅ Should process every chunk before returning")
+    void run_ShouldProcessAllChunks() {
+        // Arrange
+        AtomicLong sum = new AtomicLong();
+
+        // Act
+        executor.<List<Integer>>run(chunks(100),
+                chunk -> chunk.forEach(sum::addAndGet));
+
+        // Assert
+        assertThat(sum.get()).isEqualTo(2L * (99 * 100 / 2));
+    }
+
+    @Test
+    @DisplayName("✅ Should block the source when too many chunks are in flight")
+    void run_ShouldBoundChunksInFlight() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger dispatched = new AtomicInteger();
+        Thread reader = new Thread(() -> executor.<List<Integer>>run(dispatch -> {
+            for (int i = 0; i < 20; i++) {
+                dispatched.incrementAndGet();
+                dispatch.accept(List.of(i));
+            }
+        }, chunk -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        // Act
+        reader.start();
+        Thread.sleep(300);
+        int dispatchedWhileBlocked = dispatched.get();
+        release.countDown();
+        reader.join(5_000);
+
+        // Assert - tối đa 4 khối (2 thread x 2) đã giao, khối thứ 5 chờ
+        assertThat(dispatchedWhileBlocked).isEqualTo(5);
+        assertThat(dispatched.get()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("❌ Should stop reading and rethrow when a chunk fails")
+    void run_WhenChunkFails_ShouldThrow() {
+        // Arrange
+        AtomicInteger dispatched = new AtomicInteger();
+        RuntimeException boom = new RuntimeException("boom");
+
+        // Act & Assert
+        assertThatThrownBy(() -> executor.<List<Integer>>run(dispatch -> {
+            for (int i = 0; i < 1_000; i++) {
+                dispatched.incrementAndGet();
+                dispatch.accept(List.of(i));
+            }
+        }, chunk -> {
+            throw boom;
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("Test job")
+                .hasCause(boom);
+        assertThat(dispatched.get()).isLessThan(1_000);
+    }
+}
@@ -0,0 +1,167 @@
+package com.retail.application.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for InstrumentedCacheManager and CacheMetrics
+ * Tests per-cache hit/miss/put/eviction counters, Redis latency timers and sampled hot keys
+ */
+@DisplayName("InstrumentedCacheManager Unit Tests")
+class InstrumentedCacheManagerTest {
+
+    private SimpleMeterRegistry registry;
+    private CacheMetrics metrics;
+    private InstrumentedCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // Lấy mẫu mọi lần đọc để kết quả không ngẫu nhiên
+        metrics = new CacheMetrics(registry, 1, 3);
+        cacheManager = new InstrumentedCacheManager(
+                new RedisLatencyCacheManager(new ConcurrentMapCacheManager("products", "invoices"), metrics), metrics);
+    }
+
+    private double count(String name, String cache, String tagKey, String tagValue) {
+        var search = registry.find(name).tag("cache", cache);
+        if (tagKey != null) {
+            search = search.tag(tagKey, tagValue);
+        }
+        return search.counter() != null ? search.counter().count() : 0;
+    }
+
+    @Nested
+    @DisplayName("Counters")
+    class CounterTests {
+
+        @Test
+        @DisplayName("✅ Should count hits, misses and puts per cache")
+        void get_ShouldCountHitsAndMisses() {
+            // Arrange
+            Cache products = cacheManager.getCache("products");
+            products.put(1L, "Sữa tươi");
+
+            // Act
+            products.get(1L);
+            products.get(1L, String.class);
+            products.get(2L);
+            cacheManager.getCache("invoices").get(9L);
+
+            // Assert
+            assertThat(count(CacheMetrics.GETS, "products", "result", "hit")).isEqualTo(2);
+            assertThat(count(CacheMetrics.GETS, "products", "result", "miss")).isEqualTo(1);
+            assertThat(count(CacheMetrics.PUTS, "products", null, null)).isEqualTo(1);
+            assertThat(count(CacheMetrics.GETS, "invoices", "result", "miss")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("✅ Should count a loader call as a miss followed by a put")
+        void get_WithLoader_ShouldCountMissAndPut() {
+            // Arrange
+            Cache products = cacheManager.getCache("products");
+
+            // Act
+            products.get(3L, () -> "Bánh mì");
+            products.get(3L, () -> "không gọi");
+
+            // Assert
+            assertThat(products.get(3L).get()).isEqualTo("Bánh mì");
+            assertThat(count(CacheMetrics.GETS, "products", "result", "miss")).isEqualTo(1);
+            assertThat(count(CacheMetrics.GETS, "products", "result", "hit")).isEqualTo(2);
+            assertThat(count(CacheMetrics.PUTS, "products", null, null)).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("✅ Should count key evictions apart from allEntries sweeps")
+        void evict_ShouldCountByScope() {
+            // Arrange
+            Cache products = cacheManager.getCache("products");
+
+            // Act
+            products.evict(1L);
+            products.evictIfPresent(2L);
+            products.clear();
+
+            // Assert
+            assertThat(count(CacheMetrics.EVICTIONS, "products", "scope", "key")).isEqualTo(2);
+            assertThat(count(CacheMetrics.EVICTIONS, "products", "scope", "all")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("✅ Should time each Redis call by operation")
+        void redis_ShouldRecordLatency() {
+            // Arrange
+            Cache products = cacheManager.getCache("products");
+
+            // Act
+            products.put(1L, "Trà");
+            products.get(1L);
+            products.get(2L);
+
+            // Assert
+            assertThat(registry.find(CacheMetrics.REDIS_LATENCY).tag("cache", "products")
+                    .tag("operation", "get").timer().count()).isEqualTo(2);
+            assertThat(registry.find(CacheMetrics.REDIS_LATENCY).tag("cache", "products")
+                    .tag("operation", "put").timer().count()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Hot keys")
+    class HotKeyTests {
+
+        @Test
+        @DisplayName("✅ Should rank keys by sampled reads")
+        void hotKeys_ShouldRankByReads() {
+            // Arrange
+            Cache products = cacheManager.getCache("products");
+            for (int i = 0; i < 5; i++) {
+                products.get("barcode:893");
+            }
+            products.get("barcode:111");
+            cacheManager.getCache("invoices").get(7L);
+            cacheManager.getCache("invoices").get(7L);
+
+            // Act
+            List<CacheMetrics.HotKey> all = metrics.hotKeys(null, 2);
+            List<CacheMetrics.HotKey> invoices = metrics.hotKeys("invoices", 10);
+
+            // Assert
+            assertThat(all).extracting(CacheMetrics.HotKey::key).containsExactly("barcode:893", "7");
+            assertThat(all.get(0).samples()).isEqualTo(5);
+            assertThat(invoices).singleElement().extracting(CacheMetrics.HotKey::cache).isEqualTo("invoices");
+        }
+
+        @Test
+        @DisplayName("✅ Should halve counts and drop rarely read keys when too many are tracked")
+        void hotKeys_ShouldDecayWhenFull() {
+            // Arrange
+            Cache products = cacheManager.getCache("products");
+            for (int i = 0; i < 4; i++) {
+                products.get("hot");
+            }
+            products.get("a");
+            products.get("b");
+
+            // Act - key thứ 4 vượt giới hạn 3 key
+            products.get("c");
+
+            // Assert
+            List<CacheMetrics.HotKey> hot = metrics.hotKeys("products", 10);
+            assertThat(hot).singleElement().satisfies(k -> {
+                assertThat(k.key()).isEqualTo("hot");
+                assertThat(k.samples()).isEqualTo(2);
+            });
+        }
+    }
+}
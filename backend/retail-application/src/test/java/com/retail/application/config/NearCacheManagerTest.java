@@ -0,0 +1,188 @@
+package com.retail.application.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for NearCacheManager
+ * Tests reads served from the in-process L1 and invalidation across nodes through pub/sub messages
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NearCacheManager Unit Tests")
+class NearCacheManagerTest {
+
+    private static final String CHANNEL = "retail:cache:invalidation";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private ConcurrentMapCacheManager remoteCacheManager;
+    private CacheGenerations cacheGenerations;
+    private NearCacheManager nearCacheManager;
+
+    @BeforeEach
+    void setUp() {
+        remoteCacheManager = new ConcurrentMapCacheManager("products", "invoices");
+        cacheGenerations = new CacheGenerations();
+        nearCacheManager = new NearCacheManager(remoteCacheManager,
+                Map.of("products", new NearCacheManager.Spec(2, 60_000)), redisTemplate, CHANNEL, cacheGenerations);
+    }
+
+    private ConcurrentMapCache remote(String name) {
+        return (ConcurrentMapCache) remoteCacheManager.getCache(name);
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nested
+    @DisplayName("Read")
+    class ReadTests {
+
+        @Test
+        @DisplayName("✅ Should serve repeat reads from L1 without reading Redis")
+        void get_ShouldServeFromLocalTier() {
+            // Arrange
+            Cache cache = nearCacheManager.getCache("products");
+            remote("products").put("barcode:893", "Sữa tươi");
+            assertThat(cache.get("barcode:893", String.class)).isEqualTo("Sữa tươi");
+
+            // Act - L2 mất key (hết hạn) nhưng L1 vẫn giữ
+            remote("products").getNativeCache().clear();
+            Cache.ValueWrapper cached = cache.get("barcode:893");
+
+            // Assert
+            assertThat(cached).isNotNull();
+            assertThat(cached.get()).isEqualTo("Sữa tươi");
+        }
+
+        @Test
+        @DisplayName("✅ Should keep only the most recently used entries in L1")
+        void get_ShouldBoundLocalTier() {
+            // Arrange
+            Cache cache = nearCacheManager.getCache("products");
+            cache.put(1L, "A");
+            cache.put(2L, "B");
+            cache.get(1L);
+            cache.put(3L, "C");
+
+            // Act
+            remote("products").getNativeCache().clear();
+
+            // Assert - 2 là entry lâu nhất chưa được đọc
+            assertThat(cache.get(1L)).isNotNull();
+            assertThat(cache.get(3L)).isNotNull();
+            assertThat(cache.get(2L)).isNull();
+        }
+
+        @Test
+        @DisplayName("✅ Should hand back the Redis cache for names without L1")
+        void getCache_ShouldNotWrapOtherCaches() {
+            // Assert
+            assertThat(nearCacheManager.getCache("invoices")).isSameAs(remote("invoices"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Invalidation")
+    class InvalidationTests {
+
+        @Test
+        @DisplayName("✅ Should evict both tiers and tell other nodes")
+        void evict_ShouldPublishInvalidation() {
+            // Arrange
+            Cache cache = nearCacheManager.getCache("products");
+            cache.put(5L, "Bánh mì");
+
+            // Act
+            cache.evict(5L);
+
+            // Assert
+            assertThat(cache.get(5L)).isNull();
+            ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+            verify(redisTemplate, times(2)).convertAndSend(eq(CHANNEL), published.capture());
+            assertThat(published.getValue()).endsWith("|products|E|5");
+        }
+
+        @Test
+        @DisplayName("✅ Should drop L1 entries invalidated by another node")
+        void onMessage_ShouldEvictLocalTier() {
+            // Arrange
+            Cache cache = nearCacheManager.getCache("products");
+            cache.put(5L, "Bánh mì");
+            cache.put(6L, "Cà phê");
+            remote("products").put(5L, "Bánh mì mới");
+
+            // Act
+            nearCacheManager.onMessage(message("other-node|products|E|5"), null);
+
+            // Assert
+            assertThat(cache.get(5L).get()).isEqualTo("Bánh mì mới");
+            assertThat(cache.get(6L).get()).isEqualTo("Cà phê");
+        }
+
+        @Test
+        @DisplayName("✅ Should clear L1 when another node clears the cache")
+        void onMessage_ShouldClearLocalTier() {
+            // Arrange
+            Cache cache = nearCacheManager.getCache("products");
+            cache.put(5L, "Bánh mì");
+            remote("products").getNativeCache().clear();
+
+            // Act
+            nearCacheManager.onMessage(message("other-node|products|C"), null);
+
+            // Assert
+            assertThat(cache.get(5L)).isNull();
+        }
+
+        @Test
+        @DisplayName("✅ Should count evictions from this and other nodes in the shared generations")
+        void evict_ShouldAdvanceSharedGeneration() {
+            // Arrange
+            Cache cache = nearCacheManager.getCache("products");
+            long before = cacheGenerations.current("products");
+
+            // Act
+            cache.evict(5L);
+            nearCacheManager.onMessage(message("other-node|products|E|6"), null);
+
+            // Assert
+            assertThat(cacheGenerations.current("products")).isEqualTo(before + 2);
+            assertThat(cacheGenerations.current("invoices")).isZero();
+        }
+
+        @Test
+        @DisplayName("✅ Should keep the cached value when Redis publish fails")
+        void put_ShouldTolerateUnavailablePubSub() {
+            // Arrange
+            doThrow(new IllegalStateException("Redis down")).when(redisTemplate).convertAndSend(anyString(), anyString());
+            Cache cache = nearCacheManager.getCache("products");
+
+            // Act
+            cache.put(7L, "Trà");
+
+            // Assert
+            assertThat(cache.get(7L).get()).isEqualTo("Trà");
+        }
+    }
+}
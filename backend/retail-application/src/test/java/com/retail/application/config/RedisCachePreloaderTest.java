@@ -0,0 +1,125 @@
+package com.retail.application.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RedisCachePreloader
+ * Tests pipelined SET NX writes and dropping a page that was read before an eviction
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RedisCachePreloader Unit Tests")
+class RedisCachePreloaderTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private RedisConnection connection;
+    @Mock
+    private RedisStringCommands stringCommands;
+    @Mock
+    private RedisKeyCommands keyCommands;
+
+    private CacheGenerations cacheGenerations;
+    private RedisCachePreloader preloader;
+
+    @BeforeEach
+    void setUp() {
+        cacheGenerations = new CacheGenerations();
+        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig();
+        preloader = new RedisCachePreloader(redisTemplate, config,
+                Map.of("products", config.entryTtl(Duration.ofHours(1))), cacheGenerations);
+    }
+
+    private static Map<Object, Object> page() {
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        entries.put(10L, "Sữa tươi");
+        entries.put("barcode:893001", "Sữa tươi");
+        return entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runPipeline(Runnable duringWrite) {
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, RedisCallback.class).doInRedis(connection);
+            duringWrite.run();
+            return List.of();
+        });
+    }
+
+    @Test
+    @DisplayName("✅ Should write the page with SET NX and the cache TTL")
+    void putAll_ShouldWriteOnlyAbsentKeys() {
+        // Arrange
+        runPipeline(() -> { });
+        long generation = preloader.generation("products");
+
+        // Act
+        boolean written = preloader.putAll("products", page(), generation);
+
+        // Assert
+        assertThat(written).isTrue();
+        verify(stringCommands).set(eq("products::10".getBytes(StandardCharsets.UTF_8)), any(byte[].class),
+                eq(Expiration.from(Duration.ofHours(1))), eq(SetOption.ifAbsent()));
+        verify(stringCommands, times(2)).set(any(byte[].class), any(byte[].class), any(Expiration.class),
+                eq(SetOption.ifAbsent()));
+        verify(redisTemplate, never()).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    @DisplayName("✅ Should skip a page read before the cache was evicted")
+    void putAll_EvictedAfterRead_ShouldNotWrite() {
+        // Arrange
+        long generation = preloader.generation("products");
+        cacheGenerations.counter("products").incrementAndGet();
+
+        // Act
+        boolean written = preloader.putAll("products", page(), generation);
+
+        // Assert
+        assertThat(written).isFalse();
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("✅ Should delete the written keys when an eviction lands during the write")
+    void putAll_EvictedDuringWrite_ShouldDeleteWrittenKeys() {
+        // Arrange
+        runPipeline(() -> cacheGenerations.counter("products").incrementAndGet());
+        when(connection.keyCommands()).thenReturn(keyCommands);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation ->
+                invocation.getArgument(0, RedisCallback.class).doInRedis(connection));
+        long generation = preloader.generation("products");
+
+        // Act
+        boolean written = preloader.putAll("products", page(), generation);
+
+        // Assert
+        assertThat(written).isFalse();
+        verify(keyCommands).del("products::10".getBytes(StandardCharsets.UTF_8),
+                "products::barcode:893001".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,244 @@
+package com.retail.application.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SingleFlightCacheManager
+ * Tests that concurrent misses share one load, that leases coalesce loads across nodes and early refresh near expiry
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SingleFlightCacheManager Unit Tests")
+class SingleFlightCacheManagerTest {
+
+    private static final SingleFlightCacheManager.Settings LOCAL =
+            new SingleFlightCacheManager.Settings(5000, false, 3000, 10, 0, 1);
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final ConcurrentMapCacheManager remoteCacheManager = new ConcurrentMapCacheManager("products", "invoices");
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Cache cache(SingleFlightCacheManager.Settings settings, StringRedisTemplate template) {
+        return new SingleFlightCacheManager(remoteCacheManager, Map.of("products", settings), template)
+                .getCache("products");
+    }
+
+    @Nested
+    @DisplayName("Local coalescing")
+    class LocalTests {
+
+        @Test
+        @DisplayName("✅ Should run one load for concurrent misses on the same key")
+        void get_ShouldShareOneLoad() throws Exception {
+            // Arrange
+            Cache cache = cache(LOCAL, null);
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<String>> results = new ArrayList<>();
+
+            // Act
+            try {
+                for (int i = 0; i < 8; i++) {
+                    results.add(executor.submit(() -> cache.get("barcode:893", () -> {
+                        loads.incrementAndGet();
+                        release.await(5, TimeUnit.SECONDS);
+                        return "Sữa tươi";
+                    })));
+                }
+                Thread.sleep(200);
+                release.countDown();
+
+                // Assert
+                for (Future<String> result : results) {
+                    assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Sữa tươi");
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertThat(loads).hasValue(1);
+            assertThat(remoteCacheManager.getCache("products").get("barcode:893").get()).isEqualTo("Sữa tươi");
+        }
+
+        @Test
+        @DisplayName("❌ Should hand the loader's exception to the caller without caching anything")
+        void get_ShouldPropagateLoadFailure() {
+            // Arrange
+            Cache cache = cache(LOCAL, null);
+            IllegalStateException failure = new IllegalStateException("DB down");
+
+            // Act & Assert
+            assertThatThrownBy(() -> cache.get(1L, () -> {
+                throw failure;
+            })).isInstanceOf(Cache.ValueRetrievalException.class).hasCause(failure);
+            assertThat(cache.get(1L, () -> "Bánh mì")).isEqualTo("Bánh mì");
+        }
+
+        @Test
+        @DisplayName("✅ Should not cache a value loaded before the key was evicted")
+        void get_ShouldSkipPutAfterConcurrentEvict() {
+            // Arrange
+            Cache cache = cache(LOCAL, null);
+
+            // Act
+            String value = cache.get(1L, () -> {
+                cache.evict(1L);
+                return "cũ";
+            });
+
+            // Assert
+            assertThat(value).isEqualTo("cũ");
+            assertThat(cache.get(1L)).isNull();
+        }
+
+        @Test
+        @DisplayName("✅ Should not cache null results")
+        void get_ShouldNotCacheNull() {
+            // Arrange
+            Cache cache = cache(LOCAL, null);
+
+            // Act
+            Object value = cache.get(1L, () -> null);
+
+            // Assert
+            assertThat(value).isNull();
+            assertThat(cache.get(1L)).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Distributed lease")
+    class LeaseTests {
+
+        @Test
+        @DisplayName("✅ Should wait for the node holding the lease instead of loading")
+        void get_ShouldReadValueLoadedByOtherNode() {
+            // Arrange
+            SingleFlightCacheManager.Settings settings = new SingleFlightCacheManager.Settings(5000, true, 3000, 10, 0, 1);
+            Cache cache = cache(settings, redisTemplate);
+            when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+            when(valueOperations.setIfAbsent(eq("cache-lease:products::1"), anyString(), any(Duration.class)))
+                    .thenAnswer(invocation -> {
+                        // Node khác giữ lease và ghi xong giá trị
+                        remoteCacheManager.getCache("products").put(1L, "từ node khác");
+                        return false;
+                    });
+
+            // Act
+            Object value = cache.get(1L, () -> {
+                loads.incrementAndGet();
+                return "tự nạp";
+            });
+
+            // Assert
+            assertThat(value).isEqualTo("từ node khác");
+            assertThat(loads).hasValue(0);
+        }
+
+        @Test
+        @DisplayName("✅ Should load under the lease when it is free")
+        void get_ShouldLoadWhenLeaseAcquired() {
+            // Arrange
+            SingleFlightCacheManager.Settings settings = new SingleFlightCacheManager.Settings(5000, true, 3000, 10, 0, 1);
+            Cache cache = cache(settings, redisTemplate);
+            when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+            when(valueOperations.setIfAbsent(eq("cache-lease:products::1"), anyString(), any(Duration.class)))
+                    .thenReturn(true);
+
+            // Act
+            Object value = cache.get(1L, () -> "Cà phê");
+
+            // Assert
+            assertThat(value).isEqualTo("Cà phê");
+            assertThat(cache.get(1L).get()).isEqualTo("Cà phê");
+            verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cache-lease:products::1")), anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Early refresh")
+    class RefreshTests {
+
+        private final SingleFlightCacheManager.Settings refreshing =
+                new SingleFlightCacheManager.Settings(5000, false, 3000, 10, 60_000, 1);
+
+        @Test
+        @DisplayName("✅ Should reload an entry about to expire")
+        void get_ShouldRefreshNearExpiry() {
+            // Arrange
+            Cache cache = cache(refreshing, redisTemplate);
+            remoteCacheManager.getCache("products").put(1L, "giá cũ");
+            when(redisTemplate.getExpire("products::1", TimeUnit.MILLISECONDS)).thenReturn(0L);
+
+            // Act
+            Object value = cache.get(1L, () -> "giá mới");
+
+            // Assert
+            assertThat(value).isEqualTo("giá mới");
+            assertThat(cache.get(1L).get()).isEqualTo("giá mới");
+        }
+
+        @Test
+        @DisplayName("✅ Should serve the cached entry while far from expiry")
+        void get_ShouldNotRefreshFreshEntry() {
+            // Arrange
+            Cache cache = cache(refreshing, redisTemplate);
+            remoteCacheManager.getCache("products").put(1L, "giá cũ");
+            when(redisTemplate.getExpire("products::1", TimeUnit.MILLISECONDS)).thenReturn(3_600_000L);
+
+            // Act
+            Object value = cache.get(1L, () -> {
+                loads.incrementAndGet();
+                return "giá mới";
+            });
+
+            // Assert
+            assertThat(value).isEqualTo("giá cũ");
+            assertThat(loads).hasValue(0);
+        }
+
+        @Test
+        @DisplayName("✅ Should keep the cached entry when the refresh fails")
+        void get_ShouldKeepEntryWhenRefreshFails() {
+            // Arrange
+            Cache cache = cache(refreshing, redisTemplate);
+            remoteCacheManager.getCache("products").put(1L, "giá cũ");
+            when(redisTemplate.getExpire("products::1", TimeUnit.MILLISECONDS)).thenReturn(0L);
+
+            // Act
+            Object value = cache.get(1L, () -> {
+                throw new IllegalStateException("DB down");
+            });
+
+            // Assert
+            assertThat(value).isEqualTo("giá cũ");
+        }
+    }
+}
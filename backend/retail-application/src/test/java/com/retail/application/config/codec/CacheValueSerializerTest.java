@@ -0,0 +1,210 @@
+package com.retail.application.config.codec;
+
+import com.retail.application.config.RedisConfig;
+import com.retail.application.dto.CustomerDTO;
+import com.retail.application.dto.InvoiceDTO;
+import com.retail.application.dto.InvoiceDetailDTO;
+import com.retail.application.dto.ProductDTO;
+import com.retail.application.dto.PromotionDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for CacheValueSerializer
+ * Tests binary round trips of every cached DTO field, JSON fallback and reading entries written by other versions
+ */
+@DisplayName("CacheValueSerializer Unit Tests")
+class CacheValueSerializerTest {
+
+    private final CacheValueSerializer binary = RedisConfig.createCacheSerializer(true);
+    private final CacheValueSerializer json = RedisConfig.createCacheSerializer(false);
+
+    /**
+     * Điền mọi field của DTO (kể cả field thêm sau này) - field codec bỏ sót sẽ mất sau round trip
+     */
+    private static <T> T filled(Class<T> type, int seed) {
+        try {
+            T value = type.getDeclaredConstructor().newInstance();
+            int i = seed;
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                field.set(value, sample(field, i++));
+            }
+            return value;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object sample(Field field, int i) {
+        Class<?> type = field.getType();
+        if (type == Long.class) {
+            return 1_000_000_000_000L + i;
+        }
+        if (type == Integer.class) {
+            return -i;
+        }
+        if (type == String.class) {
+            return "Giá trị " + field.getName() + " " + i;
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal("12345.6" + i);
+        }
+        if (type == Boolean.class) {
+            return i % 2 == 0;
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.of(2025, 3, 1, 8, 30, 15, 123_000_000 + i);
+        }
+        if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants[i % constants.length];
+        }
+        if (type == List.class) {
+            Class<?> element = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            if (element == Long.class) {
+                return new ArrayList<>(List.of(3L, 1L << 40, -7L));
+            }
+            return new ArrayList<>(List.of(filled(element, i), filled(element, i + 100)));
+        }
+        throw new IllegalStateException("No sample value for " + field + " - add it here and to DtoCodecs");
+    }
+
+    @Nested
+    @DisplayName("Binary codec")
+    class BinaryTests {
+
+        @Test
+        @DisplayName("✅ Should round trip every field of cached DTOs")
+        void serialize_ShouldRoundTripEveryField() {
+            for (Class<?> type : List.of(ProductDTO.class, InvoiceDTO.class, CustomerDTO.class, PromotionDTO.class)) {
+                // Arrange
+                Object value = filled(type, 1);
+
+                // Act
+                byte[] bytes = binary.serialize(value);
+
+                // Assert
+                assertThat(bytes[0] & 0xFF).as(type.getSimpleName()).isEqualTo(CacheValueSerializer.MAGIC);
+                assertThat(binary.deserialize(bytes)).as(type.getSimpleName()).isEqualTo(value);
+            }
+        }
+
+        @Test
+        @DisplayName("✅ Should keep null fields and null list elements")
+        void serialize_ShouldKeepNulls() {
+            // Arrange
+            InvoiceDTO invoice = InvoiceDTO.builder().id(5L).chiTietHoaDons(Arrays.asList(
+                    InvoiceDetailDTO.builder().sanPhamId(1L).build(), null)).build();
+            List<ProductDTO> products = Arrays.asList(ProductDTO.builder().id(1L).build(), null);
+
+            // Act & Assert
+            assertThat(binary.deserialize(binary.serialize(invoice))).isEqualTo(invoice);
+            assertThat(binary.deserialize(binary.serialize(products))).isEqualTo(products);
+            assertThat(binary.deserialize(binary.serialize(new ArrayList<>()))).isEqualTo(List.of());
+        }
+
+        @Test
+        @DisplayName("✅ Should write a list of invoices smaller than JSON")
+        void serialize_ShouldBeSmallerThanJson() {
+            // Arrange
+            List<InvoiceDTO> invoices = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                invoices.add(filled(InvoiceDTO.class, i));
+            }
+
+            // Act
+            byte[] bytes = binary.serialize(invoices);
+
+            // Assert
+            assertThat(binary.deserialize(bytes)).isEqualTo(invoices);
+            assertThat(bytes.length).isLessThan(json.serialize(invoices).length / 2);
+        }
+
+        @Test
+        @DisplayName("✅ Should fall back to JSON for values without a codec")
+        void serialize_ShouldUseJsonForOtherValues() {
+            // Arrange
+            Map<String, Object> value = new HashMap<>();
+            value.put("maHoaDon", "HD001");
+            List<Object> mixed = new ArrayList<>(List.of(ProductDTO.builder().id(1L).build(), "khác"));
+
+            // Act
+            byte[] bytes = binary.serialize(value);
+
+            // Assert
+            assertThat(bytes[0] & 0xFF).isNotEqualTo(CacheValueSerializer.MAGIC);
+            assertThat(binary.deserialize(bytes)).isEqualTo(value);
+            assertThat(binary.serialize(mixed)[0] & 0xFF).isNotEqualTo(CacheValueSerializer.MAGIC);
+        }
+    }
+
+    @Nested
+    @DisplayName("Rolling deploy")
+    class CompatibilityTests {
+
+        @Test
+        @DisplayName("✅ Should read JSON entries written before the codec was enabled")
+        void deserialize_ShouldReadJsonEntries() {
+            // Arrange
+            ProductDTO product = filled(ProductDTO.class, 1);
+
+            // Act & Assert
+            assertThat(binary.deserialize(json.serialize(product))).isEqualTo(product);
+        }
+
+        @Test
+        @DisplayName("✅ Should read binary entries on nodes that still write JSON")
+        void deserialize_ShouldReadBinaryEntriesInJsonMode() {
+            // Arrange
+            CustomerDTO customer = filled(CustomerDTO.class, 1);
+
+            // Act & Assert
+            assertThat(json.serialize(customer)[0] & 0xFF).isNotEqualTo(CacheValueSerializer.MAGIC);
+            assertThat(json.deserialize(binary.serialize(customer))).isEqualTo(customer);
+        }
+
+        @Test
+        @DisplayName("❌ Should treat entries from a newer schema version as a cache miss")
+        void deserialize_ShouldMissOnNewerSchema() {
+            // Arrange
+            BinaryOutput out = new BinaryOutput(16);
+            out.writeByte(CacheValueSerializer.MAGIC);
+            out.writeByte(CacheValueSerializer.FORMAT_VERSION);
+            out.writeByte(0);
+            out.writeVarInt(DtoCodecs.forType(ProductDTO.class).typeId());
+            out.writeVarInt(DtoCodecs.forType(ProductDTO.class).version() + 1);
+            out.writeLong(1L);
+
+            // Act & Assert
+            assertThat(binary.deserialize(out.toByteArray())).isNull();
+        }
+
+        @Test
+        @DisplayName("❌ Should treat truncated entries as a cache miss")
+        void deserialize_ShouldMissOnTruncatedPayload() {
+            // Arrange
+            byte[] bytes = binary.serialize(filled(PromotionDTO.class, 1));
+
+            // Act & Assert
+            assertThat(binary.deserialize(Arrays.copyOf(bytes, bytes.length / 2))).isNull();
+        }
+    }
+}
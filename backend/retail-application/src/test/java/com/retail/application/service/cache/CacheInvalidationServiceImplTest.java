@@ -0,0 +1,250 @@
+package com.retail.application.service.cache;
+
+import com.retail.application.config.RedisConfig;
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.KhachHang;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CacheInvalidationServiceImpl
+ * Tests that only the keys touched by a write are evicted
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CacheInvalidationService Unit Tests")
+class CacheInvalidationServiceImplTest {
+
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+    @Mock
+    private SetOperations<String, Object> setOperations;
+    @Mock
+    private Cache cache;
+
+    @InjectMocks
+    private CacheInvalidationServiceImpl cacheInvalidationService;
+
+    private HoaDon sampleInvoice;
+
+    @BeforeEach
+    void setUp() {
+        sampleInvoice = HoaDon.builder()
+                .id(10L)
+                .ngayTao(LocalDateTime.of(2025, 1, 17, 9, 30))
+                .khachHang(KhachHang.builder().id(5L).build())
+                .chiNhanh(ChiNhanh.builder().id(2L).build())
+                .build();
+    }
+
+    @Nested
+    @DisplayName("Invoice Eviction Tests")
+    class InvoiceTests {
+
+        @Test
+        @DisplayName("✅ Should evict only keys related to the invoice")
+        void evictInvoice_ShouldEvictTargetedKeys() {
+            // Arrange
+            when(cacheManager.getCache("invoices")).thenReturn(cache);
+            when(redisTemplate.opsForSet()).thenReturn(setOperations);
+            when(setOperations.members(anyString())).thenReturn(Set.of(
+                    "daterange:2025-01-01:2025-01-31",
+                    "daterange:2025-01-17:2025-01-17:status:COMPLETED",
+                    "daterange:2024-12-01:2024-12-31"));
+
+            // Act
+            cacheInvalidationService.evictInvoice(sampleInvoice);
+
+            // Assert
+            verify(cache).evict(10L);
+            verify(cache).evict("date:2025-01-17");
+            verify(cache).evict("date:2025-01-17:status:COMPLETED");
+            verify(cache).evict("date:2025-01-17:status:PENDING");
+            verify(cache).evict("customer:5");
+            verify(cache).evict("pending:2");
+            verify(cache).evict("daterange:2025-01-01:2025-01-31");
+            verify(cache).evict("daterange:2025-01-17:2025-01-17:status:COMPLETED");
+            verify(cache, never()).evict("daterange:2024-12-01:2024-12-31");
+            verify(cache, never()).clear();
+        }
+
+        @Test
+        @DisplayName("✅ Should skip customer and branch keys when invoice has none")
+        void evictInvoice_WithoutCustomerAndBranch_ShouldOnlyEvictIdAndDate() {
+            // Arrange
+            sampleInvoice.setKhachHang(null);
+            sampleInvoice.setChiNhanh(null);
+            when(cacheManager.getCache("invoices")).thenReturn(cache);
+            when(redisTemplate.opsForSet()).thenReturn(setOperations);
+            when(setOperations.members(anyString())).thenReturn(Set.of());
+
+            // Act
+            cacheInvalidationService.evictInvoice(sampleInvoice);
+
+            // Assert
+            verify(cache).evict(10L);
+            verify(cache).evict("date:2025-01-17");
+            verify(cache, never()).evict(startsWith("customer:"));
+            verify(cache, never()).evict(startsWith("pending:"));
+        }
+
+        @Test
+        @DisplayName("✅ Should still evict direct keys when date-range index is unavailable")
+        void evictInvoice_WhenIndexUnavailable_ShouldNotFail() {
+            // Arrange
+            when(cacheManager.getCache("invoices")).thenReturn(cache);
+            when(redisTemplate.opsForSet()).thenThrow(new RuntimeException("Redis down"));
+
+            // Act
+            cacheInvalidationService.evictInvoice(sampleInvoice);
+
+            // Assert
+            verify(cache).evict(10L);
+            verify(cache).evict("pending:2");
+        }
+
+        @Test
+        @DisplayName("✅ Should index the date-range key before loading and caching it")
+        void getInvoiceDateRange_ShouldIndexKeyBeforeLoading() {
+            // Arrange
+            String key = "daterange:2025-01-01:2025-01-31:status:CANCELLED";
+            when(cacheManager.getCache("invoices")).thenReturn(cache);
+            when(redisTemplate.opsForSet()).thenReturn(setOperations);
+            when(cache.get(eq(key), any(Callable.class)))
+                    .thenAnswer(invocation -> invocation.<Callable<?>>getArgument(1).call());
+            when(setOperations.isMember(anyString(), eq(key))).thenReturn(true);
+
+            // Act
+            List<String> result = cacheInvalidationService.getInvoiceDateRange(
+                    "2025-01-01", "2025-01-31", Status.CANCELLED, () -> List.of("HD-1"));
+
+            // Assert
+            assertThat(result).containsExactly("HD-1");
+            InOrder inOrder = inOrder(setOperations, cache);
+            inOrder.verify(setOperations).add(anyString(), eq(key));
+            inOrder.verify(cache).get(eq(key), any(Callable.class));
+            verify(redisTemplate).expire(anyString(), eq(RedisConfig.INVOICES_TTL));
+            verify(cache, never()).evict(any());
+        }
+
+        @Test
+        @DisplayName("✅ Should drop the cached range when it was evicted from the index while loading")
+        void getInvoiceDateRange_WhenEvictedDuringLoad_ShouldEvictCachedValue() {
+            // Arrange
+            String key = "daterange:2025-01-01:2025-01-31";
+            when(cacheManager.getCache("invoices")).thenReturn(cache);
+            when(redisTemplate.opsForSet()).thenReturn(setOperations);
+            when(cache.get(eq(key), any(Callable.class)))
+                    .thenAnswer(invocation -> invocation.<Callable<?>>getArgument(1).call());
+            when(setOperations.isMember(anyString(), eq(key))).thenReturn(false);
+
+            // Act
+            List<String> result = cacheInvalidationService.getInvoiceDateRange(
+                    "2025-01-01", "2025-01-31", null, () -> List.of("HD-1"));
+
+            // Assert
+            assertThat(result).containsExactly("HD-1");
+            verify(cache).evict(key);
+        }
+
+        @Test
+        @DisplayName("✅ Should load without caching when the index cannot be written")
+        void getInvoiceDateRange_WhenIndexUnavailable_ShouldBypassCache() {
+            // Arrange
+            when(cacheManager.getCache("invoices")).thenReturn(cache);
+            when(redisTemplate.opsForSet()).thenThrow(new RuntimeException("Redis down"));
+
+            // Act
+            List<String> result = cacheInvalidationService.getInvoiceDateRange(
+                    "2025-01-01", "2025-01-31", null, () -> List.of("HD-1"));
+
+            // Assert
+            assertThat(result).containsExactly("HD-1");
+            verifyNoInteractions(cache);
+        }
+
+        @Test
+        @DisplayName("✅ Should match date ranges inclusively")
+        void rangeContains_ShouldBeInclusive() {
+            LocalDate date = LocalDate.of(2025, 1, 17);
+
+            assertThat(CacheInvalidationServiceImpl.rangeContains("daterange:2025-01-17:2025-01-20", date)).isTrue();
+            assertThat(CacheInvalidationServiceImpl.rangeContains("daterange:2025-01-10:2025-01-17:status:PENDING", date)).isTrue();
+            assertThat(CacheInvalidationServiceImpl.rangeContains("daterange:2025-01-18:2025-01-20", date)).isFalse();
+            assertThat(CacheInvalidationServiceImpl.rangeContains("daterange:bad", date)).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Customer and Product Eviction Tests")
+    class CustomerProductTests {
+
+        @Test
+        @DisplayName("✅ Should evict customer by id and phone")
+        void evictCustomer_ShouldEvictIdAndPhone() {
+            // Arrange
+            when(cacheManager.getCache("customers")).thenReturn(cache);
+
+            // Act
+            cacheInvalidationService.evictCustomer(KhachHang.builder().id(5L).soDienThoai("0901234567").build());
+
+            // Assert
+            verify(cache).evict(5L);
+            verify(cache).evict("phone:0901234567");
+            verify(cache, never()).clear();
+        }
+
+        @Test
+        @DisplayName("✅ Should evict product by id and barcode")
+        void evictProduct_ShouldEvictIdAndBarcode() {
+            // Arrange
+            when(cacheManager.getCache("products")).thenReturn(cache);
+
+            // Act
+            cacheInvalidationService.evictProduct(1L, "8934588123456");
+
+            // Assert
+            verify(cache).evict(1L);
+            verify(cache).evict("barcode:8934588123456");
+            verify(cache, never()).clear();
+        }
+
+        @Test
+        @DisplayName("✅ Should evict only the dashboard day")
+        void evictDashboardDay_ShouldEvictDayKey() {
+            // Arrange
+            when(cacheManager.getCache("dashboard")).thenReturn(cache);
+
+            // Act
+            cacheInvalidationService.evictDashboardDay(LocalDate.of(2025, 1, 17));
+
+            // Assert
+            verify(cache).evict("day:2025-01-17");
+            verify(cache, never()).clear();
+        }
+    }
+}
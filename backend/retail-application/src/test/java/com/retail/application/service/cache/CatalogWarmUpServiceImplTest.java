@@ -0,0 +1,190 @@
+package com.retail.application.service.cache;
+
+import com.retail.application.config.RedisCachePreloader;
+import com.retail.application.dto.CatalogWarmUpDTO;
+import com.retail.application.dto.ProductDTO;
+import com.retail.application.mapper.ProductMapper;
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.SanPham;
+import com.retail.persistence.repository.ChiNhanhRepository;
+import com.retail.persistence.repository.SanPhamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CatalogWarmUpServiceImpl
+ * Tests paging each branch's active catalog into the products cache and the startup readiness flag
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CatalogWarmUpServiceImpl Unit Tests")
+class CatalogWarmUpServiceImplTest {
+
+    @Mock
+    private ChiNhanhRepository chiNhanhRepository;
+
+    @Mock
+    private SanPhamRepository sanPhamRepository;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private ObjectProvider<RedisCachePreloader> preloaderProvider;
+
+    @Mock
+    private RedisCachePreloader preloader;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogWarmUpServiceImpl catalogWarmUpService;
+
+    @BeforeEach
+    void setUp() {
+        catalogWarmUpService = new CatalogWarmUpServiceImpl(chiNhanhRepository, sanPhamRepository, productMapper,
+                preloaderProvider, transactionManager, 2, true);
+    }
+
+    private static ProductDTO product(long id, String barcode) {
+        return ProductDTO.builder().id(id).barcode(barcode).build();
+    }
+
+    @Nested
+    @DisplayName("Warm-up")
+    class WarmUpTests {
+
+        @Test
+        @DisplayName("✅ Should page through the branch catalog and cache products by id and barcode")
+        void warmUp_ShouldCacheEveryPage() {
+            // Arrange
+            ChiNhanh branch = ChiNhanh.builder().id(1L).tenChiNhanh("Chi nhánh 1").build();
+            List<SanPham> firstPage = List.of(new SanPham(), new SanPham());
+            List<SanPham> secondPage = List.of(new SanPham());
+            when(preloaderProvider.getIfAvailable()).thenReturn(preloader);
+            when(chiNhanhRepository.findByTrangThai(Status.ACTIVE)).thenReturn(List.of(branch));
+            when(sanPhamRepository.findByChiNhanhIdAndTrangThai(eq(1L), eq(Status.ACTIVE), any(Pageable.class)))
+                    .thenReturn(new SliceImpl<>(firstPage, PageRequest.of(0, 2), true))
+                    .thenReturn(new SliceImpl<>(secondPage, PageRequest.of(1, 2), false));
+            when(productMapper.toDtoList(firstPage))
+                    .thenReturn(List.of(product(10L, "893001"), product(11L, null)));
+            when(productMapper.toDtoList(secondPage)).thenReturn(List.of(product(12L, "893002")));
+            CatalogWarmUpServiceImpl.Run run = new CatalogWarmUpServiceImpl.Run("STARTUP");
+
+            // Act
+            catalogWarmUpService.warmUp(run);
+
+            // Assert
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Map<Object, Object>> entries = ArgumentCaptor.forClass(Map.class);
+            verify(preloader, times(2)).putAll(eq("products"), entries.capture(), eq(0L));
+            assertThat(entries.getAllValues().get(0)).containsOnlyKeys(10L, "barcode:893001", 11L);
+            assertThat(entries.getAllValues().get(1)).containsOnlyKeys(12L, "barcode:893002");
+
+            ArgumentCaptor<Pageable> pages = ArgumentCaptor.forClass(Pageable.class);
+            verify(sanPhamRepository, times(2)).findByChiNhanhIdAndTrangThai(eq(1L), eq(Status.ACTIVE), pages.capture());
+            assertThat(pages.getAllValues()).extracting(Pageable::getPageNumber).containsExactly(0, 1);
+
+            CatalogWarmUpDTO status = run.toDto();
+            assertThat(status.getStatus()).isEqualTo("DONE");
+            assertThat(status.getBranchesDone()).isEqualTo(1);
+            assertThat(status.getProductsLoaded()).isEqualTo(3L);
+            assertThat(catalogWarmUpService.isStartupComplete()).isTrue();
+        }
+
+        @Test
+        @DisplayName("✅ Should skip when Redis cache is not configured")
+        void warmUp_ShouldSkipWithoutRedis() {
+            // Arrange
+            when(preloaderProvider.getIfAvailable()).thenReturn(null);
+            CatalogWarmUpServiceImpl.Run run = new CatalogWarmUpServiceImpl.Run("STARTUP");
+
+            // Act
+            catalogWarmUpService.warmUp(run);
+
+            // Assert
+            assertThat(run.toDto().getStatus()).isEqualTo("SKIPPED");
+            verifyNoInteractions(chiNhanhRepository, sanPhamRepository);
+            assertThat(catalogWarmUpService.isStartupComplete()).isTrue();
+        }
+
+        @Test
+        @DisplayName("❌ Should report failure and still complete startup when Redis write fails")
+        void warmUp_ShouldRecordFailure() {
+            // Arrange
+            ChiNhanh branch = ChiNhanh.builder().id(1L).tenChiNhanh("Chi nhánh 1").build();
+            List<SanPham> page = List.of(new SanPham());
+            when(preloaderProvider.getIfAvailable()).thenReturn(preloader);
+            when(chiNhanhRepository.findByTrangThai(Status.ACTIVE)).thenReturn(List.of(branch));
+            when(sanPhamRepository.findByChiNhanhIdAndTrangThai(eq(1L), eq(Status.ACTIVE), any(Pageable.class)))
+                    .thenReturn(new SliceImpl<>(page, PageRequest.of(0, 2), false));
+            when(productMapper.toDtoList(page)).thenReturn(List.of(product(10L, "893001")));
+            doThrow(new IllegalStateException("Redis down")).when(preloader).putAll(eq("products"), anyMap(), anyLong());
+            CatalogWarmUpServiceImpl.Run run = new CatalogWarmUpServiceImpl.Run("STARTUP");
+
+            // Act
+            catalogWarmUpService.warmUp(run);
+
+            // Assert
+            CatalogWarmUpDTO status = run.toDto();
+            assertThat(status.getStatus()).isEqualTo("FAILED");
+            assertThat(status.getError()).isEqualTo("Redis down");
+            assertThat(catalogWarmUpService.isStartupComplete()).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Readiness")
+    class ReadinessTests {
+
+        @Test
+        @DisplayName("✅ Should not be ready before the startup warm-up finishes")
+        void isStartupComplete_ShouldBeFalseBeforeStartupRun() {
+            // Assert
+            assertThat(catalogWarmUpService.isStartupComplete()).isFalse();
+            assertThat(catalogWarmUpService.getStatus().getStatus()).isEqualTo("IDLE");
+        }
+
+        @Test
+        @DisplayName("✅ Should not hold readiness for a manual run")
+        void warmUp_ManualRunShouldNotCompleteStartup() {
+            // Arrange
+            when(preloaderProvider.getIfAvailable()).thenReturn(null);
+
+            // Act
+            catalogWarmUpService.warmUp(new CatalogWarmUpServiceImpl.Run("MANUAL"));
+
+            // Assert
+            assertThat(catalogWarmUpService.isStartupComplete()).isFalse();
+        }
+
+        @Test
+        @DisplayName("✅ Should be ready immediately when startup warm-up is disabled")
+        void isStartupComplete_ShouldBeTrueWhenDisabled() {
+            // Arrange
+            CatalogWarmUpServiceImpl disabled = new CatalogWarmUpServiceImpl(chiNhanhRepository, sanPhamRepository,
+                    productMapper, preloaderProvider, transactionManager, 500, false);
+
+            // Assert
+            assertThat(disabled.isStartupComplete()).isTrue();
+        }
+    }
+}
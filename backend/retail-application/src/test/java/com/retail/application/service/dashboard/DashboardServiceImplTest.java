@@ -0,0 +1,150 @@
+package com.retail.application.service.dashboard;
+
+import com.retail.application.dto.DashboardDayDTO;
+import com.retail.application.dto.DashboardStatsDTO;
+import com.retail.persistence.repository.DoanhSoNgayRepository;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.DailyTotals;
+import com.retail.persistence.repository.DoanhSoSanPhamNgayRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DashboardServiceImpl
+ * Tests that all widgets share one grouped rollup query and that finished days come from the cache
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DashboardService Unit Tests")
+class DashboardServiceImplTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 7);
+
+    @Mock
+    private DoanhSoNgayRepository doanhSoNgayRepository;
+    @Mock
+    private DoanhSoSanPhamNgayRepository doanhSoSanPhamNgayRepository;
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private Cache cache;
+
+    @InjectMocks
+    private DashboardServiceImpl dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        when(cacheManager.getCache(DashboardServiceImpl.DASHBOARD_CACHE)).thenReturn(cache);
+    }
+
+    private static DashboardDayDTO day(LocalDate date, long soDon, String doanhThu, long soKhach) {
+        return DashboardDayDTO.builder()
+                .ngay(date)
+                .soDon(soDon)
+                .doanhThu(new BigDecimal(doanhThu))
+                .soKhach(soKhach)
+                .build();
+    }
+
+    @Nested
+    @DisplayName("Load days")
+    class LoadDaysTests {
+
+        @Test
+        @DisplayName("✅ Should load missing days with one grouped query and cache finished days")
+        void getDashboardStats_ShouldQueryOnceAndCacheDays() {
+            // Arrange - chỉ có số liệu hôm qua và ngày xem
+            when(doanhSoNgayRepository.sumDailyTotals(DATE.minusDays(6), DATE)).thenReturn(List.of(
+                    new DailyTotals(DATE.minusDays(1), 2, new BigDecimal("100000"), 1),
+                    new DailyTotals(DATE, 3, new BigDecimal("150000"), 2)));
+
+            // Act
+            DashboardStatsDTO stats = dashboardService.getDashboardStats(DATE);
+
+            // Assert
+            verify(doanhSoNgayRepository, times(1)).sumDailyTotals(any(), any());
+            verify(cache, times(7)).putIfAbsent(anyString(), any(DashboardDayDTO.class));
+            verify(cache).putIfAbsent(eq("day:" + DATE.minusDays(3)), argThat((DashboardDayDTO d) -> d.getSoDon() == 0));
+            verify(cache, never()).evictIfPresent(any());
+
+            assertThat(stats.getTodayStats().getDoanhThu()).isEqualByComparingTo("150000");
+            assertThat(stats.getTodayStats().getTongDon()).isEqualTo(3);
+            assertThat(stats.getTodayStats().getKhachHang()).isEqualTo(2);
+            assertThat(stats.getTodayStats().getDoanhThuChange()).isEqualByComparingTo("50.0");
+            assertThat(stats.getOrderStatsByDate()).hasSize(7);
+            assertThat(stats.getOrderStatsByDate().get(0).getDonHang()).isZero();
+            assertThat(stats.getSalesOverview().get(6).getLoiNhuan()).isEqualByComparingTo("15000");
+        }
+
+        @Test
+        @DisplayName("✅ Should evict the days just cached when the rollup changed during the load")
+        void getDashboardStats_ShouldEvictWhenVersionChanged() {
+            // Arrange - delta lùi ngày commit giữa lúc đọc rollup và lúc ghi cache
+            when(doanhSoNgayRepository.dataVersion(DATE.minusDays(6), DATE)).thenReturn(4L, 5L);
+            when(doanhSoNgayRepository.sumDailyTotals(DATE.minusDays(6), DATE)).thenReturn(List.of());
+
+            // Act
+            dashboardService.getDashboardStats(DATE);
+
+            // Assert
+            verify(cache, times(7)).putIfAbsent(anyString(), any(DashboardDayDTO.class));
+            verify(cache, times(7)).evictIfPresent(anyString());
+            verify(cache).evictIfPresent("day:" + DATE.minusDays(2));
+        }
+
+        @Test
+        @DisplayName("✅ Should not query the rollups when every finished day is cached")
+        void getDashboardStats_ShouldUseCachedDays() {
+            // Arrange
+            when(cache.get(anyString(), eq(DashboardDayDTO.class))).thenAnswer(invocation -> {
+                LocalDate date = LocalDate.parse(invocation.<String>getArgument(0).substring("day:".length()));
+                return day(date, 1, "50000", 1);
+            });
+
+            // Act
+            DashboardStatsDTO stats = dashboardService.getDashboardStats(DATE);
+
+            // Assert
+            verify(doanhSoNgayRepository, never()).sumDailyTotals(any(), any());
+            verify(cache, never()).putIfAbsent(any(), any());
+            assertThat(stats.getOrderStatsByDate()).extracting(DashboardStatsDTO.OrderStatsByDateDTO::getDonHang)
+                    .containsOnly(1L);
+        }
+
+        @Test
+        @DisplayName("✅ Should always read today from the rollups and never cache it")
+        void getDashboardStats_ShouldNotCacheToday() {
+            // Arrange
+            LocalDate today = LocalDate.now();
+            when(cache.get(anyString(), eq(DashboardDayDTO.class))).thenAnswer(invocation -> {
+                LocalDate date = LocalDate.parse(invocation.<String>getArgument(0).substring("day:".length()));
+                return day(date, 1, "50000", 1);
+            });
+            when(doanhSoNgayRepository.sumDailyTotals(today, today)).thenReturn(List.of());
+
+            // Act
+            DashboardStatsDTO stats = dashboardService.getDashboardStats(today);
+
+            // Assert
+            verify(cache, times(6)).get(anyString(), eq(DashboardDayDTO.class));
+            verify(cache, never()).putIfAbsent(any(), any());
+            verify(doanhSoNgayRepository, never()).dataVersion(any(), any());
+            assertThat(stats.getTodayStats().getTongDon()).isZero();
+            assertThat(stats.getTodayStats().getTongDonChange()).isEqualByComparingTo("-100.0");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.retail.application.service.document;
+
+import com.retail.common.constant.DocumentType;
+import com.retail.common.exception.ResourceNotFoundException;
+import com.retail.persistence.repository.DocumentSequenceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DocumentNumberServiceImpl
+ * Tests block allocation, background reservation, number format and uniqueness under concurrency
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DocumentNumberService Unit Tests")
+class DocumentNumberServiceImplTest {
+
+    private static final int BLOCK_SIZE = 10;
+
+    @Mock
+    private DocumentSequenceRepository documentSequenceRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DocumentNumberServiceImpl documentNumberService;
+
+    @BeforeEach
+    void setUp() {
+        documentNumberService = new DocumentNumberServiceImpl(documentSequenceRepository, transactionManager, BLOCK_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        documentNumberService.shutdown();
+    }
+
+    @Test
+    @DisplayName("✅ Should format branch and shared document numbers")
+    void nextNumber_ShouldFormatByScope() {
+        // Arrange
+        when(documentSequenceRepository.reserveBlock(anyString(), anyLong(), eq(BLOCK_SIZE))).thenReturn(1L);
+
+        // Act & Assert
+        assertThat(documentNumberService.nextNumber(DocumentType.HOA_DON, 1L)).isEqualTo("HD01-000001");
+        assertThat(documentNumberService.nextNumber(DocumentType.HOA_DON, 1L)).isEqualTo("HD01-000002");
+        assertThat(documentNumberService.nextNumber(DocumentType.KHACH_HANG)).isEqualTo("KH000001");
+        assertThat(documentNumberService.nextNumber(DocumentType.PAYMENT, null)).isEqualTo("PAY000001");
+
+        verify(documentSequenceRepository).reserveBlock("HOA_DON", 1L, BLOCK_SIZE);
+        verify(documentSequenceRepository).reserveBlock("KHACH_HANG", 0L, BLOCK_SIZE);
+        verify(documentSequenceRepository).reserveBlock("PAYMENT", 0L, BLOCK_SIZE);
+    }
+
+    @Test
+    @DisplayName("✅ Should hit the database once per block, not once per document")
+    void nextNumber_ShouldReserveOneBlockPerBlockSizeNumbers() {
+        // Arrange - mỗi lần giữ chỗ trả về block tiếp theo
+        AtomicLong sequence = new AtomicLong(1);
+        when(documentSequenceRepository.reserveBlock("HOA_DON", 2L, BLOCK_SIZE))
+                .thenAnswer(invocation -> sequence.getAndAdd(BLOCK_SIZE));
+
+        // Act
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            numbers.add(documentNumberService.nextNumber(DocumentType.HOA_DON, 2L));
+        }
+
+        // Assert
+        assertThat(numbers).doesNotHaveDuplicates();
+        assertThat(numbers.get(0)).isEqualTo("HD02-000001");
+        assertThat(numbers.get(24)).isEqualTo("HD02-000025");
+        verify(documentSequenceRepository, times(3)).reserveBlock("HOA_DON", 2L, BLOCK_SIZE);
+    }
+
+    @Test
+    @DisplayName("✅ Should reserve blocks on a background thread before the current block runs out")
+    void nextNumber_ShouldReserveNextBlockInBackground() {
+        // Arrange - ghi lại thread giữ chỗ: không được là thread gọi (đang giữ connection của nghiệp vụ)
+        AtomicLong sequence = new AtomicLong(1);
+        Set<String> reservingThreads = ConcurrentHashMap.newKeySet();
+        when(documentSequenceRepository.reserveBlock("HOA_DON", 3L, BLOCK_SIZE)).thenAnswer(invocation -> {
+            reservingThreads.add(Thread.currentThread().getName());
+            return sequence.getAndAdd(BLOCK_SIZE);
+        });
+
+        // Act - dùng quá nửa block đầu tiên
+        for (int i = 0; i < BLOCK_SIZE / 2 + 1; i++) {
+            documentNumberService.nextNumber(DocumentType.HOA_DON, 3L);
+        }
+
+        // Assert - block thứ 2 được giữ chỗ trước khi block đầu hết
+        verify(documentSequenceRepository, timeout(5_000).times(2)).reserveBlock("HOA_DON", 3L, BLOCK_SIZE);
+        assertThat(reservingThreads).containsExactly("document-number-reserve");
+        assertThat(documentNumberService.nextNumber(DocumentType.HOA_DON, 3L)).isEqualTo("HD03-000007");
+    }
+
+    @Test
+    @DisplayName("✅ Should keep separate counters per branch")
+    void nextNumber_ShouldSeparateBranches() {
+        // Arrange
+        when(documentSequenceRepository.reserveBlock(eq("HOA_DON"), anyLong(), eq(BLOCK_SIZE))).thenReturn(1L);
+
+        // Act
+        String branch1 = documentNumberService.nextNumber(DocumentType.HOA_DON, 1L);
+        String branch2 = documentNumberService.nextNumber(DocumentType.HOA_DON, 2L);
+
+        // Assert
+        assertThat(branch1).isEqualTo("HD01-000001");
+        assertThat(branch2).isEqualTo("HD02-000001");
+    }
+
+    @Test
+    @DisplayName("❌ Should reject a branch that does not exist")
+    void nextNumber_WithUnknownBranch_ShouldThrowNotFound() {
+        // Arrange - chi nhánh chưa có bộ đếm và không tồn tại: repository không tạo dòng nào
+        when(documentSequenceRepository.reserveBlock("HOA_DON", 99L, BLOCK_SIZE))
+                .thenThrow(new EmptyResultDataAccessException(1));
+
+        // Act & Assert
+        assertThatThrownBy(() -> documentNumberService.nextNumber(DocumentType.HOA_DON, 99L))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("✅ Should never hand out the same number to concurrent callers")
+    void nextNumber_WithConcurrentCallers_ShouldBeUnique() throws Exception {
+        // Arrange
+        AtomicLong sequence = new AtomicLong(1);
+        when(documentSequenceRepository.reserveBlock("HOA_DON", 1L, BLOCK_SIZE))
+                .thenAnswer(invocation -> sequence.getAndAdd(BLOCK_SIZE));
+
+        int threads = 16;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    numbers.add(documentNumberService.nextNumber(DocumentType.HOA_DON, 1L));
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(numbers).hasSize(threads * perThread);
+        // Block cuối được dùng quá nửa nên block kế tiếp có thể đã được giữ chỗ trước
+        verify(documentSequenceRepository, atLeast(threads * perThread / BLOCK_SIZE))
+                .reserveBlock("HOA_DON", 1L, BLOCK_SIZE);
+        verify(documentSequenceRepository, atMost(threads * perThread / BLOCK_SIZE + 1))
+                .reserveBlock("HOA_DON", 1L, BLOCK_SIZE);
+    }
+}
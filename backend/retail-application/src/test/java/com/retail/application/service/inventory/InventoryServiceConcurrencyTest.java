@@ -0,0 +1,172 @@
+package com.retail.application.service.inventory;
+
+import com.retail.application.BaseIntegrationTest;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.application.dto.CheckoutRequest;
+import com.retail.application.service.pos.PosService;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra chống bán vượt tồn kho: nhiều quầy thanh toán (PosService.checkout) cùng lúc trên 1 sản phẩm
+ */
+@DisplayName("InventoryService Concurrency Tests")
+@Import(InventoryServiceConcurrencyTest.AuditingConfig.class)
+class InventoryServiceConcurrencyTest extends BaseIntegrationTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int CHECKOUTS = 120;
+
+    /**
+     * TestApplication không bật JPA auditing - checkout lưu hóa đơn qua JPA nên cần created_at
+     */
+    @TestConfiguration
+    @EnableJpaAuditing
+    static class AuditingConfig {
+    }
+
+    @Autowired
+    private PosService posService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long branchId;
+    private Long employeeId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        // Dữ liệu nền insert trực tiếp bằng JDBC
+        jdbcTemplate.update(
+                "INSERT INTO chi_nhanh (ma_chi_nhanh, ten_chi_nhanh, trang_thai, created_at) " +
+                        "VALUES ('CN-CONC', N'Concurrency Branch', 'ACTIVE', SYSDATETIME())");
+        branchId = jdbcTemplate.queryForObject(
+                "SELECT id FROM chi_nhanh WHERE ma_chi_nhanh = 'CN-CONC'", Long.class);
+
+        jdbcTemplate.update(
+                "INSERT INTO nhan_vien (ma_nhan_vien, ten_nhan_vien, username, password, role, trang_thai, " +
+                        "chi_nhanh_id, created_at) " +
+                        "VALUES ('NV-CONC', N'Concurrency Cashier', 'nv-conc', 'x', 'CASHIER', 'ACTIVE', ?, SYSDATETIME())",
+                branchId);
+        employeeId = jdbcTemplate.queryForObject(
+                "SELECT id FROM nhan_vien WHERE ma_nhan_vien = 'NV-CONC'", Long.class);
+
+        jdbcTemplate.update(
+                "INSERT INTO san_pham (ma_san_pham, ten_san_pham, gia_ban, ton_kho, trang_thai, created_at) " +
+                        "VALUES ('SP-CONC', N'Concurrency Product', 10000, ?, 'ACTIVE', SYSDATETIME())",
+                INITIAL_STOCK);
+        productId = jdbcTemplate.queryForObject(
+                "SELECT id FROM san_pham WHERE ma_san_pham = 'SP-CONC'", Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM outbox_event WHERE aggregate_id IN (SELECT id FROM hoa_don WHERE chi_nhanh_id = ?)",
+                branchId);
+        jdbcTemplate.update("DELETE FROM chi_tiet_hoa_don WHERE san_pham_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM hoa_don WHERE chi_nhanh_id = ?", branchId);
+        jdbcTemplate.update("DELETE FROM doanh_so_ngay WHERE chi_nhanh_id = ?", branchId);
+        jdbcTemplate.update("DELETE FROM doanh_so_san_pham_ngay WHERE chi_nhanh_id = ?", branchId);
+        jdbcTemplate.update("DELETE FROM document_sequence WHERE chi_nhanh_id = ?", branchId);
+        jdbcTemplate.update("DELETE FROM san_pham WHERE ma_san_pham = 'SP-CONC'");
+        jdbcTemplate.update("DELETE FROM nhan_vien WHERE ma_nhan_vien = 'NV-CONC'");
+        jdbcTemplate.update("DELETE FROM chi_nhanh WHERE ma_chi_nhanh = 'CN-CONC'");
+    }
+
+    private CheckoutRequest checkoutOneUnit() {
+        return CheckoutRequest.builder()
+                .nhanVienId(employeeId)
+                .chiNhanhId(branchId)
+                .items(List.of(CartItemDTO.builder().sanPhamId(productId).soLuong(1).build()))
+                .phuongThucThanhToan("CASH")
+                .build();
+    }
+
+    @Test
+    @DisplayName("✅ Should never oversell when many checkouts race for the last units")
+    void checkout_WithConcurrentCheckouts_ShouldNeverGoNegative() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicInteger minObservedStock = new AtomicInteger(INITIAL_STOCK);
+
+        // Theo dõi tồn kho trong lúc chạy - không được có thời điểm nào âm
+        Thread watcher = new Thread(() -> {
+            while (!done.get()) {
+                Integer stock = jdbcTemplate.queryForObject(
+                        "SELECT ton_kho FROM san_pham WITH (NOLOCK) WHERE id = ?", Integer.class, productId);
+                minObservedStock.accumulateAndGet(stock, Math::min);
+            }
+        });
+        watcher.start();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    posService.checkout(checkoutOneUnit());
+                    succeeded.incrementAndGet();
+                } catch (BusinessException e) {
+                    // Bị từ chối ở bước kiểm tra sơ bộ hoặc ở UPDATE có điều kiện
+                    assertThat(e.getErrorCode()).isEqualTo(ErrorCode.INSUFFICIENT_STOCK);
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        done.set(true);
+        watcher.join();
+
+        // Assert
+        Integer finalStock = jdbcTemplate.queryForObject(
+                "SELECT ton_kho FROM san_pham WHERE id = ?", Integer.class, productId);
+        Integer invoices = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM hoa_don WHERE chi_nhanh_id = ? AND trang_thai = 'COMPLETED'",
+                Integer.class, branchId);
+        Integer soldUnits = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(ct.so_luong), 0) FROM chi_tiet_hoa_don ct " +
+                        "JOIN hoa_don h ON h.id = ct.hoa_don_id " +
+                        "WHERE ct.san_pham_id = ? AND h.trang_thai = 'COMPLETED'",
+                Integer.class, productId);
+
+        assertThat(succeeded.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(rejected.get()).isEqualTo(CHECKOUTS - INITIAL_STOCK);
+        assertThat(invoices).isEqualTo(succeeded.get());
+        assertThat(soldUnits + finalStock).isEqualTo(INITIAL_STOCK);
+        assertThat(finalStock).isZero();
+        assertThat(minObservedStock.get()).isGreaterThanOrEqualTo(0);
+    }
+}
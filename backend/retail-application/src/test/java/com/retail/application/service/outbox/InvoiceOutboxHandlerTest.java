@@ -0,0 +1,161 @@
+package com.retail.application.service.outbox;
+
+import com.retail.application.service.cache.CacheInvalidationService;
+import com.retail.application.service.promotion.PromotionService;
+import com.retail.domain.entity.KhachHang;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.KhachHangRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for InvoiceOutboxHandler
+ * Tests batching of loyalty points, promotion usage and cache invalidation
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("InvoiceOutboxHandler Unit Tests")
+class InvoiceOutboxHandlerTest {
+
+    private static final LocalDateTime NGAY_TAO = LocalDateTime.of(2025, 1, 17, 12, 0);
+
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private KhachHangRepository khachHangRepository;
+    @Mock
+    private PromotionService promotionService;
+    @Mock
+    private CacheInvalidationService cacheInvalidationService;
+
+    @InjectMocks
+    private InvoiceOutboxHandler invoiceOutboxHandler;
+
+    private long nextEventId = 1;
+
+    @Test
+    @DisplayName("✅ Should add points once per customer and increment promotions once per batch")
+    void handle_ShouldAggregateAcrossBatch() {
+        // Arrange
+        KhachHang customer1 = KhachHang.builder().id(1L).soDienThoai("0901").build();
+        KhachHang customer2 = KhachHang.builder().id(2L).soDienThoai("0902").build();
+        List<OutboxEvent> events = List.of(
+                event(OutboxEvent.EventType.INVOICE_COMPLETED, payload(10L, 1L, "20", List.of(7L))),
+                event(OutboxEvent.EventType.INVOICE_COMPLETED, payload(11L, 1L, "30", List.of(7L))),
+                event(OutboxEvent.EventType.INVOICE_COMPLETED, payload(12L, 2L, "10", List.of())));
+        when(khachHangRepository.findAllById(anyIterable())).thenReturn(List.of(customer1, customer2));
+
+        // Act
+        invoiceOutboxHandler.handle(events);
+
+        // Assert
+        verify(khachHangRepository).addPoints(1L, new BigDecimal("50"));
+        verify(khachHangRepository).addPoints(2L, new BigDecimal("10"));
+        verify(cacheInvalidationService).evictCustomer(customer1);
+        verify(cacheInvalidationService).evictCustomer(customer2);
+        verify(promotionService).incrementPromotionUsage(List.of(7L, 7L));
+        verify(cacheInvalidationService).evictInvoice(10L, LocalDate.of(2025, 1, 17), 1L, 3L);
+        verify(cacheInvalidationService).evictInvoice(11L, LocalDate.of(2025, 1, 17), 1L, 3L);
+        verify(cacheInvalidationService).evictInvoice(12L, LocalDate.of(2025, 1, 17), 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("✅ Should subtract points for cancelled invoices")
+    void handle_WithCancelledInvoice_ShouldSubtractPoints() {
+        // Arrange
+        KhachHang customer = KhachHang.builder().id(1L).build();
+        List<OutboxEvent> events = List.of(
+                event(OutboxEvent.EventType.INVOICE_CANCELLED, payload(10L, 1L, "20", List.of())));
+        when(khachHangRepository.findAllById(anyIterable())).thenReturn(List.of(customer));
+
+        // Act
+        invoiceOutboxHandler.handle(events);
+
+        // Assert
+        verify(khachHangRepository).addPoints(1L, new BigDecimal("-20"));
+        verify(cacheInvalidationService).evictCustomer(customer);
+        verifyNoInteractions(promotionService);
+    }
+
+    @Test
+    @DisplayName("✅ Should release promotion usage after incrementing it in the same batch")
+    void handle_WithCancelledPromotionInvoice_ShouldReleaseUsage() {
+        // Arrange
+        List<OutboxEvent> events = List.of(
+                event(OutboxEvent.EventType.INVOICE_COMPLETED, payload(10L, null, "0", List.of(7L))),
+                event(OutboxEvent.EventType.INVOICE_CANCELLED, payload(10L, null, "0", List.of(7L))));
+
+        // Act
+        invoiceOutboxHandler.handle(events);
+
+        // Assert
+        InOrder inOrder = inOrder(promotionService);
+        inOrder.verify(promotionService).incrementPromotionUsage(List.of(7L));
+        inOrder.verify(promotionService).releasePromotionUsage(List.of(7L));
+    }
+
+    @Test
+    @DisplayName("✅ Should skip the customer update when a sale and its cancellation net to zero")
+    void handle_WithSaleAndCancellationInSameBatch_ShouldNotTouchCustomer() {
+        // Arrange
+        List<OutboxEvent> events = List.of(
+                event(OutboxEvent.EventType.INVOICE_COMPLETED, payload(10L, 1L, "20", List.of())),
+                event(OutboxEvent.EventType.INVOICE_CANCELLED, payload(10L, 1L, "20", List.of())));
+
+        // Act
+        invoiceOutboxHandler.handle(events);
+
+        // Assert
+        verify(khachHangRepository, never()).addPoints(anyLong(), any());
+        verify(cacheInvalidationService, times(1)).evictInvoice(eq(10L), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("✅ Should only evict caches for changed invoices")
+    void handle_WithChangedInvoice_ShouldOnlyEvictCache() {
+        // Arrange
+        List<OutboxEvent> events = List.of(
+                event(OutboxEvent.EventType.INVOICE_CHANGED, payload(10L, 1L, "20", List.of(7L))));
+
+        // Act
+        invoiceOutboxHandler.handle(events);
+
+        // Assert
+        verify(cacheInvalidationService).evictInvoice(10L, LocalDate.of(2025, 1, 17), 1L, 3L);
+        verifyNoInteractions(khachHangRepository, promotionService);
+    }
+
+    private OutboxEvent event(OutboxEvent.EventType type, InvoiceEventPayload payload) {
+        OutboxEvent event = OutboxEvent.builder()
+                .id(nextEventId++)
+                .eventType(type)
+                .aggregateId(payload.getInvoiceId())
+                .payload("{}")
+                .build();
+        when(outboxService.readPayload(event, InvoiceEventPayload.class)).thenReturn(payload);
+        return event;
+    }
+
+    private static InvoiceEventPayload payload(Long invoiceId, Long khachHangId, String diem, List<Long> promotionIds) {
+        return InvoiceEventPayload.builder()
+                .invoiceId(invoiceId)
+                .ngayTao(NGAY_TAO)
+                .chiNhanhId(3L)
+                .khachHangId(khachHangId)
+                .diemTichLuy(new BigDecimal(diem))
+                .promotionIds(promotionIds)
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.retail.application.service.outbox;
+
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for OutboxDispatcher
+ * Tests batching, per-event fallback and failure bookkeeping
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OutboxDispatcher Unit Tests")
+class OutboxDispatcherTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private OutboxEventHandler invoiceHandler;
+    @Mock
+    private OutboxEventHandler auditHandler;
+
+    private OutboxDispatcher outboxDispatcher;
+
+    private OutboxEvent invoiceEvent;
+    private OutboxEvent auditEvent;
+
+    @BeforeEach
+    void setUp() {
+        outboxDispatcher = new OutboxDispatcher(outboxEventRepository, List.of(invoiceHandler, auditHandler),
+                transactionManager, BATCH_SIZE, MAX_ATTEMPTS, 24);
+
+        invoiceEvent = OutboxEvent.builder()
+                .id(1L)
+                .eventType(OutboxEvent.EventType.INVOICE_COMPLETED)
+                .aggregateId(100L)
+                .payload("{}")
+                .createdAt(LocalDateTime.now())
+                .build();
+        auditEvent = OutboxEvent.builder()
+                .id(2L)
+                .eventType(OutboxEvent.EventType.AUDIT_LOG)
+                .aggregateId(200L)
+                .payload("{}")
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        lenient().when(invoiceHandler.supports(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0) == OutboxEvent.EventType.INVOICE_COMPLETED);
+        lenient().when(auditHandler.supports(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0) == OutboxEvent.EventType.AUDIT_LOG);
+    }
+
+    @Test
+    @DisplayName("✅ Should route each event type to its handler and mark the batch processed")
+    void dispatchBatch_ShouldHandleAndMarkProcessed() {
+        // Arrange
+        when(outboxEventRepository.claimPending(BATCH_SIZE)).thenReturn(List.of(invoiceEvent, auditEvent));
+
+        // Act
+        int processed = outboxDispatcher.dispatchBatch();
+
+        // Assert
+        assertThat(processed).isEqualTo(2);
+        verify(invoiceHandler).handle(List.of(invoiceEvent));
+        verify(auditHandler).handle(List.of(auditEvent));
+        verify(outboxEventRepository).markProcessed(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("✅ Should do nothing when there are no pending events")
+    void dispatchBatch_WhenEmpty_ShouldNotCallHandlers() {
+        // Arrange
+        when(outboxEventRepository.claimPending(BATCH_SIZE)).thenReturn(List.of());
+
+        // Act
+        int processed = outboxDispatcher.dispatchBatch();
+
+        // Assert
+        assertThat(processed).isZero();
+        verifyNoInteractions(invoiceHandler, auditHandler);
+        verify(outboxEventRepository, never()).markProcessed(anyCollection(), any());
+    }
+
+    @Test
+    @DisplayName("✅ Should keep draining while batches come back full")
+    void dispatch_ShouldDrainFullBatches() {
+        // Arrange
+        when(outboxEventRepository.claimPending(BATCH_SIZE))
+                .thenReturn(List.of(invoiceEvent, auditEvent))
+                .thenReturn(List.of());
+
+        // Act
+        outboxDispatcher.dispatch();
+
+        // Assert
+        verify(outboxEventRepository, times(2)).claimPending(BATCH_SIZE);
+    }
+
+    @Test
+    @DisplayName("❌ Should retry a failed batch one event at a time and record the failing event")
+    void dispatchBatch_WhenHandlerFails_ShouldIsolateFailingEvent() {
+        // Arrange
+        when(outboxEventRepository.claimPending(BATCH_SIZE)).thenReturn(List.of(invoiceEvent, auditEvent));
+        when(outboxEventRepository.claimPendingById(1L)).thenReturn(List.of(invoiceEvent));
+        when(outboxEventRepository.claimPendingById(2L)).thenReturn(List.of(auditEvent));
+        when(outboxEventRepository.findById(1L)).thenReturn(Optional.of(invoiceEvent));
+        doThrow(new IllegalStateException("boom")).when(invoiceHandler).handle(anyList());
+
+        // Act
+        int processed = outboxDispatcher.dispatchBatch();
+
+        // Assert
+        assertThat(processed).isZero();
+        // Sự kiện lỗi: tăng số lần thử, vẫn PENDING
+        assertThat(invoiceEvent.getAttempts()).isEqualTo(1);
+        assertThat(invoiceEvent.getLastError()).isEqualTo("boom");
+        assertThat(invoiceEvent.getStatus()).isEqualTo(OutboxEvent.EventStatus.PENDING);
+        verify(outboxEventRepository).save(invoiceEvent);
+        // Sự kiện còn lại vẫn được xử lý
+        verify(outboxEventRepository).markProcessed(eq(List.of(2L)), any(LocalDateTime.class));
+        verify(outboxEventRepository, never()).markProcessed(eq(List.of(1L)), any());
+    }
+
+    @Test
+    @DisplayName("❌ Should mark an event FAILED after max attempts")
+    void dispatchBatch_WhenMaxAttemptsReached_ShouldMarkFailed() {
+        // Arrange
+        invoiceEvent.setAttempts(MAX_ATTEMPTS - 1);
+        when(outboxEventRepository.claimPending(BATCH_SIZE)).thenReturn(List.of(invoiceEvent));
+        when(outboxEventRepository.claimPendingById(1L)).thenReturn(List.of(invoiceEvent));
+        when(outboxEventRepository.findById(1L)).thenReturn(Optional.of(invoiceEvent));
+        doThrow(new IllegalStateException("boom")).when(invoiceHandler).handle(anyList());
+
+        // Act
+        outboxDispatcher.dispatchBatch();
+
+        // Assert
+        assertThat(invoiceEvent.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(invoiceEvent.getStatus()).isEqualTo(OutboxEvent.EventStatus.FAILED);
+        verify(outboxEventRepository).save(invoiceEvent);
+    }
+}
@@ -0,0 +1,77 @@
+package com.retail.application.service.outbox;
+
+import com.retail.application.service.report.SalesRollupService;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.SalesDelta;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SalesRollupOutboxHandler
+ * Tests that a whole batch of deltas is applied in one call
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SalesRollupOutboxHandler Unit Tests")
+class SalesRollupOutboxHandlerTest {
+
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @InjectMocks
+    private SalesRollupOutboxHandler salesRollupOutboxHandler;
+
+    @Test
+    @DisplayName("✅ Should only handle sales rollup events")
+    void supports_ShouldOnlyAcceptSalesRollup() {
+        // Act & Assert
+        assertThat(salesRollupOutboxHandler.supports(OutboxEvent.EventType.SALES_ROLLUP)).isTrue();
+        assertThat(salesRollupOutboxHandler.supports(OutboxEvent.EventType.INVOICE_COMPLETED)).isFalse();
+    }
+
+    @Test
+    @DisplayName("✅ Should apply every delta of the batch in one call")
+    void handle_ShouldApplyWholeBatch() {
+        // Arrange
+        SalesDelta completed = delta(1);
+        SalesDelta cancelled = delta(-1);
+        OutboxEvent first = event(1L, completed);
+        OutboxEvent second = event(2L, cancelled);
+
+        // Act
+        salesRollupOutboxHandler.handle(List.of(first, second));
+
+        // Assert
+        verify(salesRollupService).apply(List.of(completed, cancelled));
+    }
+
+    private OutboxEvent event(Long id, SalesDelta delta) {
+        OutboxEvent event = OutboxEvent.builder()
+                .id(id)
+                .eventType(OutboxEvent.EventType.SALES_ROLLUP)
+                .aggregateId(id)
+                .payload("{}")
+                .build();
+        when(outboxService.readPayload(event, SalesDelta.class)).thenReturn(delta);
+        return event;
+    }
+
+    private static SalesDelta delta(int sign) {
+        BigDecimal amount = BigDecimal.valueOf(sign * 100000L);
+        return new SalesDelta(2L, LocalDate.of(2025, 3, 1), sign, amount, BigDecimal.ZERO, amount,
+                new TreeMap<>(), new TreeMap<>());
+    }
+}
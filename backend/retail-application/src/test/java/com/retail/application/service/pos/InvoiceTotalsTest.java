@@ -0,0 +1,113 @@
+package com.retail.application.service.pos;
+
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.common.constant.PromotionType;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.HoaDonKhuyenMai;
+import com.retail.domain.entity.PhanBoGiamGia;
+import com.retail.domain.entity.SanPham;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for InvoiceTotals
+ * Tests how applied promotions are recorded and allocated to invoice lines
+ */
+@DisplayName("InvoiceTotals Unit Tests")
+class InvoiceTotalsTest {
+
+    private HoaDon hoaDon;
+
+    @BeforeEach
+    void setUp() {
+        // 3 dòng: 10.000 x 1, 20.000 x 1, 35.000 x 2 (tổng 100.000)
+        Map<Long, SanPham> products = Map.of(
+                1L, SanPham.builder().id(1L).giaBan(BigDecimal.valueOf(10_000)).build(),
+                2L, SanPham.builder().id(2L).giaBan(BigDecimal.valueOf(20_000)).build(),
+                3L, SanPham.builder().id(3L).giaBan(BigDecimal.valueOf(35_000)).build());
+        hoaDon = HoaDon.builder().build();
+        InvoiceTotals.addInvoiceLines(hoaDon, List.of(
+                CartItemDTO.builder().sanPhamId(1L).soLuong(1).build(),
+                CartItemDTO.builder().sanPhamId(2L).soLuong(1).build(),
+                CartItemDTO.builder().sanPhamId(3L).soLuong(2).build()), products);
+    }
+
+    private static AppliedPromotionDTO applied(String ma, String discount, List<Long> sanPhamIds) {
+        return AppliedPromotionDTO.builder()
+                .promotionId(7L)
+                .maKhuyenMai(ma)
+                .tenKhuyenMai("Khuyến mãi " + ma)
+                .loaiKhuyenMai(PromotionType.PERCENTAGE)
+                .discountAmount(new BigDecimal(discount))
+                .sanPhamIds(sanPhamIds)
+                .build();
+    }
+
+    private static BigDecimal allocatedTotal(HoaDonKhuyenMai khuyenMai) {
+        return khuyenMai.getPhanBoGiamGias().stream()
+                .map(PhanBoGiamGia::getSoTienGiam)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Nested
+    @DisplayName("Discount allocation")
+    class AllocationTests {
+
+        @Test
+        @DisplayName("✅ Should allocate an invoice-wide discount to every line by amount")
+        void addAppliedPromotions_InvoiceWide_ShouldAllocateProportionally() {
+            // Act
+            InvoiceTotals.addAppliedPromotions(hoaDon, List.of(applied("GIAM10", "10000.00", null)));
+
+            // Assert
+            assertThat(hoaDon.getKhuyenMaiApDungs()).hasSize(1);
+            HoaDonKhuyenMai khuyenMai = hoaDon.getKhuyenMaiApDungs().get(0);
+            assertThat(khuyenMai.getHoaDon()).isSameAs(hoaDon);
+            assertThat(khuyenMai.getMaKhuyenMai()).isEqualTo("GIAM10");
+            assertThat(khuyenMai.getKhuyenMaiId()).isEqualTo(7L);
+            assertThat(khuyenMai.getPhanBoGiamGias())
+                    .extracting(phanBo -> phanBo.getChiTietHoaDon().getSanPham().getId(), PhanBoGiamGia::getSoTienGiam)
+                    .containsExactlyInAnyOrder(
+                            tuple(1L, new BigDecimal("1000.00")),
+                            tuple(2L, new BigDecimal("2000.00")),
+                            tuple(3L, new BigDecimal("7000.00")));
+        }
+
+        @Test
+        @DisplayName("✅ Should allocate only to lines of the discounted products")
+        void addAppliedPromotions_ProductDiscount_ShouldAllocateToMatchingLines() {
+            // Act
+            InvoiceTotals.addAppliedPromotions(hoaDon, List.of(applied("BOGO", "30000", List.of(3L))));
+
+            // Assert
+            HoaDonKhuyenMai khuyenMai = hoaDon.getKhuyenMaiApDungs().get(0);
+            assertThat(khuyenMai.getPhanBoGiamGias()).hasSize(1);
+            assertThat(khuyenMai.getPhanBoGiamGias().get(0).getChiTietHoaDon().getSanPham().getId()).isEqualTo(3L);
+            assertThat(allocatedTotal(khuyenMai)).isEqualByComparingTo("30000");
+        }
+
+        @Test
+        @DisplayName("✅ Should keep the allocated total equal to the discount when rounding")
+        void addAppliedPromotions_UnevenDiscount_ShouldAllocateExactTotal() {
+            // Act
+            InvoiceTotals.addAppliedPromotions(hoaDon, List.of(
+                    applied("A", "333.33", null),
+                    applied("B", "0.01", null)));
+
+            // Assert
+            assertThat(hoaDon.getKhuyenMaiApDungs()).hasSize(2);
+            assertThat(allocatedTotal(hoaDon.getKhuyenMaiApDungs().get(0))).isEqualByComparingTo("333.33");
+            assertThat(allocatedTotal(hoaDon.getKhuyenMaiApDungs().get(1))).isEqualByComparingTo("0.01");
+            assertThat(hoaDon.getKhuyenMaiApDungs().get(1).getPhanBoGiamGias()).hasSize(1);
+        }
+    }
+}
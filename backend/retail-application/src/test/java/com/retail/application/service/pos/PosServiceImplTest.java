@@ -3,7 +3,16 @@ package com.retail.application.service.pos;
 import com.retail.application.dto.*;
 import com.retail.application.mapper.InvoiceMapper;
 import com.retail.application.mapper.ProductMapper;
+import com.retail.application.service.cache.CacheInvalidationService;
+import com.retail.application.service.document.DocumentNumberService;
+import com.retail.application.service.inventory.InventoryService;
+import com.retail.application.service.outbox.InvoiceEventPayload;
+import com.retail.application.service.outbox.OutboxService;
 import com.retail.application.service.product.ProductService;
+import com.retail.application.service.promotion.CouponService;
+import com.retail.application.service.promotion.PromotionUsageService;
+import com.retail.application.service.report.SalesRollupService;
+import com.retail.common.constant.DocumentType;
 import com.retail.common.constant.ErrorCode;
 import com.retail.common.constant.Status;
 import com.retail.common.exception.BusinessException;
@@ -24,6 +33,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -56,6 +66,20 @@ class PosServiceImplTest {
     private ProductMapper productMapper;
     @Mock
     private InvoiceMapper invoiceMapper;
+    @Mock
+    private InventoryService inventoryService;
+    @Mock
+    private DocumentNumberService documentNumberService;
+    @Mock
+    private CacheInvalidationService cacheInvalidationService;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private PromotionUsageService promotionUsageService;
+    @Mock
+    private CouponService couponService;
+    @Mock
+    private SalesRollupService salesRollupService;
 
     @InjectMocks
     private PosServiceImpl posService;
@@ -185,14 +209,14 @@ class PosServiceImplTest {
                     .soLuong(5)
                     .build();
 
-            when(sanPhamRepository.findById(1L)).thenReturn(Optional.of(sampleProduct));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             // Act & Assert
             assertThatNoException().isThrownBy(() ->
                     posService.validateCart(List.of(item))
             );
 
-            verify(sanPhamRepository).findById(1L);
+            verify(sanPhamRepository).findAllById(anyIterable());
         }
 
         @Test
@@ -224,14 +248,31 @@ class PosServiceImplTest {
                     .soLuong(10) // Request 10
                     .build();
 
-            when(sanPhamRepository.findById(1L)).thenReturn(Optional.of(sampleProduct));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             // Act & Assert
             assertThatThrownBy(() -> posService.validateCart(List.of(item)))
                     .isInstanceOf(BusinessException.class)
                     .hasMessageContaining("không đủ tồn kho");
 
-            verify(sanPhamRepository).findById(1L);
+            verify(sanPhamRepository).findAllById(anyIterable());
+        }
+
+        @Test
+        @DisplayName("❌ Should sum quantities of repeated lines when checking stock")
+        void validateCart_WithRepeatedLinesExceedingStock_ShouldThrowException() {
+            // Arrange
+            sampleProduct.setTonKho(5);
+            List<CartItemDTO> items = List.of(
+                    CartItemDTO.builder().sanPhamId(1L).soLuong(3).build(),
+                    CartItemDTO.builder().sanPhamId(1L).soLuong(3).build());
+
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
+
+            // Act & Assert
+            assertThatThrownBy(() -> posService.validateCart(items))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessageContaining("không đủ tồn kho");
         }
 
         @Test
@@ -243,7 +284,7 @@ class PosServiceImplTest {
                     .soLuong(0) // Invalid quantity
                     .build();
 
-            when(sanPhamRepository.findById(1L)).thenReturn(Optional.of(sampleProduct));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             // Act & Assert
             assertThatThrownBy(() -> posService.validateCart(List.of(item)))
@@ -260,7 +301,7 @@ class PosServiceImplTest {
                     .soLuong(-5)
                     .build();
 
-            when(sanPhamRepository.findById(1L)).thenReturn(Optional.of(sampleProduct));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             // Act & Assert
             assertThatThrownBy(() -> posService.validateCart(List.of(item)))
@@ -277,14 +318,14 @@ class PosServiceImplTest {
                     .soLuong(1)
                     .build();
 
-            when(sanPhamRepository.findById(999L)).thenReturn(Optional.empty());
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of());
 
             // Act & Assert
             assertThatThrownBy(() -> posService.validateCart(List.of(item)))
                     .isInstanceOf(ResourceNotFoundException.class)
                     .hasMessageContaining("Sản phẩm");
 
-            verify(sanPhamRepository).findById(999L);
+            verify(sanPhamRepository).findAllById(anyIterable());
         }
     }
 
@@ -301,9 +342,7 @@ class PosServiceImplTest {
             when(nhanVienRepository.findById(1L)).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(1L)).thenReturn(Optional.of(sampleBranch));
             when(khachHangRepository.findById(1L)).thenReturn(Optional.of(sampleCustomer));
-            when(sanPhamRepository.findById(1L)).thenReturn(Optional.of(sampleProduct));
-            when(sanPhamRepository.save(any(SanPham.class))).thenReturn(sampleProduct);
-            when(khachHangRepository.save(any(KhachHang.class))).thenReturn(sampleCustomer);
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             HoaDon savedInvoice = HoaDon.builder()
                     .id(1L)
@@ -333,33 +372,34 @@ class PosServiceImplTest {
             assertThat(result.getTongTien()).isEqualByComparingTo(new BigDecimal("20000"));
 
             verify(hoaDonRepository).save(any(HoaDon.class));
-            verify(sanPhamRepository).save(any(SanPham.class));
-            verify(khachHangRepository).save(any(KhachHang.class));
+            verify(inventoryService).deductStock(anyMap());
+            // Điểm khách hàng, lượt dùng khuyến mãi và xóa cache đi qua outbox
+            verify(outboxService).enqueue(eq(OutboxEvent.EventType.INVOICE_COMPLETED), eq(1L), any(InvoiceEventPayload.class));
+            verify(salesRollupService).recordCompleted(savedInvoice);
+            verify(khachHangRepository, never()).save(any(KhachHang.class));
+            verifyNoInteractions(cacheInvalidationService);
         }
 
         @Test
         @DisplayName("✅ Should deduct inventory after checkout")
         void checkout_ShouldDeductInventory() {
             // Arrange
-            int initialStock = sampleProduct.getTonKho();
             int requestedQuantity = sampleCheckoutRequest.getItems().get(0).getSoLuong();
 
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
             when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
             when(hoaDonRepository.save(any())).thenReturn(new HoaDon());
             when(invoiceMapper.toDto(any())).thenReturn(new InvoiceDTO());
 
-            ArgumentCaptor<SanPham> productCaptor = ArgumentCaptor.forClass(SanPham.class);
-
             // Act
             posService.checkout(sampleCheckoutRequest);
 
-            // Assert
-            verify(sanPhamRepository).save(productCaptor.capture());
-            SanPham savedProduct = productCaptor.getValue();
-            assertThat(savedProduct.getTonKho()).isEqualTo(initialStock - requestedQuantity);
+            // Assert - trừ tồn kho qua UPDATE có điều kiện, không ghi đè entity đã load
+            verify(inventoryService).deductStock(Map.of(1L, requestedQuantity));
+            verify(sanPhamRepository, never()).saveAll(anyCollection());
+            verify(sanPhamRepository, never()).save(any(SanPham.class));
         }
 
         @Test
@@ -369,8 +409,7 @@ class PosServiceImplTest {
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
             when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
-            when(sanPhamRepository.save(any())).thenReturn(sampleProduct);
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             ArgumentCaptor<HoaDon> invoiceCaptor = ArgumentCaptor.forClass(HoaDon.class);
             when(hoaDonRepository.save(invoiceCaptor.capture())).thenReturn(new HoaDon());
@@ -388,8 +427,8 @@ class PosServiceImplTest {
         }
 
         @Test
-        @DisplayName("✅ Should update customer points after checkout")
-        void checkout_ShouldUpdateCustomerPoints() {
+        @DisplayName("✅ Should enqueue customer points instead of updating customer on the request")
+        void checkout_ShouldEnqueueCustomerPoints() {
             // Arrange
             BigDecimal initialPoints = new BigDecimal("100");
             sampleCustomer.setDiemTichLuy(initialPoints);
@@ -397,22 +436,24 @@ class PosServiceImplTest {
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
             when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
-            when(sanPhamRepository.save(any())).thenReturn(sampleProduct);
-            when(hoaDonRepository.save(any())).thenReturn(new HoaDon());
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
+            when(hoaDonRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
             when(invoiceMapper.toDto(any())).thenReturn(new InvoiceDTO());
 
-            ArgumentCaptor<KhachHang> customerCaptor = ArgumentCaptor.forClass(KhachHang.class);
+            ArgumentCaptor<InvoiceEventPayload> payloadCaptor = ArgumentCaptor.forClass(InvoiceEventPayload.class);
 
             // Act
             posService.checkout(sampleCheckoutRequest);
 
             // Assert
-            verify(khachHangRepository).save(customerCaptor.capture());
-            KhachHang savedCustomer = customerCaptor.getValue();
-            // Initial: 100, Earned: 200 (1% of 20000), Total: 300
-            assertThat(savedCustomer.getDiemTichLuy())
-                    .isGreaterThan(initialPoints);
+            verify(outboxService).enqueue(eq(OutboxEvent.EventType.INVOICE_COMPLETED), any(), payloadCaptor.capture());
+            InvoiceEventPayload payload = payloadCaptor.getValue();
+            assertThat(payload.getKhachHangId()).isEqualTo(1L);
+            assertThat(payload.getChiNhanhId()).isEqualTo(1L);
+            assertThat(payload.getPromotionIds()).isEmpty();
+            // Điểm được cộng khi dispatcher xử lý outbox, không cập nhật trực tiếp trên request
+            assertThat(sampleCustomer.getDiemTichLuy()).isEqualByComparingTo(initialPoints);
+            verify(khachHangRepository, never()).save(any());
         }
 
         @Test
@@ -424,8 +465,7 @@ class PosServiceImplTest {
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
             when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
-            when(sanPhamRepository.save(any())).thenReturn(sampleProduct);
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             ArgumentCaptor<HoaDon> invoiceCaptor = ArgumentCaptor.forClass(HoaDon.class);
             when(hoaDonRepository.save(invoiceCaptor.capture())).thenReturn(new HoaDon());
@@ -450,27 +490,23 @@ class PosServiceImplTest {
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
             when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
-            when(sanPhamRepository.save(any())).thenReturn(sampleProduct);
-            when(hoaDonRepository.save(any())).thenReturn(new HoaDon());
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
+            when(hoaDonRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
             when(invoiceMapper.toDto(any())).thenReturn(new InvoiceDTO());
 
-            ArgumentCaptor<KhachHang> customerCaptor = ArgumentCaptor.forClass(KhachHang.class);
+            ArgumentCaptor<InvoiceEventPayload> payloadCaptor = ArgumentCaptor.forClass(InvoiceEventPayload.class);
 
             // Act
             posService.checkout(sampleCheckoutRequest);
 
             // Assert
-            verify(khachHangRepository).save(customerCaptor.capture());
-            KhachHang savedCustomer = customerCaptor.getValue();
-            // Initial: 100 điểm
+            verify(outboxService).enqueue(eq(OutboxEvent.EventType.INVOICE_COMPLETED), any(), payloadCaptor.capture());
             // Total: 20000 VND (10000 * 2 items)
             // Discount: 0
             // Final: 20000 VND
-            // Earned: 20 điểm (20000 / 1000)
-            // Final points: 100 + 20 = 120 điểm
-            BigDecimal expectedPoints = new BigDecimal("120");
-            assertThat(savedCustomer.getDiemTichLuy())
+            // Earned: 20 điểm (20000 / 1000) - được cộng vào khách hàng khi xử lý outbox
+            BigDecimal expectedPoints = new BigDecimal("20");
+            assertThat(payloadCaptor.getValue().getDiemTichLuy())
                     .isEqualByComparingTo(expectedPoints);
         }
 
@@ -482,8 +518,7 @@ class PosServiceImplTest {
 
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
-            when(sanPhamRepository.save(any())).thenReturn(sampleProduct);
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
             when(hoaDonRepository.save(any())).thenReturn(new HoaDon());
             when(invoiceMapper.toDto(any())).thenReturn(new InvoiceDTO());
 
@@ -497,12 +532,11 @@ class PosServiceImplTest {
         }
 
         @Test
-        @DisplayName("❌ Should throw exception when employee not found")
+        @DisplayName("❌ Should throw exception when employee does not exist")
         void checkout_WithInvalidEmployee_ShouldThrowException() {
             // Arrange
-            // ✅ FIX: Mock sanPhamRepository để bypass validateCart()
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
-            when(nhanVienRepository.findById(1L)).thenReturn(Optional.empty());
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
+            when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.empty());
 
             // Act & Assert
             assertThatThrownBy(() -> posService.checkout(sampleCheckoutRequest))
@@ -513,20 +547,64 @@ class PosServiceImplTest {
         }
 
         @Test
-        @DisplayName("❌ Should throw exception when branch not found")
-        void checkout_WithInvalidBranch_ShouldThrowException() {
+        @DisplayName("✅ Should resolve the whole cart with one product query")
+        void checkout_ShouldLoadProductsInSingleQuery() {
             // Arrange
-            // ✅ FIX: Mock sanPhamRepository để bypass validateCart()
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
+            SanPham secondProduct = SanPham.builder()
+                    .id(2L)
+                    .maSanPham("SP002")
+                    .tenSanPham("Pepsi 330ml")
+                    .giaBan(new BigDecimal("9000"))
+                    .tonKho(50)
+                    .trangThai(Status.ACTIVE)
+                    .build();
+            sampleCheckoutRequest.setItems(List.of(
+                    CartItemDTO.builder().sanPhamId(1L).soLuong(2).build(),
+                    CartItemDTO.builder().sanPhamId(2L).soLuong(3).build(),
+                    CartItemDTO.builder().sanPhamId(1L).soLuong(1).build()));
+
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct, secondProduct));
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
-            when(chiNhanhRepository.findById(1L)).thenReturn(Optional.empty());
+            when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
+            when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
 
-            // Act & Assert
-            assertThatThrownBy(() -> posService.checkout(sampleCheckoutRequest))
-                    .isInstanceOf(ResourceNotFoundException.class)
-                    .hasMessageContaining("Chi nhánh");
+            ArgumentCaptor<HoaDon> invoiceCaptor = ArgumentCaptor.forClass(HoaDon.class);
+            when(hoaDonRepository.save(invoiceCaptor.capture())).thenReturn(new HoaDon());
+            when(invoiceMapper.toDto(any())).thenReturn(new InvoiceDTO());
 
-            verify(hoaDonRepository, never()).save(any());
+            // Act
+            posService.checkout(sampleCheckoutRequest);
+
+            // Assert
+            verify(sanPhamRepository, times(1)).findAllById(anyIterable());
+            verify(sanPhamRepository, never()).findById(anyLong());
+
+            // Total = 10000 * 3 + 9000 * 3 = 57000
+            assertThat(invoiceCaptor.getValue().getTongTien()).isEqualByComparingTo(new BigDecimal("57000"));
+            // Các dòng trùng sản phẩm được cộng dồn thành 1 lần trừ tồn kho
+            verify(inventoryService).deductStock(Map.of(1L, 3, 2L, 3));
+        }
+
+        @Test
+        @DisplayName("✅ Should take invoice number from branch document sequence")
+        void checkout_ShouldUseBranchDocumentNumber() {
+            // Arrange
+            when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
+            when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
+            when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
+            when(documentNumberService.nextNumber(DocumentType.HOA_DON, sampleCheckoutRequest.getChiNhanhId()))
+                    .thenReturn("HD01-000042");
+
+            ArgumentCaptor<HoaDon> invoiceCaptor = ArgumentCaptor.forClass(HoaDon.class);
+            when(hoaDonRepository.save(invoiceCaptor.capture())).thenReturn(new HoaDon());
+            when(invoiceMapper.toDto(any())).thenReturn(new InvoiceDTO());
+
+            // Act
+            posService.checkout(sampleCheckoutRequest);
+
+            // Assert
+            assertThat(invoiceCaptor.getValue().getMaHoaDon()).isEqualTo("HD01-000042");
         }
 
         @Test
@@ -540,7 +618,26 @@ class PosServiceImplTest {
             // when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
             // when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
 
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
+
+            // Act & Assert
+            assertThatThrownBy(() -> posService.checkout(sampleCheckoutRequest))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessageContaining("không đủ tồn kho");
+
+            verify(hoaDonRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("❌ Should abort checkout when stock is taken by a concurrent checkout")
+        void checkout_WhenConditionalDecrementFails_ShouldThrowException() {
+            // Arrange - tồn kho đủ lúc đọc, nhưng đã bị quầy khác trừ trước khi UPDATE
+            when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
+            when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
+            when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
+            doThrow(new BusinessException(ErrorCode.INSUFFICIENT_STOCK, "Sản phẩm 'Test Product' không đủ tồn kho"))
+                    .when(inventoryService).deductStock(anyMap());
 
             // Act & Assert
             assertThatThrownBy(() -> posService.checkout(sampleCheckoutRequest))
@@ -560,8 +657,7 @@ class PosServiceImplTest {
             when(nhanVienRepository.findById(anyLong())).thenReturn(Optional.of(sampleEmployee));
             when(chiNhanhRepository.findById(anyLong())).thenReturn(Optional.of(sampleBranch));
             when(khachHangRepository.findById(anyLong())).thenReturn(Optional.of(sampleCustomer));
-            when(sanPhamRepository.findById(anyLong())).thenReturn(Optional.of(sampleProduct));
-            when(sanPhamRepository.save(any())).thenReturn(sampleProduct);
+            when(sanPhamRepository.findAllById(anyIterable())).thenReturn(List.of(sampleProduct));
 
             ArgumentCaptor<HoaDon> invoiceCaptor = ArgumentCaptor.forClass(HoaDon.class);
             when(hoaDonRepository.save(invoiceCaptor.capture())).thenReturn(new HoaDon());
@@ -688,4 +784,112 @@ class PosServiceImplTest {
             verify(hoaDonRepository).findByDateRange(any(), any(), eq(Status.COMPLETED));
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Cancel Invoice Tests")
+    class CancelInvoiceTests {
+
+        @Test
+        @DisplayName("✅ Should remove a completed invoice from the sales rollup")
+        void cancelInvoice_Completed_ShouldSubtractFromRollup() {
+            // Arrange
+            HoaDon hoaDon = HoaDon.builder().id(1L).maHoaDon("HD001").trangThai(Status.COMPLETED).build();
+            when(hoaDonRepository.findById(1L)).thenReturn(Optional.of(hoaDon));
+            when(hoaDonRepository.save(hoaDon)).thenReturn(hoaDon);
+            when(invoiceMapper.toDto(hoaDon)).thenReturn(new InvoiceDTO());
+
+            // Act
+            posService.cancelInvoice(1L);
+
+            // Assert
+            assertThat(hoaDon.getTrangThai()).isEqualTo(Status.CANCELLED);
+            verify(salesRollupService).recordCancelled(hoaDon);
+            verify(outboxService).enqueue(eq(OutboxEvent.EventType.INVOICE_CANCELLED), eq(1L), any(InvoiceEventPayload.class));
+        }
+
+        @Test
+        @DisplayName("✅ Should leave the sales rollup alone when cancelling a pending invoice")
+        void cancelInvoice_Pending_ShouldNotTouchRollup() {
+            // Arrange
+            HoaDon hoaDon = HoaDon.builder().id(2L).maHoaDon("HD002").trangThai(Status.PENDING).build();
+            when(hoaDonRepository.findById(2L)).thenReturn(Optional.of(hoaDon));
+            when(hoaDonRepository.save(hoaDon)).thenReturn(hoaDon);
+            when(invoiceMapper.toDto(hoaDon)).thenReturn(new InvoiceDTO());
+
+            // Act
+            posService.cancelInvoice(2L);
+
+            // Assert
+            verifyNoInteractions(salesRollupService);
+            verify(promotionUsageService, never()).release(any(), any());
+        }
+
+        @Test
+        @DisplayName("✅ Should give back promotion usage when cancelling a completed invoice")
+        void cancelInvoice_CompletedWithPromotion_ShouldReleaseUsage() {
+            // Arrange
+            HoaDon hoaDon = HoaDon.builder().id(3L).maHoaDon("HD003").trangThai(Status.COMPLETED)
+                    .khachHang(KhachHang.builder().id(5L).build()).build();
+            hoaDon.addKhuyenMaiApDung(HoaDonKhuyenMai.builder().khuyenMaiId(7L).build());
+            when(hoaDonRepository.findById(3L)).thenReturn(Optional.of(hoaDon));
+            when(hoaDonRepository.save(hoaDon)).thenReturn(hoaDon);
+            when(invoiceMapper.toDto(hoaDon)).thenReturn(new InvoiceDTO());
+
+            // Act
+            posService.cancelInvoice(3L);
+
+            // Assert
+            verify(promotionUsageService).release(List.of(7L), 5L);
+            ArgumentCaptor<InvoiceEventPayload> payloadCaptor = ArgumentCaptor.forClass(InvoiceEventPayload.class);
+            verify(outboxService).enqueue(eq(OutboxEvent.EventType.INVOICE_CANCELLED), eq(3L), payloadCaptor.capture());
+            assertThat(payloadCaptor.getValue().getPromotionIds()).containsExactly(7L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Complete Pending Invoice Tests")
+    class CompletePendingInvoiceTests {
+
+        @Test
+        @DisplayName("✅ Should reserve usage of the promotions applied when the bill was held")
+        void completePendingInvoice_WithPromotion_ShouldReserveUsage() {
+            // Arrange
+            HoaDon hoaDon = HoaDon.builder().id(4L).maHoaDon("HD004").trangThai(Status.PENDING)
+                    .khachHang(KhachHang.builder().id(5L).build())
+                    .thanhTien(new BigDecimal("90000")).build();
+            hoaDon.addChiTiet(ChiTietHoaDon.builder().sanPham(SanPham.builder().id(1L).build()).soLuong(2).build());
+            hoaDon.addKhuyenMaiApDung(HoaDonKhuyenMai.builder().khuyenMaiId(7L).build());
+            when(hoaDonRepository.findByIdWithDetails(4L)).thenReturn(Optional.of(hoaDon));
+            when(hoaDonRepository.save(hoaDon)).thenReturn(hoaDon);
+            when(invoiceMapper.toDto(hoaDon)).thenReturn(new InvoiceDTO());
+
+            // Act
+            posService.completePendingInvoice(4L, "CASH");
+
+            // Assert
+            verify(inventoryService).deductStock(Map.of(1L, 2));
+            verify(promotionUsageService).reserve(List.of(7L), 5L);
+            ArgumentCaptor<InvoiceEventPayload> payloadCaptor = ArgumentCaptor.forClass(InvoiceEventPayload.class);
+            verify(outboxService).enqueue(eq(OutboxEvent.EventType.INVOICE_COMPLETED), eq(4L), payloadCaptor.capture());
+            assertThat(payloadCaptor.getValue().getPromotionIds()).containsExactly(7L);
+        }
+
+        @Test
+        @DisplayName("❌ Should not complete the invoice when the promotion has no usage left")
+        void completePendingInvoice_WhenPromotionExhausted_ShouldThrow() {
+            // Arrange
+            HoaDon hoaDon = HoaDon.builder().id(4L).maHoaDon("HD004").trangThai(Status.PENDING)
+                    .thanhTien(new BigDecimal("90000")).build();
+            hoaDon.addKhuyenMaiApDung(HoaDonKhuyenMai.builder().khuyenMaiId(7L).build());
+            when(hoaDonRepository.findByIdWithDetails(4L)).thenReturn(Optional.of(hoaDon));
+            doThrow(new BusinessException(ErrorCode.BAD_REQUEST, "Khuyến mãi đã hết số lần sử dụng: KM7"))
+                    .when(promotionUsageService).reserve(List.of(7L), null);
+
+            // Act & Assert
+            assertThatThrownBy(() -> posService.completePendingInvoice(4L, "CASH"))
+                    .isInstanceOf(BusinessException.class);
+            verify(hoaDonRepository, never()).save(any());
+            verifyNoInteractions(outboxService);
+        }
+    }
+}
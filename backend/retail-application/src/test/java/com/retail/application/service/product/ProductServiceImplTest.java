@@ -2,6 +2,7 @@ package com.retail.application.service.product;
 
 import com.retail.application.dto.ProductDTO;
 import com.retail.application.mapper.ProductMapper;
+import com.retail.application.service.cache.CacheInvalidationService;
 import com.retail.common.constant.ErrorCode;
 import com.retail.common.constant.Status;
 import com.retail.common.exception.BusinessException;
@@ -45,6 +46,9 @@ class ProductServiceImplTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private CacheInvalidationService cacheInvalidationService;
+
     @InjectMocks
     private ProductServiceImpl productService;
 
@@ -272,6 +276,7 @@ class ProductServiceImplTest {
             verify(sanPhamRepository).findById(productId);
             verify(productMapper).updateEntityFromDto(updateDTO, existingProduct);
             verify(sanPhamRepository).save(existingProduct);
+            verify(cacheInvalidationService).evictProduct(productId, "8934588123456");
         }
 
         @Test
@@ -515,6 +520,8 @@ class ProductServiceImplTest {
             verify(sanPhamRepository).save(argThat(entity ->
                     entity.getTrangThai() == Status.DELETED
             ));
+            // Chỉ xóa key của sản phẩm này, không xóa toàn bộ cache "products"
+            verify(cacheInvalidationService).evictProduct(productId, sampleProduct.getBarcode());
         }
 
         @Test
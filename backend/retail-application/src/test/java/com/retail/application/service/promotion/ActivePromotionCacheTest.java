@@ -0,0 +1,235 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.PromotionDTO;
+import com.retail.application.mapper.PromotionMapper;
+import com.retail.common.constant.PromotionType;
+import com.retail.common.constant.Status;
+import com.retail.common.util.TimerWheel;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.persistence.repository.ChiNhanhRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ActivePromotionCache
+ * Tests branch loading, boundary scheduling, expiry filtering and the timer wheel
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ActivePromotionCache Unit Tests")
+class ActivePromotionCacheTest {
+
+    private static final Long BRANCH_ID = 3L;
+
+    @Mock
+    private KhuyenMaiRepository khuyenMaiRepository;
+    @Mock
+    private ChiNhanhRepository chiNhanhRepository;
+    @Mock
+    private PromotionMapper promotionMapper;
+    @Mock
+    private PromotionIndex promotionIndex;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ActivePromotionCache activePromotionCache;
+
+    @BeforeEach
+    void setUp() {
+        activePromotionCache = new ActivePromotionCache(khuyenMaiRepository, chiNhanhRepository, promotionMapper,
+                promotionIndex, transactionManager, 1000);
+    }
+
+    private static KhuyenMai promotion(long id, LocalDateTime start, LocalDateTime end) {
+        return KhuyenMai.builder()
+                .id(id)
+                .maKhuyenMai("KM" + id)
+                .tenKhuyenMai("Khuyến mãi " + id)
+                .loaiKhuyenMai(PromotionType.PERCENTAGE)
+                .giaTriKhuyenMai(BigDecimal.TEN)
+                .ngayBatDau(start)
+                .ngayKetThuc(end)
+                .trangThai(Status.ACTIVE)
+                .build();
+    }
+
+    private static PromotionDTO dto(long id, LocalDateTime end) {
+        return PromotionDTO.builder().id(id).ngayKetThuc(end).build();
+    }
+
+    private void givenBranch(LocalDateTime nextStart, KhuyenMai... promotions) {
+        when(khuyenMaiRepository.findActivePromotionsWithDetailsForBranch(eq(Status.ACTIVE), eq(BRANCH_ID),
+                any(LocalDateTime.class))).thenReturn(List.of(promotions));
+        when(khuyenMaiRepository.findNextStartForBranch(eq(Status.ACTIVE), eq(BRANCH_ID), any(LocalDateTime.class)))
+                .thenReturn(nextStart);
+        when(promotionMapper.toDto(any(KhuyenMai.class))).thenAnswer(invocation -> {
+            KhuyenMai entity = invocation.getArgument(0);
+            return dto(entity.getId(), entity.getNgayKetThuc());
+        });
+    }
+
+    @Nested
+    @DisplayName("Reading branch promotions")
+    class ReadTests {
+
+        @Test
+        @DisplayName("✅ Should register for promotion index changes")
+        void constructor_ShouldListenToIndex() {
+            verify(promotionIndex).addChangeListener(any(Runnable.class));
+        }
+
+        @Test
+        @DisplayName("✅ Should load a branch once and serve later reads from memory")
+        void activePromotions_SecondRead_ShouldNotHitDatabase() {
+            // Arrange
+            LocalDateTime now = LocalDateTime.now();
+            givenBranch(null, promotion(1L, now.minusDays(1), now.plusDays(1)));
+
+            // Act
+            List<PromotionDTO> first = activePromotionCache.activePromotions(BRANCH_ID);
+            List<PromotionDTO> second = activePromotionCache.activePromotions(BRANCH_ID);
+
+            // Assert
+            assertThat(first).extracting(PromotionDTO::getId).containsExactly(1L);
+            assertThat(second).isSameAs(first);
+            verify(khuyenMaiRepository, times(1))
+                    .findActivePromotionsWithDetailsForBranch(eq(Status.ACTIVE), eq(BRANCH_ID), any());
+        }
+
+        @Test
+        @DisplayName("✅ Should skip promotions that used up their total limit")
+        void activePromotions_UsageExhausted_ShouldBeExcluded() {
+            // Arrange
+            LocalDateTime now = LocalDateTime.now();
+            KhuyenMai exhausted = promotion(2L, now.minusDays(1), now.plusDays(1));
+            exhausted.setTongSoLanSuDungToiDa(5);
+            exhausted.setSoLanDaSuDung(5);
+            givenBranch(null, promotion(1L, now.minusDays(1), now.plusDays(1)), exhausted);
+
+            // Act
+            List<PromotionDTO> active = activePromotionCache.activePromotions(BRANCH_ID);
+
+            // Assert
+            assertThat(active).extracting(PromotionDTO::getId).containsExactly(1L);
+        }
+
+        @Test
+        @DisplayName("✅ Should reload only branches already in memory")
+        void refreshAll_ShouldReloadCachedBranches() {
+            // Arrange
+            LocalDateTime now = LocalDateTime.now();
+            givenBranch(null, promotion(1L, now.minusDays(1), now.plusDays(1)));
+            activePromotionCache.activePromotions(BRANCH_ID);
+
+            // Act
+            activePromotionCache.refreshAll();
+
+            // Assert
+            verify(khuyenMaiRepository, times(2))
+                    .findActivePromotionsWithDetailsForBranch(eq(Status.ACTIVE), eq(BRANCH_ID), any());
+            verify(khuyenMaiRepository, never())
+                    .findActivePromotionsWithDetailsForBranch(eq(Status.ACTIVE), isNull(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Validity boundaries")
+    class BoundaryTests {
+
+        private final LocalDateTime base = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+        @Test
+        @DisplayName("✅ Should schedule the earliest of next start and first expiry")
+        void of_ShouldPickEarliestBoundary() {
+            // Act
+            ActivePromotionCache.BranchPromotions endsFirst = ActivePromotionCache.BranchPromotions.of(
+                    List.of(dto(1L, base.plusHours(2)), dto(2L, base.plusHours(1))), base.plusHours(6));
+            ActivePromotionCache.BranchPromotions startsFirst = ActivePromotionCache.BranchPromotions.of(
+                    List.of(dto(1L, base.plusHours(2))), base.plusMinutes(30));
+            ActivePromotionCache.BranchPromotions empty = ActivePromotionCache.BranchPromotions.of(List.of(), null);
+
+            // Assert
+            assertThat(endsFirst.validUntil()).isEqualTo(base.plusHours(1));
+            assertThat(endsFirst.nextBoundary()).isAfter(base.plusHours(1)).isBefore(base.plusHours(1).plusSeconds(1));
+            assertThat(startsFirst.nextBoundary()).isEqualTo(base.plusMinutes(30));
+            assertThat(empty.nextBoundary()).isNull();
+        }
+
+        @Test
+        @DisplayName("✅ Should never return a promotion past its end even before the wheel refreshes")
+        void activeAt_AfterExpiry_ShouldFilterExpired() {
+            // Arrange
+            ActivePromotionCache.BranchPromotions cached = ActivePromotionCache.BranchPromotions.of(
+                    List.of(dto(1L, base.plusHours(1)), dto(2L, base.plusHours(3))), null);
+
+            // Act & Assert
+            assertThat(cached.activeAt(base)).isSameAs(cached.promotions());
+            assertThat(cached.activeAt(base.plusHours(1))).hasSize(2);
+            assertThat(cached.activeAt(base.plusHours(1).plusSeconds(1)))
+                    .extracting(PromotionDTO::getId).containsExactly(2L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Timer wheel")
+    class TimerWheelTests {
+
+        @Test
+        @DisplayName("✅ Should fire keys only once their deadline has passed")
+        void advance_ShouldFireDueKeys() {
+            // Arrange
+            TimerWheel<Long> wheel = new TimerWheel<>(1000, 8, 0);
+            wheel.schedule(1L, 2_500);
+            wheel.schedule(2L, 30_000); // Xa hơn 1 vòng bánh xe
+
+            // Act & Assert
+            assertThat(wheel.advance(2_000)).isEmpty();
+            assertThat(wheel.advance(3_000)).containsExactly(1L);
+            assertThat(wheel.advance(10_000)).isEmpty();
+            assertThat(wheel.advance(30_000)).containsExactly(2L);
+            assertThat(wheel.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("✅ Should keep the earlier deadline when a key is rescheduled")
+        void schedule_SameKey_ShouldKeepEarliest() {
+            // Arrange
+            TimerWheel<Long> wheel = new TimerWheel<>(1000, 8, 0);
+            wheel.schedule(1L, 5_000);
+            wheel.schedule(1L, 2_000);
+            wheel.schedule(1L, 7_000);
+
+            // Act & Assert
+            assertThat(wheel.advance(2_000)).containsExactly(1L);
+            assertThat(wheel.advance(10_000)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("✅ Should fire overdue keys after a long pause")
+        void advance_LongPause_ShouldFireEverythingDue() {
+            // Arrange
+            TimerWheel<Long> wheel = new TimerWheel<>(1000, 8, 0);
+            wheel.schedule(1L, 3_000);
+            wheel.schedule(2L, 20_000);
+            wheel.schedule(3L, 100_000);
+
+            // Act & Assert
+            assertThat(wheel.advance(50_000)).containsExactlyInAnyOrder(1L, 2L);
+            assertThat(wheel.deadlineOf(3L)).isEqualTo(100_000L);
+        }
+    }
+}
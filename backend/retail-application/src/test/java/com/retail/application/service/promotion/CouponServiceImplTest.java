@@ -0,0 +1,220 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.CouponBatchDTO;
+import com.retail.common.exception.BusinessException;
+import com.retail.common.exception.ResourceNotFoundException;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import com.retail.persistence.repository.MaGiamGiaRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CouponServiceImpl
+ * Tests batch generation, filter-based rejection and single-use redemption
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CouponServiceImpl Unit Tests")
+class CouponServiceImplTest {
+
+    @Mock
+    private KhuyenMaiRepository khuyenMaiRepository;
+    @Mock
+    private MaGiamGiaRepository maGiamGiaRepository;
+    @Mock
+    private CouponIndex couponIndex;
+
+    @InjectMocks
+    private CouponServiceImpl couponService;
+
+    private static String newCode() {
+        return CouponCodes.format(CouponCodes.random(new SecureRandom()));
+    }
+
+    @Nested
+    @DisplayName("Generate coupon codes")
+    class GenerateTests {
+
+        @Test
+        @DisplayName("✅ Should insert unique, well-formed codes in one batch")
+        void generate_ValidQuantity_ShouldInsertUniqueCodes() {
+            // Arrange
+            KhuyenMai khuyenMai = KhuyenMai.builder().id(1L).maKhuyenMai("KM_TET").build();
+            when(khuyenMaiRepository.findById(1L)).thenReturn(Optional.of(khuyenMai));
+            when(maGiamGiaRepository.countByKhuyenMaiId(1L)).thenReturn(5_000L);
+
+            // Act
+            CouponBatchDTO result = couponService.generate(1L, 5_000);
+
+            // Assert
+            ArgumentCaptor<long[]> codes = ArgumentCaptor.forClass(long[].class);
+            verify(maGiamGiaRepository).insertCodes(eq(1L), codes.capture(), any(LocalDateTime.class));
+            verify(couponIndex).addAfterCommit(codes.getValue());
+            assertThat(Arrays.stream(codes.getValue()).distinct().count()).isEqualTo(5_000L);
+
+            Set<String> formatted = new HashSet<>(result.getCodes());
+            assertThat(formatted).hasSize(5_000);
+            assertThat(result.getCodes()).allSatisfy(code -> {
+                assertThat(code).matches("[0-9A-Z]{4}-[0-9A-Z]{4}-[0-9A-Z]{4}");
+                assertThat(CouponCodes.parse(code)).isNotNull();
+            });
+            assertThat(result.getSoLuong()).isEqualTo(5_000);
+            assertThat(result.getTongSoMa()).isEqualTo(5_000L);
+            assertThat(result.getMaKhuyenMai()).isEqualTo("KM_TET");
+        }
+
+        @Test
+        @DisplayName("❌ Should reject a quantity outside 1..500000")
+        void generate_InvalidQuantity_ShouldThrow() {
+            assertThatThrownBy(() -> couponService.generate(1L, 0))
+                    .isInstanceOf(BusinessException.class);
+            assertThatThrownBy(() -> couponService.generate(1L, 500_001))
+                    .isInstanceOf(BusinessException.class);
+            verifyNoInteractions(khuyenMaiRepository, maGiamGiaRepository, couponIndex);
+        }
+
+        @Test
+        @DisplayName("❌ Should throw when the promotion does not exist")
+        void generate_UnknownPromotion_ShouldThrow() {
+            // Arrange
+            when(khuyenMaiRepository.findById(99L)).thenReturn(Optional.empty());
+
+            // Act & Assert
+            assertThatThrownBy(() -> couponService.generate(99L, 10))
+                    .isInstanceOf(ResourceNotFoundException.class);
+            verifyNoInteractions(maGiamGiaRepository);
+        }
+    }
+
+    /**
+     * Projection thật thay vì mock - mock trả 0L (không phải null) cho Long chưa stub
+     */
+    private static MaGiamGiaRepository.CouponState state(Long khuyenMaiId, Long hoaDonId) {
+        return new MaGiamGiaRepository.CouponState() {
+            @Override
+            public Long getKhuyenMaiId() {
+                return khuyenMaiId;
+            }
+
+            @Override
+            public Long getHoaDonId() {
+                return hoaDonId;
+            }
+        };
+    }
+
+    @Nested
+    @DisplayName("Look up coupon codes")
+    class FindPromotionIdTests {
+
+        @Test
+        @DisplayName("✅ Should return null for strings that are not coupon-shaped")
+        void findPromotionId_PromotionCode_ShouldReturnNull() {
+            assertThat(couponService.findPromotionId("KM_BLACKFRIDAY_2025")).isNull();
+            assertThat(couponService.findPromotionId(null)).isNull();
+            verifyNoInteractions(couponIndex, maGiamGiaRepository);
+        }
+
+        @Test
+        @DisplayName("✅ Should return the promotion of an unused code")
+        void findPromotionId_UnusedCode_ShouldReturnPromotionId() {
+            // Arrange
+            String code = newCode();
+            MaGiamGiaRepository.CouponState state = state(7L, null);
+            when(couponIndex.mightContain(CouponCodes.parse(code))).thenReturn(true);
+            when(maGiamGiaRepository.findStateByMa(CouponCodes.parse(code))).thenReturn(Optional.of(state));
+
+            // Act & Assert - không phân biệt hoa thường, bỏ qua dấu '-'
+            assertThat(couponService.findPromotionId(code.toLowerCase().replace("-", ""))).isEqualTo(7L);
+        }
+
+        @Test
+        @DisplayName("✅ Should find a code created on another node before the filter syncs")
+        void findPromotionId_FilterMiss_ShouldFallBackToDatabase() {
+            // Arrange
+            String code = newCode();
+            long parsed = CouponCodes.parse(code);
+            when(couponIndex.mightContain(parsed)).thenReturn(false);
+            when(maGiamGiaRepository.findStateByMa(parsed)).thenReturn(Optional.of(state(7L, null)));
+
+            // Act & Assert
+            assertThat(couponService.findPromotionId(code)).isEqualTo(7L);
+            verify(couponIndex).addAfterCommit(new long[]{parsed});
+        }
+
+        @Test
+        @DisplayName("❌ Should reject codes missing from both the filter and the database")
+        void findPromotionId_UnknownCode_ShouldThrow() {
+            // Arrange
+            String code = newCode();
+            when(couponIndex.mightContain(anyLong())).thenReturn(false);
+            when(maGiamGiaRepository.findStateByMa(anyLong())).thenReturn(Optional.empty());
+
+            // Act & Assert
+            assertThatThrownBy(() -> couponService.findPromotionId(code))
+                    .isInstanceOf(ResourceNotFoundException.class);
+            verify(couponIndex, never()).addAfterCommit(any());
+        }
+
+        @Test
+        @DisplayName("❌ Should reject a code that was already used")
+        void findPromotionId_UsedCode_ShouldThrow() {
+            // Arrange
+            String code = newCode();
+            MaGiamGiaRepository.CouponState state = state(7L, 100L);
+            when(couponIndex.mightContain(anyLong())).thenReturn(true);
+            when(maGiamGiaRepository.findStateByMa(anyLong())).thenReturn(Optional.of(state));
+
+            // Act & Assert
+            assertThatThrownBy(() -> couponService.findPromotionId(code))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessageContaining("đã được sử dụng");
+        }
+    }
+
+    @Nested
+    @DisplayName("Redeem coupon codes")
+    class RedeemTests {
+
+        @Test
+        @DisplayName("✅ Should mark the code as used by the invoice")
+        void redeem_UnusedCode_ShouldUpdate() {
+            // Arrange
+            String code = newCode();
+            when(maGiamGiaRepository.redeem(eq(CouponCodes.parse(code)), eq(100L), any(LocalDateTime.class)))
+                    .thenReturn(1);
+
+            // Act & Assert
+            assertThatCode(() -> couponService.redeem(code, 100L)).doesNotThrowAnyException();
+        }
+
+        @Test
+        @DisplayName("❌ Should fail when another invoice already used the code")
+        void redeem_AlreadyUsed_ShouldThrow() {
+            // Arrange
+            String code = newCode();
+            when(maGiamGiaRepository.redeem(anyLong(), eq(100L), any(LocalDateTime.class))).thenReturn(0);
+
+            // Act & Assert
+            assertThatThrownBy(() -> couponService.redeem(code, 100L))
+                    .isInstanceOf(BusinessException.class);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.common.constant.PromotionType;
+import com.retail.domain.entity.ChiTietKhuyenMai;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.SanPham;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for PromotionEvaluator
+ * Tests discount calculation per promotion type
+ */
+@DisplayName("PromotionEvaluator Unit Tests")
+class PromotionEvaluatorTest {
+
+    private static CompiledPromotion compile(PromotionType type, BigDecimal value, long... productIds) {
+        KhuyenMai khuyenMai = KhuyenMai.builder()
+                .id(1L)
+                .maKhuyenMai("KM1")
+                .tenKhuyenMai("Khuyến mãi 1")
+                .loaiKhuyenMai(type)
+                .giaTriKhuyenMai(value)
+                .soLuongMua(2)
+                .soLuongTang(1)
+                .ngayBatDau(LocalDateTime.now().minusDays(1))
+                .ngayKetThuc(LocalDateTime.now().plusDays(1))
+                .build();
+        for (long productId : productIds) {
+            khuyenMai.addChiTiet(ChiTietKhuyenMai.builder().sanPham(SanPham.builder().id(productId).build()).build());
+        }
+        return CompiledPromotion.from(khuyenMai);
+    }
+
+    private static CartItemDTO item(long sanPhamId, int soLuong, long donGia) {
+        return CartItemDTO.builder().sanPhamId(sanPhamId).soLuong(soLuong).donGia(BigDecimal.valueOf(donGia)).build();
+    }
+
+    private static AppliedPromotionDTO evaluate(CompiledPromotion promotion, List<CartItemDTO> cart, long total) {
+        return PromotionEvaluator.evaluate(promotion, cart, BigDecimal.valueOf(total), PromotionEvaluator.indexCart(cart));
+    }
+
+    @Test
+    @DisplayName("✅ Should apply percentage discount capped by giamToiDa")
+    void evaluate_Percentage_ShouldRespectCap() {
+        // Arrange
+        KhuyenMai khuyenMai = KhuyenMai.builder()
+                .id(1L).loaiKhuyenMai(PromotionType.PERCENTAGE).giaTriKhuyenMai(BigDecimal.TEN)
+                .giamToiDa(BigDecimal.valueOf(15_000))
+                .ngayBatDau(LocalDateTime.now()).ngayKetThuc(LocalDateTime.now())
+                .build();
+        List<CartItemDTO> cart = List.of(item(1L, 2, 100_000));
+
+        // Act
+        AppliedPromotionDTO applied = evaluate(CompiledPromotion.from(khuyenMai), cart, 200_000);
+
+        // Assert
+        assertThat(applied.getDiscountAmount()).isEqualByComparingTo("15000");
+        assertThat(applied.getFinalAmount()).isEqualByComparingTo("185000");
+        assertThat(applied.getSanPhamIds()).isNull(); // giảm trên cả hóa đơn
+    }
+
+    @Test
+    @DisplayName("✅ Should give one free item per pair for BOGO")
+    void evaluate_Bogo_ShouldDiscountFreeItems() {
+        // Arrange
+        List<CartItemDTO> cart = List.of(item(1L, 5, 10_000), item(2L, 1, 50_000));
+
+        // Act
+        AppliedPromotionDTO applied = evaluate(compile(PromotionType.BOGO, BigDecimal.ZERO, 1L), cart, 100_000);
+
+        // Assert
+        assertThat(applied.getDiscountAmount()).isEqualByComparingTo("20000");
+        assertThat(applied.getSanPhamIds()).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("✅ Should apply bundle price only when every bundle product is in the cart")
+    void evaluate_Bundle_ShouldRequireAllProducts() {
+        // Arrange
+        CompiledPromotion bundle = compile(PromotionType.BUNDLE, BigDecimal.valueOf(50_000), 1L, 2L);
+        List<CartItemDTO> fullCart = List.of(item(1L, 1, 30_000), item(2L, 1, 40_000));
+        List<CartItemDTO> partialCart = List.of(item(1L, 1, 30_000), item(3L, 1, 40_000));
+
+        // Act & Assert
+        assertThat(evaluate(bundle, fullCart, 70_000).getDiscountAmount()).isEqualByComparingTo("20000");
+        assertThat(evaluate(bundle, partialCart, 70_000)).isNull();
+    }
+
+    @Test
+    @DisplayName("✅ Should discount free items for buy X get Y")
+    void evaluate_BuyXGetY_ShouldDiscountFreeItems() {
+        // Arrange - mua 2 tặng 1, giỏ có 6 sản phẩm
+        List<CartItemDTO> cart = List.of(item(1L, 6, 10_000));
+
+        // Act
+        AppliedPromotionDTO applied = evaluate(compile(PromotionType.BUY_X_GET_Y, BigDecimal.ZERO, 1L), cart, 60_000);
+
+        // Assert
+        assertThat(applied.getDiscountAmount()).isEqualByComparingTo("30000");
+    }
+
+    @Test
+    @DisplayName("❌ Should not apply when no applicable product is in the cart")
+    void evaluate_WithoutApplicableProduct_ShouldReturnNull() {
+        // Arrange
+        List<CartItemDTO> cart = List.of(item(9L, 3, 10_000));
+
+        // Act & Assert
+        assertThat(evaluate(compile(PromotionType.PERCENTAGE, BigDecimal.TEN, 1L, 2L), cart, 30_000)).isNull();
+    }
+}
@@ -0,0 +1,219 @@
+package com.retail.application.service.promotion;
+
+import com.retail.common.constant.PromotionType;
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.ChiTietKhuyenMai;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.SanPham;
+import com.retail.persistence.repository.ChiTietKhuyenMaiRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PromotionIndex
+ * Tests branch views, validity windows, incremental refresh and change detection
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PromotionIndex Unit Tests")
+class PromotionIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+    @Mock
+    private KhuyenMaiRepository khuyenMaiRepository;
+    @Mock
+    private ChiTietKhuyenMaiRepository chiTietKhuyenMaiRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private KhuyenMaiRepository.ChangeMarker promotionMarker;
+    @Mock
+    private ChiTietKhuyenMaiRepository.ChangeMarker detailMarker;
+
+    private PromotionIndex promotionIndex;
+
+    @BeforeEach
+    void setUp() {
+        promotionIndex = new PromotionIndex(khuyenMaiRepository, chiTietKhuyenMaiRepository, transactionManager);
+        when(khuyenMaiRepository.findChangeMarker()).thenReturn(promotionMarker);
+        when(chiTietKhuyenMaiRepository.findChangeMarker()).thenReturn(detailMarker);
+    }
+
+    private static KhuyenMai promotion(long id, Long chiNhanhId, LocalDateTime start, LocalDateTime end, long... productIds) {
+        KhuyenMai khuyenMai = KhuyenMai.builder()
+                .id(id)
+                .maKhuyenMai("KM" + id)
+                .tenKhuyenMai("Khuyến mãi " + id)
+                .loaiKhuyenMai(PromotionType.PERCENTAGE)
+                .giaTriKhuyenMai(BigDecimal.TEN)
+                .chiNhanh(chiNhanhId != null ? ChiNhanh.builder().id(chiNhanhId).build() : null)
+                .ngayBatDau(start)
+                .ngayKetThuc(end)
+                .trangThai(Status.ACTIVE)
+                .build();
+        for (long productId : productIds) {
+            khuyenMai.addChiTiet(ChiTietKhuyenMai.builder().sanPham(SanPham.builder().id(productId).build()).build());
+        }
+        return khuyenMai;
+    }
+
+    private void givenIndexed(KhuyenMai... promotions) {
+        when(khuyenMaiRepository.findIndexablePromotions(eq(Status.ACTIVE), any(LocalDateTime.class)))
+                .thenReturn(List.of(promotions));
+    }
+
+    private static List<Long> ids(List<CompiledPromotion> promotions) {
+        return promotions.stream().map(CompiledPromotion::getId).toList();
+    }
+
+    @Nested
+    @DisplayName("Lookup Tests")
+    class LookupTests {
+
+        @Test
+        @DisplayName("✅ Should return branch and global promotions ordered by start date")
+        void activePromotions_ShouldMergeBranchAndGlobal() {
+            // Arrange
+            givenIndexed(
+                    promotion(1L, null, NOW.minusDays(1), NOW.plusDays(1)),
+                    promotion(2L, 5L, NOW.minusDays(3), NOW.plusDays(1)),
+                    promotion(3L, 6L, NOW.minusDays(2), NOW.plusDays(1)));
+
+            // Act
+            List<CompiledPromotion> branch5 = promotionIndex.activePromotions(5L, NOW);
+            List<CompiledPromotion> noBranch = promotionIndex.activePromotions(null, NOW);
+
+            // Assert
+            assertThat(ids(branch5)).containsExactly(2L, 1L);
+            assertThat(ids(noBranch)).containsExactly(1L);
+        }
+
+        @Test
+        @DisplayName("✅ Should hide promotions outside their validity window without reloading")
+        void activePromotions_ShouldFilterByValidityWindow() {
+            // Arrange - 1 khuyến mãi bắt đầu lúc 18:00, 1 khuyến mãi kết thúc lúc 12:30
+            givenIndexed(
+                    promotion(1L, null, NOW.withHour(18), NOW.plusDays(1)),
+                    promotion(2L, null, NOW.minusDays(1), NOW.withHour(12).withMinute(30)));
+
+            // Act & Assert
+            assertThat(ids(promotionIndex.activePromotions(1L, NOW))).containsExactly(2L);
+            assertThat(ids(promotionIndex.activePromotions(1L, NOW.withHour(19)))).containsExactly(1L);
+            verify(khuyenMaiRepository, times(1)).findIndexablePromotions(any(), any());
+        }
+
+        @Test
+        @DisplayName("✅ Should compile applicable products into a hash set")
+        void activePromotions_ShouldCompileProductSet() {
+            // Arrange
+            givenIndexed(promotion(1L, null, NOW.minusDays(1), NOW.plusDays(1), 10L, 20L));
+
+            // Act
+            CompiledPromotion compiled = promotionIndex.activePromotions(1L, NOW).get(0);
+
+            // Assert
+            assertThat(compiled.getProductIds()).containsExactly(10L, 20L);
+            assertThat(compiled.getProductSet().contains(20L)).isTrue();
+            assertThat(compiled.getProductSet().contains(30L)).isFalse();
+            assertThat(compiled.appliesToAllProducts()).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Refresh Tests")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("✅ Should drop a deactivated promotion on incremental refresh")
+        void refreshAfterCommit_WhenDeactivated_ShouldRemove() {
+            // Arrange
+            givenIndexed(
+                    promotion(1L, null, NOW.minusDays(1), NOW.plusDays(1)),
+                    promotion(2L, null, NOW.minusDays(1), NOW.plusDays(1)));
+            assertThat(promotionIndex.activePromotions(1L, NOW)).hasSize(2);
+
+            KhuyenMai deactivated = promotion(2L, null, NOW.minusDays(1), NOW.plusDays(1));
+            deactivated.setTrangThai(Status.INACTIVE);
+            when(khuyenMaiRepository.findWithDetailsById(2L)).thenReturn(Optional.of(deactivated));
+
+            // Act - không có transaction đang chạy -> nạp lại ngay
+            promotionIndex.refreshAfterCommit(2L);
+
+            // Assert
+            assertThat(ids(promotionIndex.activePromotions(1L, NOW))).containsExactly(1L);
+            verify(khuyenMaiRepository, times(1)).findIndexablePromotions(any(), any());
+        }
+
+        @Test
+        @DisplayName("✅ Should add a newly created promotion on incremental refresh")
+        void refreshAfterCommit_WhenCreated_ShouldAdd() {
+            // Arrange
+            givenIndexed(promotion(1L, null, NOW.minusDays(1), NOW.plusDays(1)));
+            promotionIndex.rebuild();
+            when(khuyenMaiRepository.findWithDetailsById(7L))
+                    .thenReturn(Optional.of(promotion(7L, 3L, NOW.minusHours(1), NOW.plusDays(1))));
+
+            // Act
+            promotionIndex.refreshAfterCommit(7L);
+
+            // Assert
+            assertThat(ids(promotionIndex.activePromotions(3L, NOW))).containsExactlyInAnyOrder(1L, 7L);
+        }
+
+        @Test
+        @DisplayName("✅ Should hide a promotion once its usage cap is reached")
+        void recordUsageAfterCommit_ShouldEnforceCap() {
+            // Arrange
+            KhuyenMai limited = promotion(1L, null, NOW.minusDays(1), NOW.plusDays(1));
+            limited.setTongSoLanSuDungToiDa(3);
+            limited.setSoLanDaSuDung(1);
+            givenIndexed(limited);
+            promotionIndex.rebuild();
+
+            // Act
+            promotionIndex.recordUsageAfterCommit(Map.of(1L, 2));
+
+            // Assert
+            assertThat(promotionIndex.activePromotions(1L, NOW)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("✅ Should rebuild only when the change marker differs")
+        void syncWithDatabase_ShouldRebuildOnlyOnChange() {
+            // Arrange
+            givenIndexed(promotion(1L, null, NOW.minusDays(1), NOW.plusDays(1)));
+            promotionIndex.rebuild();
+
+            // Act - chưa có thay đổi
+            promotionIndex.syncWithDatabase();
+
+            // Assert
+            verify(khuyenMaiRepository, times(1)).findIndexablePromotions(any(), any());
+
+            // Act - node khác vừa sửa khuyến mãi
+            when(promotionMarker.getLastUpdated()).thenReturn(NOW);
+            promotionIndex.syncWithDatabase();
+
+            // Assert
+            verify(khuyenMaiRepository, times(2)).findIndexablePromotions(any(), any());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.BestDiscountDTO;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.common.constant.PromotionType;
+import com.retail.domain.entity.ChiTietKhuyenMai;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.SanPham;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+/**
+ * Unit tests for PromotionOptimizer
+ * Tests stacking rules, line item consumption and search bounds
+ */
+@DisplayName("PromotionOptimizer Unit Tests")
+class PromotionOptimizerTest {
+
+    private static CompiledPromotion compile(long id, PromotionType type, long value, boolean stackable,
+                                             long... productIds) {
+        KhuyenMai khuyenMai = KhuyenMai.builder()
+                .id(id)
+                .maKhuyenMai("KM" + id)
+                .tenKhuyenMai("Khuyến mãi " + id)
+                .loaiKhuyenMai(type)
+                .giaTriKhuyenMai(BigDecimal.valueOf(value))
+                .soLuongMua(2)
+                .soLuongTang(1)
+                .choPhepKetHop(stackable)
+                .ngayBatDau(LocalDateTime.now().minusDays(1))
+                .ngayKetThuc(LocalDateTime.now().plusDays(1))
+                .build();
+        for (long productId : productIds) {
+            khuyenMai.addChiTiet(ChiTietKhuyenMai.builder()
+                    .sanPham(SanPham.builder().id(productId).build()).apDung(true).build());
+        }
+        return CompiledPromotion.from(khuyenMai);
+    }
+
+    private static CartItemDTO item(long sanPhamId, int soLuong, long donGia) {
+        return CartItemDTO.builder().sanPhamId(sanPhamId).soLuong(soLuong).donGia(BigDecimal.valueOf(donGia)).build();
+    }
+
+    private static BestDiscountDTO optimize(List<CompiledPromotion> promotions, List<CartItemDTO> cart, long total) {
+        return PromotionOptimizer.optimize(promotions, cart, BigDecimal.valueOf(total));
+    }
+
+    private static List<Long> appliedIds(BestDiscountDTO best) {
+        return best.getAppliedPromotions().stream().map(AppliedPromotionDTO::getPromotionId).toList();
+    }
+
+    @Nested
+    @DisplayName("Stacking rules")
+    class StackingTests {
+
+        @Test
+        @DisplayName("✅ Should stack item promotion with the best single order promotion on the remaining amount")
+        void optimize_StackablePromotions_ShouldCombineWithOneOrderPromotion() {
+            // Arrange
+            List<CartItemDTO> cart = List.of(item(1L, 2, 50_000));
+            List<CompiledPromotion> promotions = List.of(
+                    compile(1L, PromotionType.BOGO, 0, true, 1L),
+                    compile(2L, PromotionType.PERCENTAGE, 10, true),
+                    compile(3L, PromotionType.FIXED_AMOUNT, 8_000, true));
+
+            // Act
+            BestDiscountDTO best = optimize(promotions, cart, 100_000);
+
+            // Assert - BOGO 50.000 + cố định 8.000 (10% của 50.000 còn lại chỉ được 5.000)
+            assertThat(appliedIds(best)).containsExactly(1L, 3L);
+            assertThat(best.getTotalDiscount()).isEqualByComparingTo("58000");
+            assertThat(best.getFinalAmount()).isEqualByComparingTo("42000");
+            assertThat(best.getAppliedPromotions().get(1).getOriginalAmount()).isEqualByComparingTo("50000");
+            assertThat(best.getExhaustive()).isTrue();
+        }
+
+        @Test
+        @DisplayName("✅ Should prefer exclusive promotion when it beats every combination")
+        void optimize_ExclusiveBetter_ShouldApplyAlone() {
+            // Arrange
+            List<CartItemDTO> cart = List.of(item(1L, 2, 50_000));
+            List<CompiledPromotion> promotions = List.of(
+                    compile(1L, PromotionType.BOGO, 0, true, 1L),
+                    compile(2L, PromotionType.FIXED_AMOUNT, 8_000, true),
+                    compile(3L, PromotionType.PERCENTAGE, 60, false));
+
+            // Act
+            BestDiscountDTO best = optimize(promotions, cart, 100_000);
+
+            // Assert
+            assertThat(appliedIds(best)).containsExactly(3L);
+            assertThat(best.getTotalDiscount()).isEqualByComparingTo("60000");
+        }
+
+        @Test
+        @DisplayName("✅ Should apply non-stackable promotions one at a time")
+        void optimize_ExclusiveWorse_ShouldUseCombination() {
+            // Arrange
+            List<CartItemDTO> cart = List.of(item(1L, 2, 50_000));
+            List<CompiledPromotion> promotions = List.of(
+                    compile(1L, PromotionType.BOGO, 0, false, 1L),
+                    compile(2L, PromotionType.FIXED_AMOUNT, 8_000, false));
+
+            // Act
+            BestDiscountDTO best = optimize(promotions, cart, 100_000);
+
+            // Assert
+            assertThat(appliedIds(best)).containsExactly(1L);
+            assertThat(best.getTotalDiscount()).isEqualByComparingTo("50000");
+        }
+
+        @Test
+        @DisplayName("❌ Should return empty result when nothing applies")
+        void optimize_NoApplicablePromotion_ShouldReturnEmpty() {
+            // Arrange
+            List<CartItemDTO> cart = List.of(item(1L, 1, 50_000));
+            List<CompiledPromotion> promotions = List.of(compile(1L, PromotionType.BOGO, 0, true, 1L));
+
+            // Act
+            BestDiscountDTO best = optimize(promotions, cart, 50_000);
+
+            // Assert
+            assertThat(best.getAppliedPromotions()).isEmpty();
+            assertThat(best.getTotalDiscount()).isEqualByComparingTo("0");
+            assertThat(best.getFinalAmount()).isEqualByComparingTo("50000");
+        }
+    }
+
+    @Nested
+    @DisplayName("Line item consumption")
+    class ConsumptionTests {
+
+        @Test
+        @DisplayName("✅ Should not reuse units consumed by BOGO for a BUNDLE")
+        void optimize_BogoAndBundleOverlap_ShouldPickBetterOne() {
+            // Arrange - cộng dồn sẽ ra 25.000 nhưng 2 khuyến mãi cùng cần sản phẩm 1
+            List<CartItemDTO> cart = List.of(item(1L, 2, 10_000), item(2L, 1, 30_000));
+            List<CompiledPromotion> promotions = List.of(
+                    compile(1L, PromotionType.BOGO, 0, true, 1L),
+                    compile(2L, PromotionType.BUNDLE, 35_000, true, 1L, 2L));
+
+            // Act
+            BestDiscountDTO best = optimize(promotions, cart, 50_000);
+
+            // Assert
+            assertThat(appliedIds(best)).containsExactly(2L);
+            assertThat(best.getTotalDiscount()).isEqualByComparingTo("15000");
+        }
+
+        @Test
+        @DisplayName("✅ Should stack item promotions on disjoint products")
+        void optimize_DisjointItemPromotions_ShouldStack() {
+            // Arrange
+            List<CartItemDTO> cart = List.of(item(1L, 2, 10_000), item(2L, 4, 5_000));
+            List<CompiledPromotion> promotions = List.of(
+                    compile(1L, PromotionType.BOGO, 0, true, 1L),
+                    compile(2L, PromotionType.BUY_X_GET_Y, 0, true, 2L));
+
+            // Act
+            BestDiscountDTO best = optimize(promotions, cart, 40_000);
+
+            // Assert - BOGO 10.000 + mua 2 tặng 1 trên 4 sản phẩm: 2 x 5.000
+            assertThat(appliedIds(best)).containsExactlyInAnyOrder(1L, 2L);
+            assertThat(best.getTotalDiscount()).isEqualByComparingTo("20000");
+        }
+
+        @Test
+        @DisplayName("✅ Should match PromotionEvaluator for a single promotion")
+        void optimize_SinglePromotion_ShouldMatchEvaluator() {
+            // Arrange
+            List<CartItemDTO> cart = List.of(item(1L, 5, 10_000), item(2L, 1, 50_000));
+            CompiledPromotion promotion = compile(1L, PromotionType.BUY_X_GET_Y, 0, false, 1L);
+
+            // Act
+            BestDiscountDTO best = optimize(List.of(promotion), cart, 100_000);
+            AppliedPromotionDTO evaluated = PromotionEvaluator.evaluate(promotion, cart,
+                    BigDecimal.valueOf(100_000), PromotionEvaluator.indexCart(cart));
+
+            // Assert
+            assertThat(best.getTotalDiscount()).isEqualByComparingTo(evaluated.getDiscountAmount());
+        }
+    }
+
+    @Nested
+    @DisplayName("Search bounds")
+    class SearchTests {
+
+        @Test
+        @DisplayName("✅ Should handle hundreds of promotions quickly and never do worse than one promotion")
+        void optimize_HundredsOfPromotions_ShouldStayBounded() {
+            // Arrange
+            Random random = new Random(42);
+            List<CartItemDTO> cart = new ArrayList<>();
+            long total = 0;
+            for (long productId = 1; productId <= 30; productId++) {
+                int soLuong = 1 + random.nextInt(6);
+                long donGia = 1_000L * (5 + random.nextInt(100));
+                cart.add(item(productId, soLuong, donGia));
+                total += soLuong * donGia;
+            }
+            PromotionType[] types = PromotionType.values();
+            List<CompiledPromotion> promotions = new ArrayList<>();
+            for (long id = 1; id <= 400; id++) {
+                PromotionType type = types[random.nextInt(types.length)];
+                long value = type == PromotionType.PERCENTAGE ? 1 + random.nextInt(20) : 1_000L * random.nextInt(200);
+                long first = 1 + random.nextInt(30);
+                long second = 1 + (first + random.nextInt(29)) % 30; // Khác first
+                promotions.add(compile(id, type, value, random.nextInt(4) > 0, first, second));
+            }
+            long cartTotal = total;
+
+            // Act
+            BestDiscountDTO best = assertTimeout(Duration.ofSeconds(1), () -> optimize(promotions, cart, cartTotal));
+
+            // Assert
+            BigDecimal bestSingle = promotions.stream()
+                    .map(p -> PromotionEvaluator.evaluate(p, cart, BigDecimal.valueOf(cartTotal),
+                            PromotionEvaluator.indexCart(cart)))
+                    .filter(java.util.Objects::nonNull)
+                    .map(AppliedPromotionDTO::getDiscountAmount)
+                    .max(BigDecimal::compareTo)
+                    .orElse(BigDecimal.ZERO);
+            assertThat(best.getTotalDiscount()).isGreaterThanOrEqualTo(bestSingle);
+            assertThat(appliedIds(best)).doesNotHaveDuplicates();
+        }
+    }
+}
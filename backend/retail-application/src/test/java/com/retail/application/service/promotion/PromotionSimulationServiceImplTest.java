@@ -0,0 +1,192 @@
+package com.retail.application.service.promotion;
+
+import com.retail.application.dto.PromotionDTO;
+import com.retail.application.dto.PromotionSimulationDTO;
+import com.retail.application.mapper.PromotionMapper;
+import com.retail.common.constant.PromotionType;
+import com.retail.common.exception.BusinessException;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.persistence.repository.HoaDonRepository;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.InvoiceLines;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.Line;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PromotionSimulationServiceImpl
+ * Tests chunked parallel evaluation, margin figures and input validation
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PromotionSimulationServiceImpl Unit Tests")
+class PromotionSimulationServiceImplTest {
+
+    @Mock
+    private HoaDonRepository hoaDonRepository;
+    @Mock
+    private PromotionMapper promotionMapper;
+
+    private PromotionSimulationServiceImpl promotionSimulationService;
+
+    @BeforeEach
+    void setUp() {
+        promotionSimulationService = new PromotionSimulationServiceImpl(hoaDonRepository, promotionMapper, 100, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        promotionSimulationService.shutdown();
+    }
+
+    private static PromotionDTO draft(PromotionType type, long value, Long chiNhanhId, List<Long> sanPhamIds) {
+        return PromotionDTO.builder()
+                .maKhuyenMai("DRAFT")
+                .tenKhuyenMai("Khuyến mãi nháp")
+                .loaiKhuyenMai(type)
+                .giaTriKhuyenMai(BigDecimal.valueOf(value))
+                .chiNhanhId(chiNhanhId)
+                .sanPhamIds(sanPhamIds)
+                .build();
+    }
+
+    private void givenMapper() {
+        when(promotionMapper.toEntity(any(PromotionDTO.class))).thenAnswer(invocation -> {
+            PromotionDTO dto = invocation.getArgument(0);
+            return KhuyenMai.builder()
+                    .maKhuyenMai(dto.getMaKhuyenMai())
+                    .tenKhuyenMai(dto.getTenKhuyenMai())
+                    .loaiKhuyenMai(dto.getLoaiKhuyenMai())
+                    .giaTriKhuyenMai(dto.getGiaTriKhuyenMai())
+                    .build();
+        });
+    }
+
+    /**
+     * Hóa đơn i có 2 dòng: sản phẩm 1 (2 x 10.000, giá nhập 6.000) và sản phẩm (2 + i % 3) (1 x 30.000, chưa có giá nhập)
+     */
+    private static List<InvoiceLines> invoices(int count) {
+        List<InvoiceLines> invoices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            invoices.add(new InvoiceLines(i + 1, BigDecimal.valueOf(50_000), List.of(
+                    new Line(1L, 2, BigDecimal.valueOf(10_000), BigDecimal.valueOf(6_000)),
+                    new Line(2L + i % 3, 1, BigDecimal.valueOf(30_000), null))));
+        }
+        return invoices;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenInvoices(Long chiNhanhId, List<InvoiceLines> invoices, int chunkSize) {
+        doAnswer(invocation -> {
+            Consumer<List<InvoiceLines>> consumer = invocation.getArgument(4);
+            for (int from = 0; from < invoices.size(); from += chunkSize) {
+                consumer.accept(invoices.subList(from, Math.min(invoices.size(), from + chunkSize)));
+            }
+            return null;
+        }).when(hoaDonRepository).streamCompletedInvoiceLines(eq(chiNhanhId), any(LocalDateTime.class),
+                any(LocalDateTime.class), eq(100), any(Consumer.class));
+    }
+
+    @Nested
+    @DisplayName("Simulation results")
+    class ResultTests {
+
+        @Test
+        @DisplayName("✅ Should total discount and margins over every streamed chunk")
+        void simulate_PercentagePromotion_ShouldAggregateAllChunks() {
+            // Arrange
+            givenMapper();
+            givenInvoices(null, invoices(1_000), 100);
+
+            // Act
+            PromotionSimulationDTO result = promotionSimulationService.simulate(
+                    draft(PromotionType.PERCENTAGE, 10, null, null), 4);
+
+            // Assert
+            assertThat(result.getTotalInvoices()).isEqualTo(1_000L);
+            assertThat(result.getAffectedInvoices()).isEqualTo(1_000L);
+            assertThat(result.getTotalLines()).isEqualTo(2_000L);
+            assertThat(result.getTotalRevenue()).isEqualByComparingTo("50000000");
+            assertThat(result.getTotalDiscount()).isEqualByComparingTo("5000000");
+            assertThat(result.getTotalCost()).isEqualByComparingTo("12000000");
+            assertThat(result.getGrossMarginBefore()).isEqualByComparingTo("38000000");
+            assertThat(result.getGrossMarginAfter()).isEqualByComparingTo("33000000");
+            assertThat(result.getMarginRateBefore()).isEqualByComparingTo("76.00");
+            assertThat(result.getMarginRateAfter()).isEqualByComparingTo("73.33");
+            assertThat(result.getMarginImpact()).isEqualByComparingTo("-2.67");
+            assertThat(result.getFromDate()).isBefore(result.getToDate());
+        }
+
+        @Test
+        @DisplayName("✅ Should count only invoices containing the promotion's products")
+        void simulate_ProductPromotion_ShouldAffectMatchingInvoices() {
+            // Arrange
+            givenMapper();
+            givenInvoices(5L, invoices(900), 100);
+
+            // Act - chỉ hóa đơn có sản phẩm 3 (i % 3 == 1)
+            PromotionSimulationDTO result = promotionSimulationService.simulate(
+                    draft(PromotionType.FIXED_AMOUNT, 5_000, 5L, List.of(3L)), 12);
+
+            // Assert
+            assertThat(result.getTotalInvoices()).isEqualTo(900L);
+            assertThat(result.getAffectedInvoices()).isEqualTo(300L);
+            assertThat(result.getTotalDiscount()).isEqualByComparingTo("1500000");
+        }
+
+        @Test
+        @DisplayName("✅ Should return zeros when there is no history")
+        void simulate_NoInvoices_ShouldReturnZeros() {
+            // Arrange
+            givenMapper();
+
+            // Act
+            PromotionSimulationDTO result = promotionSimulationService.simulate(
+                    draft(PromotionType.PERCENTAGE, 10, null, null), 1);
+
+            // Assert
+            assertThat(result.getTotalInvoices()).isZero();
+            assertThat(result.getTotalDiscount()).isEqualByComparingTo("0");
+            assertThat(result.getMarginRateBefore()).isEqualByComparingTo("0");
+        }
+    }
+
+    @Nested
+    @DisplayName("Validation")
+    class ValidationTests {
+
+        @Test
+        @DisplayName("❌ Should reject a period outside 1..52 weeks")
+        void simulate_InvalidWeeks_ShouldThrow() {
+            PromotionDTO draft = draft(PromotionType.PERCENTAGE, 10, null, null);
+
+            assertThatThrownBy(() -> promotionSimulationService.simulate(draft, 0))
+                    .isInstanceOf(BusinessException.class);
+            assertThatThrownBy(() -> promotionSimulationService.simulate(draft, 53))
+                    .isInstanceOf(BusinessException.class);
+            verifyNoInteractions(hoaDonRepository);
+        }
+
+        @Test
+        @DisplayName("❌ Should reject a draft without promotion type")
+        void simulate_MissingType_ShouldThrow() {
+            assertThatThrownBy(() -> promotionSimulationService.simulate(draft(null, 10, null, null), 4))
+                    .isInstanceOf(BusinessException.class);
+            verifyNoInteractions(hoaDonRepository);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.retail.application.service.promotion;
+
+import com.retail.common.constant.PromotionType;
+import com.retail.common.exception.BusinessException;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.KhuyenMaiKhachHang;
+import com.retail.persistence.repository.KhuyenMaiKhachHangRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PromotionUsageServiceImpl
+ * Tests block leasing, global and per-customer caps, rollback and idle return
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PromotionUsageServiceImpl Unit Tests")
+class PromotionUsageServiceImplTest {
+
+    private static final Long PROMOTION_ID = 1L;
+    private static final Long KHACH_HANG_ID = 7L;
+
+    @Mock
+    private KhuyenMaiRepository khuyenMaiRepository;
+    @Mock
+    private KhuyenMaiKhachHangRepository khuyenMaiKhachHangRepository;
+    @Mock
+    private PromotionIndex promotionIndex;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PromotionUsageServiceImpl promotionUsageService;
+
+    @BeforeEach
+    void setUp() {
+        promotionUsageService = new PromotionUsageServiceImpl(khuyenMaiRepository, khuyenMaiKhachHangRepository,
+                promotionIndex, transactionManager, 20, 0);
+    }
+
+    private void givenLimits(Integer total, Integer perCustomer) {
+        KhuyenMai khuyenMai = KhuyenMai.builder()
+                .id(PROMOTION_ID)
+                .maKhuyenMai("KM1")
+                .tenKhuyenMai("Khuyến mãi 1")
+                .loaiKhuyenMai(PromotionType.PERCENTAGE)
+                .giaTriKhuyenMai(BigDecimal.TEN)
+                .tongSoLanSuDungToiDa(total)
+                .soLanSuDungToiDa(perCustomer)
+                .ngayBatDau(LocalDateTime.now().minusDays(1))
+                .ngayKetThuc(LocalDateTime.now().plusDays(1))
+                .build();
+        when(promotionIndex.find(PROMOTION_ID)).thenReturn(CompiledPromotion.from(khuyenMai));
+    }
+
+    @Nested
+    @DisplayName("Global usage cap")
+    class GlobalCapTests {
+
+        @Test
+        @DisplayName("✅ Should lease one block and serve later reservations from memory")
+        void reserve_WithinLease_ShouldHitDatabaseOnce() {
+            // Arrange
+            givenLimits(100, null);
+            when(khuyenMaiRepository.findUnreservedUsage(PROMOTION_ID)).thenReturn(100);
+            when(khuyenMaiRepository.reserveUsage(PROMOTION_ID, 20)).thenReturn(1);
+
+            // Act
+            for (int i = 0; i < 20; i++) {
+                promotionUsageService.reserve(List.of(PROMOTION_ID), null);
+            }
+
+            // Assert
+            verify(khuyenMaiRepository, times(1)).reserveUsage(PROMOTION_ID, 20);
+        }
+
+        @Test
+        @DisplayName("✅ Should shrink the block when few usages remain")
+        void reserve_NearCap_ShouldLeaseSmallBlock() {
+            // Arrange
+            givenLimits(100, null);
+            when(khuyenMaiRepository.findUnreservedUsage(PROMOTION_ID)).thenReturn(3);
+            when(khuyenMaiRepository.reserveUsage(PROMOTION_ID, 1)).thenReturn(1);
+
+            // Act
+            promotionUsageService.reserve(List.of(PROMOTION_ID), null);
+
+            // Assert
+            verify(khuyenMaiRepository).reserveUsage(PROMOTION_ID, 1);
+        }
+
+        @Test
+        @DisplayName("❌ Should reject checkout when the cap is reached")
+        void reserve_CapReached_ShouldThrow() {
+            // Arrange
+            givenLimits(100, null);
+            when(khuyenMaiRepository.findUnreservedUsage(PROMOTION_ID)).thenReturn(0);
+
+            // Act & Assert
+            assertThatThrownBy(() -> promotionUsageService.reserve(List.of(PROMOTION_ID), null))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessageContaining("KM1");
+            verify(khuyenMaiRepository, never()).reserveUsage(anyLong(), anyInt());
+        }
+
+        @Test
+        @DisplayName("✅ Should skip leasing for promotions without a cap")
+        void reserve_NoCap_ShouldNotTouchDatabase() {
+            // Arrange
+            givenLimits(null, null);
+
+            // Act
+            promotionUsageService.reserve(List.of(PROMOTION_ID), KHACH_HANG_ID);
+
+            // Assert
+            verifyNoInteractions(khuyenMaiRepository, khuyenMaiKhachHangRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Per-customer cap")
+    class PerCustomerCapTests {
+
+        @Test
+        @DisplayName("✅ Should reserve the customer's usage with a single upsert")
+        void reserve_FirstUse_ShouldUpsertRow() {
+            // Arrange
+            givenLimits(null, 2);
+            when(khuyenMaiKhachHangRepository.reserveIfBelow(eq(PROMOTION_ID), eq(KHACH_HANG_ID), eq(1), eq(2),
+                    any(LocalDateTime.class))).thenReturn(1);
+
+            // Act
+            promotionUsageService.reserve(List.of(PROMOTION_ID), KHACH_HANG_ID);
+
+            // Assert
+            verify(khuyenMaiKhachHangRepository, never()).save(any());
+            verifyNoInteractions(khuyenMaiRepository);
+        }
+
+        @Test
+        @DisplayName("❌ Should reject checkout when the customer used up the promotion")
+        void reserve_CustomerCapReached_ShouldThrowAndReturnLease() {
+            // Arrange
+            givenLimits(100, 2);
+            when(khuyenMaiRepository.findUnreservedUsage(PROMOTION_ID)).thenReturn(100);
+            when(khuyenMaiRepository.reserveUsage(PROMOTION_ID, 20)).thenReturn(1);
+            when(khuyenMaiKhachHangRepository.reserveIfBelow(eq(PROMOTION_ID), eq(KHACH_HANG_ID), eq(1), eq(2),
+                    any(LocalDateTime.class))).thenReturn(0);
+
+            // Act & Assert
+            assertThatThrownBy(() -> promotionUsageService.reserve(List.of(PROMOTION_ID), KHACH_HANG_ID))
+                    .isInstanceOf(BusinessException.class);
+            verify(khuyenMaiKhachHangRepository, never()).save(any());
+
+            // Lượt đã giữ được trả lại bộ nhớ -> cả block được trả về DB
+            promotionUsageService.returnIdleReservations();
+            verify(khuyenMaiRepository).releaseReservedUsage(PROMOTION_ID, 20);
+        }
+
+        @Test
+        @DisplayName("✅ Should give back the customer's usages of a cancelled invoice")
+        void release_ShouldDecrementCustomerRow() {
+            // Act
+            promotionUsageService.release(List.of(PROMOTION_ID, PROMOTION_ID), KHACH_HANG_ID);
+
+            // Assert
+            verify(khuyenMaiKhachHangRepository).decrement(eq(PROMOTION_ID), eq(KHACH_HANG_ID), eq(2),
+                    any(LocalDateTime.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Availability before choosing promotions")
+    class AvailabilityTests {
+
+        @Test
+        @DisplayName("✅ Should report a promotion whose global cap is used up")
+        void findUnavailable_GlobalCapReached_ShouldReturnPromotion() {
+            // Arrange
+            givenLimits(100, null);
+            when(khuyenMaiRepository.findExhaustedIds(List.of(PROMOTION_ID))).thenReturn(List.of(PROMOTION_ID));
+
+            // Act
+            Set<Long> unavailable = promotionUsageService.findUnavailable(List.of(PROMOTION_ID), KHACH_HANG_ID);
+
+            // Assert
+            assertThat(unavailable).containsExactly(PROMOTION_ID);
+            verifyNoInteractions(khuyenMaiKhachHangRepository);
+        }
+
+        @Test
+        @DisplayName("✅ Should not query the database while the lease still has usages")
+        void findUnavailable_WithLeasedUsages_ShouldSkipDatabase() {
+            // Arrange
+            givenLimits(100, null);
+            when(khuyenMaiRepository.findUnreservedUsage(PROMOTION_ID)).thenReturn(100);
+            when(khuyenMaiRepository.reserveUsage(PROMOTION_ID, 20)).thenReturn(1);
+            promotionUsageService.reserve(List.of(PROMOTION_ID), null);
+
+            // Act
+            Set<Long> unavailable = promotionUsageService.findUnavailable(List.of(PROMOTION_ID), null);
+
+            // Assert
+            assertThat(unavailable).isEmpty();
+            verify(khuyenMaiRepository, never()).findExhaustedIds(any());
+        }
+
+        @Test
+        @DisplayName("✅ Should report a promotion the customer already used up")
+        void findUnavailable_CustomerCapReached_ShouldReturnPromotion() {
+            // Arrange
+            givenLimits(null, 2);
+            KhuyenMaiKhachHang used = KhuyenMaiKhachHang.builder()
+                    .khuyenMaiId(PROMOTION_ID)
+                    .khachHangId(KHACH_HANG_ID)
+                    .soLanSuDung(2)
+                    .build();
+            when(khuyenMaiKhachHangRepository.findByKhachHangIdAndKhuyenMaiIdIn(KHACH_HANG_ID, Set.of(PROMOTION_ID)))
+                    .thenReturn(List.of(used));
+
+            // Act
+            Set<Long> unavailable = promotionUsageService.findUnavailable(List.of(PROMOTION_ID), KHACH_HANG_ID);
+
+            // Assert
+            assertThat(unavailable).containsExactly(PROMOTION_ID);
+            verifyNoInteractions(khuyenMaiRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Returning reservations")
+    class ReturnTests {
+
+        @Test
+        @DisplayName("✅ Should return unused usages to the database when idle")
+        void returnIdleReservations_ShouldReleaseUnused() {
+            // Arrange
+            givenLimits(100, null);
+            when(khuyenMaiRepository.findUnreservedUsage(PROMOTION_ID)).thenReturn(100);
+            when(khuyenMaiRepository.reserveUsage(PROMOTION_ID, 20)).thenReturn(1);
+            promotionUsageService.reserve(List.of(PROMOTION_ID), null);
+
+            // Act
+            promotionUsageService.returnIdleReservations();
+            promotionUsageService.returnIdleReservations();
+
+            // Assert
+            verify(khuyenMaiRepository, times(1)).releaseReservedUsage(PROMOTION_ID, 19);
+        }
+
+        @Test
+        @DisplayName("✅ Should put usages back when the checkout transaction rolls back")
+        void reserve_Rollback_ShouldPutUsagesBack() {
+            // Arrange
+            givenLimits(100, null);
+            when(khuyenMaiRepository.findUnreservedUsage(PROMOTION_ID)).thenReturn(100);
+            when(khuyenMaiRepository.reserveUsage(PROMOTION_ID, 20)).thenReturn(1);
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                // Act
+                promotionUsageService.reserve(List.of(PROMOTION_ID, PROMOTION_ID), null);
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            promotionUsageService.returnIdleReservations();
+
+            // Assert
+            verify(khuyenMaiRepository).releaseReservedUsage(PROMOTION_ID, 20);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.retail.application.service.report;
+
+import com.retail.persistence.repository.DoanhSoNgayRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReportCacheServiceImpl
+ * Tests that only closed periods are cached and that keys follow the data version of the period
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReportCacheService Unit Tests")
+class ReportCacheServiceImplTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+    private static final LocalDate END = LocalDate.of(2025, 3, 31);
+
+    @Mock
+    private DoanhSoNgayRepository doanhSoNgayRepository;
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private Cache cache;
+
+    @InjectMocks
+    private ReportCacheServiceImpl reportCacheService;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private String load() {
+        return "report-" + loads.incrementAndGet();
+    }
+
+    @Nested
+    @DisplayName("Get")
+    class GetTests {
+
+        @Test
+        @DisplayName("✅ Should always load a period that still includes today")
+        void get_ShouldBypassCacheForOpenPeriod() {
+            // Act
+            String result = reportCacheService.get("revenue", START, LocalDate.now(), null, null,
+                    ReportCacheServiceImplTest.this::load);
+
+            // Assert
+            assertThat(result).isEqualTo("report-1");
+            verifyNoInteractions(doanhSoNgayRepository, cacheManager);
+        }
+
+        @Test
+        @DisplayName("✅ Should load and cache a closed period under its data version")
+        void get_ShouldCacheClosedPeriodByVersion() {
+            // Arrange
+            when(doanhSoNgayRepository.dataVersion(START, END)).thenReturn(7L);
+            when(cacheManager.getCache(ReportCacheServiceImpl.REPORTS_CACHE)).thenReturn(cache);
+
+            // Act
+            String result = reportCacheService.get("top-products", START, END, null, 10,
+                    ReportCacheServiceImplTest.this::load);
+
+            // Assert
+            assertThat(result).isEqualTo("report-1");
+            verify(cache).put("top-products:2025-03-01:2025-03-31:all:10:v7", "report-1");
+        }
+
+        @Test
+        @DisplayName("✅ Should serve a cached closed period without loading")
+        void get_ShouldReturnCachedReport() {
+            // Arrange
+            when(doanhSoNgayRepository.dataVersionByChiNhanh(2L, START, END)).thenReturn(3L);
+            when(cacheManager.getCache(ReportCacheServiceImpl.REPORTS_CACHE)).thenReturn(cache);
+            when(cache.get("revenue:2025-03-01:2025-03-31:2:v3")).thenReturn(new SimpleValueWrapper("cached"));
+
+            // Act
+            String result = reportCacheService.get("revenue", START, END, 2L, null,
+                    ReportCacheServiceImplTest.this::load);
+
+            // Assert
+            assertThat(result).isEqualTo("cached");
+            assertThat(loads).hasValue(0);
+            verify(cache, never()).put(any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Closed period version")
+    class VersionTests {
+
+        @Test
+        @DisplayName("✅ Should have no version until the period has ended")
+        void closedPeriodVersion_ShouldBeEmptyForOpenPeriod() {
+            // Assert
+            assertThat(reportCacheService.closedPeriodVersion(START, LocalDate.now(), null)).isEmpty();
+            assertThat(reportCacheService.closedPeriodVersion(START, LocalDate.now().plusDays(1), 2L)).isEmpty();
+            verifyNoInteractions(doanhSoNgayRepository);
+        }
+    }
+}
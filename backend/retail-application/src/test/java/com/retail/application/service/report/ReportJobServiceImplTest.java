@@ -0,0 +1,245 @@
+package com.retail.application.service.report;
+
+import com.retail.application.dto.ReportJobDTO;
+import com.retail.application.service.report.ReportJobService.ReportFile;
+import com.retail.common.constant.ErrorCode;
+import com.retail.common.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReportJobServiceImpl
+ * Tests queuing, coalescing identical requests, bounded capacity and downloading finished files
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReportJobService Unit Tests")
+class ReportJobServiceImplTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+    private static final LocalDate END = LocalDate.of(2025, 3, 31);
+
+    @Mock
+    private RevenueReportService revenueReportService;
+    @Mock
+    private SalesReportService salesReportService;
+    @Mock
+    private InventoryReportService inventoryReportService;
+    @Mock
+    private NguyenLieuReportService nguyenLieuReportService;
+    @Mock
+    private ReportCacheService reportCacheService;
+
+    @TempDir
+    Path directory;
+
+    private ReportJobServiceImpl reportJobService;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 1 worker, hàng đợi 1 job
+        reportJobService = new ReportJobServiceImpl(revenueReportService, salesReportService,
+                inventoryReportService, nguyenLieuReportService, reportCacheService,
+                1, 1, directory.toString(), 30, 1440, 5_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        reportJobService.shutdown();
+    }
+
+    private void givenRevenueReportBlocksUntilReleased() {
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            OutputStream out = invocation.getArgument(2);
+            out.write("xlsx".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(revenueReportService).writeRevenueReportExcel(any(), any(), any());
+    }
+
+    @Nested
+    @DisplayName("Submit")
+    class SubmitTests {
+
+        @Test
+        @DisplayName("✅ Should coalesce identical requests into one job")
+        void submit_ShouldCoalesceIdenticalRequests() {
+            // Arrange
+            givenRevenueReportBlocksUntilReleased();
+            ReportJobRequest request = ReportJobRequest.of(ReportJobType.REVENUE, START, END, null);
+
+            // Act
+            ReportJobDTO first = reportJobService.submit(request);
+            ReportJobDTO second = reportJobService.submit(ReportJobRequest.of(ReportJobType.REVENUE, START, END, 99));
+            release.countDown();
+            ReportFile file = reportJobService.awaitFile(first.getJobId());
+
+            // Assert
+            assertThat(second.getJobId()).isEqualTo(first.getJobId());
+            assertThat(file.fileName()).isEqualTo("BaoCaoDoanhThu_01032025_den_31032025.xlsx");
+            assertThat(file.size()).isEqualTo(4);
+            verify(revenueReportService, times(1)).writeRevenueReportExcel(eq(START), eq(END), any());
+            assertThat(reportJobService.getJob(first.getJobId()).getStatus()).isEqualTo("DONE");
+        }
+
+        @Test
+        @DisplayName("✅ Should start a new job once the previous identical job finished")
+        void submit_ShouldCreateNewJobAfterCompletion() {
+            // Arrange
+            release.countDown();
+            givenRevenueReportBlocksUntilReleased();
+            ReportJobRequest request = ReportJobRequest.of(ReportJobType.REVENUE, START, END, null);
+            ReportJobDTO first = reportJobService.submit(request);
+            reportJobService.awaitFile(first.getJobId());
+
+            // Act
+            ReportJobDTO second = reportJobService.submit(request);
+            reportJobService.awaitFile(second.getJobId());
+
+            // Assert
+            assertThat(second.getJobId()).isNotEqualTo(first.getJobId());
+            verify(revenueReportService, times(2)).writeRevenueReportExcel(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("✅ Should reuse the file of a closed period until its data version changes")
+        void submit_ShouldReuseClosedPeriodFileWhileVersionUnchanged() {
+            // Arrange
+            release.countDown();
+            givenRevenueReportBlocksUntilReleased();
+            when(reportCacheService.closedPeriodVersion(START, END, null))
+                    .thenReturn(Optional.of(3L), Optional.of(3L), Optional.of(4L));
+            ReportJobRequest request = ReportJobRequest.of(ReportJobType.REVENUE, START, END, null);
+            ReportJobDTO first = reportJobService.submit(request);
+            reportJobService.awaitFile(first.getJobId());
+
+            // Act
+            ReportJobDTO reused = reportJobService.submit(request);
+            ReportJobDTO changed = reportJobService.submit(request);
+            reportJobService.awaitFile(changed.getJobId());
+
+            // Assert
+            assertThat(reused.getJobId()).isEqualTo(first.getJobId());
+            assertThat(reused.getStatus()).isEqualTo("DONE");
+            assertThat(changed.getJobId()).isNotEqualTo(first.getJobId());
+            verify(revenueReportService, times(2)).writeRevenueReportExcel(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("❌ Should reject new work when the queue is full")
+        void submit_ShouldRejectWhenQueueFull() throws Exception {
+            // Arrange - 1 job đang chạy, 1 job chờ
+            givenRevenueReportBlocksUntilReleased();
+            reportJobService.submit(ReportJobRequest.of(ReportJobType.REVENUE, START, END, null));
+            // Chờ worker nhận job đầu tiên - nếu không job thứ 2 có thể gặp hàng đợi còn đầy
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            reportJobService.submit(ReportJobRequest.of(ReportJobType.INVENTORY));
+
+            // Act & Assert
+            assertThatThrownBy(() -> reportJobService.submit(ReportJobRequest.of(ReportJobType.NHAP_KHO)))
+                    .isInstanceOf(BusinessException.class)
+                    .extracting("errorCode").isEqualTo(ErrorCode.REPORT_QUEUE_FULL);
+        }
+    }
+
+    @Nested
+    @DisplayName("Download")
+    class DownloadTests {
+
+        @Test
+        @DisplayName("✅ Should keep the rendered file until download")
+        void getFile_ShouldReturnRenderedFile() throws Exception {
+            // Arrange
+            release.countDown();
+            givenRevenueReportBlocksUntilReleased();
+            ReportJobDTO job = reportJobService.submit(ReportJobRequest.of(ReportJobType.REVENUE, START, END, null));
+            reportJobService.awaitFile(job.getJobId());
+
+            // Act
+            ReportFile file = reportJobService.getFile(job.getJobId());
+
+            // Assert
+            assertThat(file.path().getParent()).isEqualTo(directory);
+            assertThat(Files.readString(file.path())).isEqualTo("xlsx");
+        }
+
+        @Test
+        @DisplayName("❌ Should report a failed job and remove its partial file")
+        void getFile_ShouldFailForFailedJob() throws Exception {
+            // Arrange
+            doThrow(new RuntimeException("DB down")).when(nguyenLieuReportService).writeTonKhoExcel(any());
+            ReportJobDTO job = reportJobService.submit(ReportJobRequest.of(ReportJobType.NGUYEN_LIEU_TON_KHO));
+
+            // Act & Assert
+            assertThatThrownBy(() -> reportJobService.awaitFile(job.getJobId()))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessageContaining("DB down");
+            assertThat(reportJobService.getJob(job.getJobId()).getStatus()).isEqualTo("FAILED");
+            try (var files = Files.list(directory)) {
+                assertThat(files).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("❌ Should not serve a job that is still running")
+        void getFile_ShouldFailWhileRunning() throws Exception {
+            // Arrange
+            givenRevenueReportBlocksUntilReleased();
+            ReportJobDTO job = reportJobService.submit(ReportJobRequest.of(ReportJobType.REVENUE, START, END, null));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Act & Assert
+            assertThatThrownBy(() -> reportJobService.getFile(job.getJobId()))
+                    .isInstanceOf(BusinessException.class)
+                    .extracting("errorCode").isEqualTo(ErrorCode.REPORT_NOT_READY);
+        }
+    }
+
+    @Nested
+    @DisplayName("Request")
+    class RequestTests {
+
+        @Test
+        @DisplayName("✅ Should normalize parameters that the report does not use")
+        void of_ShouldNormalizeParameters() {
+            // Assert
+            assertThat(ReportJobRequest.of(ReportJobType.INVENTORY, START, END, 5))
+                    .isEqualTo(ReportJobRequest.of(ReportJobType.INVENTORY));
+            assertThat(ReportJobRequest.of(ReportJobType.SALES, START, END, null).limit()).isEqualTo(10);
+            assertThat(ReportJobRequest.of(ReportJobType.REVENUE, START, END, 5).limit()).isNull();
+        }
+
+        @Test
+        @DisplayName("❌ Should reject a missing or reversed date range")
+        void of_ShouldRejectInvalidDateRange() {
+            // Assert
+            assertThatThrownBy(() -> ReportJobRequest.of(ReportJobType.REVENUE, START, null, null))
+                    .isInstanceOf(BusinessException.class);
+            assertThatThrownBy(() -> ReportJobRequest.of(ReportJobType.SALES, END, START, null))
+                    .isInstanceOf(BusinessException.class);
+        }
+    }
+}
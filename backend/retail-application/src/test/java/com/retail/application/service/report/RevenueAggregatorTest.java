@@ -0,0 +1,136 @@
+package com.retail.application.service.report;
+
+import com.retail.common.constant.Status;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.InvoiceSummary;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.ReportInvoice;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.ReportLine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for RevenueAggregator
+ * Tests minor-unit totals, merging partial results and half-up rounding
+ */
+@DisplayName("RevenueAggregator Unit Tests")
+class RevenueAggregatorTest {
+
+    private static ReportInvoice invoice(LocalDateTime ngayTao, Long khachHangId, String tongTien, String giamGia,
+                                         ReportLine... lines) {
+        BigDecimal gross = new BigDecimal(tongTien);
+        BigDecimal discount = giamGia != null ? new BigDecimal(giamGia) : null;
+        return new ReportInvoice(new InvoiceSummary("HD", ngayTao, khachHangId, null, gross, discount,
+                discount != null ? gross.subtract(discount) : gross, "CASH", Status.COMPLETED.name(), null),
+                List.of(lines));
+    }
+
+    @Nested
+    @DisplayName("Totals")
+    class TotalsTests {
+
+        @Test
+        @DisplayName("✅ Should add invoices and lines in minor units")
+        void add_ShouldSumMinorUnits() {
+            // Arrange
+            RevenueAggregator aggregator = new RevenueAggregator();
+
+            // Act
+            aggregator.add(invoice(LocalDateTime.of(2025, 3, 1, 10, 0), 1L, "100.10", "0.05",
+                    new ReportLine(1L, 10L, 2, new BigDecimal("100.10"), new BigDecimal("0.05"))));
+            aggregator.add(invoice(LocalDateTime.of(2025, 3, 1, 11, 0), null, "0.20", null,
+                    new ReportLine(2L, null, 1, new BigDecimal("0.20"), BigDecimal.ZERO)));
+
+            // Assert
+            assertThat(aggregator.orders).isEqualTo(2);
+            assertThat(aggregator.grossMinor).isEqualTo(10_030);
+            assertThat(aggregator.discountMinor).isEqualTo(5);
+            assertThat(aggregator.netMinor).isEqualTo(10_025);
+            assertThat(aggregator.days.get(LocalDate.of(2025, 3, 1)).orders).isEqualTo(2);
+            assertThat(aggregator.months.get(YearMonth.of(2025, 3)).netMinor).isEqualTo(10_025);
+            assertThat(aggregator.categories.get(10L).quantity).isEqualTo(2);
+            assertThat(aggregator.categories.get(null).revenueMinor).isEqualTo(20);
+            assertThat(aggregator.products.get(1L).discountMinor).isEqualTo(5);
+        }
+
+        @Test
+        @DisplayName("✅ Should merge partial results into the same totals as one pass")
+        void merge_ShouldCombinePartials() {
+            // Arrange
+            ReportInvoice first = invoice(LocalDateTime.of(2025, 3, 1, 10, 0), 1L, "50000", "0",
+                    new ReportLine(1L, 10L, 1, new BigDecimal("50000"), BigDecimal.ZERO));
+            ReportInvoice second = invoice(LocalDateTime.of(2025, 3, 2, 10, 0), 1L, "70000", "10000",
+                    new ReportLine(1L, 10L, 2, new BigDecimal("70000"), new BigDecimal("10000")));
+            RevenueAggregator left = new RevenueAggregator();
+            RevenueAggregator right = new RevenueAggregator();
+            left.add(first);
+            right.add(second);
+
+            // Act
+            RevenueAggregator merged = new RevenueAggregator();
+            merged.merge(left);
+            merged.merge(right);
+
+            // Assert
+            assertThat(merged.orders).isEqualTo(2);
+            assertThat(merged.netMinor).isEqualTo(11_000_000);
+            assertThat(merged.days).hasSize(2);
+            assertThat(merged.months.get(YearMonth.of(2025, 3)).orders).isEqualTo(2);
+            assertThat(merged.products.get(1L).quantity).isEqualTo(3);
+            assertThat(merged.products.get(1L).revenueMinor).isEqualTo(12_000_000);
+            assertThat(merged.categories.get(10L).discountMinor).isEqualTo(1_000_000);
+        }
+
+        @Test
+        @DisplayName("✅ Should count distinct customers overall and per day in read order")
+        void countCustomer_ShouldCountDistinctCustomers() {
+            // Arrange
+            RevenueAggregator aggregator = new RevenueAggregator();
+
+            // Act - ngayTao giảm dần
+            aggregator.countCustomer(invoice(LocalDateTime.of(2025, 3, 2, 18, 0), 5L, "1", null).summary());
+            aggregator.countCustomer(invoice(LocalDateTime.of(2025, 3, 2, 9, 0), 5L, "1", null).summary());
+            aggregator.countCustomer(invoice(LocalDateTime.of(2025, 3, 2, 8, 0), null, "1", null).summary());
+            aggregator.countCustomer(invoice(LocalDateTime.of(2025, 3, 1, 10, 0), 6L, "1", null).summary());
+            aggregator.finishCustomers();
+
+            // Assert
+            assertThat(aggregator.customerCount()).isEqualTo(2);
+            assertThat(aggregator.customersOn(LocalDate.of(2025, 3, 2))).isEqualTo(1);
+            assertThat(aggregator.customersOn(LocalDate.of(2025, 3, 1))).isEqualTo(1);
+            assertThat(aggregator.customersOn(LocalDate.of(2025, 2, 28))).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Rounding")
+    class RoundingTests {
+
+        @Test
+        @DisplayName("✅ Should divide with half-up rounding")
+        void divideHalfUp_ShouldRoundHalfUp() {
+            // Assert
+            assertThat(RevenueAggregator.divideHalfUp(15, 10)).isEqualTo(2);
+            assertThat(RevenueAggregator.divideHalfUp(14, 10)).isEqualTo(1);
+            assertThat(RevenueAggregator.divideHalfUp(10, 3)).isEqualTo(3);
+            assertThat(RevenueAggregator.divideHalfUp(0, 7)).isZero();
+        }
+
+        @Test
+        @DisplayName("✅ Should convert amounts to minor units with half-up rounding")
+        void toMinor_ShouldRoundToTwoDecimals() {
+            // Assert
+            assertThat(RevenueAggregator.toMinor(new BigDecimal("12.345"))).isEqualTo(1_235);
+            assertThat(RevenueAggregator.toMinor(new BigDecimal("1000"))).isEqualTo(100_000);
+            assertThat(RevenueAggregator.toMinor(null)).isZero();
+            assertThat(RevenueAggregator.toAmount(1_235)).isEqualTo(12.35);
+        }
+    }
+}
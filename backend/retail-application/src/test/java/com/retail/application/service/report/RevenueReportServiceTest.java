@@ -0,0 +1,224 @@
+package com.retail.application.service.report;
+
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.DanhMuc;
+import com.retail.persistence.repository.DanhMucRepository;
+import com.retail.persistence.repository.HoaDonKhuyenMaiRepository;
+import com.retail.persistence.repository.HoaDonRepository;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.InvoiceSummary;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.ReportInvoice;
+import com.retail.persistence.repository.HoaDonRepositoryCustom.ReportLine;
+import com.retail.persistence.repository.SanPhamRepository;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RevenueReportService
+ * Tests the streamed revenue workbook built from a single pass over invoices and their lines
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RevenueReportService Unit Tests")
+class RevenueReportServiceTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    @Mock
+    private HoaDonRepository hoaDonRepository;
+    @Mock
+    private HoaDonKhuyenMaiRepository hoaDonKhuyenMaiRepository;
+    @Mock
+    private SanPhamRepository sanPhamRepository;
+    @Mock
+    private DanhMucRepository danhMucRepository;
+
+    private RevenueReportService revenueReportService;
+
+    @BeforeEach
+    void setUp() {
+        // Cửa sổ 2 dòng để dòng cũ bị ghi ra file tạm ngay trong test; khối 2 hóa đơn để có nhiều khối song song
+        revenueReportService = new RevenueReportService(hoaDonRepository, hoaDonKhuyenMaiRepository,
+                sanPhamRepository, danhMucRepository, new ExcelExportSupport(2), CHUNK_SIZE, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        revenueReportService.shutdown();
+    }
+
+    private static ReportInvoice invoice(String ma, LocalDateTime ngayTao, Long khachHangId, String thanhTien,
+                                         ReportLine... lines) {
+        return new ReportInvoice(new InvoiceSummary(ma, ngayTao, khachHangId,
+                khachHangId != null ? "Khách " + khachHangId : null,
+                new BigDecimal(thanhTien), BigDecimal.ZERO, new BigDecimal(thanhTien),
+                "CASH", Status.COMPLETED.name(), BigDecimal.ONE), List.of(lines));
+    }
+
+    private static ReportLine line(long sanPhamId, Long danhMucId, int soLuong, String thanhTien, String giamGia) {
+        return new ReportLine(sanPhamId, danhMucId, soLuong, new BigDecimal(thanhTien), new BigDecimal(giamGia));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenInvoices(ReportInvoice... invoices) {
+        doAnswer(invocation -> {
+            Consumer<List<ReportInvoice>> consumer = invocation.getArgument(4);
+            for (int from = 0; from < invoices.length; from += CHUNK_SIZE) {
+                consumer.accept(List.of(invoices).subList(from, Math.min(invoices.length, from + CHUNK_SIZE)));
+            }
+            return null;
+        }).when(hoaDonRepository).streamInvoiceLinesForReport(any(), any(), eq(Status.COMPLETED),
+                eq(CHUNK_SIZE), any(Consumer.class));
+    }
+
+    private Workbook export() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        revenueReportService.writeRevenueReportExcel(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2), out);
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Nested
+    @DisplayName("Write revenue report")
+    class WriteRevenueReportTests {
+
+        @Test
+        @DisplayName("✅ Should keep sheet order and write every streamed invoice")
+        void writeRevenueReportExcel_ShouldWriteAllSheets() throws Exception {
+            // Arrange - hóa đơn đến theo ngayTao giảm dần
+            givenInvoices(
+                    invoice("HD003", LocalDateTime.of(2025, 3, 2, 18, 0), 5L, "300000"),
+                    invoice("HD002", LocalDateTime.of(2025, 3, 2, 9, 0), null, "200000"),
+                    invoice("HD001", LocalDateTime.of(2025, 3, 1, 10, 0), 5L, "100000"));
+
+            // Act
+            try (Workbook workbook = export()) {
+                // Assert
+                assertThat(workbook.getNumberOfSheets()).isEqualTo(7);
+                assertThat(List.of(workbook.getSheetName(0), workbook.getSheetName(1), workbook.getSheetName(4)))
+                        .containsExactly("Tổng quan", "Doanh thu theo tháng", "Chi tiết đơn hàng");
+
+                Sheet details = workbook.getSheet("Chi tiết đơn hàng");
+                assertThat(details.getLastRowNum()).isEqualTo(3);
+                assertThat(details.getRow(1).getCell(0).getStringCellValue()).isEqualTo("HD003");
+                assertThat(details.getRow(2).getCell(2).getStringCellValue()).isEqualTo("Khách vãng lai");
+
+                Sheet overview = workbook.getSheet("Tổng quan");
+                assertThat(overview.getRow(3).getCell(1).getStringCellValue()).isEqualTo("3");
+                assertThat(overview.getRow(6).getCell(1).getNumericCellValue()).isEqualTo(600000.0);
+                assertThat(overview.getRow(8).getCell(1).getStringCellValue()).isEqualTo("1");
+            }
+        }
+
+        @Test
+        @DisplayName("✅ Should count orders and distinct customers per day")
+        void writeRevenueReportExcel_ShouldAggregateDailyStatistics() throws Exception {
+            // Arrange
+            givenInvoices(
+                    invoice("HD004", LocalDateTime.of(2025, 3, 2, 18, 0), 5L, "300000"),
+                    invoice("HD003", LocalDateTime.of(2025, 3, 2, 12, 0), 5L, "100000"),
+                    invoice("HD002", LocalDateTime.of(2025, 3, 2, 9, 0), 6L, "200000"),
+                    invoice("HD001", LocalDateTime.of(2025, 3, 1, 10, 0), 5L, "100000"));
+
+            // Act
+            try (Workbook workbook = export()) {
+                // Assert - ngày tăng dần
+                Sheet daily = workbook.getSheet("Thống kê theo ngày");
+                assertThat(daily.getRow(1).getCell(0).getStringCellValue()).isEqualTo("01/03/2025");
+                assertThat(daily.getRow(1).getCell(1).getNumericCellValue()).isEqualTo(1.0);
+                assertThat(daily.getRow(1).getCell(4).getNumericCellValue()).isEqualTo(1.0);
+
+                assertThat(daily.getRow(2).getCell(0).getStringCellValue()).isEqualTo("02/03/2025");
+                assertThat(daily.getRow(2).getCell(1).getNumericCellValue()).isEqualTo(3.0);
+                assertThat(daily.getRow(2).getCell(4).getNumericCellValue()).isEqualTo(2.0);
+                assertThat(daily.getRow(2).getCell(5).getNumericCellValue()).isEqualTo(200000.0);
+
+                Sheet monthly = workbook.getSheet("Doanh thu theo tháng");
+                assertThat(monthly.getRow(1).getCell(0).getStringCellValue()).isEqualTo("Tháng 03/2025");
+                assertThat(monthly.getRow(1).getCell(2).getNumericCellValue()).isEqualTo(4.0);
+
+                Sheet overview = workbook.getSheet("Tổng quan");
+                assertThat(overview.getRow(8).getCell(1).getStringCellValue()).isEqualTo("2");
+            }
+        }
+
+        @Test
+        @DisplayName("✅ Should total categories and top products from invoice lines")
+        void writeRevenueReportExcel_ShouldAggregateLines() throws Exception {
+            // Arrange
+            givenInvoices(
+                    invoice("HD003", LocalDateTime.of(2025, 3, 2, 18, 0), 5L, "230000",
+                            line(1L, 10L, 2, "200000", "20000"),
+                            line(2L, null, 1, "50000", "0")),
+                    invoice("HD002", LocalDateTime.of(2025, 3, 2, 9, 0), null, "0"),
+                    invoice("HD001", LocalDateTime.of(2025, 3, 1, 10, 0), 6L, "130000",
+                            line(1L, 10L, 1, "100000", "0"),
+                            line(3L, 10L, 3, "30000", "0")));
+            when(danhMucRepository.findAllById(List.of(10L)))
+                    .thenReturn(List.of(DanhMuc.builder().id(10L).tenDanhMuc("Đồ uống").build()));
+            when(sanPhamRepository.findReportLabelsByIds(List.of(1L, 2L, 3L))).thenReturn(List.of(
+                    new Object[]{1L, "SP001", "Cà phê", "Đồ uống"},
+                    new Object[]{2L, "SP002", "Bánh mì", null},
+                    new Object[]{3L, "SP003", "Trà", "Đồ uống"}));
+
+            // Act
+            try (Workbook workbook = export()) {
+                // Assert - doanh thu giảm dần
+                Sheet categories = workbook.getSheet("Doanh số theo danh mục");
+                assertThat(categories.getLastRowNum()).isEqualTo(2);
+                assertThat(categories.getRow(1).getCell(0).getStringCellValue()).isEqualTo("Đồ uống");
+                assertThat(categories.getRow(1).getCell(1).getNumericCellValue()).isEqualTo(330000.0);
+                assertThat(categories.getRow(1).getCell(2).getNumericCellValue()).isEqualTo(6.0);
+                assertThat(categories.getRow(1).getCell(3).getNumericCellValue()).isEqualTo(0.8684);
+                assertThat(categories.getRow(1).getCell(4).getNumericCellValue()).isEqualTo(20000.0);
+                assertThat(categories.getRow(2).getCell(0).getStringCellValue()).isEqualTo("Không phân loại");
+
+                Sheet products = workbook.getSheet("Sản phẩm bán chạy");
+                assertThat(products.getLastRowNum()).isEqualTo(3);
+                assertThat(products.getRow(1).getCell(1).getStringCellValue()).isEqualTo("SP001");
+                assertThat(products.getRow(1).getCell(4).getNumericCellValue()).isEqualTo(3.0);
+                assertThat(products.getRow(1).getCell(5).getNumericCellValue()).isEqualTo(300000.0);
+                assertThat(products.getRow(1).getCell(6).getNumericCellValue()).isEqualTo(100000.0);
+                assertThat(products.getRow(1).getCell(7).getNumericCellValue()).isEqualTo(20000.0);
+                assertThat(products.getRow(2).getCell(3).getStringCellValue()).isEqualTo("Không phân loại");
+                assertThat(products.getRow(3).getCell(2).getStringCellValue()).isEqualTo("Trà");
+            }
+        }
+
+        @Test
+        @DisplayName("✅ Should order months across a year boundary")
+        void writeRevenueReportExcel_ShouldOrderMonthsAcrossYears() throws Exception {
+            // Arrange
+            givenInvoices(
+                    invoice("HD002", LocalDateTime.of(2025, 1, 2, 9, 0), null, "200000"),
+                    invoice("HD001", LocalDateTime.of(2024, 12, 31, 10, 0), null, "100000"));
+
+            // Act
+            try (Workbook workbook = export()) {
+                // Assert
+                Sheet monthly = workbook.getSheet("Doanh thu theo tháng");
+                assertThat(monthly.getRow(1).getCell(0).getStringCellValue()).isEqualTo("Tháng 12/2024");
+                assertThat(monthly.getRow(2).getCell(0).getStringCellValue()).isEqualTo("Tháng 01/2025");
+                assertThat(monthly.getRow(2).getCell(3).getNumericCellValue()).isEqualTo(20000.0);
+            }
+        }
+    }
+}
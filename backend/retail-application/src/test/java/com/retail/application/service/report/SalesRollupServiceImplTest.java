@@ -0,0 +1,269 @@
+package com.retail.application.service.report;
+
+import com.retail.application.service.cache.CacheInvalidationService;
+import com.retail.application.service.outbox.OutboxService;
+import com.retail.common.exception.BusinessException;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.ChiTietHoaDon;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.KhachHang;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.domain.entity.SanPham;
+import com.retail.persistence.repository.DoanhSoNgayRepository;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.ProductDelta;
+import com.retail.persistence.repository.DoanhSoNgayRepositoryCustom.SalesDelta;
+import com.retail.persistence.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SalesRollupServiceImpl
+ * Tests enqueuing invoice deltas, applying batches per branch day and rebuilding rollup days
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SalesRollupServiceImpl Unit Tests")
+class SalesRollupServiceImplTest {
+
+    @Mock
+    private DoanhSoNgayRepository doanhSoNgayRepository;
+    @Mock
+    private CacheInvalidationService cacheInvalidationService;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SalesRollupServiceImpl salesRollupService;
+
+    @BeforeEach
+    void setUp() {
+        salesRollupService = new SalesRollupServiceImpl(doanhSoNgayRepository, cacheInvalidationService,
+                outboxService, outboxEventRepository, transactionManager, 3);
+    }
+
+    private static HoaDon invoice(Long khachHangId) {
+        HoaDon hoaDon = HoaDon.builder()
+                .id(1L)
+                .chiNhanh(ChiNhanh.builder().id(2L).build())
+                .khachHang(khachHangId != null ? KhachHang.builder().id(khachHangId).build() : null)
+                .ngayTao(LocalDateTime.of(2025, 3, 1, 10, 0))
+                .tongTien(new BigDecimal("160000"))
+                .giamGia(new BigDecimal("10000"))
+                .thanhTien(new BigDecimal("150000"))
+                .build();
+        hoaDon.addChiTiet(line(20L, 2, "100000"));
+        hoaDon.addChiTiet(line(10L, 1, "40000"));
+        hoaDon.addChiTiet(line(20L, 1, "20000"));
+        return hoaDon;
+    }
+
+    private static ChiTietHoaDon line(Long sanPhamId, int soLuong, String thanhTien) {
+        return ChiTietHoaDon.builder()
+                .sanPham(SanPham.builder().id(sanPhamId).build())
+                .soLuong(soLuong)
+                .thanhTien(new BigDecimal(thanhTien))
+                .build();
+    }
+
+    private static SalesDelta delta(long chiNhanhId, LocalDate ngay, int sign, Long khachHangId, Long sanPhamId) {
+        BigDecimal amount = BigDecimal.valueOf(sign * 100000L);
+        SortedMap<Long, Integer> customers = new TreeMap<>();
+        if (khachHangId != null) {
+            customers.put(khachHangId, sign);
+        }
+        SortedMap<Long, ProductDelta> products = new TreeMap<>();
+        products.put(sanPhamId, new ProductDelta(sign, amount));
+        return new SalesDelta(chiNhanhId, ngay, sign, amount, BigDecimal.ZERO, amount, customers, products);
+    }
+
+    @Nested
+    @DisplayName("Invoice deltas")
+    class DeltaTests {
+
+        @Test
+        @DisplayName("✅ Should enqueue the delta instead of writing the rollup in the checkout transaction")
+        void recordCompleted_ShouldEnqueueDelta() {
+            // Arrange
+            ArgumentCaptor<SalesDelta> captor = ArgumentCaptor.forClass(SalesDelta.class);
+
+            // Act
+            salesRollupService.recordCompleted(invoice(5L));
+
+            // Assert
+            verify(outboxService).enqueue(eq(OutboxEvent.EventType.SALES_ROLLUP), eq(1L), captor.capture());
+            SalesDelta delta = captor.getValue();
+            assertThat(delta.chiNhanhId()).isEqualTo(2L);
+            assertThat(delta.ngay()).isEqualTo(LocalDate.of(2025, 3, 1));
+            assertThat(delta.customers()).containsExactly(entry(5L, 1));
+            assertThat(delta.soDon()).isEqualTo(1);
+            assertThat(delta.thanhTien()).isEqualByComparingTo("150000");
+            verifyNoInteractions(doanhSoNgayRepository, cacheInvalidationService);
+        }
+
+        @Test
+        @DisplayName("✅ Should merge lines of the same product in product id order")
+        void toDelta_ShouldMergeLinesPerProduct() {
+            // Act
+            SalesDelta delta = SalesRollupServiceImpl.toDelta(invoice(5L), 1);
+
+            // Assert
+            assertThat(delta.products().keySet()).containsExactly(10L, 20L);
+            assertThat(delta.products().get(20L).soLuong()).isEqualTo(3);
+            assertThat(delta.products().get(20L).thanhTien()).isEqualByComparingTo("120000");
+        }
+
+        @Test
+        @DisplayName("✅ Should negate every amount when an invoice is cancelled")
+        void toDelta_ShouldNegateForCancellation() {
+            // Act
+            SalesDelta delta = SalesRollupServiceImpl.toDelta(invoice(null), -1);
+
+            // Assert
+            assertThat(delta.customers()).isEmpty();
+            assertThat(delta.soDon()).isEqualTo(-1);
+            assertThat(delta.tongTien()).isEqualByComparingTo("-160000");
+            assertThat(delta.giamGia()).isEqualByComparingTo("-10000");
+            assertThat(delta.thanhTien()).isEqualByComparingTo("-150000");
+            assertThat(delta.products().get(10L).soLuong()).isEqualTo(-1);
+            assertThat(delta.products().get(10L).thanhTien()).isEqualByComparingTo("-40000");
+        }
+    }
+
+    @Nested
+    @DisplayName("Apply batch")
+    class ApplyTests {
+
+        @Test
+        @DisplayName("✅ Should write each branch day once, in branch then day order")
+        void apply_ShouldMergePerBranchDay() {
+            // Arrange
+            LocalDate today = LocalDate.now();
+            List<SalesDelta> deltas = List.of(
+                    delta(3L, today, 1, 5L, 10L),
+                    delta(2L, today, 1, 5L, 10L),
+                    delta(3L, today, 1, 6L, 20L),
+                    delta(2L, today, 1, null, 10L));
+            ArgumentCaptor<SalesDelta> captor = ArgumentCaptor.forClass(SalesDelta.class);
+
+            // Act
+            salesRollupService.apply(deltas);
+
+            // Assert
+            verify(doanhSoNgayRepository, times(2)).addDelta(captor.capture());
+            SalesDelta branch2 = captor.getAllValues().get(0);
+            SalesDelta branch3 = captor.getAllValues().get(1);
+            assertThat(branch2.chiNhanhId()).isEqualTo(2L);
+            assertThat(branch2.soDon()).isEqualTo(2);
+            assertThat(branch2.thanhTien()).isEqualByComparingTo("200000");
+            assertThat(branch2.customers()).containsExactly(entry(5L, 1));
+            assertThat(branch2.products().get(10L).soLuong()).isEqualTo(2);
+            assertThat(branch3.chiNhanhId()).isEqualTo(3L);
+            assertThat(branch3.customers()).containsExactly(entry(5L, 1), entry(6L, 1));
+            assertThat(branch3.products().keySet()).containsExactly(10L, 20L);
+            // Hôm nay không được cache
+            verify(doanhSoNgayRepository, never()).bumpVersion(anyLong(), any());
+            verifyNoInteractions(cacheInvalidationService);
+        }
+
+        @Test
+        @DisplayName("✅ Should drop entries cancelled in the same batch and evict past days")
+        void apply_WithCancelledInSameBatch_ShouldCancelOut() {
+            // Arrange
+            LocalDate day = LocalDate.of(2025, 3, 1);
+            ArgumentCaptor<SalesDelta> captor = ArgumentCaptor.forClass(SalesDelta.class);
+
+            // Act
+            salesRollupService.apply(List.of(delta(2L, day, 1, 5L, 10L), delta(2L, day, -1, 5L, 10L)));
+
+            // Assert
+            verify(doanhSoNgayRepository).addDelta(captor.capture());
+            assertThat(captor.getValue().soDon()).isZero();
+            assertThat(captor.getValue().customers()).isEmpty();
+            assertThat(captor.getValue().products()).isEmpty();
+            verify(doanhSoNgayRepository).bumpVersion(2L, day);
+            verify(cacheInvalidationService).evictDashboardDay(day);
+        }
+    }
+
+    @Nested
+    @DisplayName("Rebuild")
+    class RebuildTests {
+
+        @Test
+        @DisplayName("✅ Should rebuild each day in its own transaction")
+        void rebuild_ShouldRebuildEveryDay() {
+            // Arrange
+            when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+            when(doanhSoNgayRepository.tryLockDayForRebuild(any())).thenReturn(true);
+
+            // Act
+            int days = salesRollupService.rebuild(LocalDate.of(2025, 2, 27), LocalDate.of(2025, 3, 1));
+
+            // Assert
+            assertThat(days).isEqualTo(3);
+            InOrder inOrder = inOrder(doanhSoNgayRepository, outboxEventRepository);
+            inOrder.verify(doanhSoNgayRepository).tryLockDayForRebuild(LocalDate.of(2025, 2, 27));
+            inOrder.verify(outboxEventRepository).markPendingProcessedForInvoices(eq(OutboxEvent.EventType.SALES_ROLLUP),
+                    eq(LocalDateTime.of(2025, 2, 27, 0, 0)), eq(LocalDateTime.of(2025, 2, 28, 0, 0)), any());
+            inOrder.verify(doanhSoNgayRepository).rebuildDay(LocalDate.of(2025, 2, 27));
+            verify(doanhSoNgayRepository).rebuildDay(LocalDate.of(2025, 2, 27));
+            verify(doanhSoNgayRepository).rebuildDay(LocalDate.of(2025, 2, 28));
+            verify(doanhSoNgayRepository).rebuildDay(LocalDate.of(2025, 3, 1));
+            verify(transactionManager, times(3)).commit(any());
+            verify(cacheInvalidationService).evictDashboardDay(LocalDate.of(2025, 2, 28));
+        }
+
+        @Test
+        @DisplayName("✅ Should skip a day another node is rebuilding")
+        void rebuild_WhenDayLocked_ShouldSkipDay() {
+            // Arrange
+            when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+            when(doanhSoNgayRepository.tryLockDayForRebuild(LocalDate.of(2025, 2, 28))).thenReturn(true);
+            when(doanhSoNgayRepository.tryLockDayForRebuild(LocalDate.of(2025, 3, 1))).thenReturn(false);
+
+            // Act
+            int days = salesRollupService.rebuild(LocalDate.of(2025, 2, 28), LocalDate.of(2025, 3, 1));
+
+            // Assert
+            assertThat(days).isEqualTo(1);
+            verify(doanhSoNgayRepository).rebuildDay(LocalDate.of(2025, 2, 28));
+            verify(doanhSoNgayRepository, never()).rebuildDay(LocalDate.of(2025, 3, 1));
+            verify(outboxEventRepository).markPendingProcessedForInvoices(any(), any(), any(), any());
+            verify(cacheInvalidationService, never()).evictDashboardDay(LocalDate.of(2025, 3, 1));
+        }
+
+        @Test
+        @DisplayName("❌ Should reject a reversed or too long range")
+        void rebuild_ShouldRejectInvalidRange() {
+            // Act & Assert
+            assertThatThrownBy(() -> salesRollupService.rebuild(LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1)))
+                    .isInstanceOf(BusinessException.class);
+            assertThatThrownBy(() -> salesRollupService.rebuild(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 3, 1)))
+                    .isInstanceOf(BusinessException.class);
+            verifyNoInteractions(doanhSoNgayRepository, cacheInvalidationService, outboxEventRepository,
+                    transactionManager);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.retail.benchmarks;
+
+import com.retail.application.dto.CartItemDTO;
+import com.retail.common.constant.PromotionType;
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.ChiTietHoaDon;
+import com.retail.domain.entity.ChiTietKhuyenMai;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.KhachHang;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.NhanVien;
+import com.retail.domain.entity.SanPham;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Dữ liệu mẫu cho benchmark - sinh từ seed cố định để các lần chạy so sánh được với nhau
+ */
+public final class BenchmarkData {
+
+    public static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Danh mục sản phẩm id 1..count, giá 5.000 - 200.000đ (làm tròn nghìn)
+     */
+    public static Map<Long, SanPham> products(int count, Random random) {
+        Map<Long, SanPham> products = new LinkedHashMap<>();
+        for (long id = 1; id <= count; id++) {
+            products.put(id, SanPham.builder()
+                    .id(id)
+                    .maSanPham(String.format("SP%05d", id))
+                    .barcode(String.format("893%010d", id))
+                    .tenSanPham("Sản phẩm " + id)
+                    .giaBan(BigDecimal.valueOf((5 + random.nextInt(196)) * 1_000L))
+                    .tonKho(1_000)
+                    .trangThai(Status.ACTIVE)
+                    .build());
+        }
+        return products;
+    }
+
+    /**
+     * Giỏ hàng {@code lines} dòng, mỗi dòng 1 sản phẩm khác nhau, số lượng 1-6
+     */
+    public static List<CartItemDTO> cart(Map<Long, SanPham> products, int lines, Random random) {
+        List<SanPham> catalog = new ArrayList<>(products.values());
+        List<CartItemDTO> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            SanPham sanPham = catalog.get(i % catalog.size());
+            items.add(CartItemDTO.builder()
+                    .sanPhamId(sanPham.getId())
+                    .soLuong(1 + random.nextInt(6))
+                    .donGia(sanPham.getGiaBan())
+                    .build());
+        }
+        return items;
+    }
+
+    public static BigDecimal total(List<CartItemDTO> items) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItemDTO item : items) {
+            total = total.add(item.getDonGia().multiply(BigDecimal.valueOf(item.getSoLuong())));
+        }
+        return total;
+    }
+
+    /**
+     * {@code count} khuyến mãi đang hiệu lực cùng loại, mỗi khuyến mãi áp dụng cho 1-3 sản phẩm
+     * lấy ngẫu nhiên trong danh mục (một phần nằm trong giỏ, một phần không)
+     */
+    public static List<KhuyenMai> promotions(PromotionType type, int count, Map<Long, SanPham> products, Random random) {
+        List<SanPham> catalog = new ArrayList<>(products.values());
+        List<KhuyenMai> promotions = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            KhuyenMai khuyenMai = KhuyenMai.builder()
+                    .id(id)
+                    .maKhuyenMai("KM" + id)
+                    .tenKhuyenMai("Khuyến mãi " + id)
+                    .loaiKhuyenMai(type)
+                    .ngayBatDau(LocalDateTime.now().minusDays(1))
+                    .ngayKetThuc(LocalDateTime.now().plusDays(30))
+                    .giaTriKhuyenMai(type == PromotionType.PERCENTAGE ? BigDecimal.TEN : BigDecimal.valueOf(10_000))
+                    .giamToiDa(BigDecimal.valueOf(100_000))
+                    .soLuongMua(2)
+                    .soLuongTang(1)
+                    .build();
+            int applicable = 1 + random.nextInt(3);
+            for (int i = 0; i < applicable; i++) {
+                khuyenMai.addChiTiet(ChiTietKhuyenMai.builder()
+                        .sanPham(catalog.get(random.nextInt(catalog.size())))
+                        .build());
+            }
+            promotions.add(khuyenMai);
+        }
+        return promotions;
+    }
+
+    /**
+     * Hóa đơn COMPLETED đầy đủ quan hệ (khách hàng, nhân viên, chi nhánh) với {@code lines} dòng
+     */
+    public static HoaDon invoice(long id, Map<Long, SanPham> products, int lines, Random random) {
+        HoaDon hoaDon = HoaDon.builder()
+                .id(id)
+                .maHoaDon(String.format("HD01-%06d", id))
+                .khachHang(KhachHang.builder().id(1L).tenKhachHang("Nguyễn Văn A").soDienThoai("0901234567").build())
+                .nhanVien(NhanVien.builder().id(1L).tenNhanVien("Thu ngân 1").build())
+                .chiNhanh(ChiNhanh.builder().id(1L).tenChiNhanh("Chi nhánh 1").build())
+                .ngayTao(LocalDateTime.now())
+                .phuongThucThanhToan("CASH")
+                .trangThai(Status.COMPLETED)
+                .build();
+        BigDecimal tongTien = BigDecimal.ZERO;
+        for (CartItemDTO item : cart(products, lines, random)) {
+            ChiTietHoaDon chiTiet = ChiTietHoaDon.builder()
+                    .sanPham(products.get(item.getSanPhamId()))
+                    .soLuong(item.getSoLuong())
+                    .donGia(item.getDonGia())
+                    .build();
+            chiTiet.calculateThanhTien();
+            hoaDon.addChiTiet(chiTiet);
+            tongTien = tongTien.add(chiTiet.getThanhTien());
+        }
+        hoaDon.setTongTien(tongTien);
+        hoaDon.setThanhTien(tongTien);
+        return hoaDon;
+    }
+
+    /**
+     * Repository giả: trả kết quả cố định theo tên method, method khác ném UnsupportedOperationException
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T stubRepository(Class<T> type, Map<String, Object> results) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (results.containsKey(method.getName())) {
+                return results.get(method.getName());
+            }
+            switch (method.getName()) {
+                case "toString":
+                    return type.getSimpleName() + "Stub";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+        });
+    }
+
+    /**
+     * Transaction manager không làm gì - cho các thành phần tự mở transaction bằng TransactionTemplate
+     */
+    public static PlatformTransactionManager noOpTransactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.retail.benchmarks;
+
+import com.retail.application.config.RedisConfig;
+import com.retail.application.config.codec.CacheValueSerializer;
+import com.retail.application.dto.InvoiceDTO;
+import com.retail.application.mapper.InvoiceMapperImpl;
+import com.retail.domain.entity.SanPham;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializer giá trị cache của RedisConfig - ghi/đọc 1 InvoiceDTO theo số dòng, JSON (có type info)
+ * so với codec nhị phân; kích thước payload in ra lúc setup
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSerializerBenchmark {
+
+    @Param({"1", "10", "50", "200"})
+    public int invoiceLines;
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private CacheValueSerializer serializer;
+    private InvoiceDTO invoice;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        serializer = RedisConfig.createCacheSerializer("binary".equals(codec));
+        Random random = new Random(BenchmarkData.SEED);
+        Map<Long, SanPham> products = BenchmarkData.products(invoiceLines, random);
+        invoice = new InvoiceMapperImpl().toDto(BenchmarkData.invoice(1L, products, invoiceLines, random));
+        serialized = serializer.serialize(invoice);
+        System.out.printf("%n%s, %d lines: %d bytes%n", codec, invoiceLines, serialized.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(invoice);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+}
@@ -0,0 +1,60 @@
+package com.retail.benchmarks;
+
+import com.retail.application.dto.InvoiceDTO;
+import com.retail.application.mapper.InvoiceMapper;
+import com.retail.application.mapper.InvoiceMapperImpl;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.SanPham;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct InvoiceMapper.toDtoList - danh sách hóa đơn (báo cáo, lịch sử khách hàng) kèm chi tiết
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceMapperBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int invoiceCount;
+
+    @Param({"1", "10", "200"})
+    public int linesPerInvoice;
+
+    private final InvoiceMapper invoiceMapper = new InvoiceMapperImpl();
+    private List<HoaDon> invoices;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        Map<Long, SanPham> products = BenchmarkData.products(linesPerInvoice, random);
+        invoices = new ArrayList<>(invoiceCount);
+        for (long id = 1; id <= invoiceCount; id++) {
+            invoices.add(BenchmarkData.invoice(id, products, linesPerInvoice, random));
+        }
+    }
+
+    @Benchmark
+    public List<InvoiceDTO> toDtoList() {
+        return invoiceMapper.toDtoList(invoices);
+    }
+}
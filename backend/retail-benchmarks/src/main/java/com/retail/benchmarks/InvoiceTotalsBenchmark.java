@@ -0,0 +1,68 @@
+package com.retail.benchmarks;
+
+import com.retail.application.dto.CartItemDTO;
+import com.retail.application.service.pos.InvoiceTotals;
+import com.retail.domain.entity.ChiTietHoaDon;
+import com.retail.domain.entity.HoaDon;
+import com.retail.domain.entity.SanPham;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tính tiền hóa đơn tại quầy: ChiTietHoaDon.calculateThanhTien và tổng tiền / thành tiền / điểm tích lũy
+ * của PosServiceImpl (InvoiceTotals) theo kích thước giỏ hàng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceTotalsBenchmark {
+
+    @Param({"1", "10", "50", "200"})
+    public int cartLines;
+
+    private Map<Long, SanPham> products;
+    private List<CartItemDTO> cart;
+    private ChiTietHoaDon line;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        products = BenchmarkData.products(cartLines, random);
+        cart = BenchmarkData.cart(products, cartLines, random);
+        line = ChiTietHoaDon.builder().soLuong(3).donGia(BigDecimal.valueOf(125_000)).build();
+    }
+
+    @Benchmark
+    public BigDecimal calculateLineAmount() {
+        line.calculateThanhTien();
+        return line.getThanhTien();
+    }
+
+    @Benchmark
+    public void invoiceTotals(Blackhole blackhole) {
+        HoaDon hoaDon = HoaDon.builder().build();
+        BigDecimal tongTien = InvoiceTotals.addInvoiceLines(hoaDon, cart, products);
+        BigDecimal thanhTien = InvoiceTotals.finalAmount(tongTien, BigDecimal.valueOf(5_000));
+        blackhole.consume(hoaDon);
+        blackhole.consume(InvoiceTotals.loyaltyPoints(thanhTien));
+    }
+}
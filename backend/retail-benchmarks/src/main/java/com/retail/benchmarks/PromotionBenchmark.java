@@ -0,0 +1,100 @@
+package com.retail.benchmarks;
+
+import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.CartItemDTO;
+import com.retail.application.service.promotion.PromotionIndex;
+import com.retail.application.service.promotion.PromotionServiceImpl;
+import com.retail.common.constant.PromotionType;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.SanPham;
+import com.retail.persistence.repository.ChiTietKhuyenMaiRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PromotionServiceImpl.applyPromotionsToCart theo từng loại khuyến mãi, số dòng giỏ hàng và số khuyến mãi đang chạy.
+ * PromotionIndex nạp 1 lần từ repository stub - chỉ đo phần tính toán
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionBenchmark {
+
+    @Param({"PERCENTAGE", "BOGO", "BUNDLE", "BUY_X_GET_Y"})
+    public PromotionType promotionType;
+
+    @Param({"1", "10", "50", "200"})
+    public int cartLines;
+
+    @Param({"1", "50", "500"})
+    public int promotionCount;
+
+    private PromotionServiceImpl promotionService;
+    private List<CartItemDTO> cart;
+    private BigDecimal total;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        // Danh mục gấp đôi giỏ hàng: khoảng một nửa sản phẩm khuyến mãi nằm ngoài giỏ
+        Map<Long, SanPham> products = BenchmarkData.products(Math.max(cartLines * 2, 20), random);
+        cart = BenchmarkData.cart(products, cartLines, random);
+        total = BenchmarkData.total(cart);
+
+        List<KhuyenMai> promotions = BenchmarkData.promotions(promotionType, promotionCount, products, random);
+        KhuyenMaiRepository khuyenMaiRepository = BenchmarkData.stubRepository(KhuyenMaiRepository.class, Map.of(
+                "findIndexablePromotions", promotions,
+                "findChangeMarker", new KhuyenMaiRepository.ChangeMarker() {
+                    @Override
+                    public long getTotal() {
+                        return promotions.size();
+                    }
+
+                    @Override
+                    public LocalDateTime getLastUpdated() {
+                        return null;
+                    }
+                }));
+        ChiTietKhuyenMaiRepository chiTietKhuyenMaiRepository = BenchmarkData.stubRepository(ChiTietKhuyenMaiRepository.class, Map.of(
+                "findChangeMarker", new ChiTietKhuyenMaiRepository.ChangeMarker() {
+                    @Override
+                    public long getTotal() {
+                        return 0;
+                    }
+
+                    @Override
+                    public Long getLastId() {
+                        return null;
+                    }
+                }));
+        PromotionIndex promotionIndex = new PromotionIndex(khuyenMaiRepository, chiTietKhuyenMaiRepository,
+                BenchmarkData.noOpTransactionManager());
+        promotionIndex.rebuild();
+        promotionService = new PromotionServiceImpl(khuyenMaiRepository, null, null, null, null, promotionIndex, null, null);
+    }
+
+    @Benchmark
+    public Map<Long, AppliedPromotionDTO> applyPromotionsToCart() {
+        return promotionService.applyPromotionsToCart(1L, cart, total);
+    }
+}
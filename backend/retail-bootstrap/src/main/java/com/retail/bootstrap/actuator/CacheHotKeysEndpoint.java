@@ -0,0 +1,45 @@
+package com.retail.bootstrap.actuator;
+
+import com.retail.application.config.CacheMetrics;
+import com.retail.application.config.CacheMetrics.HotKey;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Key cache được đọc nhiều nhất trên node này theo số lần lấy mẫu (xem CacheMetrics)
+ *
+ * GET /actuator/cachehotkeys?limit=20 - mọi cache
+ * GET /actuator/cachehotkeys/products?limit=20 - 1 cache
+ */
+@Component
+@Endpoint(id = "cachehotkeys")
+public class CacheHotKeysEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 500;
+
+    private final CacheMetrics cacheMetrics;
+
+    public CacheHotKeysEndpoint(CacheMetrics cacheMetrics) {
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    @ReadOperation
+    public List<HotKey> hotKeys(@Nullable Integer limit) {
+        return cacheMetrics.hotKeys(null, limit(limit));
+    }
+
+    @ReadOperation
+    public List<HotKey> hotKeysOfCache(@Selector String cache, @Nullable Integer limit) {
+        return cacheMetrics.hotKeys(cache, limit(limit));
+    }
+
+    private static int limit(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+    }
+}
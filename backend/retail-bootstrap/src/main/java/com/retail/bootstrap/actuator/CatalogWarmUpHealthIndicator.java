@@ -0,0 +1,44 @@
+package com.retail.bootstrap.actuator;
+
+import com.retail.application.dto.CatalogWarmUpDTO;
+import com.retail.application.service.cache.CatalogWarmUpService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trả về WARMING_UP tới khi warm-up danh mục lúc khởi động kết thúc - readiness trả 503, load balancer chưa gửi
+ * request quét barcode tới node có cache còn lạnh. Warm-up lỗi vẫn UP (cache chỉ giúp nhanh hơn), chi tiết ở details
+ *
+ * WARMING_UP chỉ có trong status.order của group readiness (management.endpoint.health.group.readiness);
+ * /actuator/health (aggregator mặc định bỏ qua status không có trong order) vẫn UP - node đang warm-up
+ * không bị coi là hỏng
+ */
+@Component("catalogWarmUp")
+public class CatalogWarmUpHealthIndicator implements HealthIndicator {
+
+    static final Status WARMING_UP = new Status("WARMING_UP", "Catalog cache warm-up in progress");
+
+    private final CatalogWarmUpService catalogWarmUpService;
+
+    public CatalogWarmUpHealthIndicator(CatalogWarmUpService catalogWarmUpService) {
+        this.catalogWarmUpService = catalogWarmUpService;
+    }
+
+    @Override
+    public Health health() {
+        CatalogWarmUpDTO status = catalogWarmUpService.getStatus();
+        Health.Builder builder = catalogWarmUpService.isStartupComplete() ? Health.up() : Health.status(WARMING_UP);
+        builder.withDetail("status", status.getStatus());
+        if (status.getTrigger() != null) {
+            builder.withDetail("branches", status.getBranchesDone() + "/" + status.getBranchesTotal())
+                    .withDetail("productsLoaded", status.getProductsLoaded())
+                    .withDetail("durationMs", status.getDurationMs());
+        }
+        if (status.getError() != null) {
+            builder.withDetail("error", status.getError());
+        }
+        return builder.build();
+    }
+}
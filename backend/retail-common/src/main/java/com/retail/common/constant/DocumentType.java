@@ -0,0 +1,56 @@
+package com.retail.common.constant;
+
+/**
+ * Enum loại chứng từ - mỗi loại có tiền tố mã và bộ đếm riêng
+ */
+public enum DocumentType {
+    /**
+     * Hóa đơn bán hàng (đếm theo chi nhánh)
+     */
+    HOA_DON("HD"),
+
+    /**
+     * Giao dịch thanh toán
+     */
+    PAYMENT("PAY"),
+
+    /**
+     * Khách hàng
+     */
+    KHACH_HANG("KH"),
+
+    /**
+     * Phiếu nhập hàng (đếm theo chi nhánh)
+     */
+    NHAP_HANG("NH"),
+
+    /**
+     * Phiếu trả hàng (đếm theo chi nhánh)
+     */
+    TRA_HANG("TH"),
+
+    /**
+     * Phiếu nhập nguyên liệu
+     */
+    NHAP_NGUYEN_LIEU("NHAP"),
+
+    /**
+     * Phiếu xuất nguyên liệu
+     */
+    XUAT_NGUYEN_LIEU("XUAT"),
+
+    /**
+     * Phiếu điều chỉnh nguyên liệu
+     */
+    DIEU_CHINH_NGUYEN_LIEU("DC");
+
+    private final String prefix;
+
+    DocumentType(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+}
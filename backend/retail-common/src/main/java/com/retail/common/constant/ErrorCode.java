@@ -19,6 +19,8 @@ public final class ErrorCode {
     public static final String EMPLOYEE_NOT_FOUND = "ERR_EMPLOYEE_NOT_FOUND";
     public static final String INVALID_CREDENTIALS = "ERR_INVALID_CREDENTIALS";
     public static final String HARDWARE_ERROR = "ERR_HARDWARE_ERROR";
+    public static final String REPORT_QUEUE_FULL = "ERR_REPORT_QUEUE_FULL";
+    public static final String REPORT_NOT_READY = "ERR_REPORT_NOT_READY";
 
     private ErrorCode() {}
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.retail.common.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache trong bộ nhớ giới hạn số entry (LRU) và thời gian sống của mỗi entry
+ *
+ * Chia thành nhiều đoạn theo hash của khóa, mỗi đoạn là 1 LinkedHashMap theo thứ tự truy cập có khóa riêng -
+ * các thread đọc khóa khác nhau ít khi tranh nhau. Mỗi đoạn giữ tối đa maxSize / số đoạn entry, vượt quá thì
+ * bỏ entry lâu nhất chưa được đọc của đoạn đó (LRU gần đúng; cache nhỏ chỉ có 1 đoạn nên LRU chính xác);
+ * entry hết hạn bị bỏ khi đọc tới
+ */
+public final class LruCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final Segment<K, V>[] segments;
+    private final int mask;
+    private final long ttlNanos;
+
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive");
+        }
+        // Số đoạn là lũy thừa của 2, mỗi đoạn ít nhất MIN_SEGMENT_SIZE entry
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maxSize / MIN_SEGMENT_SIZE)));
+        int capacity = (maxSize + count - 1) / count;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(capacity);
+        }
+        this.mask = count - 1;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    /**
+     * @return null khi không có hoặc đã hết hạn
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt > 0) {
+                segment.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Số entry đang giữ (gồm cả entry hết hạn chưa bị đọc tới)
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.retail.common.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bánh xe hẹn giờ (hashed timer wheel) - mỗi khóa có tối đa 1 hạn đang chờ
+ *
+ * Hạn được xếp vào ô theo tick (deadline / tickMillis); advance() chỉ duyệt các ô của những tick vừa trôi qua
+ * nên chi phí không phụ thuộc số hạn đang chờ. Hạn xa hơn 1 vòng bánh xe nằm chung ô, chỉ lấy ra khi tới tick.
+ *
+ * Hẹn lại cùng khóa: giữ hạn sớm hơn (hạn muộn hơn bị bỏ qua); entry cũ còn trong ô bị bỏ qua khi tới hạn
+ */
+public final class TimerWheel<K> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Entry<K>>[] buckets;
+    private final Map<K, Long> pending = new HashMap<>();
+    private long currentTick; // Tick cuối cùng đã xử lý
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Hẹn khóa tới hạn tại deadlineMillis (hạn đã qua thì tới hạn ở lần advance kế tiếp)
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        Long existing = pending.get(key);
+        if (existing != null && existing <= deadlineMillis) {
+            return;
+        }
+        long tick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        buckets[(int) (tick & mask)].add(new Entry<>(key, deadlineMillis, tick));
+        pending.put(key, deadlineMillis);
+    }
+
+    /**
+     * Chuyển bánh xe tới nowMillis
+     *
+     * @return các khóa đã tới hạn (mỗi khóa 1 lần)
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (targetTick <= currentTick) {
+            return List.of();
+        }
+        List<K> due = new ArrayList<>();
+        // Trễ hơn 1 vòng (tick bị lỡ, máy ngủ...) thì chỉ cần duyệt mỗi ô 1 lần
+        long fromTick = Math.max(currentTick + 1, targetTick - mask);
+        for (long tick = fromTick; tick <= targetTick; tick++) {
+            Iterator<Entry<K>> iterator = buckets[(int) (tick & mask)].iterator();
+            while (iterator.hasNext()) {
+                Entry<K> entry = iterator.next();
+                if (entry.tick() > targetTick) {
+                    continue; // Hạn của vòng sau
+                }
+                iterator.remove();
+                Long deadline = pending.get(entry.key());
+                if (deadline != null && deadline == entry.deadlineMillis()) {
+                    pending.remove(entry.key());
+                    due.add(entry.key());
+                }
+            }
+        }
+        currentTick = targetTick;
+        return due;
+    }
+
+    public synchronized Long deadlineOf(K key) {
+        return pending.get(key);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private record Entry<K>(K key, long deadlineMillis, long tick) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Rollup doanh số theo chi nhánh x ngày (chỉ hóa đơn COMPLETED).
+ * Cộng dồn khi hóa đơn hoàn tất / bị hủy, dựng lại định kỳ từ hoa_don (xem SalesRollupService)
+ */
+@Entity
+@Table(name = "doanh_so_ngay", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_doanh_so_ngay", columnNames = {"chi_nhanh_id", "ngay"})
+}, indexes = {
+        @Index(name = "idx_doanh_so_ngay_ngay", columnList = "ngay")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoanhSoNgay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "chi_nhanh_id", nullable = false)
+    private Long chiNhanhId;
+
+    @Column(name = "ngay", nullable = false)
+    private LocalDate ngay;
+
+    @Column(name = "so_don", nullable = false)
+    private Long soDon;
+
+    @Column(name = "tong_tien", nullable = false, precision = 18, scale = 2)
+    private BigDecimal tongTien;
+
+    @Column(name = "giam_gia", nullable = false, precision = 18, scale = 2)
+    private BigDecimal giamGia;
+
+    @Column(name = "thanh_tien", nullable = false, precision = 18, scale = 2)
+    private BigDecimal thanhTien;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
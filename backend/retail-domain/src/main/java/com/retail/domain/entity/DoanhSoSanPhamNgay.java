@@ -0,0 +1,47 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Rollup số lượng bán và doanh thu theo sản phẩm x chi nhánh x ngày (chỉ hóa đơn COMPLETED)
+ */
+@Entity
+@Table(name = "doanh_so_san_pham_ngay", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_doanh_so_san_pham_ngay", columnNames = {"ngay", "chi_nhanh_id", "san_pham_id"})
+}, indexes = {
+        @Index(name = "idx_doanh_so_san_pham_ngay_san_pham", columnList = "san_pham_id, ngay")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoanhSoSanPhamNgay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "san_pham_id", nullable = false)
+    private Long sanPhamId;
+
+    @Column(name = "chi_nhanh_id", nullable = false)
+    private Long chiNhanhId;
+
+    @Column(name = "ngay", nullable = false)
+    private LocalDate ngay;
+
+    @Column(name = "so_luong", nullable = false)
+    private Long soLuong;
+
+    @Column(name = "thanh_tien", nullable = false, precision = 18, scale = 2)
+    private BigDecimal thanhTien;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,38 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bộ đếm số chứng từ theo loại chứng từ và chi nhánh.
+ * Mỗi lần cấp phát, next_value được tăng theo cả block (xem DocumentNumberService)
+ */
+@Entity
+@Table(name = "document_sequence", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_document_sequence_type_branch", columnNames = {"doc_type", "chi_nhanh_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentSequence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doc_type", nullable = false, length = 30)
+    private String docType; // HOA_DON, PAYMENT, KHACH_HANG, ...
+
+    @Column(name = "chi_nhanh_id", nullable = false)
+    private Long chiNhanhId; // 0 = dùng chung toàn hệ thống
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -73,6 +73,11 @@ public class HoaDon extends BaseEntity {
     @org.hibernate.annotations.BatchSize(size = 20)
     private List<ChiTietHoaDon> chiTietHoaDons = new ArrayList<>();
 
+    // Khuyến mãi đã áp dụng + phân bổ giảm giá theo dòng (chiTietHoaDons được cascade trước nên dòng đã có id)
+    @OneToMany(mappedBy = "hoaDon", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<HoaDonKhuyenMai> khuyenMaiApDungs = new ArrayList<>();
+
     public void addChiTiet(ChiTietHoaDon chiTiet) {
         chiTietHoaDons.add(chiTiet);
         chiTiet.setHoaDon(this);
@@ -82,4 +87,9 @@ public class HoaDon extends BaseEntity {
         chiTietHoaDons.remove(chiTiet);
         chiTiet.setHoaDon(null);
     }
+
+    public void addKhuyenMaiApDung(HoaDonKhuyenMai khuyenMaiApDung) {
+        khuyenMaiApDungs.add(khuyenMaiApDung);
+        khuyenMaiApDung.setHoaDon(this);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.retail.domain.entity;
+
+import com.retail.common.constant.PromotionType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Khuyến mãi đã áp dụng vào hóa đơn - chụp lại mã/tên/loại tại thời điểm bán
+ * (khuyến mãi bị sửa/xóa sau đó không làm thay đổi lịch sử).
+ * Số tiền giảm được phân bổ xuống từng dòng hóa đơn qua PhanBoGiamGia
+ */
+@Entity
+@Table(name = "hoa_don_khuyen_mai", indexes = {
+        @Index(name = "idx_hoa_don_khuyen_mai_hoa_don", columnList = "hoa_don_id"),
+        @Index(name = "idx_hoa_don_khuyen_mai_khuyen_mai", columnList = "khuyen_mai_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HoaDonKhuyenMai {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "hoa_don_id", nullable = false)
+    private HoaDon hoaDon;
+
+    @Column(name = "khuyen_mai_id")
+    private Long khuyenMaiId; // null nếu khuyến mãi đã bị xóa
+
+    @Column(name = "ma_khuyen_mai", nullable = false, length = 50)
+    private String maKhuyenMai;
+
+    @Column(name = "ten_khuyen_mai", nullable = false, length = 200)
+    private String tenKhuyenMai;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "loai_khuyen_mai", nullable = false, length = 50)
+    private PromotionType loaiKhuyenMai;
+
+    @Column(name = "so_tien_giam", nullable = false, precision = 18, scale = 2)
+    private BigDecimal soTienGiam;
+
+    @Column(name = "ma_giam_gia", length = 20)
+    private String maGiamGia; // Mã giảm giá dùng 1 lần (nếu có)
+
+    @OneToMany(mappedBy = "hoaDonKhuyenMai", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<PhanBoGiamGia> phanBoGiamGias = new ArrayList<>();
+
+    public void addPhanBo(PhanBoGiamGia phanBo) {
+        phanBoGiamGias.add(phanBo);
+        phanBo.setHoaDonKhuyenMai(this);
+    }
+}
@@ -0,0 +1,42 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Số hóa đơn COMPLETED của 1 khách hàng theo chi nhánh x ngày -
+ * số khách khác nhau trong 1 khoảng ngày không cộng được từ doanh_so_ngay nên đếm trên bảng này
+ */
+@Entity
+@Table(name = "khach_hang_ngay", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_khach_hang_ngay", columnNames = {"ngay", "chi_nhanh_id", "khach_hang_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KhachHangNgay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "khach_hang_id", nullable = false)
+    private Long khachHangId;
+
+    @Column(name = "chi_nhanh_id", nullable = false)
+    private Long chiNhanhId;
+
+    @Column(name = "ngay", nullable = false)
+    private LocalDate ngay;
+
+    @Column(name = "so_don", nullable = false)
+    private Long soDon;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -107,6 +107,21 @@ public class KhuyenMai extends BaseEntity {
     @Builder.Default
     private Integer soLanDaSuDung = 0;
 
+    /**
+     * Số lượt dùng các node đang giữ chỗ (chưa thành hóa đơn hoàn tất).
+     * Giới hạn tổng áp dụng cho soLanDaSuDung + soLanGiuCho
+     */
+    @Column(name = "so_lan_giu_cho", nullable = false)
+    @Builder.Default
+    private Integer soLanGiuCho = 0;
+
+    /**
+     * Cho phép kết hợp với khuyến mãi khác trên cùng hóa đơn (false = chỉ áp dụng một mình)
+     */
+    @Column(name = "cho_phep_ket_hop", nullable = false)
+    @Builder.Default
+    private Boolean choPhepKetHop = false;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "trang_thai", nullable = false, length = 20)
     @Builder.Default
@@ -0,0 +1,39 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số lần 1 khách hàng đã dùng 1 khuyến mãi - dùng để áp giới hạn soLanSuDungToiDa của KhuyenMai.
+ * Tăng có điều kiện trong transaction của checkout (xem PromotionUsageService)
+ */
+@Entity
+@Table(name = "khuyen_mai_khach_hang", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_khuyen_mai_khach_hang", columnNames = {"khuyen_mai_id", "khach_hang_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KhuyenMaiKhachHang {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "khuyen_mai_id", nullable = false)
+    private Long khuyenMaiId;
+
+    @Column(name = "khach_hang_id", nullable = false)
+    private Long khachHangId;
+
+    @Column(name = "so_lan_su_dung", nullable = false)
+    @Builder.Default
+    private Integer soLanSuDung = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
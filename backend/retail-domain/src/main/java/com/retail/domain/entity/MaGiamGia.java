@@ -0,0 +1,45 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mã giảm giá dùng 1 lần của 1 khuyến mãi.
+ * Mã lưu dạng số (60 bit), hiển thị dạng XXXX-XXXX-XXXX (xem CouponCodes).
+ * Tạo hàng loạt bằng JDBC batch; đánh dấu đã dùng bằng UPDATE có điều kiện (xem CouponService)
+ */
+@Entity
+@Table(name = "ma_giam_gia", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_ma_giam_gia_ma", columnNames = {"ma"})
+}, indexes = {
+        @Index(name = "idx_ma_giam_gia_khuyen_mai", columnList = "khuyen_mai_id"),
+        @Index(name = "idx_ma_giam_gia_hoa_don", columnList = "hoa_don_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MaGiamGia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "khuyen_mai_id", nullable = false)
+    private Long khuyenMaiId;
+
+    @Column(name = "ma", nullable = false)
+    private Long ma;
+
+    @Column(name = "hoa_don_id")
+    private Long hoaDonId; // null = chưa dùng
+
+    @Column(name = "ngay_su_dung")
+    private LocalDateTime ngaySuDung;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,67 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện outbox - được ghi trong cùng transaction với nghiệp vụ (checkout, audit...),
+ * sau đó dispatcher chạy nền xử lý theo lô các tác vụ phụ (điểm tích lũy, lượt dùng khuyến mãi,
+ * xóa cache, audit log...)
+ */
+@Entity
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "ix_outbox_event_status_id", columnList = "status, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 50)
+    private EventType eventType;
+
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    @Column(name = "payload", columnDefinition = "NVARCHAR(MAX)")
+    private String payload; // JSON
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private EventStatus status = EventStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public enum EventType {
+        INVOICE_COMPLETED, // Hóa đơn thanh toán xong: cộng điểm, tăng lượt dùng khuyến mãi, xóa cache
+        INVOICE_CANCELLED, // Hủy hóa đơn đã thanh toán: trừ điểm đã cộng, xóa cache
+        INVOICE_CHANGED,   // Hóa đơn treo/sửa/hủy đơn treo: xóa cache
+        SALES_ROLLUP,      // Cộng/trừ hóa đơn vào rollup doanh số theo ngày (gom theo chi nhánh x ngày)
+        AUDIT_LOG          // Ghi audit log
+    }
+
+    public enum EventStatus {
+        PENDING, PROCESSED, FAILED
+    }
+}
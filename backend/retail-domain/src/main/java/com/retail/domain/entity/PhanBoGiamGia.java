@@ -0,0 +1,38 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Phần giảm giá của 1 khuyến mãi rơi vào 1 dòng hóa đơn
+ * - dùng để báo cáo giảm giá theo sản phẩm/danh mục bằng SQL
+ */
+@Entity
+@Table(name = "phan_bo_giam_gia", indexes = {
+        @Index(name = "idx_phan_bo_giam_gia_hoa_don_khuyen_mai", columnList = "hoa_don_khuyen_mai_id"),
+        @Index(name = "idx_phan_bo_giam_gia_chi_tiet", columnList = "chi_tiet_hoa_don_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PhanBoGiamGia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "hoa_don_khuyen_mai_id", nullable = false)
+    private HoaDonKhuyenMai hoaDonKhuyenMai;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "chi_tiet_hoa_don_id", nullable = false)
+    private ChiTietHoaDon chiTietHoaDon;
+
+    @Column(name = "so_tien_giam", nullable = false, precision = 18, scale = 2)
+    private BigDecimal soTienGiam;
+}
@@ -0,0 +1,41 @@
+package com.retail.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Phiên bản dữ liệu doanh số theo chi nhánh x ngày - tăng khi doanh số của ngày đã qua thay đổi.
+ * Khóa cache báo cáo của khoảng ngày đã kết thúc (xem ReportCacheService)
+ */
+@Entity
+@Table(name = "phien_ban_doanh_so", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_phien_ban_doanh_so", columnNames = {"ngay", "chi_nhanh_id"})
+}, indexes = {
+        @Index(name = "idx_phien_ban_doanh_so_chi_nhanh", columnList = "chi_nhanh_id, ngay")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PhienBanDoanhSo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "chi_nhanh_id", nullable = false)
+    private Long chiNhanhId;
+
+    @Column(name = "ngay", nullable = false)
+    private LocalDate ngay;
+
+    @Column(name = "phien_ban", nullable = false)
+    private Long phienBan;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,44 @@
+package com.retail.loadtest;
+
+import com.retail.application.config.RedisConfig;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Load test checkout chạy offline: H2 in-memory thay SQL Server, cache trong bộ nhớ thay Redis.
+ *
+ * Chỉ nạp tầng application (service thật, transaction thật) - không có web layer/security.
+ * Chạy xong in báo cáo rồi thoát, exit code 1 nếu có giao dịch lỗi.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {
+        RedisAutoConfiguration.class,
+        RedisRepositoriesAutoConfiguration.class
+})
+@ComponentScan(
+        basePackages = {"com.retail.application", "com.retail.loadtest"},
+        // RedisConfig cần Redis thật - thay bằng LocalCacheConfig
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = RedisConfig.class)
+)
+@ConfigurationPropertiesScan("com.retail.loadtest")
+@EntityScan("com.retail.domain")
+@EnableJpaRepositories("com.retail.persistence.repository")
+@EnableJpaAuditing
+public class LoadTestApplication {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(LoadTestApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        System.exit(SpringApplication.exit(application.run(args)));
+    }
+}
@@ -0,0 +1,122 @@
+package com.retail.loadtest;
+
+import com.retail.common.constant.PromotionType;
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.ChiNhanh;
+import com.retail.domain.entity.KhachHang;
+import com.retail.domain.entity.KhuyenMai;
+import com.retail.domain.entity.NhanVien;
+import com.retail.domain.entity.SanPham;
+import com.retail.persistence.repository.ChiNhanhRepository;
+import com.retail.persistence.repository.KhachHangRepository;
+import com.retail.persistence.repository.KhuyenMaiRepository;
+import com.retail.persistence.repository.NhanVienRepository;
+import com.retail.persistence.repository.SanPhamRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tạo dữ liệu mẫu cho load test: 1 chi nhánh, 1 thu ngân mỗi quầy, sản phẩm, khách hàng và 1 mã khuyến mãi
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoadTestDataSeeder {
+
+    public static final String PROMOTION_CODE = "LOADTEST10";
+
+    // Đủ lớn để không bao giờ hết hàng trong 1 lần chạy
+    private static final int INITIAL_STOCK = 10_000_000;
+
+    private final LoadTestProperties properties;
+    private final ChiNhanhRepository chiNhanhRepository;
+    private final NhanVienRepository nhanVienRepository;
+    private final SanPhamRepository sanPhamRepository;
+    private final KhachHangRepository khachHangRepository;
+    private final KhuyenMaiRepository khuyenMaiRepository;
+
+    @Transactional
+    public SeedData seed() {
+        Random random = new Random(properties.getSeed());
+
+        ChiNhanh chiNhanh = chiNhanhRepository.save(ChiNhanh.builder()
+                .maChiNhanh("CN-LT")
+                .tenChiNhanh("Chi nhánh load test")
+                .trangThai(Status.ACTIVE)
+                .build());
+
+        List<NhanVien> nhanViens = new ArrayList<>();
+        for (int i = 1; i <= properties.getTills(); i++) {
+            nhanViens.add(NhanVien.builder()
+                    .maNhanVien(String.format("NV-LT-%03d", i))
+                    .tenNhanVien("Thu ngân " + i)
+                    .username("loadtest-till-" + i)
+                    .password("loadtest")
+                    .role(NhanVien.Role.CASHIER)
+                    .chiNhanh(chiNhanh)
+                    .trangThai(Status.ACTIVE)
+                    .build());
+        }
+        nhanViens = nhanVienRepository.saveAll(nhanViens);
+
+        List<SanPham> sanPhams = new ArrayList<>();
+        for (int i = 1; i <= properties.getProducts(); i++) {
+            sanPhams.add(SanPham.builder()
+                    .maSanPham(String.format("SP-LT-%05d", i))
+                    .barcode(String.format("893%010d", i))
+                    .tenSanPham("Sản phẩm load test " + i)
+                    // 5.000 - 200.000đ, làm tròn nghìn
+                    .giaBan(BigDecimal.valueOf((5 + random.nextInt(196)) * 1_000L))
+                    .tonKho(INITIAL_STOCK)
+                    .chiNhanh(chiNhanh)
+                    .trangThai(Status.ACTIVE)
+                    .build());
+        }
+        sanPhams = sanPhamRepository.saveAll(sanPhams);
+
+        List<KhachHang> khachHangs = new ArrayList<>();
+        for (int i = 1; i <= properties.getCustomers(); i++) {
+            khachHangs.add(KhachHang.builder()
+                    .maKhachHang(String.format("KH-LT-%05d", i))
+                    .tenKhachHang("Khách hàng " + i)
+                    .soDienThoai(String.format("09%08d", i))
+                    .trangThai(Status.ACTIVE)
+                    .build());
+        }
+        khachHangs = khachHangRepository.saveAll(khachHangs);
+
+        khuyenMaiRepository.save(KhuyenMai.builder()
+                .maKhuyenMai(PROMOTION_CODE)
+                .tenKhuyenMai("Giảm 10% load test")
+                .loaiKhuyenMai(PromotionType.PERCENTAGE)
+                .giaTriKhuyenMai(BigDecimal.TEN)
+                .giamToiDa(BigDecimal.valueOf(50_000))
+                .ngayBatDau(LocalDateTime.now().minusDays(1))
+                .ngayKetThuc(LocalDateTime.now().plusDays(30))
+                .build());
+
+        log.info("Seeded {} tills, {} products, {} customers", nhanViens.size(), sanPhams.size(), khachHangs.size());
+
+        return new SeedData(
+                chiNhanh.getId(),
+                nhanViens.stream().map(NhanVien::getId).toList(),
+                sanPhams.stream().map(SanPham::getBarcode).toList(),
+                khachHangs.stream().map(KhachHang::getId).toList(),
+                PROMOTION_CODE);
+    }
+
+    public record SeedData(Long chiNhanhId,
+                           List<Long> nhanVienIds,
+                           List<String> barcodes,
+                           List<Long> khachHangIds,
+                           String promotionCode) {
+    }
+}
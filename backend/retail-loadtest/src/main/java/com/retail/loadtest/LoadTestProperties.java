@@ -0,0 +1,25 @@
+package com.retail.loadtest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Tham số load test - override bằng --loadtest.xxx=... khi chạy jar
+ */
+@Data
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+
+    private int tills = 8;                     // Số quầy thu ngân chạy song song
+    private int transactionsPerTill = 200;     // Giao dịch đo trên mỗi quầy
+    private int warmupPerTill = 20;            // Giao dịch khởi động (JIT, cache, block số chứng từ) - không tính
+    private int itemsPerCart = 5;              // Số lần quét mã vạch mỗi giỏ hàng
+    private int products = 500;
+    private int customers = 200;
+    private double holdRatio = 0.3;            // Tỷ lệ giao dịch đi qua treo bill -> khôi phục -> thanh toán
+    private double customerRatio = 0.5;        // Tỷ lệ giao dịch có khách hàng (tích điểm)
+    private double promotionRatio = 0.2;       // Tỷ lệ giao dịch nhập mã khuyến mãi
+    private boolean print = true;              // In hóa đơn PDF sau khi thanh toán
+    private long seed = 42;                    // Cùng seed => cùng chuỗi giao dịch
+    private String reportFile;                 // Ghi thêm báo cáo CSV (so sánh giữa các lần chạy)
+}
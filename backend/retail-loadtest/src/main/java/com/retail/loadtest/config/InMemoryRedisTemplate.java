@@ -0,0 +1,83 @@
+package com.retail.loadtest.config;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisTemplate giả lập trong bộ nhớ - chỉ hỗ trợ các lệnh ứng dụng thật sự dùng
+ * (SADD/SMEMBERS/SREM/EXPIRE cho index khoảng ngày của CacheInvalidationService).
+ * Lệnh khác ném UnsupportedOperationException để lộ ra ngay khi code mới cần thêm lệnh.
+ */
+class InMemoryRedisTemplate extends RedisTemplate<String, Object> {
+
+    private final ConcurrentMap<String, Set<Object>> sets = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, Object> setOperations = (SetOperations<String, Object>) Proxy.newProxyInstance(
+            SetOperations.class.getClassLoader(), new Class<?>[]{SetOperations.class}, (proxy, method, args) -> invokeSet(method, args));
+
+    @Override
+    public void afterPropertiesSet() {
+        // Không có RedisConnectionFactory
+    }
+
+    @Override
+    public SetOperations<String, Object> opsForSet() {
+        return setOperations;
+    }
+
+    @Override
+    public Boolean expire(String key, long timeout, TimeUnit unit) {
+        // TTL không ảnh hưởng kết quả trong 1 lần chạy load test
+        return sets.containsKey(key);
+    }
+
+    @Override
+    public Boolean expire(String key, Duration timeout) {
+        return sets.containsKey(key);
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        return sets.remove(key) != null;
+    }
+
+    private Object invokeSet(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "add": {
+                Set<Object> set = sets.computeIfAbsent((String) args[0], k -> ConcurrentHashMap.newKeySet());
+                return Arrays.stream((Object[]) args[1]).filter(set::add).count();
+            }
+            case "members": {
+                Set<Object> set = sets.get((String) args[0]);
+                return set != null ? new LinkedHashSet<>(set) : Collections.emptySet();
+            }
+            case "remove": {
+                Set<Object> set = sets.get((String) args[0]);
+                return set == null ? 0L : Arrays.stream((Object[]) args[1]).filter(set::remove).count();
+            }
+            case "getOperations":
+                return this;
+            case "toString":
+                return "InMemorySetOperations";
+            case "hashCode":
+                return System.identityHashCode(this);
+            case "equals":
+                return args[0] == setOperations;
+            default:
+                throw new UnsupportedOperationException(
+                        "SetOperations." + method.getName() + " is not supported by the load-test Redis stand-in");
+        }
+    }
+}
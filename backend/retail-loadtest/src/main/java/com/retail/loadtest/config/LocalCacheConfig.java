@@ -0,0 +1,33 @@
+package com.retail.loadtest.config;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Thay RedisConfig khi chạy load test: cache trong bộ nhớ, hành vi giống production
+ * - Không cache giá trị null (disableCachingNullValues)
+ * - Transaction-aware: put/evict chỉ chạy sau khi commit
+ *
+ * Lưu ý: cache giữ tham chiếu object, không tốn chi phí serialize như Redis
+ */
+@Configuration
+@EnableCaching
+public class LocalCacheConfig {
+
+    @Bean
+    public CacheManager cacheManager() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    @Bean
+    public RedisTemplate<String, Object> redisTemplate() {
+        return new InMemoryRedisTemplate();
+    }
+}
@@ -0,0 +1,18 @@
+package com.retail.loadtest.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Bean bảo mật mà tầng application cần (SecurityConfig nằm ở retail-security, không nạp khi load test)
+ */
+@Configuration
+public class LocalSecurityConfig {
+
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+}
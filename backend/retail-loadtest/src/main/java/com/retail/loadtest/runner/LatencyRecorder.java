@@ -0,0 +1,81 @@
+package com.retail.loadtest.runner;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Ghi lại toàn bộ độ trễ (nano giây) theo từng bước - mỗi quầy dùng 1 recorder riêng (không đồng bộ),
+ * gộp lại sau khi chạy xong. Giữ mẫu thô thay vì histogram để percentile chính xác.
+ */
+public class LatencyRecorder {
+
+    private final Map<Stage, Samples> samples = new EnumMap<>(Stage.class);
+    private final Map<Stage, Integer> errors = new EnumMap<>(Stage.class);
+
+    public void record(Stage stage, long nanos) {
+        samples.computeIfAbsent(stage, s -> new Samples()).add(nanos);
+    }
+
+    public void recordError(Stage stage) {
+        errors.merge(stage, 1, Integer::sum);
+    }
+
+    public void merge(LatencyRecorder other) {
+        other.samples.forEach((stage, values) -> samples.computeIfAbsent(stage, s -> new Samples()).addAll(values));
+        other.errors.forEach((stage, count) -> errors.merge(stage, count, Integer::sum));
+    }
+
+    public int count(Stage stage) {
+        Samples values = samples.get(stage);
+        return values != null ? values.size : 0;
+    }
+
+    public int errors(Stage stage) {
+        return errors.getOrDefault(stage, 0);
+    }
+
+    public StageSummary summarize(Stage stage) {
+        Samples values = samples.get(stage);
+        if (values == null || values.size == 0) {
+            return new StageSummary(stage, 0, errors(stage), 0, 0, 0, 0, 0);
+        }
+        long[] sorted = Arrays.copyOf(values.data, values.size);
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        return new StageSummary(stage, sorted.length, errors(stage), mean,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), sorted[sorted.length - 1]);
+    }
+
+    /**
+     * Nearest-rank percentile trên mảng đã sắp xếp
+     */
+    static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    public record StageSummary(Stage stage, int count, int errors,
+                               double meanNanos, long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+    }
+
+    private static final class Samples {
+        private long[] data = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + other.size));
+            }
+            System.arraycopy(other.data, 0, data, size, other.size);
+            size += other.size;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.retail.loadtest.runner;
+
+import com.retail.loadtest.runner.LatencyRecorder.StageSummary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Kết quả 1 lần chạy: throughput và p50/p95/p99 theo từng bước
+ */
+public class LoadTestReport {
+
+    private final int tills;
+    private final Duration elapsed;
+    private final long pendingOutboxEvents;
+    private final List<StageSummary> stages = new ArrayList<>();
+
+    public LoadTestReport(int tills, LatencyRecorder recorder, Duration elapsed, long pendingOutboxEvents) {
+        this.tills = tills;
+        this.elapsed = elapsed;
+        this.pendingOutboxEvents = pendingOutboxEvents;
+        for (Stage stage : Stage.values()) {
+            stages.add(recorder.summarize(stage));
+        }
+    }
+
+    public int failedTransactions() {
+        return transactions().errors();
+    }
+
+    public double throughputPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? transactions().count() / seconds : 0;
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("==================== CHECKOUT LOAD TEST ====================\n");
+        sb.append(String.format(Locale.ROOT, "Tills: %d | Transactions: %d ok, %d failed | Duration: %.1f s | Throughput: %.1f tx/s%n",
+                tills, transactions().count(), transactions().errors(), elapsed.toMillis() / 1000.0, throughputPerSecond()));
+        sb.append(String.format(Locale.ROOT, "%-12s %8s %7s %10s %10s %10s %10s %10s%n",
+                "Stage", "count", "errors", "mean(ms)", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)"));
+        for (StageSummary s : stages) {
+            if (s.count() == 0 && s.errors() == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.ROOT, "%-12s %8d %7d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    s.stage(), s.count(), s.errors(), s.meanNanos() / 1e6,
+                    millis(s.p50Nanos()), millis(s.p95Nanos()), millis(s.p99Nanos()), millis(s.maxNanos())));
+        }
+        sb.append(String.format("Outbox events still pending after run: %d%n", pendingOutboxEvents));
+        sb.append("============================================================");
+        return sb.toString();
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("stage,count,errors,mean_ms,p50_ms,p95_ms,p99_ms,max_ms,throughput_tx_s");
+        for (StageSummary s : stages) {
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.2f",
+                    s.stage(), s.count(), s.errors(), s.meanNanos() / 1e6,
+                    millis(s.p50Nanos()), millis(s.p95Nanos()), millis(s.p99Nanos()), millis(s.maxNanos()),
+                    throughputPerSecond()));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private StageSummary transactions() {
+        return stages.get(Stage.TRANSACTION.ordinal());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
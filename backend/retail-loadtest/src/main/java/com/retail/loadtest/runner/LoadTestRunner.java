@@ -0,0 +1,97 @@
+package com.retail.loadtest.runner;
+
+import com.retail.application.service.pos.PosService;
+import com.retail.application.service.report.PdfInvoiceService;
+import com.retail.domain.entity.OutboxEvent;
+import com.retail.loadtest.LoadTestDataSeeder;
+import com.retail.loadtest.LoadTestDataSeeder.SeedData;
+import com.retail.loadtest.LoadTestProperties;
+import com.retail.persistence.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Chạy load test: seed dữ liệu -> warm-up -> đo N quầy song song -> in báo cáo
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoadTestRunner implements CommandLineRunner, ExitCodeGenerator {
+
+    private final LoadTestProperties properties;
+    private final LoadTestDataSeeder dataSeeder;
+    private final PosService posService;
+    private final PdfInvoiceService pdfInvoiceService;
+    private final OutboxEventRepository outboxEventRepository;
+
+    private int exitCode;
+
+    @Override
+    public void run(String... args) throws Exception {
+        SeedData seedData = dataSeeder.seed();
+
+        List<TillSimulator> tills = new ArrayList<>();
+        for (int i = 1; i <= properties.getTills(); i++) {
+            tills.add(new TillSimulator(i, seedData, properties, posService, pdfInvoiceService));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getTills());
+        try {
+            log.info("Warming up: {} transactions x {} tills", properties.getWarmupPerTill(), properties.getTills());
+            runPhase(executor, tills, properties.getWarmupPerTill());
+
+            log.info("Measuring: {} transactions x {} tills", properties.getTransactionsPerTill(), properties.getTills());
+            long start = System.nanoTime();
+            LatencyRecorder result = runPhase(executor, tills, properties.getTransactionsPerTill());
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            LoadTestReport report = new LoadTestReport(properties.getTills(), result, elapsed,
+                    outboxEventRepository.countByStatus(OutboxEvent.EventStatus.PENDING));
+            log.info("\n{}", report.format());
+
+            if (StringUtils.hasText(properties.getReportFile())) {
+                report.writeCsv(Path.of(properties.getReportFile()));
+                log.info("CSV report written to {}", properties.getReportFile());
+            }
+            exitCode = report.failedTransactions() > 0 ? 1 : 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private LatencyRecorder runPhase(ExecutorService executor, List<TillSimulator> tills, int transactions)
+            throws InterruptedException {
+        List<Future<LatencyRecorder>> futures = new ArrayList<>();
+        for (TillSimulator till : tills) {
+            futures.add(executor.submit(() -> till.run(transactions)));
+        }
+
+        LatencyRecorder merged = new LatencyRecorder();
+        for (Future<LatencyRecorder> future : futures) {
+            try {
+                merged.merge(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Till simulation crashed", e.getCause());
+            }
+        }
+        return merged;
+    }
+}
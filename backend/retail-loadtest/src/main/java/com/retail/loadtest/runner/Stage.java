@@ -0,0 +1,13 @@
+package com.retail.loadtest.runner;
+
+/**
+ * Các bước của 1 giao dịch tại quầy được đo riêng
+ */
+public enum Stage {
+    SCAN,          // Quét 1 mã vạch
+    HOLD,          // Treo bill
+    RESUME,        // Khôi phục bill treo
+    CHECKOUT,      // Thanh toán (checkout hoặc hoàn tất bill treo)
+    PRINT,         // In hóa đơn PDF
+    TRANSACTION    // Toàn bộ giao dịch từ lần quét đầu tới khi in xong
+}
@@ -0,0 +1,121 @@
+package com.retail.loadtest.runner;
+
+import com.retail.application.dto.CartItemDTO;
+import com.retail.application.dto.CheckoutRequest;
+import com.retail.application.dto.HoldBillRequest;
+import com.retail.application.dto.InvoiceDTO;
+import com.retail.application.dto.ProductDTO;
+import com.retail.application.service.pos.PosService;
+import com.retail.application.service.report.PdfInvoiceService;
+import com.retail.loadtest.LoadTestDataSeeder.SeedData;
+import com.retail.loadtest.LoadTestProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * 1 quầy thu ngân: quét hàng -> (treo bill -> khôi phục) -> thanh toán -> in hóa đơn.
+ *
+ * Mỗi quầy có Random riêng (seed + số quầy) nên cùng cấu hình luôn sinh cùng chuỗi giao dịch.
+ * Chỉ chạy trên 1 thread tại 1 thời điểm.
+ */
+@Slf4j
+class TillSimulator {
+
+    private static final String PAYMENT_METHOD = "CASH";
+
+    private final int tillNumber;
+    private final Long nhanVienId;
+    private final SeedData seedData;
+    private final LoadTestProperties properties;
+    private final PosService posService;
+    private final PdfInvoiceService pdfInvoiceService;
+    private final Random random;
+
+    TillSimulator(int tillNumber, SeedData seedData, LoadTestProperties properties,
+                  PosService posService, PdfInvoiceService pdfInvoiceService) {
+        this.tillNumber = tillNumber;
+        this.nhanVienId = seedData.nhanVienIds().get(tillNumber - 1);
+        this.seedData = seedData;
+        this.properties = properties;
+        this.posService = posService;
+        this.pdfInvoiceService = pdfInvoiceService;
+        this.random = new Random(properties.getSeed() + tillNumber);
+    }
+
+    LatencyRecorder run(int transactions) {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 0; i < transactions; i++) {
+            long start = System.nanoTime();
+            try {
+                runTransaction(recorder);
+                recorder.record(Stage.TRANSACTION, System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                recorder.recordError(Stage.TRANSACTION);
+                log.warn("Till {} transaction failed: {}", tillNumber, e.getMessage());
+            }
+        }
+        return recorder;
+    }
+
+    private void runTransaction(LatencyRecorder recorder) {
+        List<CartItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < properties.getItemsPerCart(); i++) {
+            String barcode = seedData.barcodes().get(random.nextInt(seedData.barcodes().size()));
+            ProductDTO product = timed(recorder, Stage.SCAN, () -> posService.scanProduct(barcode));
+            items.add(CartItemDTO.builder()
+                    .sanPhamId(product.getId())
+                    .soLuong(1 + random.nextInt(3))
+                    .donGia(product.getGiaBan())
+                    .build());
+        }
+
+        Long khachHangId = random.nextDouble() < properties.getCustomerRatio()
+                ? seedData.khachHangIds().get(random.nextInt(seedData.khachHangIds().size()))
+                : null;
+        String maKhuyenMai = random.nextDouble() < properties.getPromotionRatio() ? seedData.promotionCode() : null;
+
+        InvoiceDTO invoice;
+        if (random.nextDouble() < properties.getHoldRatio()) {
+            HoldBillRequest holdRequest = HoldBillRequest.builder()
+                    .khachHangId(khachHangId)
+                    .nhanVienId(nhanVienId)
+                    .chiNhanhId(seedData.chiNhanhId())
+                    .items(items)
+                    .maKhuyenMai(maKhuyenMai)
+                    .build();
+            Long invoiceId = timed(recorder, Stage.HOLD, () -> posService.holdBill(holdRequest)).getId();
+            timed(recorder, Stage.RESUME, () -> posService.resumePendingInvoice(invoiceId));
+            invoice = timed(recorder, Stage.CHECKOUT, () -> posService.completePendingInvoice(invoiceId, PAYMENT_METHOD));
+        } else {
+            CheckoutRequest checkoutRequest = CheckoutRequest.builder()
+                    .khachHangId(khachHangId)
+                    .nhanVienId(nhanVienId)
+                    .chiNhanhId(seedData.chiNhanhId())
+                    .items(items)
+                    .phuongThucThanhToan(PAYMENT_METHOD)
+                    .maKhuyenMai(maKhuyenMai)
+                    .build();
+            invoice = timed(recorder, Stage.CHECKOUT, () -> posService.checkout(checkoutRequest));
+        }
+
+        if (properties.isPrint()) {
+            timed(recorder, Stage.PRINT, () -> pdfInvoiceService.generateInvoicePdf(invoice.getId()));
+        }
+    }
+
+    private static <T> T timed(LatencyRecorder recorder, Stage stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            recorder.record(stage, System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            recorder.recordError(stage);
+            throw e;
+        }
+    }
+}
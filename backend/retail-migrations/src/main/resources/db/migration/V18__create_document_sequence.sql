@@ -0,0 +1,14 @@
+-- =============================================
+-- Document number sequences (per document type and branch)
+-- Số chứng từ được cấp theo block: mỗi node giữ 1 block trong bộ nhớ
+-- =============================================
+
+CREATE TABLE document_sequence (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    doc_type VARCHAR(30) NOT NULL,
+    chi_nhanh_id BIGINT NOT NULL DEFAULT 0,   -- 0 = dùng chung toàn hệ thống
+    next_value BIGINT NOT NULL DEFAULT 1,
+    updated_at DATETIME2,
+
+    CONSTRAINT uq_document_sequence_type_branch UNIQUE (doc_type, chi_nhanh_id)
+);
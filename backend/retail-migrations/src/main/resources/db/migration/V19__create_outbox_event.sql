@@ -0,0 +1,19 @@
+-- =============================================
+-- Transactional outbox
+-- Ghi cùng transaction với nghiệp vụ, dispatcher chạy nền xử lý theo lô các tác vụ phụ
+-- =============================================
+
+CREATE TABLE outbox_event (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,          -- INVOICE_COMPLETED, INVOICE_CANCELLED, INVOICE_CHANGED, AUDIT_LOG
+    aggregate_id BIGINT,
+    payload NVARCHAR(MAX),                    -- JSON
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- PENDING, PROCESSED, FAILED
+    attempts INT NOT NULL DEFAULT 0,
+    last_error NVARCHAR(1000),
+    created_at DATETIME2 NOT NULL DEFAULT SYSDATETIME(),
+    processed_at DATETIME2
+);
+
+-- Dispatcher đọc các sự kiện PENDING theo thứ tự id
+CREATE INDEX ix_outbox_event_status_id ON outbox_event(status, id);
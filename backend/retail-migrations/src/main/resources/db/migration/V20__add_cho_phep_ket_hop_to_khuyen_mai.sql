@@ -0,0 +1,8 @@
+-- =============================================
+-- Add cho_phep_ket_hop (Stackable) to khuyen_mai table
+-- =============================================
+
+-- Khuyến mãi được phép kết hợp với khuyến mãi khác trên cùng hóa đơn
+-- Mặc định 0: khuyến mãi hiện có vẫn áp dụng độc quyền như trước
+ALTER TABLE khuyen_mai
+ADD cho_phep_ket_hop BIT NOT NULL DEFAULT 0;
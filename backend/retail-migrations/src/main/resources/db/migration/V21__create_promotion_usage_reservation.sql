@@ -0,0 +1,29 @@
+-- =============================================
+-- Promotion usage reservation
+-- so_lan_giu_cho: lượt dùng các node đã giữ chỗ nhưng hóa đơn chưa hoàn tất
+-- (giới hạn tổng: so_lan_da_su_dung + so_lan_giu_cho <= tong_so_lan_su_dung_toi_da)
+-- khuyen_mai_khach_hang: số lần mỗi khách hàng đã dùng khuyến mãi (giới hạn so_lan_su_dung_toi_da)
+-- =============================================
+
+ALTER TABLE khuyen_mai
+ADD so_lan_giu_cho INT NOT NULL DEFAULT 0;
+
+CREATE TABLE khuyen_mai_khach_hang (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    khuyen_mai_id BIGINT NOT NULL,
+    khach_hang_id BIGINT NOT NULL,
+    so_lan_su_dung INT NOT NULL DEFAULT 0,
+    updated_at DATETIME2,
+
+    CONSTRAINT fk_khuyen_mai_khach_hang_khuyen_mai
+        FOREIGN KEY (khuyen_mai_id)
+        REFERENCES khuyen_mai(id)
+        ON DELETE CASCADE,
+
+    CONSTRAINT fk_khuyen_mai_khach_hang_khach_hang
+        FOREIGN KEY (khach_hang_id)
+        REFERENCES khach_hang(id)
+        ON DELETE CASCADE,
+
+    CONSTRAINT uq_khuyen_mai_khach_hang UNIQUE (khuyen_mai_id, khach_hang_id)
+);
@@ -0,0 +1,28 @@
+-- =============================================
+-- Coupon codes (mã giảm giá dùng 1 lần)
+-- Mỗi khuyến mãi có thể có hàng trăm nghìn mã; mã lưu dạng số 60 bit (BIGINT) thay vì chuỗi
+-- hoa_don_id: hóa đơn đã dùng mã (NULL = chưa dùng) - đặt bằng UPDATE có điều kiện khi lưu hóa đơn
+-- =============================================
+
+CREATE TABLE ma_giam_gia (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    khuyen_mai_id BIGINT NOT NULL,
+    ma BIGINT NOT NULL,
+    hoa_don_id BIGINT NULL,
+    ngay_su_dung DATETIME2 NULL,
+    created_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+
+    CONSTRAINT fk_ma_giam_gia_khuyen_mai
+        FOREIGN KEY (khuyen_mai_id)
+        REFERENCES khuyen_mai(id)
+        ON DELETE CASCADE,
+
+    CONSTRAINT uq_ma_giam_gia_ma UNIQUE (ma)
+);
+
+CREATE NONCLUSTERED INDEX idx_ma_giam_gia_khuyen_mai
+ON ma_giam_gia(khuyen_mai_id);
+
+CREATE NONCLUSTERED INDEX idx_ma_giam_gia_hoa_don
+ON ma_giam_gia(hoa_don_id)
+WHERE hoa_don_id IS NOT NULL;
@@ -0,0 +1,59 @@
+-- =============================================
+-- Applied promotions per invoice + per-line discount allocation
+-- hoa_don_khuyen_mai: khuyến mãi đã áp dụng vào hóa đơn (chụp lại mã/tên tại thời điểm bán)
+-- phan_bo_giam_gia: số tiền giảm của từng khuyến mãi phân bổ xuống từng dòng hóa đơn
+--   (tổng phân bổ của 1 khuyến mãi = so_tien_giam) - báo cáo giảm giá theo sản phẩm/danh mục bằng SQL
+-- =============================================
+
+CREATE TABLE hoa_don_khuyen_mai (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    hoa_don_id BIGINT NOT NULL,
+    khuyen_mai_id BIGINT NULL,
+    ma_khuyen_mai VARCHAR(50) NOT NULL,
+    ten_khuyen_mai NVARCHAR(200) NOT NULL,
+    loai_khuyen_mai VARCHAR(50) NOT NULL,
+    so_tien_giam DECIMAL(18,2) NOT NULL,
+    ma_giam_gia VARCHAR(20) NULL,
+
+    CONSTRAINT fk_hoa_don_khuyen_mai_hoa_don
+        FOREIGN KEY (hoa_don_id)
+        REFERENCES hoa_don(id)
+        ON DELETE CASCADE,
+
+    -- Xóa khuyến mãi không xóa lịch sử bán hàng
+    CONSTRAINT fk_hoa_don_khuyen_mai_khuyen_mai
+        FOREIGN KEY (khuyen_mai_id)
+        REFERENCES khuyen_mai(id)
+        ON DELETE SET NULL
+);
+
+CREATE NONCLUSTERED INDEX idx_hoa_don_khuyen_mai_hoa_don
+ON hoa_don_khuyen_mai(hoa_don_id);
+
+CREATE NONCLUSTERED INDEX idx_hoa_don_khuyen_mai_khuyen_mai
+ON hoa_don_khuyen_mai(khuyen_mai_id)
+INCLUDE (so_tien_giam);
+
+CREATE TABLE phan_bo_giam_gia (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    hoa_don_khuyen_mai_id BIGINT NOT NULL,
+    chi_tiet_hoa_don_id BIGINT NOT NULL,
+    so_tien_giam DECIMAL(18,2) NOT NULL,
+
+    CONSTRAINT fk_phan_bo_giam_gia_hoa_don_khuyen_mai
+        FOREIGN KEY (hoa_don_khuyen_mai_id)
+        REFERENCES hoa_don_khuyen_mai(id)
+        ON DELETE CASCADE,
+
+    -- Không CASCADE: SQL Server không cho 2 đường cascade từ hoa_don tới cùng 1 bảng
+    CONSTRAINT fk_phan_bo_giam_gia_chi_tiet_hoa_don
+        FOREIGN KEY (chi_tiet_hoa_don_id)
+        REFERENCES chi_tiet_hoa_don(id)
+);
+
+CREATE NONCLUSTERED INDEX idx_phan_bo_giam_gia_hoa_don_khuyen_mai
+ON phan_bo_giam_gia(hoa_don_khuyen_mai_id);
+
+CREATE NONCLUSTERED INDEX idx_phan_bo_giam_gia_chi_tiet
+ON phan_bo_giam_gia(chi_tiet_hoa_don_id)
+INCLUDE (so_tien_giam);
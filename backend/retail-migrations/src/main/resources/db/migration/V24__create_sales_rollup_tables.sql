@@ -0,0 +1,72 @@
+-- =============================================
+-- Daily sales rollups (cộng dồn khi hóa đơn hoàn tất / bị hủy, dựng lại định kỳ từ hoa_don)
+-- doanh_so_ngay: số đơn và tiền theo chi nhánh x ngày
+-- doanh_so_san_pham_ngay: số lượng và doanh thu theo sản phẩm x chi nhánh x ngày
+-- khach_hang_ngay: số đơn của khách theo khách hàng x chi nhánh x ngày (đếm khách khác nhau theo khoảng ngày)
+-- Dòng có so_don = 0 (hóa đơn đã hủy hết) được giữ lại, lần dựng lại sau sẽ xóa
+-- =============================================
+
+CREATE TABLE doanh_so_ngay (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    chi_nhanh_id BIGINT NOT NULL,
+    ngay DATE NOT NULL,
+    so_don BIGINT NOT NULL DEFAULT 0,
+    tong_tien DECIMAL(18,2) NOT NULL DEFAULT 0,
+    giam_gia DECIMAL(18,2) NOT NULL DEFAULT 0,
+    thanh_tien DECIMAL(18,2) NOT NULL DEFAULT 0,
+    updated_at DATETIME2,
+
+    CONSTRAINT uq_doanh_so_ngay UNIQUE (chi_nhanh_id, ngay)
+);
+
+CREATE NONCLUSTERED INDEX idx_doanh_so_ngay_ngay
+ON doanh_so_ngay(ngay)
+INCLUDE (chi_nhanh_id, so_don, tong_tien, giam_gia, thanh_tien);
+
+CREATE TABLE doanh_so_san_pham_ngay (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    san_pham_id BIGINT NOT NULL,
+    chi_nhanh_id BIGINT NOT NULL,
+    ngay DATE NOT NULL,
+    so_luong BIGINT NOT NULL DEFAULT 0,
+    thanh_tien DECIMAL(18,2) NOT NULL DEFAULT 0,
+    updated_at DATETIME2,
+
+    CONSTRAINT uq_doanh_so_san_pham_ngay UNIQUE (ngay, chi_nhanh_id, san_pham_id)
+);
+
+CREATE NONCLUSTERED INDEX idx_doanh_so_san_pham_ngay_san_pham
+ON doanh_so_san_pham_ngay(san_pham_id, ngay)
+INCLUDE (so_luong, thanh_tien);
+
+CREATE TABLE khach_hang_ngay (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    khach_hang_id BIGINT NOT NULL,
+    chi_nhanh_id BIGINT NOT NULL,
+    ngay DATE NOT NULL,
+    so_don BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME2,
+
+    CONSTRAINT uq_khach_hang_ngay UNIQUE (ngay, chi_nhanh_id, khach_hang_id)
+);
+
+-- Dựng rollup cho dữ liệu cũ (các ngày về sau do SalesRollupService cộng dồn)
+INSERT INTO doanh_so_ngay (chi_nhanh_id, ngay, so_don, tong_tien, giam_gia, thanh_tien, updated_at)
+SELECT h.chi_nhanh_id, CAST(h.ngay_tao AS DATE), COUNT(*), SUM(h.tong_tien), SUM(COALESCE(h.giam_gia, 0)),
+       SUM(h.thanh_tien), GETDATE()
+FROM hoa_don h
+WHERE h.trang_thai = 'COMPLETED'
+GROUP BY h.chi_nhanh_id, CAST(h.ngay_tao AS DATE);
+
+INSERT INTO doanh_so_san_pham_ngay (san_pham_id, chi_nhanh_id, ngay, so_luong, thanh_tien, updated_at)
+SELECT c.san_pham_id, h.chi_nhanh_id, CAST(h.ngay_tao AS DATE), SUM(c.so_luong), SUM(c.thanh_tien), GETDATE()
+FROM hoa_don h
+JOIN chi_tiet_hoa_don c ON c.hoa_don_id = h.id
+WHERE h.trang_thai = 'COMPLETED'
+GROUP BY c.san_pham_id, h.chi_nhanh_id, CAST(h.ngay_tao AS DATE);
+
+INSERT INTO khach_hang_ngay (khach_hang_id, chi_nhanh_id, ngay, so_don, updated_at)
+SELECT h.khach_hang_id, h.chi_nhanh_id, CAST(h.ngay_tao AS DATE), COUNT(*), GETDATE()
+FROM hoa_don h
+WHERE h.trang_thai = 'COMPLETED' AND h.khach_hang_id IS NOT NULL
+GROUP BY h.khach_hang_id, h.chi_nhanh_id, CAST(h.ngay_tao AS DATE);
@@ -0,0 +1,20 @@
+-- =============================================
+-- Phiên bản dữ liệu doanh số theo chi nhánh x ngày
+-- Tăng 1 mỗi khi doanh số của 1 ngày đã qua thay đổi (hủy hóa đơn cũ, thanh toán bill treo từ hôm trước,
+-- dựng lại rollup). Báo cáo của khoảng ngày đã kết thúc được cache theo SUM(phien_ban) của khoảng:
+-- dòng không bao giờ bị xóa và chỉ tăng nên tổng đổi khi và chỉ khi có ngày trong khoảng thay đổi
+-- =============================================
+
+CREATE TABLE phien_ban_doanh_so (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    chi_nhanh_id BIGINT NOT NULL,
+    ngay DATE NOT NULL,
+    phien_ban BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME2,
+
+    CONSTRAINT uq_phien_ban_doanh_so UNIQUE (ngay, chi_nhanh_id)
+);
+
+CREATE NONCLUSTERED INDEX idx_phien_ban_doanh_so_chi_nhanh
+ON phien_ban_doanh_so(chi_nhanh_id, ngay)
+INCLUDE (phien_ban);
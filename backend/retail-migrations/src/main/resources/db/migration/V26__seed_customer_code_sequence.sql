@@ -0,0 +1,24 @@
+-- =============================================
+-- Bộ đếm mã khách hàng (KH000123) bắt đầu sau mã dạng KH + số lớn nhất đã có
+-- Mã cũ sinh ngẫu nhiên / theo timestamp (KH1234, KH56789, KH123456) hoặc nhập tay có thể trùng định dạng
+-- KH%06d - bỏ qua toàn bộ dải số đã dùng thay vì chỉ dựa vào khác độ dài
+-- =============================================
+
+DECLARE @max_ma_khach_hang BIGINT = (
+    SELECT MAX(TRY_CAST(SUBSTRING(ma_khach_hang, 3, 18) AS BIGINT))
+    FROM khach_hang
+    WHERE ma_khach_hang LIKE 'KH_%'
+      AND SUBSTRING(ma_khach_hang, 3, 18) NOT LIKE '%[^0-9]%'
+);
+
+IF @max_ma_khach_hang IS NOT NULL
+BEGIN
+    IF EXISTS (SELECT 1 FROM document_sequence WHERE doc_type = 'KHACH_HANG' AND chi_nhanh_id = 0)
+        UPDATE document_sequence
+        SET next_value = @max_ma_khach_hang + 1, updated_at = SYSDATETIME()
+        WHERE doc_type = 'KHACH_HANG' AND chi_nhanh_id = 0
+          AND next_value <= @max_ma_khach_hang;
+    ELSE
+        INSERT INTO document_sequence (doc_type, chi_nhanh_id, next_value, updated_at)
+        VALUES ('KHACH_HANG', 0, @max_ma_khach_hang + 1, SYSDATETIME());
+END;
@@ -0,0 +1,9 @@
+-- =============================================
+-- Dispatcher chỉ nhận sự kiện hóa đơn khi các sự kiện trước đó của cùng hóa đơn đã xử lý xong
+-- (OutboxEventRepository.claimPending) - tra sự kiện chưa xử lý theo aggregate_id
+-- =============================================
+
+CREATE INDEX ix_outbox_event_aggregate_unprocessed
+    ON outbox_event(aggregate_id, id)
+    INCLUDE (event_type)
+    WHERE status IN ('PENDING', 'FAILED');
@@ -26,4 +26,16 @@ public interface ChiTietKhuyenMaiRepository extends JpaRepository<ChiTietKhuyenM
     List<ChiTietKhuyenMai> findActiveBySanPhamId(@Param("sanPhamId") Long sanPhamId);
 
     void deleteByKhuyenMaiId(Long khuyenMaiId);
+
+    /**
+     * Dấu vết thay đổi chi tiết khuyến mãi (cập nhật sản phẩm xóa rồi tạo lại dòng -> id/số dòng đổi)
+     */
+    @Query("SELECT COUNT(c) AS total, MAX(c.id) AS lastId FROM ChiTietKhuyenMai c")
+    ChangeMarker findChangeMarker();
+
+    interface ChangeMarker {
+        long getTotal();
+
+        Long getLastId();
+    }
 }
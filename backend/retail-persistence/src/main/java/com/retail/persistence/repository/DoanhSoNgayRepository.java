@@ -0,0 +1,42 @@
+package com.retail.persistence.repository;
+
+import com.retail.domain.entity.DoanhSoNgay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for DoanhSoNgay (rollup doanh số chi nhánh x ngày)
+ *
+ * Đọc theo khoảng ngày - số dòng tỷ lệ với số ngày x số chi nhánh, không phụ thuộc số hóa đơn
+ */
+@Repository
+public interface DoanhSoNgayRepository extends JpaRepository<DoanhSoNgay, Long>, DoanhSoNgayRepositoryCustom {
+
+    /**
+     * Tổng theo ngày của mọi chi nhánh: [ngay, soDon, tongTien, giamGia, thanhTien], ngày tăng dần
+     */
+    @Query("SELECT r.ngay, SUM(r.soDon), SUM(r.tongTien), SUM(r.giamGia), SUM(r.thanhTien) " +
+            "FROM DoanhSoNgay r " +
+            "WHERE r.ngay BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.ngay " +
+            "ORDER BY r.ngay")
+    List<Object[]> sumByDay(@Param("startDate") LocalDate startDate,
+                            @Param("endDate") LocalDate endDate);
+
+    /**
+     * Tổng theo ngày của 1 chi nhánh: [ngay, soDon, tongTien, giamGia, thanhTien], ngày tăng dần
+     */
+    @Query("SELECT r.ngay, SUM(r.soDon), SUM(r.tongTien), SUM(r.giamGia), SUM(r.thanhTien) " +
+            "FROM DoanhSoNgay r " +
+            "WHERE r.chiNhanhId = :chiNhanhId AND r.ngay BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.ngay " +
+            "ORDER BY r.ngay")
+    List<Object[]> sumByDayAndChiNhanh(@Param("chiNhanhId") Long chiNhanhId,
+                                       @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,71 @@
+package com.retail.persistence.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Ghi/đọc các bảng rollup doanh số bằng JDBC (doanh_so_ngay, doanh_so_san_pham_ngay, khach_hang_ngay)
+ */
+public interface DoanhSoNgayRepositoryCustom {
+
+    /**
+     * Cộng delta của 1 chi nhánh x ngày (1 hoặc nhiều hóa đơn) vào 3 bảng rollup (giá trị âm khi hủy) -
+     * dòng chưa có thì tạo mới. Các dòng luôn được cập nhật theo cùng thứ tự
+     * (chi nhánh, sản phẩm tăng dần, khách hàng tăng dần) để không deadlock
+     */
+    void addDelta(SalesDelta delta);
+
+    /**
+     * Giữ khóa dựng lại rollup của 1 ngày tới hết transaction (sp_getapplock, không chờ) -
+     * 2 node không dựng lại cùng 1 ngày cùng lúc
+     *
+     * @return false nếu node khác đang dựng lại ngày này
+     */
+    boolean tryLockDayForRebuild(LocalDate ngay);
+
+    /**
+     * Xóa và tính lại rollup của 1 ngày từ hoa_don / chi_tiet_hoa_don (hóa đơn COMPLETED)
+     *
+     * @return số dòng doanh_so_ngay sau khi dựng lại (= số chi nhánh có bán trong ngày)
+     */
+    int rebuildDay(LocalDate ngay);
+
+    /**
+     * Số đơn, doanh thu thực và số khách khác nhau từng ngày (mọi chi nhánh) trong 1 query gộp,
+     * ngày tăng dần - ngày không có dòng rollup thì không có trong kết quả
+     */
+    List<DailyTotals> sumDailyTotals(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Tăng phiên bản dữ liệu của chi nhánh x ngày (phien_ban_doanh_so) - gọi khi doanh số của ngày đã qua thay đổi
+     */
+    void bumpVersion(long chiNhanhId, LocalDate ngay);
+
+    /**
+     * Phiên bản dữ liệu của khoảng ngày (mọi chi nhánh) - tổng chỉ tăng, đổi khi có ngày trong khoảng thay đổi
+     */
+    long dataVersion(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Phiên bản dữ liệu của khoảng ngày của 1 chi nhánh
+     */
+    long dataVersionByChiNhanh(long chiNhanhId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * @param customers số đơn theo khachHangId tăng dần (khách vãng lai không có trong map)
+     * @param products  theo sanPhamId tăng dần
+     */
+    record SalesDelta(long chiNhanhId, LocalDate ngay, int soDon,
+                      BigDecimal tongTien, BigDecimal giamGia, BigDecimal thanhTien,
+                      SortedMap<Long, Integer> customers,
+                      SortedMap<Long, ProductDelta> products) {
+    }
+
+    record ProductDelta(long soLuong, BigDecimal thanhTien) {
+    }
+
+    record DailyTotals(LocalDate ngay, long soDon, BigDecimal thanhTien, long soKhach) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.retail.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link DoanhSoNgayRepositoryCustom}
+ *
+ * Cộng dồn bằng UPDATE x = x + ? (không đọc rồi ghi) - dòng chưa có thì INSERT, trùng khóa do transaction khác
+ * vừa tạo thì UPDATE lại. Chỉ dùng SQL chuẩn để chạy được cả trên SQL Server lẫn H2 (retail-loadtest),
+ * trừ khóa dựng lại (sp_getapplock) - retail-loadtest không chạy job dựng lại
+ */
+@RequiredArgsConstructor
+public class DoanhSoNgayRepositoryCustomImpl implements DoanhSoNgayRepositoryCustom {
+
+    private static final String COMPLETED = "COMPLETED";
+
+    private static final String UPDATE_DAY_SQL =
+            "UPDATE doanh_so_ngay SET so_don = so_don + ?, tong_tien = tong_tien + ?, giam_gia = giam_gia + ?, " +
+            "thanh_tien = thanh_tien + ?, updated_at = ? WHERE chi_nhanh_id = ? AND ngay = ?";
+
+    private static final String INSERT_DAY_SQL =
+            "INSERT INTO doanh_so_ngay (so_don, tong_tien, giam_gia, thanh_tien, updated_at, chi_nhanh_id, ngay) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PRODUCT_SQL =
+            "UPDATE doanh_so_san_pham_ngay SET so_luong = so_luong + ?, thanh_tien = thanh_tien + ?, updated_at = ? " +
+            "WHERE ngay = ? AND chi_nhanh_id = ? AND san_pham_id = ?";
+
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO doanh_so_san_pham_ngay (so_luong, thanh_tien, updated_at, ngay, chi_nhanh_id, san_pham_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_CUSTOMER_SQL =
+            "UPDATE khach_hang_ngay SET so_don = so_don + ?, updated_at = ? " +
+            "WHERE ngay = ? AND chi_nhanh_id = ? AND khach_hang_id = ?";
+
+    private static final String INSERT_CUSTOMER_SQL =
+            "INSERT INTO khach_hang_ngay (so_don, updated_at, ngay, chi_nhanh_id, khach_hang_id) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    // 0 = lấy được ngay, 1 = lấy được sau khi chờ; < 0 = đang bị giữ / lỗi
+    private static final String LOCK_DAY_FOR_REBUILD_SQL =
+            "SET NOCOUNT ON; DECLARE @result INT; " +
+            "EXEC @result = sp_getapplock @Resource = ?, @LockMode = 'Exclusive', " +
+            "@LockOwner = 'Transaction', @LockTimeout = 0; " +
+            "SELECT @result";
+
+    private static final String DELETE_DAY_SQL = "DELETE FROM doanh_so_ngay WHERE ngay = ?";
+    private static final String DELETE_PRODUCT_DAY_SQL = "DELETE FROM doanh_so_san_pham_ngay WHERE ngay = ?";
+    private static final String DELETE_CUSTOMER_DAY_SQL = "DELETE FROM khach_hang_ngay WHERE ngay = ?";
+
+    private static final String REBUILD_DAY_SQL =
+            "INSERT INTO doanh_so_ngay (ngay, updated_at, chi_nhanh_id, so_don, tong_tien, giam_gia, thanh_tien) " +
+            "SELECT ?, ?, h.chi_nhanh_id, COUNT(*), SUM(h.tong_tien), SUM(COALESCE(h.giam_gia, 0)), SUM(h.thanh_tien) " +
+            "FROM hoa_don h " +
+            "WHERE h.trang_thai = ? AND h.ngay_tao >= ? AND h.ngay_tao < ? " +
+            "GROUP BY h.chi_nhanh_id";
+
+    private static final String REBUILD_PRODUCT_DAY_SQL =
+            "INSERT INTO doanh_so_san_pham_ngay (ngay, updated_at, chi_nhanh_id, san_pham_id, so_luong, thanh_tien) " +
+            "SELECT ?, ?, h.chi_nhanh_id, c.san_pham_id, SUM(c.so_luong), SUM(c.thanh_tien) " +
+            "FROM hoa_don h JOIN chi_tiet_hoa_don c ON c.hoa_don_id = h.id " +
+            "WHERE h.trang_thai = ? AND h.ngay_tao >= ? AND h.ngay_tao < ? " +
+            "GROUP BY h.chi_nhanh_id, c.san_pham_id";
+
+    private static final String REBUILD_CUSTOMER_DAY_SQL =
+            "INSERT INTO khach_hang_ngay (ngay, updated_at, chi_nhanh_id, khach_hang_id, so_don) " +
+            "SELECT ?, ?, h.chi_nhanh_id, h.khach_hang_id, COUNT(*) " +
+            "FROM hoa_don h " +
+            "WHERE h.trang_thai = ? AND h.ngay_tao >= ? AND h.ngay_tao < ? AND h.khach_hang_id IS NOT NULL " +
+            "GROUP BY h.chi_nhanh_id, h.khach_hang_id";
+
+    // Khách khác nhau không cộng được giữa các chi nhánh nên đếm riêng trên khach_hang_ngay rồi ghép theo ngày
+    private static final String DAILY_TOTALS_SQL =
+            "SELECT d.ngay, d.so_don, d.thanh_tien, COALESCE(k.so_khach, 0) AS so_khach " +
+            "FROM (SELECT ngay, SUM(so_don) AS so_don, SUM(thanh_tien) AS thanh_tien FROM doanh_so_ngay " +
+            "      WHERE ngay BETWEEN ? AND ? GROUP BY ngay) d " +
+            "LEFT JOIN (SELECT ngay, COUNT(DISTINCT khach_hang_id) AS so_khach FROM khach_hang_ngay " +
+            "      WHERE ngay BETWEEN ? AND ? AND so_don > 0 GROUP BY ngay) k ON k.ngay = d.ngay " +
+            "ORDER BY d.ngay";
+
+    private static final String UPDATE_VERSION_SQL =
+            "UPDATE phien_ban_doanh_so SET phien_ban = phien_ban + ?, updated_at = ? WHERE chi_nhanh_id = ? AND ngay = ?";
+
+    private static final String INSERT_VERSION_SQL =
+            "INSERT INTO phien_ban_doanh_so (phien_ban, updated_at, chi_nhanh_id, ngay) VALUES (?, ?, ?, ?)";
+
+    // Chi nhánh có rollup trong ngày nhưng chưa có dòng phiên bản - tạo với 0 để lần tăng sau áp dụng được
+    private static final String INSERT_MISSING_VERSIONS_SQL =
+            "INSERT INTO phien_ban_doanh_so (phien_ban, updated_at, chi_nhanh_id, ngay) " +
+            "SELECT 0, ?, d.chi_nhanh_id, d.ngay FROM doanh_so_ngay d " +
+            "WHERE d.ngay = ? AND NOT EXISTS (SELECT 1 FROM phien_ban_doanh_so v " +
+            "      WHERE v.chi_nhanh_id = d.chi_nhanh_id AND v.ngay = d.ngay)";
+
+    private static final String BUMP_DAY_VERSIONS_SQL =
+            "UPDATE phien_ban_doanh_so SET phien_ban = phien_ban + 1, updated_at = ? WHERE ngay = ?";
+
+    private static final String DATA_VERSION_SQL =
+            "SELECT COALESCE(SUM(phien_ban), 0) FROM phien_ban_doanh_so WHERE ngay BETWEEN ? AND ?";
+
+    private static final String DATA_VERSION_BY_CHI_NHANH_SQL =
+            "SELECT COALESCE(SUM(phien_ban), 0) FROM phien_ban_doanh_so WHERE chi_nhanh_id = ? AND ngay BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addDelta(SalesDelta delta) {
+        Timestamp now = now();
+        Date ngay = Date.valueOf(delta.ngay());
+
+        // UPDATE và INSERT dùng cùng thứ tự tham số: giá trị cộng dồn trước, khóa sau
+        upsert(UPDATE_DAY_SQL, INSERT_DAY_SQL, new Object[]{
+                delta.soDon(), delta.tongTien(), delta.giamGia(), delta.thanhTien(), now,
+                delta.chiNhanhId(), ngay});
+
+        List<Object[]> products = new ArrayList<>(delta.products().size());
+        for (Map.Entry<Long, ProductDelta> entry : delta.products().entrySet()) {
+            products.add(new Object[]{entry.getValue().soLuong(), entry.getValue().thanhTien(), now,
+                    ngay, delta.chiNhanhId(), entry.getKey()});
+        }
+        batchUpsert(UPDATE_PRODUCT_SQL, INSERT_PRODUCT_SQL, products);
+
+        List<Object[]> customers = new ArrayList<>(delta.customers().size());
+        for (Map.Entry<Long, Integer> entry : delta.customers().entrySet()) {
+            customers.add(new Object[]{entry.getValue(), now, ngay, delta.chiNhanhId(), entry.getKey()});
+        }
+        batchUpsert(UPDATE_CUSTOMER_SQL, INSERT_CUSTOMER_SQL, customers);
+    }
+
+    @Override
+    public boolean tryLockDayForRebuild(LocalDate ngay) {
+        Integer result = jdbcTemplate.queryForObject(LOCK_DAY_FOR_REBUILD_SQL, Integer.class,
+                "sales_rollup_rebuild:" + ngay);
+        return result != null && result >= 0;
+    }
+
+    @Override
+    public int rebuildDay(LocalDate ngay) {
+        Date day = Date.valueOf(ngay);
+        Timestamp from = Timestamp.valueOf(ngay.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(ngay.plusDays(1).atStartOfDay());
+        Timestamp now = now();
+
+        // Chi nhánh có số liệu trước hoặc sau khi dựng lại đều được tăng phiên bản
+        jdbcTemplate.update(INSERT_MISSING_VERSIONS_SQL, now, day);
+
+        jdbcTemplate.update(DELETE_DAY_SQL, day);
+        jdbcTemplate.update(DELETE_PRODUCT_DAY_SQL, day);
+        jdbcTemplate.update(DELETE_CUSTOMER_DAY_SQL, day);
+
+        int branches = jdbcTemplate.update(REBUILD_DAY_SQL, day, now, COMPLETED, from, to);
+        jdbcTemplate.update(REBUILD_PRODUCT_DAY_SQL, day, now, COMPLETED, from, to);
+        jdbcTemplate.update(REBUILD_CUSTOMER_DAY_SQL, day, now, COMPLETED, from, to);
+
+        jdbcTemplate.update(INSERT_MISSING_VERSIONS_SQL, now, day);
+        jdbcTemplate.update(BUMP_DAY_VERSIONS_SQL, now, day);
+        return branches;
+    }
+
+    @Override
+    public List<DailyTotals> sumDailyTotals(LocalDate startDate, LocalDate endDate) {
+        Date from = Date.valueOf(startDate);
+        Date to = Date.valueOf(endDate);
+        return jdbcTemplate.query(DAILY_TOTALS_SQL, (rs, rowNum) -> new DailyTotals(
+                rs.getDate("ngay").toLocalDate(),
+                rs.getLong("so_don"),
+                rs.getBigDecimal("thanh_tien"),
+                rs.getLong("so_khach")), from, to, from, to);
+    }
+
+    @Override
+    public void bumpVersion(long chiNhanhId, LocalDate ngay) {
+        upsert(UPDATE_VERSION_SQL, INSERT_VERSION_SQL, new Object[]{1L, now(), chiNhanhId, Date.valueOf(ngay)});
+    }
+
+    @Override
+    public long dataVersion(LocalDate startDate, LocalDate endDate) {
+        Long version = jdbcTemplate.queryForObject(DATA_VERSION_SQL, Long.class,
+                Date.valueOf(startDate), Date.valueOf(endDate));
+        return version != null ? version : 0L;
+    }
+
+    @Override
+    public long dataVersionByChiNhanh(long chiNhanhId, LocalDate startDate, LocalDate endDate) {
+        Long version = jdbcTemplate.queryForObject(DATA_VERSION_BY_CHI_NHANH_SQL, Long.class,
+                chiNhanhId, Date.valueOf(startDate), Date.valueOf(endDate));
+        return version != null ? version : 0L;
+    }
+
+    private void batchUpsert(String updateSql, String insertSql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(updateSql, rows);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                insertOrUpdate(updateSql, insertSql, rows.get(i));
+            }
+        }
+    }
+
+    private void upsert(String updateSql, String insertSql, Object[] args) {
+        if (jdbcTemplate.update(updateSql, args) == 0) {
+            insertOrUpdate(updateSql, insertSql, args);
+        }
+    }
+
+    private void insertOrUpdate(String updateSql, String insertSql, Object[] args) {
+        try {
+            jdbcTemplate.update(insertSql, args);
+        } catch (DuplicateKeyException e) {
+            // Transaction khác vừa tạo cùng dòng - cộng vào dòng đó
+            if (jdbcTemplate.update(updateSql, args) == 0) {
+                throw e;
+            }
+        }
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,41 @@
+package com.retail.persistence.repository;
+
+import com.retail.domain.entity.DoanhSoSanPhamNgay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for DoanhSoSanPhamNgay (rollup sản phẩm x chi nhánh x ngày) - ghi qua DoanhSoNgayRepository
+ */
+@Repository
+public interface DoanhSoSanPhamNgayRepository extends JpaRepository<DoanhSoSanPhamNgay, Long> {
+
+    /**
+     * Số lượng và doanh thu theo sản phẩm: [sanPhamId, maSanPham, tenSanPham, totalQty, totalRevenue],
+     * bán nhiều nhất trước (bỏ sản phẩm đã bị hủy hết)
+     */
+    @Query("SELECT r.sanPhamId, sp.maSanPham, sp.tenSanPham, SUM(r.soLuong) as totalQty, SUM(r.thanhTien) " +
+            "FROM DoanhSoSanPhamNgay r JOIN SanPham sp ON sp.id = r.sanPhamId " +
+            "WHERE r.ngay BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.sanPhamId, sp.maSanPham, sp.tenSanPham " +
+            "HAVING SUM(r.soLuong) > 0 " +
+            "ORDER BY totalQty DESC")
+    List<Object[]> sumByProduct(@Param("startDate") LocalDate startDate,
+                                @Param("endDate") LocalDate endDate);
+
+    /**
+     * Sản phẩm bán được trong 1 ngày: [tenSanPham, totalQty], bán nhiều nhất trước
+     */
+    @Query("SELECT sp.tenSanPham, SUM(r.soLuong) as totalQty " +
+            "FROM DoanhSoSanPhamNgay r JOIN SanPham sp ON sp.id = r.sanPhamId " +
+            "WHERE r.ngay = :ngay " +
+            "GROUP BY sp.tenSanPham " +
+            "HAVING SUM(r.soLuong) > 0 " +
+            "ORDER BY totalQty DESC")
+    List<Object[]> sumQuantityByProductName(@Param("ngay") LocalDate ngay);
+}
@@ -0,0 +1,9 @@
+package com.retail.persistence.repository;
+
+import com.retail.domain.entity.DocumentSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentSequenceRepository extends JpaRepository<DocumentSequence, Long>, DocumentSequenceRepositoryCustom {
+}
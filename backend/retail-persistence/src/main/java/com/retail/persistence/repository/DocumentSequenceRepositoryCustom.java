@@ -0,0 +1,16 @@
+package com.retail.persistence.repository;
+
+/**
+ * Cấp phát block số chứng từ bằng UPDATE nguyên tử trên document_sequence (phải gọi trong transaction)
+ */
+public interface DocumentSequenceRepositoryCustom {
+
+    /**
+     * Giữ chỗ {@code blockSize} số liên tiếp cho (docType, chiNhanhId).
+     * Tự tạo dòng bộ đếm nếu chưa có.
+     *
+     * @return số đầu tiên của block; block là [kết quả, kết quả + blockSize)
+     * @throws org.springframework.dao.EmptyResultDataAccessException chưa có bộ đếm và chi nhánh không tồn tại
+     */
+    long reserveBlock(String docType, long chiNhanhId, int blockSize);
+}
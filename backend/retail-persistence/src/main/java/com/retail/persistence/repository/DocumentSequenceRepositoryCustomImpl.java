@@ -0,0 +1,76 @@
+package com.retail.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * JDBC implementation of {@link DocumentSequenceRepositoryCustom}
+ *
+ * UPDATE rồi SELECT lại trong cùng transaction: row lock của UPDATE giữ tới khi commit nên không node nào
+ * chen vào giữa 2 câu lệnh. Chỉ dùng SQL chuẩn để chạy được cả trên SQL Server lẫn H2 (retail-loadtest)
+ */
+@RequiredArgsConstructor
+public class DocumentSequenceRepositoryCustomImpl implements DocumentSequenceRepositoryCustom {
+
+    private static final String RESERVE_SQL =
+            "UPDATE document_sequence SET next_value = next_value + ?, updated_at = ? " +
+            "WHERE doc_type = ? AND chi_nhanh_id = ?";
+
+    private static final String SELECT_SQL =
+            "SELECT next_value FROM document_sequence WHERE doc_type = ? AND chi_nhanh_id = ?";
+
+    private static final long SHARED_BRANCH = 0L;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO document_sequence (doc_type, chi_nhanh_id, next_value, updated_at) VALUES (?, ?, ?, ?)";
+
+    // Bộ đếm theo chi nhánh chỉ được tạo khi chi nhánh tồn tại - id sai không để lại dòng rác
+    private static final String INSERT_BRANCH_SQL =
+            "INSERT INTO document_sequence (doc_type, chi_nhanh_id, next_value, updated_at) " +
+            "SELECT ?, id, ?, ? FROM chi_nhanh WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long reserveBlock(String docType, long chiNhanhId, int blockSize) {
+        Long first = tryReserve(docType, chiNhanhId, blockSize);
+        if (first != null) {
+            return first;
+        }
+
+        // Chưa có bộ đếm: tạo mới và lấy luôn block đầu tiên [1, 1 + blockSize)
+        try {
+            if (chiNhanhId == SHARED_BRANCH) {
+                jdbcTemplate.update(INSERT_SQL, docType, chiNhanhId, 1L + blockSize, now());
+            } else if (jdbcTemplate.update(INSERT_BRANCH_SQL, docType, 1L + blockSize, now(), chiNhanhId) == 0) {
+                throw new EmptyResultDataAccessException("Branch " + chiNhanhId + " does not exist", 1);
+            }
+            return 1L;
+        } catch (DuplicateKeyException e) {
+            // Node khác vừa tạo cùng bộ đếm - cấp phát lại trên dòng đó
+            first = tryReserve(docType, chiNhanhId, blockSize);
+            if (first == null) {
+                throw e;
+            }
+            return first;
+        }
+    }
+
+    private Long tryReserve(String docType, long chiNhanhId, int blockSize) {
+        int updated = jdbcTemplate.update(RESERVE_SQL, blockSize, now(), docType, chiNhanhId);
+        if (updated == 0) {
+            return null;
+        }
+        Long next = jdbcTemplate.queryForObject(SELECT_SQL, Long.class, docType, chiNhanhId);
+        return next - blockSize;
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,30 @@
+package com.retail.persistence.repository;
+
+import com.retail.common.constant.Status;
+import com.retail.domain.entity.HoaDonKhuyenMai;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HoaDonKhuyenMaiRepository extends JpaRepository<HoaDonKhuyenMai, Long> {
+
+    List<HoaDonKhuyenMai> findByHoaDonIdOrderByIdAsc(Long hoaDonId);
+
+    /**
+     * Giảm giá theo khuyến mãi: mã, tên, số hóa đơn, tổng tiền giảm (giảm nhiều nhất trước)
+     */
+    @Query("SELECT k.maKhuyenMai, k.tenKhuyenMai, COUNT(k.id), SUM(k.soTienGiam) as totalDiscount " +
+            "FROM HoaDonKhuyenMai k JOIN k.hoaDon h " +
+            "WHERE h.ngayTao BETWEEN :startDate AND :endDate " +
+            "AND h.trangThai = :trangThai " +
+            "GROUP BY k.maKhuyenMai, k.tenKhuyenMai " +
+            "ORDER BY totalDiscount DESC")
+    List<Object[]> getDiscountByPromotion(@Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate,
+                                          @Param("trangThai") Status trangThai);
+}
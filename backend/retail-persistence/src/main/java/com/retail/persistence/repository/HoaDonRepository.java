@@ -26,7 +26,7 @@ import java.util.Optional;
  *
  */
 @Repository
-public interface HoaDonRepository extends JpaRepository<HoaDon, Long> {
+public interface HoaDonRepository extends JpaRepository<HoaDon, Long>, HoaDonRepositoryCustom {
 
     // ========== BASIC QUERIES ==========
 
@@ -0,0 +1,66 @@
+package com.retail.persistence.repository;
+
+import com.retail.common.constant.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface HoaDonRepositoryCustom {
+
+    /**
+     * Đọc hóa đơn COMPLETED trong khoảng [from, to) kèm dòng chi tiết bằng 1 câu SELECT chạy dạng stream
+     * (JDBC fetch size, không dựng entity, không giữ cả kết quả trong heap)
+     *
+     * Hóa đơn được gom thành từng khối invoicesPerChunk và giao cho chunkConsumer ngay khi đủ khối,
+     * trên chính thread đang đọc - consumer chậm thì việc đọc cũng chậm lại theo
+     *
+     * @param chiNhanhId null = mọi chi nhánh
+     */
+    void streamCompletedInvoiceLines(Long chiNhanhId, LocalDateTime from, LocalDateTime to, int invoicesPerChunk,
+                                     Consumer<List<InvoiceLines>> chunkConsumer);
+
+    /**
+     * Đọc hóa đơn có ngayTao trong [from, to] kèm dòng chi tiết bằng 1 câu SELECT, con trỏ chỉ đọc tới (JDBC fetch size),
+     * theo thứ tự ngayTao giảm dần - mỗi hóa đơn và mỗi dòng chỉ đọc 1 lần, không dựng entity
+     *
+     * Hóa đơn được gom thành từng khối invoicesPerChunk và giao cho chunkConsumer ngay khi đủ khối,
+     * trên chính thread đang đọc
+     */
+    void streamInvoiceLinesForReport(LocalDateTime from, LocalDateTime to, Status trangThai, int invoicesPerChunk,
+                                     Consumer<List<ReportInvoice>> chunkConsumer);
+
+    /**
+     * 1 hóa đơn cho báo cáo doanh thu (khachHangId/tenKhachHang null = khách vãng lai)
+     */
+    record InvoiceSummary(String maHoaDon, LocalDateTime ngayTao, Long khachHangId, String tenKhachHang,
+                          BigDecimal tongTien, BigDecimal giamGia, BigDecimal thanhTien,
+                          String phuongThucThanhToan, String trangThai, BigDecimal diemTichLuy) {
+    }
+
+    /**
+     * Hóa đơn và các dòng của nó cho báo cáo doanh thu
+     */
+    record ReportInvoice(InvoiceSummary summary, List<ReportLine> lines) {
+    }
+
+    /**
+     * @param danhMucId danh mục hiện tại của sản phẩm (null = không phân loại)
+     * @param giamGia   tổng tiền giảm khuyến mãi đã phân bổ cho dòng (0 nếu không có)
+     */
+    record ReportLine(long sanPhamId, Long danhMucId, int soLuong, BigDecimal thanhTien, BigDecimal giamGia) {
+    }
+
+    /**
+     * 1 hóa đơn đã hoàn tất và các dòng của nó
+     */
+    record InvoiceLines(long hoaDonId, BigDecimal tongTien, List<Line> lines) {
+    }
+
+    /**
+     * @param giaNhap giá nhập hiện tại của sản phẩm (null nếu chưa khai báo)
+     */
+    record Line(long sanPhamId, int soLuong, BigDecimal donGia, BigDecimal giaNhap) {
+    }
+}
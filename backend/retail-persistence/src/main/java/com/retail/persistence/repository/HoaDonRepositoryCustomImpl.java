@@ -0,0 +1,207 @@
+package com.retail.persistence.repository;
+
+import com.retail.common.constant.Status;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC implementation of {@link HoaDonRepositoryCustom}
+ */
+@RequiredArgsConstructor
+public class HoaDonRepositoryCustomImpl implements HoaDonRepositoryCustom {
+
+    private static final int FETCH_SIZE = 5_000;
+
+    private static final String COMPLETED_INVOICE_LINES_SQL =
+            "SELECT h.id, h.tong_tien, c.san_pham_id, c.so_luong, c.don_gia, sp.gia_nhap " +
+            "FROM hoa_don h " +
+            "JOIN chi_tiet_hoa_don c ON c.hoa_don_id = h.id " +
+            "LEFT JOIN san_pham sp ON sp.id = c.san_pham_id " +
+            "WHERE h.trang_thai = ? AND h.ngay_tao >= ? AND h.ngay_tao < ? ";
+
+    private static final String REPORT_INVOICE_LINES_SQL =
+            "SELECT h.id, h.ma_hoa_don, h.ngay_tao, h.khach_hang_id, kh.ten_khach_hang, h.tong_tien, h.giam_gia, " +
+            "h.thanh_tien, h.phuong_thuc_thanh_toan, h.trang_thai, h.diem_tich_luy, " +
+            "c.san_pham_id, sp.danh_muc_id, c.so_luong, c.thanh_tien, " +
+            "(SELECT SUM(pb.so_tien_giam) FROM phan_bo_giam_gia pb WHERE pb.chi_tiet_hoa_don_id = c.id) " +
+            "FROM hoa_don h " +
+            "LEFT JOIN khach_hang kh ON kh.id = h.khach_hang_id " +
+            "LEFT JOIN chi_tiet_hoa_don c ON c.hoa_don_id = h.id " +
+            "LEFT JOIN san_pham sp ON sp.id = c.san_pham_id " +
+            "WHERE h.trang_thai = ? AND h.ngay_tao BETWEEN ? AND ? " +
+            "ORDER BY h.ngay_tao DESC, h.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void streamCompletedInvoiceLines(Long chiNhanhId, LocalDateTime from, LocalDateTime to,
+                                            int invoicesPerChunk, Consumer<List<InvoiceLines>> chunkConsumer) {
+        String sql = COMPLETED_INVOICE_LINES_SQL
+                + (chiNhanhId != null ? "AND h.chi_nhanh_id = ? " : "")
+                + "ORDER BY h.id";
+        ChunkingHandler handler = new ChunkingHandler(Math.max(1, invoicesPerChunk), chunkConsumer);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, Status.COMPLETED.name());
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            if (chiNhanhId != null) {
+                ps.setLong(4, chiNhanhId);
+            }
+            return ps;
+        }, handler);
+        handler.flush();
+    }
+
+    @Override
+    public void streamInvoiceLinesForReport(LocalDateTime from, LocalDateTime to, Status trangThai,
+                                            int invoicesPerChunk, Consumer<List<ReportInvoice>> chunkConsumer) {
+        ReportChunkingHandler handler = new ReportChunkingHandler(Math.max(1, invoicesPerChunk), chunkConsumer);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(REPORT_INVOICE_LINES_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, trangThai.name());
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            return ps;
+        }, handler);
+        handler.flush();
+    }
+
+    /**
+     * Dòng đã sắp theo id hóa đơn: đổi id = sang hóa đơn mới
+     */
+    private static final class ChunkingHandler implements RowCallbackHandler {
+        private final int invoicesPerChunk;
+        private final Consumer<List<InvoiceLines>> chunkConsumer;
+
+        private List<InvoiceLines> chunk;
+        private long currentId = Long.MIN_VALUE;
+        private BigDecimal currentTotal;
+        private List<Line> currentLines;
+
+        ChunkingHandler(int invoicesPerChunk, Consumer<List<InvoiceLines>> chunkConsumer) {
+            this.invoicesPerChunk = invoicesPerChunk;
+            this.chunkConsumer = chunkConsumer;
+            this.chunk = new ArrayList<>(invoicesPerChunk);
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long hoaDonId = rs.getLong(1);
+            if (hoaDonId != currentId) {
+                closeInvoice();
+                currentId = hoaDonId;
+                currentTotal = rs.getBigDecimal(2);
+                currentLines = new ArrayList<>(4);
+            }
+            currentLines.add(new Line(rs.getLong(3), rs.getInt(4), rs.getBigDecimal(5), rs.getBigDecimal(6)));
+        }
+
+        void flush() {
+            closeInvoice();
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(invoicesPerChunk);
+            }
+        }
+
+        private void closeInvoice() {
+            if (currentLines == null) {
+                return;
+            }
+            chunk.add(new InvoiceLines(currentId, currentTotal, currentLines));
+            currentLines = null;
+            if (chunk.size() >= invoicesPerChunk) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(invoicesPerChunk);
+            }
+        }
+    }
+
+    /**
+     * Dòng đã sắp theo (ngayTao, id) hóa đơn: đổi id = sang hóa đơn mới; hóa đơn không có dòng vẫn được giao
+     */
+    private static final class ReportChunkingHandler implements RowCallbackHandler {
+        private final int invoicesPerChunk;
+        private final Consumer<List<ReportInvoice>> chunkConsumer;
+
+        private List<ReportInvoice> chunk;
+        private long currentId = Long.MIN_VALUE;
+        private InvoiceSummary currentSummary;
+        private List<ReportLine> currentLines;
+
+        ReportChunkingHandler(int invoicesPerChunk, Consumer<List<ReportInvoice>> chunkConsumer) {
+            this.invoicesPerChunk = invoicesPerChunk;
+            this.chunkConsumer = chunkConsumer;
+            this.chunk = new ArrayList<>(invoicesPerChunk);
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long hoaDonId = rs.getLong(1);
+            if (hoaDonId != currentId) {
+                closeInvoice();
+                currentId = hoaDonId;
+                currentSummary = new InvoiceSummary(
+                        rs.getString(2),
+                        rs.getTimestamp(3).toLocalDateTime(),
+                        rs.getObject(4) != null ? rs.getLong(4) : null,
+                        rs.getString(5),
+                        rs.getBigDecimal(6),
+                        rs.getBigDecimal(7),
+                        rs.getBigDecimal(8),
+                        rs.getString(9),
+                        rs.getString(10),
+                        rs.getBigDecimal(11));
+                currentLines = new ArrayList<>(4);
+            }
+            if (rs.getObject(12) != null) {
+                BigDecimal giamGia = rs.getBigDecimal(16);
+                currentLines.add(new ReportLine(
+                        rs.getLong(12),
+                        rs.getObject(13) != null ? rs.getLong(13) : null,
+                        rs.getInt(14),
+                        rs.getBigDecimal(15),
+                        giamGia != null ? giamGia : BigDecimal.ZERO));
+            }
+        }
+
+        void flush() {
+            closeInvoice();
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(invoicesPerChunk);
+            }
+        }
+
+        private void closeInvoice() {
+            if (currentSummary == null) {
+                return;
+            }
+            chunk.add(new ReportInvoice(currentSummary, currentLines));
+            currentSummary = null;
+            currentLines = null;
+            if (chunk.size() >= invoicesPerChunk) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(invoicesPerChunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.retail.persistence.repository;
+
+import com.retail.domain.entity.KhachHangNgay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Repository for KhachHangNgay - đếm khách hàng khác nhau theo khoảng ngày (ghi qua DoanhSoNgayRepository)
+ */
+@Repository
+public interface KhachHangNgayRepository extends JpaRepository<KhachHangNgay, Long> {
+
+    @Query("SELECT COUNT(DISTINCT k.khachHangId) FROM KhachHangNgay k " +
+            "WHERE k.ngay BETWEEN :startDate AND :endDate AND k.soDon > 0")
+    Long countDistinctCustomers(@Param("startDate") LocalDate startDate,
+                                @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT COUNT(DISTINCT k.khachHangId) FROM KhachHangNgay k " +
+            "WHERE k.chiNhanhId = :chiNhanhId AND k.ngay BETWEEN :startDate AND :endDate AND k.soDon > 0")
+    Long countDistinctCustomersByChiNhanh(@Param("chiNhanhId") Long chiNhanhId,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+}
@@ -5,10 +5,12 @@ import com.retail.domain.entity.KhachHang;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,4 +44,17 @@ public interface KhachHangRepository extends JpaRepository<KhachHang, Long> {
             "LOWER(k.soDienThoai) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(k.email) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     Page<KhachHang> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Cộng (points > 0) hoặc trừ (points < 0) điểm tích lũy trực tiếp trên DB, không để âm
+     * - không load/ghi đè entity nên không mất điểm do thao tác khác cập nhật đồng thời.
+     * Trừ điểm khi hủy hóa đơn phải chạy sau khi đã cộng (thứ tự sự kiện theo hóa đơn trong
+     * OutboxEventRepository.claimPending) - trừ trước sẽ bị chặn ở 0 và mất phần trừ
+     */
+    @Modifying
+    @Query("UPDATE KhachHang k SET k.diemTichLuy = CASE " +
+            "WHEN COALESCE(k.diemTichLuy, 0) + :points < 0 THEN 0 " +
+            "ELSE COALESCE(k.diemTichLuy, 0) + :points END " +
+            "WHERE k.id = :id")
+    int addPoints(@Param("id") Long id, @Param("points") BigDecimal points);
+}
@@ -0,0 +1,55 @@
+package com.retail.persistence.repository;
+
+import com.retail.domain.entity.KhuyenMaiKhachHang;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface KhuyenMaiKhachHangRepository extends JpaRepository<KhuyenMaiKhachHang, Long> {
+
+    /**
+     * Tăng số lần dùng của khách hàng nếu chưa vượt giới hạn, tạo dòng nếu là lần dùng đầu tiên - 1 câu lệnh.
+     * HOLDLOCK giữ range lock trên (khuyến mãi, khách hàng) tới hết transaction: 2 checkout cùng lúc
+     * của 1 khách hàng không thể cùng thấy "chưa có dòng" rồi cùng INSERT.
+     * Trả về 0 nếu đã đủ lượt
+     */
+    @Modifying
+    @Query(value = "MERGE khuyen_mai_khach_hang WITH (HOLDLOCK) AS t " +
+            "USING (SELECT :khuyenMaiId AS khuyen_mai_id, :khachHangId AS khach_hang_id) AS s " +
+            "ON t.khuyen_mai_id = s.khuyen_mai_id AND t.khach_hang_id = s.khach_hang_id " +
+            "WHEN MATCHED AND t.so_lan_su_dung + :count <= :max THEN " +
+            "UPDATE SET so_lan_su_dung = t.so_lan_su_dung + :count, updated_at = :now " +
+            "WHEN NOT MATCHED AND :count <= :max THEN " +
+            "INSERT (khuyen_mai_id, khach_hang_id, so_lan_su_dung, updated_at) " +
+            "VALUES (s.khuyen_mai_id, s.khach_hang_id, :count, :now);",
+            nativeQuery = true)
+    int reserveIfBelow(@Param("khuyenMaiId") Long khuyenMaiId,
+                       @Param("khachHangId") Long khachHangId,
+                       @Param("count") int count,
+                       @Param("max") int max,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Trả lại lượt dùng của khách hàng (hóa đơn đã thanh toán bị hủy) - không xuống dưới 0
+     */
+    @Modifying
+    @Query("UPDATE KhuyenMaiKhachHang u SET u.soLanSuDung = " +
+            "CASE WHEN u.soLanSuDung > :count THEN u.soLanSuDung - :count ELSE 0 END, u.updatedAt = :now " +
+            "WHERE u.khuyenMaiId = :khuyenMaiId AND u.khachHangId = :khachHangId")
+    int decrement(@Param("khuyenMaiId") Long khuyenMaiId,
+                  @Param("khachHangId") Long khachHangId,
+                  @Param("count") int count,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Số lần khách hàng đã dùng các khuyến mãi (chưa dùng lần nào thì không có dòng)
+     */
+    List<KhuyenMaiKhachHang> findByKhachHangIdAndKhuyenMaiIdIn(Long khachHangId, Collection<Long> khuyenMaiIds);
+}
@@ -4,11 +4,13 @@ import com.retail.common.constant.PromotionType;
 import com.retail.common.constant.Status;
 import com.retail.domain.entity.KhuyenMai;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,9 +47,102 @@ public interface KhuyenMaiRepository extends JpaRepository<KhuyenMai, Long> {
                                                    @Param("chiNhanhId") Long chiNhanhId,
                                                    @Param("date") LocalDateTime date);
 
+    /**
+     * Như findActivePromotionsForBranch nhưng kèm chi tiết sản phẩm (1 query) - nạp ActivePromotionCache
+     */
+    @Query("SELECT DISTINCT k FROM KhuyenMai k LEFT JOIN FETCH k.chiNhanh LEFT JOIN FETCH k.chiTietKhuyenMais " +
+           "WHERE k.trangThai = :status " +
+           "AND (k.chiNhanh IS NULL OR k.chiNhanh.id = :chiNhanhId) " +
+           "AND k.ngayBatDau <= :date AND k.ngayKetThuc >= :date")
+    List<KhuyenMai> findActivePromotionsWithDetailsForBranch(@Param("status") Status status,
+                                                              @Param("chiNhanhId") Long chiNhanhId,
+                                                              @Param("date") LocalDateTime date);
+
+    /**
+     * Thời điểm bắt đầu gần nhất sau :date của khuyến mãi chưa bắt đầu của chi nhánh (null nếu không có)
+     */
+    @Query("SELECT MIN(k.ngayBatDau) FROM KhuyenMai k WHERE k.trangThai = :status " +
+           "AND (k.chiNhanh IS NULL OR k.chiNhanh.id = :chiNhanhId) " +
+           "AND k.ngayBatDau > :date")
+    LocalDateTime findNextStartForBranch(@Param("status") Status status,
+                                         @Param("chiNhanhId") Long chiNhanhId,
+                                         @Param("date") LocalDateTime date);
+
+    /**
+     * Khuyến mãi ACTIVE chưa hết hạn kèm chi tiết sản phẩm (1 query) - nạp PromotionIndex
+     */
+    @Query("SELECT DISTINCT k FROM KhuyenMai k LEFT JOIN FETCH k.chiTietKhuyenMais " +
+           "WHERE k.trangThai = :status AND k.ngayKetThuc >= :date")
+    List<KhuyenMai> findIndexablePromotions(@Param("status") Status status,
+                                            @Param("date") LocalDateTime date);
+
+    @Query("SELECT k FROM KhuyenMai k LEFT JOIN FETCH k.chiTietKhuyenMais WHERE k.id = :id")
+    Optional<KhuyenMai> findWithDetailsById(@Param("id") Long id);
+
+    /**
+     * Dấu vết thay đổi của bảng khuyến mãi - PromotionIndex so sánh định kỳ để biết node khác đã ghi
+     */
+    @Query("SELECT COUNT(k) AS total, MAX(k.updatedAt) AS lastUpdated FROM KhuyenMai k")
+    ChangeMarker findChangeMarker();
+
+    interface ChangeMarker {
+        long getTotal();
+
+        LocalDateTime getLastUpdated();
+    }
+
     /**
      * Find promotions by date range
      */
     List<KhuyenMai> findByNgayBatDauLessThanEqualAndNgayKetThucGreaterThanEqual(
             LocalDateTime endDate, LocalDateTime startDate);
+
+    /**
+     * Tăng số lần đã sử dụng trực tiếp trên DB (không load/ghi đè entity).
+     * Lượt của khuyến mãi có giới hạn đã được giữ chỗ lúc checkout -> chuyển từ giữ chỗ sang đã dùng
+     */
+    @Modifying
+    @Query("UPDATE KhuyenMai k SET k.soLanDaSuDung = COALESCE(k.soLanDaSuDung, 0) + :count, " +
+            "k.soLanGiuCho = CASE WHEN k.soLanGiuCho > :count THEN k.soLanGiuCho - :count ELSE 0 END " +
+            "WHERE k.id = :id")
+    int incrementUsage(@Param("id") Long id, @Param("count") int count);
+
+    /**
+     * Trừ số lần đã sử dụng (hóa đơn đã thanh toán bị hủy) - không xuống dưới 0
+     */
+    @Modifying
+    @Query("UPDATE KhuyenMai k SET k.soLanDaSuDung = " +
+            "CASE WHEN COALESCE(k.soLanDaSuDung, 0) > :count THEN k.soLanDaSuDung - :count ELSE 0 END " +
+            "WHERE k.id = :id")
+    int decrementUsage(@Param("id") Long id, @Param("count") int count);
+
+    /**
+     * Số lượt còn có thể giữ chỗ (null = không giới hạn tổng hoặc không tồn tại)
+     */
+    @Query("SELECT k.tongSoLanSuDungToiDa - COALESCE(k.soLanDaSuDung, 0) - k.soLanGiuCho FROM KhuyenMai k WHERE k.id = :id")
+    Integer findUnreservedUsage(@Param("id") Long id);
+
+    /**
+     * Khuyến mãi có giới hạn tổng đã hết lượt để giữ chỗ (đã dùng + đang giữ chỗ >= giới hạn)
+     */
+    @Query("SELECT k.id FROM KhuyenMai k WHERE k.id IN :ids AND k.tongSoLanSuDungToiDa IS NOT NULL " +
+            "AND COALESCE(k.soLanDaSuDung, 0) + k.soLanGiuCho >= k.tongSoLanSuDungToiDa")
+    List<Long> findExhaustedIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Giữ chỗ :count lượt dùng - chỉ thành công khi đã dùng + đang giữ chỗ + :count không vượt giới hạn tổng
+     */
+    @Modifying
+    @Query("UPDATE KhuyenMai k SET k.soLanGiuCho = k.soLanGiuCho + :count " +
+            "WHERE k.id = :id AND k.tongSoLanSuDungToiDa IS NOT NULL " +
+            "AND COALESCE(k.soLanDaSuDung, 0) + k.soLanGiuCho + :count <= k.tongSoLanSuDungToiDa")
+    int reserveUsage(@Param("id") Long id, @Param("count") int count);
+
+    /**
+     * Trả lại lượt đã giữ chỗ nhưng không dùng tới
+     */
+    @Modifying
+    @Query("UPDATE KhuyenMai k SET k.soLanGiuCho = CASE WHEN k.soLanGiuCho > :count THEN k.soLanGiuCho - :count ELSE 0 END " +
+            "WHERE k.id = :id")
+    int releaseReservedUsage(@Param("id") Long id, @Param("count") int count);
 }
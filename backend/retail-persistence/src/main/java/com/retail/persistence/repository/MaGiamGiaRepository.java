@@ -0,0 +1,58 @@
+package com.retail.persistence.repository;
+
+import com.retail.domain.entity.MaGiamGia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface MaGiamGiaRepository extends JpaRepository<MaGiamGia, Long>, MaGiamGiaRepositoryCustom {
+
+    /**
+     * Tra mã qua unique index - không load entity
+     */
+    @Query("SELECT c.khuyenMaiId AS khuyenMaiId, c.hoaDonId AS hoaDonId FROM MaGiamGia c WHERE c.ma = :ma")
+    Optional<CouponState> findStateByMa(@Param("ma") Long ma);
+
+    /**
+     * Đánh dấu mã đã dùng cho hóa đơn nếu mã chưa dùng (hoặc đã thuộc chính hóa đơn này) - trả về 0 nếu mã đã bị dùng
+     */
+    @Modifying
+    @Query("UPDATE MaGiamGia c SET c.hoaDonId = :hoaDonId, c.ngaySuDung = :now " +
+            "WHERE c.ma = :ma AND (c.hoaDonId IS NULL OR c.hoaDonId = :hoaDonId)")
+    int redeem(@Param("ma") Long ma, @Param("hoaDonId") Long hoaDonId, @Param("now") LocalDateTime now);
+
+    /**
+     * Trả lại các mã của hóa đơn (hủy/sửa hóa đơn treo)
+     */
+    @Modifying
+    @Query("UPDATE MaGiamGia c SET c.hoaDonId = NULL, c.ngaySuDung = NULL WHERE c.hoaDonId = :hoaDonId")
+    int releaseByHoaDonId(@Param("hoaDonId") Long hoaDonId);
+
+    long countByKhuyenMaiId(Long khuyenMaiId);
+
+    long countByKhuyenMaiIdAndHoaDonIdIsNotNull(Long khuyenMaiId);
+
+    /**
+     * Dấu vết thay đổi của bảng mã - CouponIndex so sánh định kỳ để biết node khác đã tạo/xóa mã
+     */
+    @Query("SELECT COUNT(c) AS total, MAX(c.id) AS lastId FROM MaGiamGia c")
+    ChangeMarker findChangeMarker();
+
+    interface CouponState {
+        Long getKhuyenMaiId();
+
+        Long getHoaDonId();
+    }
+
+    interface ChangeMarker {
+        long getTotal();
+
+        Long getLastId();
+    }
+}
@@ -0,0 +1,21 @@
+package com.retail.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.function.LongConsumer;
+
+public interface MaGiamGiaRepositoryCustom {
+
+    /**
+     * Thêm nhiều mã cho 1 khuyến mãi bằng JDBC batch (mỗi lô BATCH_SIZE dòng) - chạy trong transaction của caller
+     *
+     * @param codes mã dạng số, không trùng nhau
+     */
+    void insertCodes(Long khuyenMaiId, long[] codes, LocalDateTime createdAt);
+
+    /**
+     * Đọc lần lượt các mã có id > afterId theo thứ tự id (JDBC stream, không dựng entity)
+     *
+     * @return id lớn nhất đã đọc (afterId nếu không có dòng nào)
+     */
+    long forEachCodeAfter(long afterId, LongConsumer consumer);
+}
@@ -0,0 +1,63 @@
+package com.retail.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * JDBC implementation of {@link MaGiamGiaRepositoryCustom}
+ *
+ * Runs in the caller's transaction (JpaTransactionManager exposes its connection to JdbcTemplate)
+ */
+@RequiredArgsConstructor
+public class MaGiamGiaRepositoryCustomImpl implements MaGiamGiaRepositoryCustom {
+
+    private static final int BATCH_SIZE = 1_000;
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String INSERT_CODE_SQL =
+            "INSERT INTO ma_giam_gia (khuyen_mai_id, ma, created_at) VALUES (?, ?, ?)";
+
+    private static final String CODES_AFTER_SQL =
+            "SELECT id, ma FROM ma_giam_gia WHERE id > ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertCodes(Long khuyenMaiId, long[] codes, LocalDateTime createdAt) {
+        if (codes == null || codes.length == 0) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(createdAt);
+        List<Long> rows = Arrays.stream(codes).boxed().toList();
+        jdbcTemplate.batchUpdate(INSERT_CODE_SQL, rows, BATCH_SIZE, (ps, code) -> {
+            ps.setLong(1, khuyenMaiId);
+            ps.setLong(2, code);
+            ps.setTimestamp(3, now);
+        });
+    }
+
+    @Override
+    public long forEachCodeAfter(long afterId, LongConsumer consumer) {
+        long[] lastId = {afterId};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(CODES_AFTER_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, afterId);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            lastId[0] = rs.getLong(1);
+            consumer.accept(rs.getLong(2));
+        });
+        return lastId[0];
+    }
+}
@@ -2,15 +2,19 @@ package com.retail.persistence.repository;
 
 import com.retail.common.constant.Status;
 import com.retail.domain.entity.NguyenLieu;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface NguyenLieuRepository extends JpaRepository<NguyenLieu, Long> {
@@ -31,11 +35,16 @@ public interface NguyenLieuRepository extends JpaRepository<NguyenLieu, Long> {
     List<NguyenLieu> findByChiNhanhIdAndTrangThai(Long chiNhanhId, Status trangThai);
 
     /**
-     * Find all nguyen lieu with chiNhanh loaded for Excel export
+     * Dòng xuất Excel tồn kho nguyên liệu dạng stream (con trỏ chỉ đọc tới, không dựng entity)
+     * Returns: [maNguyenLieu, tenNguyenLieu, donViTinh, soLuong, tenChiNhanh]
+     * Phải gọi trong transaction và đóng stream sau khi dùng
      */
-    @Query("SELECT DISTINCT n FROM NguyenLieu n " +
-            "LEFT JOIN FETCH n.chiNhanh " +
-            "WHERE n.trangThai = :trangThai")
-    List<NguyenLieu> findByTrangThaiWithChiNhanh(@Param("trangThai") Status trangThai);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT n.maNguyenLieu, n.tenNguyenLieu, n.donViTinh, n.soLuong, cn.tenChiNhanh " +
+            "FROM NguyenLieu n " +
+            "LEFT JOIN n.chiNhanh cn " +
+            "WHERE n.trangThai = :trangThai " +
+            "ORDER BY n.id")
+    Stream<Object[]> streamTonKhoRows(@Param("trangThai") Status trangThai);
 }
 
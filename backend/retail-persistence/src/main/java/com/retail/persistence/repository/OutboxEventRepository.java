@@ -0,0 +1,69 @@
+package com.retail.persistence.repository;
+
+import com.retail.domain.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Các loại sự kiện có aggregate_id = id hóa đơn và phải áp dụng theo thứ tự (cộng rồi mới trừ điểm / lượt dùng)
+    String INVOICE_EVENT_TYPES = "'INVOICE_COMPLETED', 'INVOICE_CANCELLED', 'INVOICE_CHANGED'";
+
+    /**
+     * Nhận 1 lô sự kiện PENDING và khóa chúng tới hết transaction.
+     * READPAST bỏ qua các dòng node khác đang xử lý - nhiều node chạy dispatcher không xử lý trùng.
+     *
+     * Sự kiện hóa đơn (INVOICE_*) được áp dụng đúng thứ tự theo từng hóa đơn: bỏ qua sự kiện khi hóa đơn còn
+     * sự kiện trước đó chưa xử lý (PENDING - kể cả đang bị node khác giữ hoặc chờ thử lại) hoặc FAILED.
+     * Sự kiện sau của cùng hóa đơn được nhận ở lô kế tiếp; sự kiện FAILED chặn các sự kiện sau tới khi được xử lý tay
+     */
+    @Query(value = "SELECT TOP (:limit) * FROM outbox_event WITH (UPDLOCK, READPAST, ROWLOCK) " +
+            "WHERE status = 'PENDING' " +
+            "AND NOT (event_type IN (" + INVOICE_EVENT_TYPES + ") AND EXISTS (" +
+            "SELECT 1 FROM outbox_event earlier " +
+            "WHERE earlier.aggregate_id = outbox_event.aggregate_id AND earlier.id < outbox_event.id " +
+            "AND earlier.status IN ('PENDING', 'FAILED') " +
+            "AND earlier.event_type IN (" + INVOICE_EVENT_TYPES + "))) " +
+            "ORDER BY id", nativeQuery = true)
+    List<OutboxEvent> claimPending(@Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM outbox_event WITH (UPDLOCK, READPAST, ROWLOCK) " +
+            "WHERE id = :id AND status = 'PENDING'", nativeQuery = true)
+    List<OutboxEvent> claimPendingById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = com.retail.domain.entity.OutboxEvent.EventStatus.PROCESSED, " +
+            "e.processedAt = :processedAt WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * Đánh dấu PROCESSED các sự kiện PENDING loại :eventType của hóa đơn tạo trong [from, to) -
+     * dùng khi dựng lại rollup: số liệu của các hóa đơn này đã nằm trong lần dựng lại.
+     * Sự kiện đang được dispatcher xử lý thì chờ lô đó commit
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = com.retail.domain.entity.OutboxEvent.EventStatus.PROCESSED, " +
+            "e.processedAt = :processedAt " +
+            "WHERE e.eventType = :eventType " +
+            "AND e.status = com.retail.domain.entity.OutboxEvent.EventStatus.PENDING " +
+            "AND e.aggregateId IN (SELECT h.id FROM HoaDon h WHERE h.ngayTao >= :from AND h.ngayTao < :to)")
+    int markPendingProcessedForInvoices(@Param("eventType") OutboxEvent.EventType eventType,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = com.retail.domain.entity.OutboxEvent.EventStatus.PROCESSED " +
+            "AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+
+    long countByStatus(OutboxEvent.EventStatus status);
+}
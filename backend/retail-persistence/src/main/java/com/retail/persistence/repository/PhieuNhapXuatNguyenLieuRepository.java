@@ -1,16 +1,20 @@
 package com.retail.persistence.repository;
 
 import com.retail.domain.entity.PhieuNhapXuatNguyenLieu;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PhieuNhapXuatNguyenLieuRepository extends JpaRepository<PhieuNhapXuatNguyenLieu, Long> {
@@ -53,14 +57,17 @@ public interface PhieuNhapXuatNguyenLieuRepository extends JpaRepository<PhieuNh
     Page<PhieuNhapXuatNguyenLieu> findAllOrderByNgayNhapXuatDesc(Pageable pageable);
 
     /**
-     * Find by loaiPhieu with all related entities loaded for Excel export
+     * Dòng xuất Excel phiếu nhập/xuất dạng stream (con trỏ chỉ đọc tới, không dựng entity)
+     * Returns: [maPhieu, ngayNhapXuat, tenNguyenLieu, soLuong, tenNhanVien, ghiChu]
+     * Phải gọi trong transaction và đóng stream sau khi dùng
      */
-    @Query("SELECT DISTINCT p FROM PhieuNhapXuatNguyenLieu p " +
-            "LEFT JOIN FETCH p.nguyenLieu " +
-            "LEFT JOIN FETCH p.nhanVien " +
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.maPhieu, p.ngayNhapXuat, nl.tenNguyenLieu, p.soLuong, nv.tenNhanVien, p.ghiChu " +
+            "FROM PhieuNhapXuatNguyenLieu p " +
+            "LEFT JOIN p.nguyenLieu nl " +
+            "LEFT JOIN p.nhanVien nv " +
             "WHERE p.loaiPhieu = :loaiPhieu " +
             "ORDER BY p.ngayNhapXuat DESC")
-    List<PhieuNhapXuatNguyenLieu> findByLoaiPhieuWithDetails(
-            @Param("loaiPhieu") PhieuNhapXuatNguyenLieu.LoaiPhieu loaiPhieu);
+    Stream<Object[]> streamPhieuRows(@Param("loaiPhieu") PhieuNhapXuatNguyenLieu.LoaiPhieu loaiPhieu);
 }
 
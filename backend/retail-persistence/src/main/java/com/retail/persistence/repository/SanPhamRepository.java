@@ -2,18 +2,27 @@ package com.retail.persistence.repository;
 
 import com.retail.common.constant.Status;
 import com.retail.domain.entity.SanPham;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface SanPhamRepository extends JpaRepository<SanPham, Long> {
+public interface SanPhamRepository extends JpaRepository<SanPham, Long>, SanPhamRepositoryCustom {
 
     Optional<SanPham> findByMaSanPham(String maSanPham);
 
@@ -40,17 +49,43 @@ public interface SanPhamRepository extends JpaRepository<SanPham, Long> {
 
     List<SanPham> findByChiNhanhIdAndTrangThai(Long chiNhanhId, Status trangThai);
 
+    /**
+     * Cập nhật giá nhập trực tiếp trên DB - không ghi lại entity (tồn kho đọc lúc load có thể đã cũ)
+     */
+    @Modifying
+    @Query("UPDATE SanPham s SET s.giaNhap = :giaNhap WHERE s.id = :id")
+    int updateGiaNhap(@Param("id") Long id, @Param("giaNhap") BigDecimal giaNhap);
+
+    /**
+     * Sản phẩm của 1 chi nhánh theo trang (warm-up cache) - nạp sẵn chi nhánh, nhà cung cấp, danh mục để map DTO
+     * không phát sinh thêm truy vấn; Slice không chạy câu COUNT
+     */
+    @EntityGraph(attributePaths = {"chiNhanh", "nhaCungCap", "danhMuc"})
+    Slice<SanPham> findByChiNhanhIdAndTrangThai(Long chiNhanhId, Status trangThai, Pageable pageable);
+
     // ========== NEW METHODS FOR INVENTORY REPORT ==========
 
     /**
-     * Get all products with inventory information for report
-     * Includes branch information via LEFT JOIN FETCH
+     * Dòng báo cáo tồn kho dạng stream (con trỏ chỉ đọc tới, không dựng entity)
+     * Returns: [maSanPham, tenSanPham, donViTinh, tonKho, tonKhoToiThieu, giaNhap, tenChiNhanh]
+     * Phải gọi trong transaction và đóng stream sau khi dùng
      */
-    @Query("SELECT s FROM SanPham s " +
-            "LEFT JOIN FETCH s.chiNhanh cn " +
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.maSanPham, s.tenSanPham, s.donViTinh, s.tonKho, s.tonKhoToiThieu, s.giaNhap, cn.tenChiNhanh " +
+            "FROM SanPham s " +
+            "LEFT JOIN s.chiNhanh cn " +
             "WHERE s.trangThai = :trangThai " +
             "ORDER BY s.tonKho ASC, s.tenSanPham ASC")
-    List<SanPham> findAllForInventoryReport(@Param("trangThai") Status trangThai);
+    Stream<Object[]> streamInventoryReportRows(@Param("trangThai") Status trangThai);
+
+    /**
+     * Nhãn hiển thị báo cáo của các sản phẩm
+     * Returns: [id, maSanPham, tenSanPham, tenDanhMuc (null = không phân loại)]
+     */
+    @Query("SELECT s.id, s.maSanPham, s.tenSanPham, dm.tenDanhMuc " +
+            "FROM SanPham s LEFT JOIN s.danhMuc dm " +
+            "WHERE s.id IN :ids")
+    List<Object[]> findReportLabelsByIds(@Param("ids") Collection<Long> ids);
 
     /**
      * Count products with low stock (below minimum threshold)
@@ -0,0 +1,32 @@
+package com.retail.persistence.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom operations for SanPham that cannot be expressed as derived queries
+ */
+public interface SanPhamRepositoryCustom {
+
+    /**
+     * Trừ tồn kho có điều kiện cho nhiều sản phẩm trong 1 JDBC batch
+     *
+     * Mỗi dòng chạy UPDATE ... SET ton_kho = ton_kho - :qty WHERE id = :id AND ton_kho >= :qty
+     * nên 2 quầy bán cùng 1 sản phẩm cùng lúc không thể làm tồn kho âm.
+     *
+     * @param quantities Số lượng cần trừ theo ID sản phẩm
+     * @return Danh sách ID sản phẩm không đủ tồn kho (không bị trừ)
+     */
+    List<Long> decrementStockIfAvailable(Map<Long, Integer> quantities);
+
+    /**
+     * Cộng tồn kho (nhập hàng, trả hàng) cho nhiều sản phẩm trong 1 JDBC batch
+     *
+     * Mỗi dòng chạy UPDATE ... SET ton_kho = ton_kho + :qty WHERE id = :id - không đọc rồi ghi lại entity
+     * nên không ghi đè lượt trừ tồn kho của checkout chạy cùng lúc.
+     *
+     * @param quantities Số lượng cần cộng theo ID sản phẩm
+     * @return Danh sách ID sản phẩm không tồn tại (không có dòng nào được cập nhật)
+     */
+    List<Long> incrementStock(Map<Long, Integer> quantities);
+}
@@ -0,0 +1,99 @@
+package com.retail.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JDBC implementation of {@link SanPhamRepositoryCustom}
+ *
+ * Runs in the caller's transaction (JpaTransactionManager exposes its connection to JdbcTemplate)
+ */
+@RequiredArgsConstructor
+public class SanPhamRepositoryCustomImpl implements SanPhamRepositoryCustom {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE san_pham SET ton_kho = ton_kho - ?, updated_at = ? " +
+            "WHERE id = ? AND ton_kho >= ?";
+
+    private static final String INCREMENT_STOCK_SQL =
+            "UPDATE san_pham SET ton_kho = ton_kho + ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> decrementStockIfAvailable(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return List.of();
+        }
+
+        // Sắp xếp theo ID để mọi giao dịch khóa các dòng theo cùng thứ tự (tránh deadlock)
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[] updatedRows = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, line.getKey());
+                ps.setInt(4, line.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+
+        return notUpdated(lines, updatedRows);
+    }
+
+    @Override
+    public List<Long> incrementStock(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return List.of();
+        }
+
+        // Cùng thứ tự khóa với decrementStockIfAvailable
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[] updatedRows = jdbcTemplate.batchUpdate(INCREMENT_STOCK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, line.getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+
+        return notUpdated(lines, updatedRows);
+    }
+
+    private static List<Long> notUpdated(List<Map.Entry<Long, Integer>> lines, int[] updatedRows) {
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0) {
+                productIds.add(lines.get(i).getKey());
+            }
+        }
+        return productIds;
+    }
+}
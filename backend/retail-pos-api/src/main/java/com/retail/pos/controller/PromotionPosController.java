@@ -1,6 +1,7 @@
 package com.retail.pos.controller;
 
 import com.retail.application.dto.AppliedPromotionDTO;
+import com.retail.application.dto.BestDiscountDTO;
 import com.retail.application.dto.CartItemDTO;
 import com.retail.application.dto.PromotionDTO;
 import com.retail.application.service.promotion.PromotionService;
@@ -63,6 +64,22 @@ public class PromotionPosController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    /**
+     * Tìm tổ hợp khuyến mãi giảm nhiều nhất cho giỏ hàng (1 lần gọi thay cho thử từng mã)
+     */
+    @PostMapping("/best-discount")
+    public ResponseEntity<ApiResponse<BestDiscountDTO>> findBestDiscount(
+            @RequestParam Long chiNhanhId,
+            @RequestParam(required = false) Long khachHangId,
+            @RequestBody List<CartItemDTO> cartItems,
+            @RequestParam BigDecimal totalAmount) {
+        log.info("Finding best discount for branch: {}, items: {}, total: {}",
+                chiNhanhId, cartItems.size(), totalAmount);
+
+        BestDiscountDTO best = promotionService.findBestDiscount(chiNhanhId, khachHangId, cartItems, totalAmount);
+        return ResponseEntity.ok(ApiResponse.success(best));
+    }
+
     /**
      * Lấy khuyến mãi theo mã
      */
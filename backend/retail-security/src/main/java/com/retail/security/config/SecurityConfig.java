@@ -71,6 +71,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/customers/**").permitAll()      // Customer API (for cache testing - TEMPORARY)
                         .requestMatchers("/api/invoices/**").permitAll()       // Invoice PDF generation
                         .requestMatchers("/api/reports/**").permitAll()        // Excel reports (Day 3-4)
+                        .requestMatchers("/actuator/cachehotkeys/**").hasRole("ADMIN") // Key cache (có thể chứa SĐT khách hàng)
                         .requestMatchers("/actuator/**").permitAll()           // Health checks
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
 